@@ -7,7 +7,18 @@ import at.ac.tuwien.infosys.www.pixy.conversion.*;
 import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.AbstractCfgNode;
 import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.CallUnknownFunction;
 
+import main.JAnalyzer;
+import main.SinkRefiner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * If you want to create a new vulnerability analysis:
@@ -28,6 +39,12 @@ public abstract class AbstractVulnerabilityAnalysis {
      */
     public enum InitialTaint {ALWAYS, IF_REGISTER_GLOBALS, NEVER}
 
+    /**
+     * Verdicts of the taint analysis refinement (see refineVulnerabilities) for a detected vulnerability; only SPURIOUS
+     * vulnerabilities are dropped.
+     */
+    public enum Verdict {VALID, SPURIOUS, UNKNOWN, TIMEOUT}
+
     /**
      * Should members of the $_GET array be considered as initially tainted? Defaults to true, of course.
      */
@@ -73,6 +90,263 @@ public abstract class AbstractVulnerabilityAnalysis {
         return sinks;
     }
 
+    /**
+     * Returns the dependency graphs for the given sinks, one list per sink and in the order of the sinks.
+     *
+     * The graphs of different sinks are built concurrently (see invokeInOrder).
+     *
+     * @param sinks
+     *
+     * @return
+     */
+    protected List<List<DependencyGraph>> getDependencyGraphsForSinks(List<Sink> sinks) {
+        List<Callable<List<DependencyGraph>>> tasks = new ArrayList<>(sinks.size());
+        for (final Sink sink : sinks) {
+            tasks.add(new Callable<List<DependencyGraph>>() {
+                public List<DependencyGraph> call() {
+                    return dependencyAnalysis.getDependencyGraphsForSink(sink);
+                }
+            });
+        }
+
+        return invokeInOrder(tasks);
+    }
+
+    /**
+     * Refines the detected vulnerabilities with constraints on the entry file (if MyOptions.option_TAR is set): prints a
+     * verdict for each vulnerability, and removes the spurious ones from the given list.
+     *
+     * The constraints only cover the entry file, so only the vulnerabilities whose sink is in the entry file are checked;
+     * the others (in included files) are reported as UNKNOWN and kept. The sink lines are checked in parallel, by
+     * MyOptions.solverProcesses threads, each with a time budget of MyOptions.solverTimeout; the verdicts are printed in
+     * the order of the list.
+     *
+     * @param vulnerableSinks the sinks of the detected vulnerabilities, one per vulnerable graph
+     *
+     * @return the number of removed (spurious) vulnerabilities
+     */
+    protected static int refineVulnerabilities(List<AbstractCfgNode> vulnerableSinks) {
+        if (!MyOptions.option_TAR || vulnerableSinks.isEmpty()) {
+            return 0;
+        }
+
+        System.out.println("Taint analysis refinement");
+        System.out.println("-------------------------");
+        System.out.println();
+
+        // one check per sink line of the entry file (the constraints do not depend on the graph)
+        String entryFileName = MyOptions.entryFile.getPath();
+        final Set<Integer> sinkLines = new TreeSet<>();
+        for (AbstractCfgNode vulnerableSink : vulnerableSinks) {
+            if (vulnerableSink.getFileName().equals(entryFileName)) {
+                sinkLines.add(vulnerableSink.getOriginalLineNumber());
+            }
+        }
+
+        // verdicts, keyed by the location (file and line) of the sink
+        Map<String, Verdict> verdicts = new HashMap<>();
+        if (!sinkLines.isEmpty()) {
+            final SinkRefiner refiner;
+            try {
+                refiner = JAnalyzer.createRefiner(Checker.programConverter.getParseTree(), sinkLines);
+            } catch (Exception e) {
+                e.printStackTrace();
+                System.out.println("Warning: refinement failed, keeping all vulnerabilities");
+                System.out.println();
+                return 0;
+            }
+
+            List<Callable<Verdict>> tasks = new ArrayList<>(sinkLines.size());
+            for (final Integer sinkLine : sinkLines) {
+                tasks.add(new Callable<Verdict>() {
+                    public Verdict call() {
+                        try {
+                            switch (refiner.check(sinkLine, MyOptions.solverTimeout)) {
+                                case SAT:
+                                    return Verdict.VALID;
+                                case UNSAT:
+                                    return Verdict.SPURIOUS;
+                                case TIMEOUT:
+                                    return Verdict.TIMEOUT;
+                                default:
+                                    return Verdict.UNKNOWN;
+                            }
+                        } catch (Exception e) {
+                            e.printStackTrace(System.out);
+                            return Verdict.UNKNOWN;
+                        }
+                    }
+                });
+            }
+
+            Iterator<Integer> sinkLineIterator = sinkLines.iterator();
+            for (Verdict verdict : invokeInOrder(tasks, MyOptions.solverProcesses)) {
+                verdicts.put(entryFileName + ":" + sinkLineIterator.next(), verdict);
+            }
+        }
+
+        int removed = 0;
+        for (Iterator<AbstractCfgNode> iterator = vulnerableSinks.iterator(); iterator.hasNext(); ) {
+            AbstractCfgNode vulnerableSink = iterator.next();
+            Verdict verdict = verdicts.get(vulnerableSink.getFileName() + ":" + vulnerableSink.getOriginalLineNumber());
+            if (verdict == null) {
+                // not in the entry file
+                verdict = Verdict.UNKNOWN;
+            }
+            System.out.println("- " + vulnerableSink.getLoc() + ": " + verdict.toString().toLowerCase());
+            if (verdict == Verdict.SPURIOUS) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        System.out.println();
+
+        return removed;
+    }
+
+    /**
+     * Returns the line numbers of the given sinks (see detectVulnerabilities).
+     *
+     * @param vulnerableSinks
+     *
+     * @return
+     */
+    protected static List<Integer> getLineNumbers(List<AbstractCfgNode> vulnerableSinks) {
+        List<Integer> lineNumbers = new LinkedList<>();
+        for (AbstractCfgNode vulnerableSink : vulnerableSinks) {
+            lineNumbers.add(vulnerableSink.getOriginalLineNumber());
+        }
+        return lineNumbers;
+    }
+
+    /**
+     * Runs the given tasks on a fork-join pool with MyOptions.detectionThreads threads and returns their results in the
+     * order of the tasks.
+     *
+     * Everything a task prints to System.out is buffered and printed after all tasks have finished, again in the order
+     * of the tasks. This way, the console output is the same as if the tasks had been run one after the other.
+     *
+     * @param tasks
+     *
+     * @return
+     */
+    protected static <T> List<T> invokeInOrder(List<Callable<T>> tasks) {
+        return invokeInOrder(tasks, MyOptions.detectionThreads);
+    }
+
+    /**
+     * Like invokeInOrder(tasks), but with the given number of threads.
+     *
+     * @param tasks
+     * @param threads
+     *
+     * @return
+     */
+    protected static <T> List<T> invokeInOrder(List<Callable<T>> tasks, int threads) {
+        final PrintStream originalOut = System.out;
+        final TaskOutputStream taskOutput = new TaskOutputStream(originalOut);
+
+        List<Callable<TaskResult<T>>> bufferedTasks = new ArrayList<>(tasks.size());
+        for (final Callable<T> task : tasks) {
+            bufferedTasks.add(new Callable<TaskResult<T>>() {
+                public TaskResult<T> call() throws Exception {
+                    taskOutput.begin();
+                    T value;
+                    try {
+                        value = task.call();
+                    } catch (Exception e) {
+                        taskOutput.end();
+                        throw e;
+                    }
+                    return new TaskResult<>(value, taskOutput.end());
+                }
+            });
+        }
+
+        List<TaskResult<T>> taskResults = new ArrayList<>(tasks.size());
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        System.setOut(new PrintStream(taskOutput, true));
+        try {
+            for (Future<TaskResult<T>> future : pool.invokeAll(bufferedTasks)) {
+                taskResults.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted during vulnerability detection", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+            System.setOut(originalOut);
+        }
+
+        List<T> results = new ArrayList<>(taskResults.size());
+        for (TaskResult<T> taskResult : taskResults) {
+            originalOut.write(taskResult.output, 0, taskResult.output.length);
+            results.add(taskResult.value);
+        }
+        originalOut.flush();
+
+        return results;
+    }
+
+    /**
+     * The value computed by a task, together with the output that the task has printed.
+     */
+    private static final class TaskResult<T> {
+        private final T value;
+        private final byte[] output;
+
+        private TaskResult(T value, byte[] output) {
+            this.value = value;
+            this.output = output;
+        }
+    }
+
+    /**
+     * Stream that is installed as System.out while tasks are running: output of threads that are inside a task goes
+     * into a buffer of their own, output of all other threads is passed through.
+     */
+    private static final class TaskOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final ThreadLocal<ByteArrayOutputStream> buffers = new ThreadLocal<>();
+
+        private TaskOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        private void begin() {
+            this.buffers.set(new ByteArrayOutputStream());
+        }
+
+        // returns the buffered output of the current task (empty if there is none) and stops buffering
+        private byte[] end() {
+            ByteArrayOutputStream buffer = this.buffers.get();
+            this.buffers.remove();
+            return buffer == null ? new byte[0] : buffer.toByteArray();
+        }
+
+        private OutputStream target() {
+            ByteArrayOutputStream buffer = this.buffers.get();
+            return buffer == null ? this.out : buffer;
+        }
+
+        public void write(int b) throws IOException {
+            this.target().write(b);
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.target().write(b, off, len);
+        }
+
+        public void flush() throws IOException {
+            this.target().flush();
+        }
+    }
+
     protected boolean isStrongSanitation(String opName) {
         return this.vulnerabilityAnalysisInformation.getFunctionModels().getF_strongSanit().contains(opName);
     }
@@ -0,0 +1,15 @@
+package at.ac.tuwien.infosys.www.pixy;
+
+/**
+ * Thrown by Utils.bail instead of exiting, while several files are analyzed
+ * in one run (batch and daemon mode, see Checker).
+ *
+ * @author Nenad Jovanovic <enji@seclab.tuwien.ac.at>
+ */
+public class BailException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public BailException(String message) {
+        super(message);
+    }
+}
@@ -3,6 +3,8 @@ package at.ac.tuwien.infosys.www.pixy;
 import at.ac.tuwien.infosys.www.phpparser.ParseTree;
 import at.ac.tuwien.infosys.www.pixy.analysis.alias.AliasAnalysis;
 import at.ac.tuwien.infosys.www.pixy.analysis.alias.DummyAliasAnalysis;
+import at.ac.tuwien.infosys.www.pixy.analysis.dependency.DependencyLabel;
+import at.ac.tuwien.infosys.www.pixy.analysis.dependency.DependencySet;
 import at.ac.tuwien.infosys.www.pixy.analysis.globalsmodification.GlobalsModificationAnalysis;
 import at.ac.tuwien.infosys.www.pixy.analysis.inclusiondominator.InclusionDominatorAnalysis;
 import at.ac.tuwien.infosys.www.pixy.analysis.interprocedural.*;
@@ -10,20 +12,18 @@ import at.ac.tuwien.infosys.www.pixy.analysis.interprocedural.callstring.CallStr
 import at.ac.tuwien.infosys.www.pixy.analysis.interprocedural.functional.FunctionalAnalysis;
 import at.ac.tuwien.infosys.www.pixy.analysis.literal.DummyLiteralAnalysis;
 import at.ac.tuwien.infosys.www.pixy.analysis.literal.LiteralAnalysis;
+import at.ac.tuwien.infosys.www.pixy.automaton.PackedAutomaton;
 import at.ac.tuwien.infosys.www.pixy.conversion.InternalStrings;
 import at.ac.tuwien.infosys.www.pixy.conversion.ProgramConverter;
 import at.ac.tuwien.infosys.www.pixy.conversion.TacConverter;
 import at.ac.tuwien.infosys.www.pixy.conversion.TacFunction;
+import at.ac.tuwien.infosys.www.pixy.sanitation.JavaAutomaton;
+import at.ac.tuwien.infosys.www.pixy.sanitation.Regex2Automaton;
+import at.ac.tuwien.infosys.www.pixy.transduction.BuiltinTransductions;
 import org.apache.commons.cli.*;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.util.Enumeration;
-import java.util.LinkedList;
-import java.util.Properties;
-import java.util.StringTokenizer;
+import java.io.*;
+import java.util.*;
 
 /**
  * @author Nenad Jovanovic <enji@seclab.tuwien.ac.at>
@@ -39,7 +39,7 @@ public final class Checker {
     private InterproceduralWorklist workList;
 
     // k-size for call-string analyses
-    private int kSize = 1;
+    private int kSize = MyOptions.callStringLength;
 
     // Analyses
     AliasAnalysis aliasAnalysis;
@@ -51,13 +51,21 @@ public final class Checker {
     // [FIXME]
     public static ProgramConverter programConverter;
 
+    // batch and daemon mode: the configuration and the function models are
+    // read for the first file only, and then kept resident
+    private static boolean keepConfiguration = false;
+    private static boolean configurationRead = false;
+
+    // printed after each file in daemon mode
+    public static final String DAEMON_DONE = "*** pixy done:";
+
 //  ********************************************************************************
 //  MAIN ***************************************************************************
 //  ********************************************************************************
 
     private static void help(Options cliOptions) {
         HelpFormatter helpFormatter = new HelpFormatter();
-        helpFormatter.printHelp("check [options] file", cliOptions);
+        helpFormatter.printHelp("check [options] file | -B file-or-directory... | -D", cliOptions);
     }
 
     public static void main(String[] args) {
@@ -85,17 +93,24 @@ public final class Checker {
         }
 
         String[] trailingArguments = commandLine.getArgs();
-        if (trailingArguments.length != 1) {
+        boolean batch = commandLine.hasOption("B");
+        boolean daemon = commandLine.hasOption("D");
+        if (batch && daemon) {
+            help(commandLineOptions);
+            Utils.bail("Please specify either batch or daemon mode.");
+        }
+        if (daemon && trailingArguments.length != 0) {
+            help(commandLineOptions);
+            Utils.bail("Daemon mode reads the target files from standard input.");
+        }
+        if (batch && trailingArguments.length == 0) {
+            help(commandLineOptions);
+            Utils.bail("Please specify at least one target file or directory.");
+        }
+        if (!batch && !daemon && trailingArguments.length != 1) {
             help(commandLineOptions);
             Utils.bail("Please specify exactly one target file.");
         }
-        String fileName = trailingArguments[0];
-
-        // **********************
-        // CHECKING
-        // **********************
-
-        Checker checker = new Checker(fileName);
 
         // set boolean options according to command line
         MyOptions.optionA = commandLine.hasOption("a");
@@ -104,7 +119,9 @@ public final class Checker {
         MyOptions.optionC = commandLine.hasOption("c");
         MyOptions.optionD = commandLine.hasOption("d");
         MyOptions.optionF = commandLine.hasOption("f");
+        MyOptions.fsaSanitation = commandLine.hasOption("F");
         MyOptions.optionG = !commandLine.hasOption("g");
+        MyOptions.persistentMaps = !commandLine.hasOption("H");
         MyOptions.optionI = commandLine.hasOption("i");
         MyOptions.optionL = commandLine.hasOption("l");
         MyOptions.option_L = commandLine.hasOption("L");
@@ -119,12 +136,93 @@ public final class Checker {
         MyOptions.optionV = commandLine.hasOption("v");
         MyOptions.option_V = !commandLine.hasOption("V");
         MyOptions.option_TAR = commandLine.hasOption("tar");
+        MyOptions.indexedWorklist = commandLine.hasOption("x");
+        MyOptions.packedAutomata = commandLine.hasOption("X");
+        MyOptions.transducers = !commandLine.hasOption("U");
+        MyOptions.demandDriven = commandLine.hasOption("e");
+        MyOptions.sccOrder = commandLine.hasOption("O");
+        MyOptions.metrics = commandLine.hasOption("M");
+
+        if (commandLine.hasOption("R")) {
+            try {
+                MyOptions.progressInterval = Integer.parseInt(commandLine.getOptionValue("R"));
+            } catch (NumberFormatException e) {
+                Utils.bail("Invalid 'R' argument");
+            }
+            if (MyOptions.progressInterval < 1) {
+                Utils.bail("Invalid 'R' argument");
+            }
+        }
+
+        if (commandLine.hasOption("C")) {
+            MyOptions.parseTreeCacheDirectory = new File(commandLine.getOptionValue("C"));
+        }
+
+        if (commandLine.hasOption("j")) {
+            try {
+                MyOptions.detectionThreads = Integer.parseInt(commandLine.getOptionValue("j"));
+            } catch (NumberFormatException e) {
+                Utils.bail("Invalid 'j' argument");
+            }
+            if (MyOptions.detectionThreads < 1) {
+                Utils.bail("Invalid 'j' argument");
+            }
+        }
+
+        if (commandLine.hasOption("N")) {
+            try {
+                MyOptions.solverProcesses = Integer.parseInt(commandLine.getOptionValue("N"));
+            } catch (NumberFormatException e) {
+                Utils.bail("Invalid 'N' argument");
+            }
+            if (MyOptions.solverProcesses < 1) {
+                Utils.bail("Invalid 'N' argument");
+            }
+        }
+
+        if (commandLine.hasOption("T")) {
+            try {
+                MyOptions.solverTimeout = Integer.parseInt(commandLine.getOptionValue("T"));
+            } catch (NumberFormatException e) {
+                Utils.bail("Invalid 'T' argument");
+            }
+            if (MyOptions.solverTimeout < 1) {
+                Utils.bail("Invalid 'T' argument");
+            }
+        }
+
+        if (commandLine.hasOption("J")) {
+            try {
+                MyOptions.parseThreads = Integer.parseInt(commandLine.getOptionValue("J"));
+            } catch (NumberFormatException e) {
+                Utils.bail("Invalid 'J' argument");
+            }
+            if (MyOptions.parseThreads < 1) {
+                Utils.bail("Invalid 'J' argument");
+            }
+        }
+
+        if (commandLine.hasOption("K")) {
+            try {
+                MyOptions.callStringLength = Integer.parseInt(commandLine.getOptionValue("K"));
+            } catch (NumberFormatException e) {
+                Utils.bail("Invalid 'K' argument");
+            }
+            if (MyOptions.callStringLength < 0) {
+                Utils.bail("Invalid 'K' argument");
+            }
+        }
 
         // inform MyOptions about the analyses that are to be performed
         if (!MyOptions.setAnalyses(commandLine.getOptionValue("y"))) {
             Utils.bail("Invalid 'y' argument");
         }
 
+        // these options end the run after the first file
+        if ((batch || daemon) && (MyOptions.optionC || MyOptions.optionD || MyOptions.optionL || MyOptions.optionP)) {
+            Utils.bail("Options c, d, l and p are not supported in batch or daemon mode.");
+        }
+
         // set output directory
         if (commandLine.hasOption("o")) {
             MyOptions.graphPath = commandLine.getOptionValue("o");
@@ -137,12 +235,30 @@ public final class Checker {
             MyOptions.graphPath = MyOptions.pixyHome + "/graphs";
 
             // create / empty the graphs directory
-            File graphPathFile = new File(MyOptions.graphPath);
-            graphPathFile.mkdir();
-            for (File file : graphPathFile.listFiles()) {
-                file.delete();
+            emptyDirectory(new File(MyOptions.graphPath));
+        }
+
+        // **********************
+        // CHECKING
+        // **********************
+
+        if (batch) {
+            List<String> fileNames = collectEntryFiles(trailingArguments);
+            int failed = checkResident(fileNames);
+            if (failed > 0) {
+                Utils.bail("Batch: " + failed + " of " + fileNames.size() + " files failed");
             }
+        } else if (daemon) {
+            runDaemon();
+        } else {
+            check(trailingArguments[0]);
         }
+    }
+
+    // analyzes a single entry file
+    private static void check(String fileName) {
+        Checker checker = new Checker(fileName);
+        Metrics.reset();
 
         if (!MyOptions.optionW) {
             if (MyOptions.optionB) {
@@ -160,6 +276,10 @@ public final class Checker {
         TacConverter tac = programConverter.getTac();
         //printParseTreeInDotSyntax(programConverter);
 
+        if (programConverter.getParseTreeCache() != null && !MyOptions.optionB) {
+            System.out.println("Parse tree cache: " + programConverter.getParseTreeCache().getStatistics());
+        }
+
         // params: tac, functional?, desired analyses
         checker.analyzeTaint(tac, !MyOptions.optionA);
 
@@ -176,7 +296,31 @@ public final class Checker {
 
         // detect vulnerabilities
         System.out.println("\n*** detecting vulnerabilities ***\n");
+        Metrics.Phase detection = Metrics.begin("detection");
         checker.gta.detectVulnerabilities();
+        detection.end();
+
+        if (MyOptions.optionV) {
+            System.out.println("PackedAutomaton repository: " + PackedAutomaton.repos.getStatistics());
+            System.out.println("PackedAutomaton operations: " + PackedAutomaton.operations.getStatistics());
+            System.out.println("JavaAutomaton repository: " + JavaAutomaton.repos.getStatistics());
+            System.out.println("JavaAutomaton operations: " + JavaAutomaton.operations.getStatistics());
+            System.out.println("Regex2Automaton patterns: " + Regex2Automaton.patterns.getStatistics());
+            System.out.println("Transduction results: " + BuiltinTransductions.results.getStatistics());
+        }
+
+        if (MyOptions.metrics) {
+            Metrics.addRepository("DependencyAnalysis", checker.gta.dependencyAnalysis.getRepository());
+            Metrics.addRepository("DependencySet", DependencySet.repos);
+            Metrics.addRepository("DependencyLabel", DependencyLabel.repos);
+            Metrics.addRepository("PackedAutomaton", PackedAutomaton.repos);
+            Metrics.addRepository("PackedAutomaton operations", PackedAutomaton.operations);
+            Metrics.addRepository("JavaAutomaton", JavaAutomaton.repos);
+            Metrics.addRepository("JavaAutomaton operations", JavaAutomaton.operations);
+            Metrics.addRepository("Regex2Automaton patterns", Regex2Automaton.patterns);
+            Metrics.addRepository("Transduction results", BuiltinTransductions.results);
+            Metrics.write(MyOptions.graphPath + "/metrics_" + MyOptions.entryFile.getName() + ".json");
+        }
 
         if (!MyOptions.optionB) {
             long endTime = System.currentTimeMillis();
@@ -187,21 +331,155 @@ public final class Checker {
         }
     }
 
+//  batch and daemon mode **********************************************************
+
+    // expands the trailing arguments of batch mode into a list of entry files:
+    // directories are searched recursively for PHP files, and "@file" names
+    // a file that lists one entry file per line
+    private static List<String> collectEntryFiles(String[] arguments) {
+        List<String> fileNames = new LinkedList<>();
+        for (String argument : arguments) {
+            if (argument.startsWith("@")) {
+                try (BufferedReader reader = new BufferedReader(new FileReader(argument.substring(1)))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        line = line.trim();
+                        if (!line.isEmpty()) {
+                            fileNames.add(line);
+                        }
+                    }
+                } catch (IOException e) {
+                    Utils.bail("Can't read list of target files: " + argument.substring(1));
+                }
+            } else if (new File(argument).isDirectory()) {
+                List<String> found = new ArrayList<>();
+                for (File file : Utils.fileListFromDir(argument)) {
+                    if (file.getName().endsWith(".php")) {
+                        found.add(file.getPath());
+                    }
+                }
+                Collections.sort(found);
+                fileNames.addAll(found);
+            } else {
+                fileNames.add(argument);
+            }
+        }
+        return fileNames;
+    }
+
+    // analyzes the given entry files one after the other, in this JVM;
+    // returns the number of files for which the analysis failed
+    private static int checkResident(List<String> fileNames) {
+        String outputDirectory = MyOptions.graphPath;
+        int index = 0;
+        int failed = 0;
+        for (String fileName : fileNames) {
+            index++;
+            if (!checkResident(fileName, outputDirectory + "/" + index + "_" + Utils.basename(fileName))) {
+                failed++;
+            }
+        }
+        MyOptions.graphPath = outputDirectory;
+        return failed;
+    }
+
+    // reads entry files from standard input (one per line) and analyzes each
+    // of them as soon as it arrives; after each file, a line starting with
+    // DAEMON_DONE (followed by "ok" or "failed") is printed; ends at EOF
+    private static void runDaemon() {
+        String outputDirectory = MyOptions.graphPath;
+        int index = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                index++;
+                boolean ok = checkResident(line, outputDirectory + "/" + index + "_" + Utils.basename(line));
+                System.out.println(DAEMON_DONE + (ok ? " ok " : " failed ") + line);
+                System.out.flush();
+            }
+        } catch (IOException e) {
+            Utils.bail("I/O exception while reading from standard input", e.getMessage());
+        }
+        MyOptions.graphPath = outputDirectory;
+    }
+
+    // analyzes a single entry file in batch or daemon mode: the configuration
+    // stays resident, and the global analysis state is reset before, such
+    // that the results are the same as those of a separate run;
+    // graphs go to the given directory; returns false if the analysis failed
+    private static boolean checkResident(String fileName, String graphPath) {
+        keepConfiguration = true;
+        Utils.exitOnBail = false;
+        resetState();
+
+        MyOptions.graphPath = graphPath;
+        emptyDirectory(new File(graphPath));
+
+        try {
+            check(fileName);
+            return true;
+        } catch (BailException e) {
+            // the message has already been printed
+            System.err.println("Analysis of " + fileName + " aborted");
+        } catch (RuntimeException | StackOverflowError e) {
+            System.err.println("Analysis of " + fileName + " failed: " + e);
+            e.printStackTrace();
+        } finally {
+            Utils.exitOnBail = true;
+        }
+        return false;
+    }
+
+    // resets the global state that is left behind by the analysis of a file
+    static void resetState() {
+        programConverter = null;
+        DependencySet.reset();
+        DependencyLabel.reset();
+        PackedAutomaton.reset();
+        JavaAutomaton.reset();
+        Regex2Automaton.patterns.clear();
+        BuiltinTransductions.results.clear();
+    }
+
+    // creates the given directory if necessary, and deletes the files in it
+    private static void emptyDirectory(File directory) {
+        directory.mkdir();
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+    }
+
     private static Options createCommandLineOptions() {
         Options commandLineOptions = new Options();
 
         commandLineOptions.addOption("a", "call-string", false, "call-string analysis (else: functional)");
         commandLineOptions.addOption("A", "alias", false, "use alias analysis");
         commandLineOptions.addOption("b", "brief", false, "be brief (for regression tests)");
+        commandLineOptions.addOption("B", "batch", false, "analyze several files (or directories, or @list files) in one run");
         commandLineOptions.addOption("c", "cfg", false, "dump the function CFGs in dot syntax");
+        commandLineOptions.addOption("C", "cache", true, "directory for caching parse trees across runs");
+        commandLineOptions.addOption("D", "daemon", false, "read the files to analyze from standard input, one per line");
         commandLineOptions.addOption("d", "detailcfg", false, "dump the function control flow graphs and the CFGs of their paramters in dot syntax");
+        commandLineOptions.addOption("e", "demand", false, "demand-driven taint analysis (only analyzes the code that can influence the sinks)");
         commandLineOptions.addOption("f", "functions", false, "print function information");
+        commandLineOptions.addOption("F", "fsa", false, "use FSA Utilities for the sanitation analyses (else: in-process automata)");
         commandLineOptions.addOption("g", "registerGlobals", false, "DISABLE register_globals for analysis");
         commandLineOptions.addOption("h", "help", false, "print help");
+        commandLineOptions.addOption("H", "hashmaps", false, "use HashMaps instead of persistent maps for lattice elements");
+        commandLineOptions.addOption("j", "threads", true, "number of threads for vulnerability detection (default: 1)");
+        commandLineOptions.addOption("J", "parsethreads", true, "number of threads for parsing included files (default: 1)");
         commandLineOptions.addOption("i", "getisuntaintedsql", false, "make the GET array untainted for SQL analysis");
+        commandLineOptions.addOption("K", "callstringlength", true, "maximum call-string length for call-string analysis (default: 1)");
         commandLineOptions.addOption("l", "libdetect", false, "detect libraries (i.e. scripts with empty main function)");
         commandLineOptions.addOption("L", "literal", false, "use literal analysis (usually not necessary)");
         commandLineOptions.addOption("m", "max", false, "print maximum number of temporaries");
+        commandLineOptions.addOption("M", "metrics", false, "write timing and counters for each phase to the output directory (metrics_<file>.json)");
+        commandLineOptions.addOption("O", "sccorder", false, "functional analysis: solve the call graph SCCs bottom-up");
         commandLineOptions.addOption("o", "outputdir", true, "output directory (for graphs etc.)");
         commandLineOptions.addOption("p", "parsetree", false, "print the parse tree in dot syntax");
         commandLineOptions.addOption("P", "prefixes", false, "print prefixes and suffixes");
@@ -210,10 +488,16 @@ public final class Checker {
         commandLineOptions.addOption("s", "sinks", true, "provide config files for custom sinks");
         commandLineOptions.addOption("t", "table", false, "print symbol tables");
         commandLineOptions.addOption("w", "web", false, "web interface mode");
+        commandLineOptions.addOption("x", "indexedworklist", false, "use the indexed worklist (faster)");
+        commandLineOptions.addOption("X", "packedautomata", false, "use array-based automata for the SQL analysis (less memory)");
+        commandLineOptions.addOption("U", "notransducers", false, "do NOT model string functions with transducers in the SQL analysis");
         commandLineOptions.addOption("v", "verbose", false, "enable verbose output");
         commandLineOptions.addOption("V", "verbosegraphs", false, "disable verbose depgraphs");
         commandLineOptions.addOption("y", "analysistype", true, "type of taint analysis (" + MyOptions.getAnalysisNames() + ")");
         commandLineOptions.addOption("tar", "refine", false, "refine the taint analysis with constraints");
+        commandLineOptions.addOption("N", "solvers", true, "number of solver processes (and threads) for refinement (default: 1)");
+        commandLineOptions.addOption("T", "solvertimeout", true, "time limit for refining one sink, in milliseconds (default: 10000)");
+        commandLineOptions.addOption("R", "progress", true, "print a progress line every that many seconds during the analyses");
 
         return commandLineOptions;
     }
@@ -243,6 +527,7 @@ public final class Checker {
         readPhpIncludePathFromConfigurationFile(properties);
         findPhpBinary(properties);
         findFsaUtilities(properties);
+        findSolver(properties);
         readHarmlessServerVariables();
     }
 
@@ -306,6 +591,13 @@ public final class Checker {
         MyOptions.fsaHome = fsaUtilitiesHome;
     }
 
+    private void findSolver(Properties properties) {
+        String solverCommand = properties.getProperty(InternalStrings.SOLVER);
+        if (solverCommand != null && !solverCommand.trim().isEmpty()) {
+            MyOptions.solverCommand = solverCommand.trim();
+        }
+    }
+
     private void readHarmlessServerVariables() {
         String harmlessServerVariablesPath = MyOptions.pixyHome + "/" + MyOptions.configurationDirectory
             + "/harmless_server_vars.txt";
@@ -335,16 +627,18 @@ public final class Checker {
 
     // taintString: "-y" option, type of taint analysis
     ProgramConverter initialize() {
-        readConfiguration();
+        if (!keepConfiguration || !configurationRead) {
+            readConfiguration();
+            MyOptions.initializeBuiltinSinks();
+            MyOptions.readCustomSinkFiles();
+            MyOptions.readBuiltinFunctionModels();
+            configurationRead = true;
+        }
 
         return parseAndConvert();
     }
 
     private ProgramConverter parseAndConvert() {
-        MyOptions.initializeBuiltinSinks();
-        MyOptions.readCustomSinkFiles();
-        MyOptions.readBuiltinFunctionModels();
-
         ProgramConverter programConverter = new ProgramConverter(this.specialNodes, MyOptions.option_A);
 
         if (MyOptions.optionP) {
@@ -426,6 +720,7 @@ public final class Checker {
             return this.aliasAnalysis;
         }
 
+        Metrics.Phase phase = Metrics.begin("aliasAnalysis");
         System.out.println("\n*** initializing alias analysis ***\n");
         this.aliasAnalysis = new AliasAnalysis(tac, new FunctionalAnalysis());
         System.out.println("\n*** performing alias analysis ***\n");
@@ -434,6 +729,7 @@ public final class Checker {
             System.out.println("\n*** cleaning up ***\n");
             this.aliasAnalysis.clean();
         }
+        phase.end();
         System.out.println("\nFinished.");
 
         return this.aliasAnalysis;
@@ -455,15 +751,13 @@ public final class Checker {
         }
 
         // this is a call-string analysis and therefore requires previously
-        // computed connectors; if this computation hasn't been done yet,
-        // do it now
-        if (this.connectorComp == null) {
-            this.connectorComp = new ConnectorComputation(
-                tac.getAllFunctions(), tac.getMainFunction(), this.kSize);
-            connectorComp.compute();
-            this.workList = new InterproceduralWorklistBetter(new InterproceduralWorklistOrder(tac, this.connectorComp));
-        }
+        // computed connectors; the program model computes them once and
+        // keeps them as long as the calls in the program do not change
+        ProgramModel programModel = tac.getProgramModel();
+        this.connectorComp = programModel.getConnectorComputation(this.kSize);
+        this.workList = this.createWorklist(programModel.getWorklistOrder(this.kSize));
 
+        Metrics.Phase phase = Metrics.begin("literalAnalysis");
         System.out.println("\n*** initializing literal analysis ***\n");
         this.literalAnalysis =
             new LiteralAnalysis(tac, this.aliasAnalysis,
@@ -472,11 +766,24 @@ public final class Checker {
         this.literalAnalysis.analyze();
         System.out.println("\n*** cleaning up ***\n");
         this.literalAnalysis.clean();
+        phase.end();
         System.out.println("\nFinished.");
 
         return this.literalAnalysis;
     }
 
+//  ********************************************************************************
+
+    // returns the worklist selected by MyOptions.indexedWorklist;
+    // "order" is required by call-string analyses, and null for functional analyses
+    private InterproceduralWorklist createWorklist(InterproceduralWorklistOrder order) {
+        if (MyOptions.indexedWorklist) {
+            return order == null ? new InterproceduralWorklistIndexed() : new InterproceduralWorklistIndexed(order);
+        } else {
+            return order == null ? new InterproceduralWorklistPoor() : new InterproceduralWorklistBetter(order);
+        }
+    }
+
 //  ********************************************************************************
 
     // - "functional": functional or CS analysis?
@@ -498,14 +805,23 @@ public final class Checker {
         if (functional) {
             System.out.println("functional analysis!");
             enclosingAnalysis = new FunctionalAnalysis();
-            this.workList = new InterproceduralWorklistPoor();
+            if (MyOptions.sccOrder) {
+                InterproceduralWorklistSccOrder sccOrder =
+                    new InterproceduralWorklistSccOrder(tac.getProgramModel().getCallGraph());
+                if (MyOptions.optionV) {
+                    System.out.println("call graph SCCs: " + sccOrder.getNumSccs());
+                }
+                this.workList = new InterproceduralWorklistIndexed(sccOrder);
+            } else {
+                this.workList = this.createWorklist(null);
+            }
         } else {
-            if (this.connectorComp == null) {
-                this.connectorComp = new ConnectorComputation(
-                    tac.getAllFunctions(), tac.getMainFunction(), this.kSize);
-                connectorComp.compute();
-                this.workList = new InterproceduralWorklistBetter(new InterproceduralWorklistOrder(tac, this.connectorComp));
-                connectorComp.stats(false);
+            ProgramModel programModel = tac.getProgramModel();
+            this.connectorComp = programModel.getConnectorComputation(this.kSize);
+            this.workList = this.createWorklist(programModel.getWorklistOrder(this.kSize));
+            connectorComp.stats(false);
+            if (MyOptions.optionV) {
+                System.out.println("program model: " + programModel.getStatistics());
             }
             if (MyOptions.optionV) {
                 System.out.println("call-string analysis!");
@@ -522,6 +838,7 @@ public final class Checker {
             }
         }
 
+        Metrics.Phase phase = Metrics.begin("dependencyAnalysis");
         this.gta = GenericTaintAnalysis.createAnalysis(tac, enclosingAnalysis,
             this, this.workList, globalsModificationAnalysis);
         if (this.gta == null) {
@@ -529,6 +846,12 @@ public final class Checker {
         }
         System.out.println("\n*** performing taint analysis ***\n");
         gta.analyze();
+        phase.end();
+
+        if (MyOptions.optionV) {
+            System.out.println("DependencySet repository: " + DependencySet.repos.getStatistics());
+            System.out.println("DependencyLabel repository: " + DependencyLabel.repos.getStatistics());
+        }
 
         System.out.println("\nFinished.");
     }
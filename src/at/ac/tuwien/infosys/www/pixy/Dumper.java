@@ -69,20 +69,25 @@ public final class Dumper {
     static void dumpDot(ParseTree parseTree, Writer outWriter) {
         try {
             outWriter.write("digraph parse_tree {\n");
-            dumpDot(parseTree.getRoot(), outWriter);
+            dumpDot(parseTree.getRoot(), -1, 0, outWriter);
             outWriter.write("}\n");
         } catch (Exception e) {
             System.out.println(e.getMessage());
         }
     }
 
-// dumpDot(ParseNode, Writer) ******************************************************
+// dumpDot(ParseNode, int, int, Writer) ********************************************
 
-    // dumps the subtree starting at the given parse node in dot syntax
-    static void dumpDot(ParseNode parseNode, Writer outWriter)
+    // dumps the subtree starting at the given parse node in dot syntax; the nodes
+    // are numbered in preorder, starting with "id" ("parentId": the number of the
+    // parent, -1 for the root); returns the next free number;
+    // ParseNode.getId() is not used, since the parser's id counter is not
+    // thread-safe, and the ids are not unique if files are parsed in parallel
+    // (see ProgramConverter.prefetch)
+    static int dumpDot(ParseNode parseNode, int parentId, int id, Writer outWriter)
         throws java.io.IOException {
 
-        outWriter.write("  n" + parseNode.getId() + " [label=\"");
+        outWriter.write("  n" + id + " [label=\"");
 
         // print symbol
         String symbolName = parseNode.getName();
@@ -97,15 +102,16 @@ public final class Dumper {
         outWriter.write("\"];\n");
 
         // print edge to parent
-        ParseNode parent = parseNode.getParent();
-        if (parent != null) {
-            outWriter.write("  n" + parent.getId() + " -> n" +
-                parseNode.getId() + ";\n");
+        if (parentId >= 0) {
+            outWriter.write("  n" + parentId + " -> n" +
+                id + ";\n");
         }
         // recursion
+        int nextId = id + 1;
         for (int i = 0; i < parseNode.getChildren().size(); i++) {
-            dumpDot(parseNode.getChild(i), outWriter);
+            nextId = dumpDot(parseNode.getChild(i), id, nextId, outWriter);
         }
+        return nextId;
     }
 
 // *********************************************************************************
@@ -1,10 +1,12 @@
 package at.ac.tuwien.infosys.www.pixy;
 
 import at.ac.tuwien.infosys.www.pixy.analysis.dependency.DependencyAnalysis;
+import at.ac.tuwien.infosys.www.pixy.analysis.dependency.Sink;
 import at.ac.tuwien.infosys.www.pixy.analysis.globalsmodification.GlobalsModificationAnalysis;
 import at.ac.tuwien.infosys.www.pixy.analysis.interprocedural.AbstractAnalysisType;
 import at.ac.tuwien.infosys.www.pixy.analysis.interprocedural.InterproceduralWorklist;
 import at.ac.tuwien.infosys.www.pixy.conversion.TacConverter;
+import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.AbstractCfgNode;
 
 import java.lang.reflect.Constructor;
 import java.util.LinkedList;
@@ -76,12 +78,35 @@ public class GenericTaintAnalysis {
     }
 
     void analyze() {
+        if (MyOptions.demandDriven) {
+            this.restrictToSinks();
+        }
         this.dependencyAnalysis.analyze();
 
         // check for unreachable code
         this.dependencyAnalysis.checkReachability();
     }
 
+    /**
+     * Restricts the dependency analysis to the part of the program that can influence the sinks of the vulnerability
+     * analyses; falls back to the exhaustive analysis if this is not possible.
+     */
+    private void restrictToSinks() {
+        List<AbstractCfgNode> sinkNodes = new LinkedList<>();
+        for (AbstractVulnerabilityAnalysis dependencyClient : this.abstractVulnerabilityAnalyses) {
+            for (Sink sink : dependencyClient.collectSinks()) {
+                sinkNodes.add(sink.getNode());
+            }
+        }
+
+        if (!this.dependencyAnalysis.setDemand(sinkNodes)) {
+            System.out.println("Warning: demand-driven analysis not possible, analyzing the whole program");
+        } else if (MyOptions.optionV) {
+            System.out.println("demand-driven analysis: " + sinkNodes.size() + " sinks, "
+                + this.dependencyAnalysis.getDemandSize() + " nodes");
+        }
+    }
+
     /**
      * Detects vulnerabilities and returns a list with the line numbers of the detected vulnerabilities.
      *
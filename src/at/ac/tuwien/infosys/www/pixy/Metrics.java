@@ -0,0 +1,275 @@
+package at.ac.tuwien.infosys.www.pixy;
+
+import at.ac.tuwien.infosys.www.pixy.analysis.GenericRepository;
+import at.ac.tuwien.infosys.www.pixy.automaton.OperationCache;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Wall-clock time, CPU time and counters for the phases of a run; written as JSON
+ * next to the graphs if MyOptions.metrics is set.
+ *
+ * Phases are timed with begin / Phase.end, by the calling thread. They can nest (e.g., "parse"
+ * inside "conversion"), and they can be entered several times (also by several threads), in
+ * which case the times add up. The worklist analyses report their counters when they are done
+ * (see AbstractInterproceduralAnalysis.analyze).
+ *
+ * @author Nenad Jovanovic <enji@seclab.tuwien.ac.at>
+ */
+public final class Metrics {
+    private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    // returned by begin if metrics are disabled
+    private static final Phase DISABLED = new Phase(null, 0, 0);
+
+    // phase name -> totals, in the order in which the phases were entered first
+    private static final Map<String, long[]> phases = new LinkedHashMap<>();
+
+    // analysis name -> counters (see ANALYSIS_COUNTERS)
+    private static final Map<String, long[]> analyses = new LinkedHashMap<>();
+
+    private static final String[] PHASE_TOTALS = {"calls", "wallMillis", "cpuMillis"};
+    private static final String[] ANALYSIS_COUNTERS = {"runs", "steps", "transferCalls", "lubCalls", "peakPhiEntries"};
+
+    // repository name -> statistics (see REPOSITORY_STATISTICS)
+    private static final Map<String, long[]> repositories = new LinkedHashMap<>();
+
+    private static final String[] REPOSITORY_STATISTICS = {"size", "hits", "misses"};
+
+    private static long startTime = System.nanoTime();
+
+    // next time at which a progress line is due (see isProgressDue)
+    private static long nextProgressTime = 0;
+
+    private Metrics() {
+    }
+
+//  ********************************************************************************
+
+    // starts a new run (one entry file)
+    public static synchronized void reset() {
+        phases.clear();
+        analyses.clear();
+        repositories.clear();
+        startTime = System.nanoTime();
+        nextProgressTime = startTime + MyOptions.progressInterval * 1000000000L;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    // starts timing the given phase; call end() on the result when the phase is over
+    public static Phase begin(String name) {
+        if (!MyOptions.metrics) {
+            return DISABLED;
+        }
+        return new Phase(name, System.nanoTime(), cpuTime());
+    }
+
+    // adds the counters of one analysis run
+    public static synchronized void addAnalysis(String name, long steps, long transferCalls, long lubCalls,
+                                                long phiEntries) {
+        long[] counters = analyses.get(name);
+        if (counters == null) {
+            counters = new long[ANALYSIS_COUNTERS.length];
+            analyses.put(name, counters);
+        }
+        counters[0]++;
+        counters[1] += steps;
+        counters[2] += transferCalls;
+        counters[3] += lubCalls;
+        counters[4] = Math.max(counters[4], phiEntries);
+    }
+
+    // adds the current statistics of the given repository (which is not used any longer);
+    // for several repositories with the same name, the hits and misses add up
+    public static synchronized void addRepository(String name, GenericRepository<?> repository) {
+        if (!MyOptions.metrics || repository == null) {
+            return;
+        }
+        long[] statistics = repositories.get(name);
+        if (statistics == null) {
+            statistics = new long[REPOSITORY_STATISTICS.length];
+            repositories.put(name, statistics);
+        }
+        statistics[0] = Math.max(statistics[0], repository.size());
+        statistics[1] += repository.getHits();
+        statistics[2] += repository.getMisses();
+    }
+
+    // the same for a cache of automaton operations
+    public static synchronized void addRepository(String name, OperationCache<?> cache) {
+        if (!MyOptions.metrics || cache == null) {
+            return;
+        }
+        long[] statistics = repositories.get(name);
+        if (statistics == null) {
+            statistics = new long[REPOSITORY_STATISTICS.length];
+            repositories.put(name, statistics);
+        }
+        statistics[0] = Math.max(statistics[0], cache.size());
+        statistics[1] += cache.getHits();
+        statistics[2] += cache.getMisses();
+    }
+
+    // is it time for another progress line? (only if MyOptions.progressInterval is set)
+    public static synchronized boolean isProgressDue() {
+        if (MyOptions.progressInterval <= 0) {
+            return false;
+        }
+        long now = System.nanoTime();
+        if (now < nextProgressTime) {
+            return false;
+        }
+        nextProgressTime = now + MyOptions.progressInterval * 1000000000L;
+        return true;
+    }
+
+    // seconds since the start of the run
+    public static long getElapsedSeconds() {
+        return (System.nanoTime() - startTime) / 1000000000L;
+    }
+
+//  ********************************************************************************
+
+    public static synchronized String toJson() {
+        StringBuilder b = new StringBuilder();
+        b.append("{\n");
+        b.append("  \"file\": ").append(quote(MyOptions.entryFile == null ? null : MyOptions.entryFile.getPath()));
+        b.append(",\n");
+        b.append("  \"totalWallMillis\": ").append((System.nanoTime() - startTime) / 1000000).append(",\n");
+        b.append("  \"peakHeapBytes\": ").append(peakHeapBytes()).append(",\n");
+
+        b.append("  \"phases\": [");
+        appendTable(b, phases, PHASE_TOTALS);
+        b.append("],\n");
+
+        b.append("  \"analyses\": [");
+        appendTable(b, analyses, ANALYSIS_COUNTERS);
+        b.append("],\n");
+
+        b.append("  \"repositories\": [");
+        boolean first = true;
+        for (Map.Entry<String, long[]> entry : repositories.entrySet()) {
+            long[] statistics = entry.getValue();
+            long hits = statistics[1];
+            long misses = statistics[2];
+            b.append(first ? "\n" : ",\n");
+            b.append("    {\"name\": ").append(quote(entry.getKey()));
+            for (int i = 0; i < REPOSITORY_STATISTICS.length; i++) {
+                b.append(", ").append(quote(REPOSITORY_STATISTICS[i])).append(": ").append(statistics[i]);
+            }
+            b.append(", \"hitRate\": ").append(String.format(Locale.ROOT, "%.4f",
+                hits + misses == 0 ? 0.0 : (double) hits / (hits + misses)));
+            b.append("}");
+            first = false;
+        }
+        b.append(first ? "]\n" : "\n  ]\n");
+        b.append("}\n");
+        return b.toString();
+    }
+
+    public static void write(String fileName) {
+        Utils.writeToFile(toJson(), fileName);
+    }
+
+//  ********************************************************************************
+
+    private static synchronized void addPhase(String name, long wallNanos, long cpuNanos) {
+        long[] totals = phases.get(name);
+        if (totals == null) {
+            totals = new long[PHASE_TOTALS.length];
+            phases.put(name, totals);
+        }
+        totals[0]++;
+        totals[1] += wallNanos;
+        totals[2] += cpuNanos;
+    }
+
+    // CPU time of the current thread in nanoseconds; 0 if not supported
+    private static long cpuTime() {
+        if (!threadBean.isCurrentThreadCpuTimeSupported()) {
+            return 0;
+        }
+        return threadBean.getCurrentThreadCpuTime();
+    }
+
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    // the columns ending in "Millis" hold nanoseconds, and are written as milliseconds
+    private static void appendTable(StringBuilder b, Map<String, long[]> table, String[] columns) {
+        boolean first = true;
+        for (Map.Entry<String, long[]> entry : table.entrySet()) {
+            b.append(first ? "\n" : ",\n");
+            b.append("    {\"name\": ").append(quote(entry.getKey()));
+            long[] values = entry.getValue();
+            for (int i = 0; i < columns.length; i++) {
+                long value = columns[i].endsWith("Millis") ? values[i] / 1000000 : values[i];
+                b.append(", ").append(quote(columns[i])).append(": ").append(value);
+            }
+            b.append("}");
+            first = false;
+        }
+        if (!first) {
+            b.append("\n  ");
+        }
+    }
+
+    private static String quote(String s) {
+        if (s == null) {
+            return "null";
+        }
+        StringBuilder b = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                b.append('\\').append(c);
+            } else if (c < 0x20) {
+                b.append(String.format("\\u%04x", (int) c));
+            } else {
+                b.append(c);
+            }
+        }
+        return b.append('"').toString();
+    }
+
+//  ********************************************************************************
+
+    /**
+     * A phase that is being timed.
+     */
+    public static final class Phase {
+        private final String name;
+        private final long wallStart;
+        private final long cpuStart;
+
+        private Phase(String name, long wallStart, long cpuStart) {
+            this.name = name;
+            this.wallStart = wallStart;
+            this.cpuStart = cpuStart;
+        }
+
+        public void end() {
+            if (this.name == null) {
+                return;
+            }
+            addPhase(this.name, System.nanoTime() - this.wallStart, cpuTime() - this.cpuStart);
+        }
+    }
+}
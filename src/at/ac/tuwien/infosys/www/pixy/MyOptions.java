@@ -39,9 +39,67 @@ public class MyOptions {
     public static boolean option_V = true;
     public static boolean option_TAR = false;
 
+    // command line of the SMT solver for taint analysis refinement (option_TAR);
+    // the solver reads SMT-LIB from standard input and has to support push / pop
+    // (see main.SolverPool); can be set in the config file
+    public static String solverCommand = "cvc4 --lang smt2 --incremental";
+
+    // number of solver processes for taint analysis refinement
+    public static int solverProcesses = 1;
+
+    // time limit for refining one sink (i.e., for its solver queries), in milliseconds
+    public static int solverTimeout = 10000;
+
     // count paths in depgraphs?
     public static boolean countPaths = false;
 
+    // number of threads used for detecting vulnerabilities at the sinks;
+    // with 1, the sinks are checked one after the other
+    public static int detectionThreads = 1;
+
+    // write timing and counters for each phase to the graph directory (see Metrics)
+    public static boolean metrics = false;
+
+    // print a progress line to System.err every that many seconds during
+    // the worklist analyses; 0 to disable
+    public static int progressInterval = 0;
+
+    // number of threads used for parsing included files (see ProgramConverter.prefetch);
+    // with 1, each file is parsed when it is included
+    public static int parseThreads = 1;
+
+    // demand-driven dependency analysis: only analyze the part of the program
+    // that can influence the sinks (see GenericTaintAnalysis.analyze)
+    public static boolean demandDriven = false;
+
+    // functional analysis: order the worklist by the SCCs of the call graph,
+    // callees first (see InterproceduralWorklistSccOrder)
+    public static boolean sccOrder = false;
+
+    // maximum length of the call strings for call-string analyses (k);
+    // 0 for a context-insensitive analysis
+    public static int callStringLength = 1;
+
+    // use InterproceduralWorklistIndexed instead of the
+    // InterproceduralWorklistBetter / InterproceduralWorklistPoor worklists
+    public static boolean indexedWorklist = false;
+
+    // use PackedAutomaton instead of Automaton for the string analysis of
+    // the SQL analysis (see SqlAnalysis.toTaintAutomaton)
+    public static boolean packedAutomata = false;
+
+    // model str_replace, addslashes, trim etc. with transducers in the SQL
+    // analysis (see SqlAnalysis.makeAutoForOp, BuiltinTransductions)
+    public static boolean transducers = true;
+
+    // back the dependency and literal lattice elements with persistent
+    // maps (PersistentHashMap) instead of HashMaps
+    public static boolean persistentMaps = true;
+
+    // directory for caching parse trees across runs (see ParseTreeCache);
+    // null if disabled
+    public static File parseTreeCacheDirectory = null;
+
     // the scanned entry file (canonical)
     public static File entryFile;
 
@@ -51,6 +109,10 @@ public class MyOptions {
     // home directory of FSA Utils; can be null
     public static String fsaHome;
 
+    // use FSA Utilities (fsaHome) for the sanitation analyses instead of
+    // the in-process automata (see AbstractSanitationAnalysis.getBackend)
+    public static boolean fsaSanitation = false;
+
     // name of the config directory
     public static String configurationDirectory = "config";
 
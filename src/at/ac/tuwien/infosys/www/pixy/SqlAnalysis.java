@@ -4,6 +4,9 @@ import at.ac.tuwien.infosys.www.pixy.analysis.dependency.DependencyAnalysis;
 import at.ac.tuwien.infosys.www.pixy.analysis.dependency.Sink;
 import at.ac.tuwien.infosys.www.pixy.analysis.dependency.graph.*;
 import at.ac.tuwien.infosys.www.pixy.automaton.Automaton;
+import at.ac.tuwien.infosys.www.pixy.automaton.PackedAutomaton;
+import at.ac.tuwien.infosys.www.pixy.automaton.TaintAutomaton;
+import at.ac.tuwien.infosys.www.pixy.automaton.TaintAutomatonFactory;
 import at.ac.tuwien.infosys.www.pixy.automaton.Transition;
 import at.ac.tuwien.infosys.www.pixy.conversion.AbstractTacPlace;
 import at.ac.tuwien.infosys.www.pixy.conversion.TacActualParameter;
@@ -13,13 +16,14 @@ import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.CallBuiltinFunction;
 import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.CallPreparation;
 import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.CallUnknownFunction;
 import at.ac.tuwien.infosys.www.pixy.sanitation.AbstractSanitationAnalysis;
-import at.ac.tuwien.infosys.www.pixy.transduction.MyTransductions;
+import at.ac.tuwien.infosys.www.pixy.transduction.BuiltinTransductions;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 /**
  * SQL Injection detection.
@@ -30,9 +34,9 @@ import java.util.*;
  * @author Nenad Jovanovic <enji@seclab.tuwien.ac.at>
  */
 public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
-    /** flag indicating whether to use transducers (are still unstable) */
-    private boolean useTransducers = false;
-    private List<Integer> lineNumbersOfVulnerabilities;
+    /** flag indicating whether to model string functions with transducers (see BuiltinTransductions) */
+    private boolean useTransducers = MyOptions.transducers;
+    private List<AbstractCfgNode> vulnerableSinks;
     private int dependencyGraphCount;
     private int vulnerabilityCount;
 
@@ -53,7 +57,7 @@ public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
         System.out.println("*****************");
         System.out.println();
 
-        lineNumbersOfVulnerabilities = new LinkedList<>();
+        vulnerableSinks = new LinkedList<>();
 
         List<Sink> sinks = this.collectSinks();
         Collections.sort(sinks);
@@ -69,10 +73,16 @@ public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
 
         dependencyGraphCount = 0;
         vulnerabilityCount = 0;
-        for (Sink sink : sinks) {
-            detectVulnerabilitiesForSink(fileName, sink);
+        if (MyOptions.detectionThreads > 1) {
+            detectVulnerabilitiesInParallel(fileName, sinks);
+        } else {
+            for (Sink sink : sinks) {
+                detectVulnerabilitiesForSink(fileName, sink);
+            }
         }
 
+        vulnerabilityCount -= refineVulnerabilities(vulnerableSinks);
+
         // initial sink count and final graph count may differ (e.g., if some sinks
         // are not reachable)
         if (MyOptions.optionV) {
@@ -86,7 +96,7 @@ public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
         System.out.println("*****************");
         System.out.println();
 
-        return lineNumbersOfVulnerabilities;
+        return getLineNumbers(vulnerableSinks);
     }
 
     private void detectVulnerabilitiesForSink(String fileName, Sink sink) {
@@ -95,61 +105,118 @@ public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
         for (DependencyGraph dependencyGraph : dependencyGraphs) {
             dependencyGraphCount++;
 
-            String graphNameBase = "sql_" + fileName + "_" + dependencyGraphCount;
+            addResult(detectVulnerabilitiesInDependencyGraph(dependencyGraph, fileName, dependencyGraphCount));
+        }
+    }
 
-            DependencyGraph sqlGraph = new DependencyGraph(dependencyGraph);
-            AbstractCfgNode cfgNode = dependencyGraph.getRootNode().getCfgNode();
+    /**
+     * Parallel version of the loop over detectVulnerabilitiesForSink.
+     *
+     * Graphs are numbered in the same order as in the sequential loop, and the results are added in this order,
+     * so the output does not depend on the number of threads.
+     *
+     * @param fileName
+     * @param sinks
+     */
+    private void detectVulnerabilitiesInParallel(final String fileName, List<Sink> sinks) {
+        List<Callable<AbstractCfgNode>> tasks = new ArrayList<>();
+        for (List<DependencyGraph> dependencyGraphs : this.getDependencyGraphsForSinks(sinks)) {
+            for (final DependencyGraph dependencyGraph : dependencyGraphs) {
+                dependencyGraphCount++;
+
+                final int graphNumber = dependencyGraphCount;
+                tasks.add(new Callable<AbstractCfgNode>() {
+                    public AbstractCfgNode call() {
+                        return detectVulnerabilitiesInDependencyGraph(dependencyGraph, fileName, graphNumber);
+                    }
+                });
+            }
+        }
 
-            dependencyGraph.dumpDot(graphNameBase + "_dep", MyOptions.graphPath, dependencyGraph.getUninitializedNodes(), this.vulnerabilityAnalysisInformation);
+        for (AbstractCfgNode vulnerableSink : invokeInOrder(tasks)) {
+            addResult(vulnerableSink);
+        }
+    }
 
-            Automaton automaton = this.toAutomaton(sqlGraph, dependencyGraph);
+    private void addResult(AbstractCfgNode vulnerableSink) {
+        if (vulnerableSink != null) {
+            vulnerabilityCount++;
+            vulnerableSinks.add(vulnerableSink);
+        }
+    }
 
-            boolean tainted = false;
-            if (automaton.hasDirectlyTaintedTransitions()) {
-                System.out.println("directly tainted!");
+    /**
+     * Checks the given dependency graph.
+     *
+     * Does not modify the state of this analysis (the result is added by addResult), and can therefore be called for
+     * several graphs at the same time.
+     *
+     * @param dependencyGraph
+     * @param fileName
+     * @param graphNumber
+     *
+     * @return the sink of the vulnerability, or null if the graph is not vulnerable
+     */
+    private AbstractCfgNode detectVulnerabilitiesInDependencyGraph(
+        DependencyGraph dependencyGraph, String fileName, int graphNumber
+    ) {
+        AbstractCfgNode vulnerableSink = null;
+
+        String graphNameBase = "sql_" + fileName + "_" + graphNumber;
+
+        DependencyGraph sqlGraph = new DependencyGraph(dependencyGraph);
+        AbstractCfgNode cfgNode = dependencyGraph.getRootNode().getCfgNode();
+
+        dependencyGraph.dumpDot(graphNameBase + "_dep", MyOptions.graphPath, dependencyGraph.getUninitializedNodes(), this.vulnerabilityAnalysisInformation);
+
+        TaintAutomaton<?> automaton = this.toTaintAutomaton(sqlGraph, dependencyGraph);
+
+        boolean tainted = false;
+        if (automaton.hasDirectlyTaintedTransitions()) {
+            System.out.println("directly tainted!");
+            tainted = true;
+        }
+        if (automaton.hasIndirectlyTaintedTransitions()) {
+            if (automaton.hasDangerousIndirectTaint()) {
+                System.out.println("indirectly tainted and dangerous!");
                 tainted = true;
             }
-            if (automaton.hasIndirectlyTaintedTransitions()) {
-                if (automaton.hasDangerousIndirectTaint()) {
-                    System.out.println("indirectly tainted and dangerous!");
-                    tainted = true;
-                }
-            }
-            if (tainted) {
-                vulnerabilityCount++;
-                lineNumbersOfVulnerabilities.add(cfgNode.getOriginalLineNumber());
+        }
+        if (tainted) {
+            vulnerableSink = cfgNode;
 
-                System.out.println("- " + cfgNode.getLoc());
-                System.out.println("- Graphs: sql" + dependencyGraphCount);
-            }
+            System.out.println("- " + cfgNode.getLoc());
+            System.out.println("- Graphs: sql" + graphNumber);
+        }
 
-            // Ff we have detected a vulnerability, also dump a reduced SQL dependency graph.
-            if (tainted) {
-                DependencyGraph relevantSubgraph = this.getRelevantSubgraph(dependencyGraph);
-                Map<UninitializedNode, InitialTaint> dangerousUninitializedNodes
-                    = this.findDangerousUninitializedNodes(relevantSubgraph);
-                if (!dangerousUninitializedNodes.isEmpty()) {
-                    if (dangerousUninitializedNodes.values().contains(InitialTaint.ALWAYS)) {
-                        System.out.println("- unconditional");
-                    } else {
-                        System.out.println("- conditional on register_globals=on");
-                    }
-                    relevantSubgraph.reduceWithLeaves(dangerousUninitializedNodes.keySet());
-                    Set<? extends AbstractNode> fillUs;
-                    if (MyOptions.option_V) {
-                        relevantSubgraph.removeTemporaries();
-                        fillUs = relevantSubgraph.removeUninitializedNodes();
-                    } else {
-                        fillUs = dangerousUninitializedNodes.keySet();
-                    }
-                    relevantSubgraph.dumpDot(graphNameBase + "_min", MyOptions.graphPath, fillUs, this.vulnerabilityAnalysisInformation);
+        // Ff we have detected a vulnerability, also dump a reduced SQL dependency graph.
+        if (tainted) {
+            DependencyGraph relevantSubgraph = this.getRelevantSubgraph(dependencyGraph);
+            Map<UninitializedNode, InitialTaint> dangerousUninitializedNodes
+                = this.findDangerousUninitializedNodes(relevantSubgraph);
+            if (!dangerousUninitializedNodes.isEmpty()) {
+                if (dangerousUninitializedNodes.values().contains(InitialTaint.ALWAYS)) {
+                    System.out.println("- unconditional");
+                } else {
+                    System.out.println("- conditional on register_globals=on");
                 }
-
-                System.out.println();
+                relevantSubgraph.reduceWithLeaves(dangerousUninitializedNodes.keySet());
+                Set<? extends AbstractNode> fillUs;
+                if (MyOptions.option_V) {
+                    relevantSubgraph.removeTemporaries();
+                    fillUs = relevantSubgraph.removeUninitializedNodes();
+                } else {
+                    fillUs = dangerousUninitializedNodes.keySet();
+                }
+                relevantSubgraph.dumpDot(graphNameBase + "_min", MyOptions.graphPath, fillUs, this.vulnerabilityAnalysisInformation);
             }
 
-            this.dumpDotAuto(automaton, graphNameBase + "_auto", MyOptions.graphPath);
+            System.out.println();
         }
+
+        this.dumpDotAuto(automaton, graphNameBase + "_auto", MyOptions.graphPath);
+
+        return vulnerableSink;
     }
 
     /**
@@ -178,7 +245,7 @@ public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
                 graphCount++;
 
                 DependencyGraph workGraph = new DependencyGraph(dependencyGraph);
-                Automaton automaton = this.toAutomaton(workGraph, dependencyGraph);
+                TaintAutomaton<?> automaton = this.toTaintAutomaton(workGraph, dependencyGraph);
 
                 boolean tainted = false;
                 if (automaton.hasDirectlyTaintedTransitions()) {
@@ -231,22 +298,36 @@ public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
     // and returning the automaton that eventually decorates the root;
     // BEWARE: this also eliminates cycles!
     Automaton toAutomaton(DependencyGraph dependencyGraph, DependencyGraph origDependencyGraph) {
+        return this.toTaintAutomaton(dependencyGraph, origDependencyGraph).toAutomaton();
+    }
+
+    // same as toAutomaton, but returns a PackedAutomaton if MyOptions.packedAutomata is set
+    TaintAutomaton<?> toTaintAutomaton(DependencyGraph dependencyGraph, DependencyGraph origDependencyGraph) {
+        if (MyOptions.packedAutomata) {
+            return this.toTaintAutomaton(dependencyGraph, origDependencyGraph, PackedAutomaton.FACTORY);
+        } else {
+            return this.toTaintAutomaton(dependencyGraph, origDependencyGraph, Automaton.FACTORY).clone();
+        }
+    }
+
+    private <A extends TaintAutomaton<A>> A toTaintAutomaton(
+        DependencyGraph dependencyGraph, DependencyGraph origDependencyGraph, TaintAutomatonFactory<A> factory
+    ) {
         dependencyGraph.eliminateCycles();
         AbstractNode root = dependencyGraph.getRootNode();
-        Map<AbstractNode, Automaton> deco = new HashMap<>();
+        Map<AbstractNode, A> deco = new HashMap<>();
         Set<AbstractNode> visited = new HashSet<>();
-        this.decorate(root, deco, visited, dependencyGraph, origDependencyGraph);
-        Automaton rootDeco = deco.get(root).clone();
+        this.decorate(root, deco, visited, dependencyGraph, origDependencyGraph, factory);
 
-        return rootDeco;
+        return deco.get(root);
     }
 
 //  ********************************************************************************
 
     // decorates the given node (and all its successors) with an automaton
-    private void decorate(
-        AbstractNode node, Map<AbstractNode, Automaton> deco,
-        Set<AbstractNode> visited, DependencyGraph dependencyGraph, DependencyGraph origDependencyGraph
+    private <A extends TaintAutomaton<A>> void decorate(
+        AbstractNode node, Map<AbstractNode, A> deco, Set<AbstractNode> visited,
+        DependencyGraph dependencyGraph, DependencyGraph origDependencyGraph, TaintAutomatonFactory<A> factory
     ) {
         visited.add(node);
 
@@ -255,20 +336,20 @@ public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
         if (successors != null && !successors.isEmpty()) {
             for (AbstractNode succ : successors) {
                 if (!visited.contains(succ) && deco.get(succ) == null) {
-                    decorate(succ, deco, visited, dependencyGraph, origDependencyGraph);
+                    decorate(succ, deco, visited, dependencyGraph, origDependencyGraph, factory);
                 }
             }
         }
 
         // now that all successors are decorated, we can decorate this node
-        Automaton auto = null;
+        A auto = null;
         if (node instanceof NormalNode) {
             NormalNode normalNode = (NormalNode) node;
             if (successors == null || successors.isEmpty()) {
                 // this should be a string leaf node
                 AbstractTacPlace place = normalNode.getPlace();
                 if (place.isLiteral()) {
-                    auto = Automaton.makeString(place.toString());
+                    auto = factory.makeString(place.toString());
                 } else {
                     // this case should not happen any longer (now that
                     // we have "uninit" nodes, see below)
@@ -284,7 +365,7 @@ public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
                         // a simple loop, can be ignored
                         continue;
                     }
-                    Automaton succAuto = deco.get(succ);
+                    A succAuto = deco.get(succ);
                     if (succAuto == null) {
                         throw new RuntimeException("SNH");
                     }
@@ -296,7 +377,7 @@ public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
                 }
             }
         } else if (node instanceof BuiltinFunctionNode) {
-            auto = this.makeAutoForOp((BuiltinFunctionNode) node, deco, dependencyGraph);
+            auto = this.makeAutoForOp((BuiltinFunctionNode) node, deco, dependencyGraph, factory);
         } else if (node instanceof CompleteGraphNode) {
             // for SCC nodes, we generate a coarse string approximation (.* automaton);
             // the taint value depends on the taint value of the successors:
@@ -324,7 +405,7 @@ public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
                     // a simple loop, should be part of the SCC
                     throw new RuntimeException("SNH");
                 }
-                Automaton succAuto = deco.get(successor);
+                A succAuto = deco.get(successor);
                 if (succAuto == null) {
                     throw new RuntimeException("SNH");
                 }
@@ -334,7 +415,7 @@ public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
                 }
             }
 
-            auto = Automaton.makeAnyString(taint);
+            auto = factory.makeAnyString(taint);
         } else if (node instanceof UninitializedNode) {
             // retrieve predecessor
             Set<AbstractNode> preds = dependencyGraph.getPredecessors(node);
@@ -348,10 +429,10 @@ public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
                 switch (this.getInitialTaintForPlace(preNormal.getPlace())) {
                     case ALWAYS:
                     case IF_REGISTER_GLOBALS:
-                        auto = Automaton.makeAnyString(Transition.Taint.Directly);
+                        auto = factory.makeAnyString(Transition.Taint.Directly);
                         break;
                     case NEVER:
-                        auto = Automaton.makeAnyString(Transition.Taint.Untainted);
+                        auto = factory.makeAnyString(Transition.Taint.Untainted);
                         break;
                     default:
                         throw new RuntimeException("SNH");
@@ -372,20 +453,20 @@ public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
                         switch (this.getInitialTaintForPlace(origPreNormal.getPlace())) {
                             case ALWAYS:
                             case IF_REGISTER_GLOBALS:
-                                auto = Automaton.makeAnyString(Transition.Taint.Directly);
+                                auto = factory.makeAnyString(Transition.Taint.Directly);
                                 break;
                             case NEVER:
-                                auto = Automaton.makeAnyString(Transition.Taint.Untainted);
+                                auto = factory.makeAnyString(Transition.Taint.Untainted);
                                 break;
                             default:
                                 throw new RuntimeException("SNH");
                         }
                     } else {
-                        auto = Automaton.makeAnyString(Transition.Taint.Directly);
+                        auto = factory.makeAnyString(Transition.Taint.Directly);
                     }
                 } else {
                     // conservative decision for this SCC
-                    auto = Automaton.makeAnyString(Transition.Taint.Directly);
+                    auto = factory.makeAnyString(Transition.Taint.Directly);
                 }
             } else {
                 throw new RuntimeException("SNH: " + pre.getClass());
@@ -410,20 +491,30 @@ public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
      *
      * @return
      */
-    private Automaton makeAutoForOp(
-        BuiltinFunctionNode node, Map<AbstractNode, Automaton> deco, DependencyGraph dependencyGraph
+    private <A extends TaintAutomaton<A>> A makeAutoForOp(
+        BuiltinFunctionNode node, Map<AbstractNode, A> deco, DependencyGraph dependencyGraph,
+        TaintAutomatonFactory<A> factory
     ) {
         List<AbstractNode> successors = dependencyGraph.getSuccessors(node);
         if (successors == null) {
             successors = new LinkedList<>();
         }
 
-        Automaton retMe = null;
+        A retMe = null;
 
         String opName = node.getName();
 
         List<Integer> multiList = new LinkedList<>();
 
+        A transduced = null;
+        if (useTransducers && node.isBuiltin()) {
+            List<A> arguments = new LinkedList<>();
+            for (AbstractNode succ : successors) {
+                arguments.add(deco.get(succ));
+            }
+            transduced = BuiltinTransductions.transduce(opName, arguments, factory);
+        }
+
         if (!node.isBuiltin()) {
             // call to function or method for which no definition
             // could be found
@@ -432,17 +523,22 @@ public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
             if (cfgNodeX instanceof CallUnknownFunction) {
                 CallUnknownFunction cfgNode = (CallUnknownFunction) cfgNodeX;
                 if (cfgNode.isMethod()) {
-                    retMe = Automaton.makeAnyString(Transition.Taint.Untainted);
+                    retMe = factory.makeAnyString(Transition.Taint.Untainted);
                 } else {
-                    retMe = Automaton.makeAnyString(Transition.Taint.Directly);
+                    retMe = factory.makeAnyString(Transition.Taint.Directly);
                 }
             } else {
                 throw new RuntimeException("SNH");
             }
+        } else if (transduced != null) {
+            // TRANSDUCERS ******************************************
+            // string functions with literal arguments (precise, therefore
+            // before the sanitization functions)
+            retMe = transduced;
         } else if (opName.equals(".")) {
             // CONCAT
             for (AbstractNode succ : successors) {
-                Automaton succAuto = deco.get(succ);
+                A succAuto = deco.get(succ);
                 if (retMe == null) {
                     retMe = succAuto;
                 } else {
@@ -454,55 +550,24 @@ public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
             // ops that perform sanitization, but which are insufficient
             // in cases where the output is not enclosed by quotes in an SQL query
         } else if (isWeakSanitation(opName, multiList)) {
-            retMe = Automaton.makeAnyString(Transition.Taint.Indirectly);
+            retMe = factory.makeAnyString(Transition.Taint.Indirectly);
 
             // STRONG SANITIZATION FUNCTIONS *******************************
             // e.g., ops that return numeric values
         } else if (isStrongSanitation(opName)) {
-            retMe = Automaton.makeAnyString(Transition.Taint.Untainted);
+            retMe = factory.makeAnyString(Transition.Taint.Untainted);
 
             // EVIL FUNCTIONS ***************************************
             // take care: if you define evil functions, you must adjust
             // the treatment of SCC nodes in decorate()
 
             // MULTI-OR-DEPENDENCY **********************************
-        } else if (useTransducers && opName.equals("str_replace")) {
-            if (successors.size() < 3) {
-                throw new RuntimeException("SNH");
-            }
-            Automaton searchAuto = deco.get(successors.get(0));
-            Automaton replaceAuto = deco.get(successors.get(1));
-            Automaton subjectAuto = deco.get(successors.get(2));
-
-            // search and replace have to be finite strings;
-            // extract them
-            boolean supported = true;
-            String searchString = null;
-            String replaceString = null;
-            if (searchAuto.isFinite() && replaceAuto.isFinite()) {
-                Set<String> searchSet = searchAuto.getFiniteStrings();
-                Set<String> replaceSet = replaceAuto.getFiniteStrings();
-                if (searchSet.size() != 1 || replaceSet.size() != 1) {
-                    supported = false;
-                } else {
-                    searchString = searchSet.iterator().next();
-                    replaceString = replaceSet.iterator().next();
-                }
-            } else {
-                supported = false;
-            }
-            if (!supported) {
-                throw new RuntimeException("not supported yet");
-            }
-
-            Automaton transduced = new MyTransductions().str_replace(searchString, replaceString, subjectAuto);
-            return transduced;
         } else if (isMultiDependencyOperation(opName, multiList)) {
             Transition.Taint taint = this.multiDependencyAuto(successors, deco, multiList, false);
-            retMe = Automaton.makeAnyString(taint);
+            retMe = factory.makeAnyString(taint);
         } else if (isInverseMultiDependencyOperation(opName, multiList)) {
             Transition.Taint taint = this.multiDependencyAuto(successors, deco, multiList, true);
-            retMe = Automaton.makeAnyString(taint);
+            retMe = factory.makeAnyString(taint);
 
             // CATCH-ALL ********************************************
         } else {
@@ -510,7 +575,7 @@ public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
 
             // conservative decision for operations that have not been
             // modeled yet: .*
-            retMe = Automaton.makeAnyString(Transition.Taint.Directly);
+            retMe = factory.makeAnyString(Transition.Taint.Directly);
         }
 
         return retMe;
@@ -559,7 +624,8 @@ public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
     }
 
     private Transition.Taint multiDependencyAuto(
-        List<AbstractNode> successors, Map<AbstractNode, Automaton> deco, List<Integer> indices, boolean inverse
+        List<AbstractNode> successors, Map<AbstractNode, ? extends TaintAutomaton<?>> deco, List<Integer> indices,
+        boolean inverse
     ) {
         boolean indirectly = false;
         Set<Integer> indexSet = new HashSet<>(indices);
@@ -579,7 +645,7 @@ public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
                 }
             }
 
-            Automaton successorAutomaton = deco.get(successor);
+            TaintAutomaton<?> successorAutomaton = deco.get(successor);
             if (successorAutomaton == null) {
                 throw new RuntimeException("SNH");
             }
@@ -599,13 +665,15 @@ public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
         }
     }
 
-    void dumpDotAuto(Automaton auto, String graphName, String path) {
+    // uses the unique dot representation: the plain one depends on the order in which the
+    // states are hashed, which differs between threads (see MyOptions.detectionThreads)
+    void dumpDotAuto(TaintAutomaton<?> taintAuto, String graphName, String path) {
         String filename = graphName + ".dot";
         (new File(path)).mkdir();
 
         try {
             Writer outWriter = new FileWriter(path + "/" + filename);
-            String autoDot = auto.toDot();
+            String autoDot = taintAuto.toDotUnique();
             outWriter.write(autoDot);
             outWriter.close();
         } catch (IOException e) {
@@ -614,6 +682,7 @@ public class SqlAnalysis extends AbstractVulnerabilityAnalysis {
         }
 
         if (MyOptions.option_P) {
+            Automaton auto = taintAuto.toAutomaton();
             if (auto.isFinite()) {
                 Set<String> finiteStringsSet = auto.getFiniteStrings();
                 List<String> finiteStrings = new LinkedList<>(finiteStringsSet);
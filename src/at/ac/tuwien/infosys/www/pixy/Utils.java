@@ -8,6 +8,10 @@ import java.util.List;
  * @author Nenad Jovanovic <enji@seclab.tuwien.ac.at>
  */
 public class Utils {
+    // if false, bail() throws a BailException instead of exiting, such that
+    // the remaining files of a batch can still be analyzed
+    public static boolean exitOnBail = true;
+
     // same as PHP's basename()
     public static String basename(String s) {
         return (new File(s).getName());
@@ -16,10 +20,8 @@ public class Utils {
     // writes the given string to a file with the given name
     // (provide full path)
     public static void writeToFile(String s, String fileName) {
-        try {
-            Writer outWriter = new FileWriter(fileName);
+        try (Writer outWriter = new FileWriter(fileName)) {
             outWriter.write(s);
-            outWriter.close();
         } catch (IOException e) {
             System.out.println("Warning: Could not write to file " + fileName);
             System.out.println(e.getMessage());
@@ -75,6 +77,9 @@ public class Utils {
         for (String msg : msgs) {
             System.err.println(msg);
         }
+        if (!exitOnBail) {
+            throw new BailException(msgs.length == 0 ? null : msgs[0]);
+        }
         System.exit(1);
     }
 
@@ -1,6 +1,5 @@
 package at.ac.tuwien.infosys.www.pixy;
 
-import at.ac.tuwien.infosys.www.phpparser.ParseTree;
 import at.ac.tuwien.infosys.www.pixy.analysis.dependency.DependencyAnalysis;
 import at.ac.tuwien.infosys.www.pixy.analysis.dependency.Sink;
 import at.ac.tuwien.infosys.www.pixy.analysis.dependency.graph.*;
@@ -12,9 +11,9 @@ import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.CallBuiltinFunction;
 import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.CallPreparation;
 import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.Echo;
 import at.ac.tuwien.infosys.www.pixy.sanitation.AbstractSanitationAnalysis;
-import main.JAnalyzer;
 
 import java.util.*;
+import java.util.concurrent.Callable;
 
 /**
  * XSS detection.
@@ -25,7 +24,7 @@ public class XssAnalysis extends AbstractVulnerabilityAnalysis {
 
     private int dependencyGraphCount;
     private int vulnerabilityCount;
-    private List<Integer> lineNumbersOfVulnerabilities;
+    private List<AbstractCfgNode> vulnerableSinks;
 
     public XssAnalysis(DependencyAnalysis dependencyAnalysis) {
         super(dependencyAnalysis);
@@ -51,7 +50,7 @@ public class XssAnalysis extends AbstractVulnerabilityAnalysis {
         System.out.println("*****************");
         System.out.println();
 
-        lineNumbersOfVulnerabilities = new LinkedList<>();
+        vulnerableSinks = new LinkedList<>();
 
         List<Sink> sinks = this.collectSinks();
         Collections.sort(sinks);
@@ -71,42 +70,16 @@ public class XssAnalysis extends AbstractVulnerabilityAnalysis {
 
         dependencyGraphCount = 0;
         vulnerabilityCount = 0;
-        for (Sink sink : sinks) {
-            detectVulnerabilitiesForSink(sink2Graph, quickReport, fileName, sink);
-        }
-        
-        boolean tar = MyOptions.option_TAR;
-        System.out.println("TAR is " + (tar? "enabled" : "disabled"));
-        
-        //System.out.println("Checking sink " + sinks.get(sinks.size() - 1).getLineNumber());
-        
-        ParseTree parseTree = Checker.programConverter.getParseTree();
-        
-        if (tar) {
-	        System.out.println("\n\n\n>>>>>>>>>>>>>>>>>>>>>");
-			System.out.println("Taint analysis refinement begins");
-			boolean validBug = true;
-			try {
-				Set<Integer> sinkSet = new HashSet<Integer>();
-				sinkSet.add(sinks.get(sinks.size() - 1).getLineNumber());
-				validBug = JAnalyzer.analyze(fileName, parseTree, sinkSet);
-			} catch (Exception e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
-			
-			if (validBug) {
-				System.out.println("\n*****The vulnerabilty is valid.\n");
-			} else {
-				System.out.println("\n*****The vulnerabilty is spurious.\n");
-				if (vulnerabilityCount > 0) vulnerabilityCount --;
-			}
-			
-			
-			System.out.println("Taint analysis refinement ends");
-			System.out.println(">>>>>>>>>>>>>>>>>>>>>\n\n\n");
+        if (MyOptions.detectionThreads > 1) {
+            detectVulnerabilitiesInParallel(sink2Graph, quickReport, fileName, sinks);
+        } else {
+            for (Sink sink : sinks) {
+                detectVulnerabilitiesForSink(sink2Graph, quickReport, fileName, sink);
+            }
         }
         
+        vulnerabilityCount -= refineVulnerabilities(vulnerableSinks);
+
         // initial sink count and final graph count may differ (e.g., if some sinks
         // are not reachable)
         if (MyOptions.optionV) {
@@ -125,7 +98,7 @@ public class XssAnalysis extends AbstractVulnerabilityAnalysis {
             Utils.writeToFile(quickReport.toString(), MyOptions.graphPath + "/xssQuickReport.txt");
         }
 
-        return lineNumbersOfVulnerabilities;
+        return getLineNumbers(vulnerableSinks);
     }
 
     private void detectVulnerabilitiesForSink(
@@ -134,26 +107,92 @@ public class XssAnalysis extends AbstractVulnerabilityAnalysis {
         for (DependencyGraph dependencyGraph : dependencyAnalysis.getDependencyGraphsForSink(sink)) {
             dependencyGraphCount++;
 
-            String graphNameBase = "xss_" + fileName + "_" + dependencyGraphCount;
+            addResult(
+                detectVulnerabilitiesInDependencyGraph(sink, dependencyGraph, fileName, dependencyGraphCount),
+                sink2Graph, quickReport
+            );
+        }
+    }
 
-            if (!MyOptions.optionW) {
-                dependencyGraph.dumpDot(graphNameBase + "_dep", MyOptions.graphPath, this.vulnerabilityAnalysisInformation);
+    /**
+     * Parallel version of the loop over detectVulnerabilitiesForSink.
+     *
+     * Graphs are numbered in the same order as in the sequential loop, and the results are added in this order,
+     * so the output does not depend on the number of threads.
+     *
+     * @param sink2Graph
+     * @param quickReport
+     * @param fileName
+     * @param sinks
+     */
+    private void detectVulnerabilitiesInParallel(
+        StringBuilder sink2Graph, StringBuilder quickReport, final String fileName, List<Sink> sinks
+    ) {
+        List<List<DependencyGraph>> dependencyGraphsForSinks = this.getDependencyGraphsForSinks(sinks);
+
+        List<Callable<GraphResult>> tasks = new ArrayList<>();
+        Iterator<Sink> sinkIterator = sinks.iterator();
+        for (List<DependencyGraph> dependencyGraphs : dependencyGraphsForSinks) {
+            final Sink sink = sinkIterator.next();
+            for (final DependencyGraph dependencyGraph : dependencyGraphs) {
+                dependencyGraphCount++;
+
+                final int graphNumber = dependencyGraphCount;
+                tasks.add(new Callable<GraphResult>() {
+                    public GraphResult call() {
+                        return detectVulnerabilitiesInDependencyGraph(sink, dependencyGraph, fileName, graphNumber);
+                    }
+                });
             }
+        }
 
-            detectVulnerabilitiesInDependencyGraphForSink(sink2Graph, quickReport, sink, dependencyGraph, graphNameBase);
+        for (GraphResult result : invokeInOrder(tasks)) {
+            addResult(result, sink2Graph, quickReport);
         }
     }
 
-    private void detectVulnerabilitiesInDependencyGraphForSink(
-        StringBuilder sink2Graph, StringBuilder quickReport, Sink sink, DependencyGraph dependencyGraph, String graphNameBase
+    private void addResult(GraphResult result, StringBuilder sink2Graph, StringBuilder quickReport) {
+        if (result.vulnerableSink == null) {
+            return;
+        }
+
+        vulnerabilityCount++;
+        vulnerableSinks.add(result.vulnerableSink);
+        sink2Graph.append(result.sink2Graph);
+        quickReport.append(result.quickReport);
+    }
+
+    /**
+     * Checks the given dependency graph of the given sink.
+     *
+     * Does not modify the state of this analysis (the result is added by addResult), and can therefore be called for
+     * several graphs at the same time.
+     *
+     * @param sink
+     * @param dependencyGraph
+     * @param fileName
+     * @param graphNumber
+     *
+     * @return
+     */
+    private GraphResult detectVulnerabilitiesInDependencyGraph(
+        Sink sink, DependencyGraph dependencyGraph, String fileName, int graphNumber
     ) {
+        GraphResult result = new GraphResult();
+
+        String graphNameBase = "xss_" + fileName + "_" + graphNumber;
+
+        if (!MyOptions.optionW) {
+            dependencyGraph.dumpDot(graphNameBase + "_dep", MyOptions.graphPath, this.vulnerabilityAnalysisInformation);
+        }
+
         DependencyGraph relevantSubgraph = this.getRelevantSubgraph(dependencyGraph);
 
         Map<UninitializedNode, InitialTaint> dangerousUninitializedNodes
             = this.findDangerousUninitializedNodes(relevantSubgraph);
 
         if (dangerousUninitializedNodes.isEmpty()) {
-            return;
+            return result;
         }
 
         relevantSubgraph.reduceWithLeaves(dangerousUninitializedNodes.keySet());
@@ -166,10 +205,9 @@ public class XssAnalysis extends AbstractVulnerabilityAnalysis {
             fillUs = dangerousUninitializedNodes.keySet();
         }
 
-        vulnerabilityCount++;
         NormalNode root = dependencyGraph.getRootNode();
         AbstractCfgNode cfgNode = root.getCfgNode();
-        lineNumbersOfVulnerabilities.add(cfgNode.getOriginalLineNumber());
+        result.vulnerableSink = cfgNode;
         System.out.println("Vulnerability detected!");
         if (dangerousUninitializedNodes.values().contains(InitialTaint.ALWAYS)) {
             System.out.println("- unconditional");
@@ -178,16 +216,18 @@ public class XssAnalysis extends AbstractVulnerabilityAnalysis {
         }
         System.out.println("- " + cfgNode.getLoc());
 
-        System.out.println("- Graph: xss" + dependencyGraphCount);
+        System.out.println("- Graph: xss" + graphNumber);
         relevantSubgraph.dumpDot(graphNameBase + "_min", MyOptions.graphPath, fillUs, this.vulnerabilityAnalysisInformation);
         System.out.println();
 
         if (MyOptions.optionW) {
+            StringBuilder sink2Graph = result.sink2Graph;
             sink2Graph.append(sink.getLineNumber());
             sink2Graph.append(":");
             sink2Graph.append(graphNameBase + "_min");
             sink2Graph.append("\n");
 
+            StringBuilder quickReport = result.quickReport;
             quickReport.append("Line ");
             quickReport.append(sink.getLineNumber());
             quickReport.append("\nSources:\n");
@@ -208,6 +248,20 @@ public class XssAnalysis extends AbstractVulnerabilityAnalysis {
             }
             quickReport.append("\n");
         }
+
+        return result;
+    }
+
+    /**
+     * What detectVulnerabilitiesInDependencyGraph found out about a single dependency graph.
+     */
+    private static final class GraphResult {
+        /** sink of the vulnerability, null if the graph is not vulnerable */
+        private AbstractCfgNode vulnerableSink;
+
+        /** the graph's contribution to the web interface files */
+        private final StringBuilder sink2Graph = new StringBuilder();
+        private final StringBuilder quickReport = new StringBuilder();
     }
 
     /**
@@ -24,4 +24,16 @@ public abstract class AbstractLattice {
     public abstract AbstractLatticeElement lub(
         AbstractLatticeElement incomingElement,
         AbstractLatticeElement targetElement);
+
+    // like lub, but returns the target element itself if the lub is equal to it;
+    // this way, the worklist algorithms can detect changes with a simple "=="
+    // (instead of comparing the whole elements); the default implementation
+    // performs this comparison, subclasses should rather use lubChanged
+    public AbstractLatticeElement lubUpdate(
+        AbstractLatticeElement incomingElement,
+        AbstractLatticeElement targetElement) {
+
+        AbstractLatticeElement resultElement = this.lub(incomingElement, targetElement);
+        return targetElement.equals(resultElement) ? targetElement : resultElement;
+    }
 }
\ No newline at end of file
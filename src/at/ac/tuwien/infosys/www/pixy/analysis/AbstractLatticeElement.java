@@ -1,5 +1,10 @@
 package at.ac.tuwien.infosys.www.pixy.analysis;
 
+import at.ac.tuwien.infosys.www.pixy.MyOptions;
+
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Forces lattice element implementations to think about their equality condition,
  * which is needed for the worklist algorithm.
@@ -14,6 +19,15 @@ public abstract class AbstractLatticeElement implements Recyclable {
     // can be called on every lattice element except Bottom and Top
     public abstract void lub(AbstractLatticeElement element);
 
+    // like lub, but also returns whether *this* element has changed;
+    // the default implementation compares with a copy of the old element,
+    // subclasses should rather detect changes while lubbing
+    public boolean lubChanged(AbstractLatticeElement element) {
+        AbstractLatticeElement oldElement = this.cloneMe();
+        this.lub(element);
+        return !oldElement.structureEquals(this);
+    }
+
     // returns a clone (deep copy) of this object;
     // can be called on every lattice element except Bottom and Top
     public abstract AbstractLatticeElement cloneMe();
@@ -23,4 +37,24 @@ public abstract class AbstractLatticeElement implements Recyclable {
     public abstract int structureHashCode();
 
     public abstract void dump();
-}
\ No newline at end of file
+
+    // creates an empty map for the mappings of a lattice element;
+    // persistent unless disabled with MyOptions.persistentMaps
+    protected static <K, V> Map<K, V> createMap() {
+        if (MyOptions.persistentMaps) {
+            return new PersistentHashMap<>();
+        } else {
+            return new HashMap<>();
+        }
+    }
+
+    // copies the given map (created by createMap); constant time
+    // for persistent maps
+    protected static <K, V> Map<K, V> copyMap(Map<K, V> map) {
+        if (map instanceof PersistentHashMap) {
+            return new PersistentHashMap<>(map);
+        } else {
+            return new HashMap<>(map);
+        }
+    }
+}
@@ -8,6 +8,18 @@ import at.ac.tuwien.infosys.www.pixy.analysis.interprocedural.AbstractContext;
 public abstract class AbstractTransferFunction {
     public abstract AbstractLatticeElement transfer(AbstractLatticeElement in);
 
+    // can this transfer function modify a lattice element directly (see transferInPlace)?
+    public boolean isInPlace() {
+        return false;
+    }
+
+    // applies this transfer function to the given element itself instead of to a copy;
+    // only for transfer functions that return true for isInPlace(), and only for
+    // elements that are owned by the caller (e.g., the copy made by CompositeTransferFunction)
+    public void transferInPlace(AbstractLatticeElement element) {
+        throw new RuntimeException("SNH: " + this.getClass());
+    }
+
     // method for transfer functions that need to know about the
     // current context; needed for the transfer
     // function of Call Return Nodes; otherwise, they would not
@@ -1,22 +1,42 @@
 package at.ac.tuwien.infosys.www.pixy.analysis;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
 /**
+ * A sequence of transfer functions, e.g., for the nodes of a basic block.
+ *
+ * If all of them can work in place (see AbstractTransferFunction.isInPlace), the incoming element is copied only
+ * once, and the transfer functions are applied to this copy one after the other. The identity transfer functions are
+ * left out; if nothing else remains, the incoming element is returned as it is.
+ *
  * @author Nenad Jovanovic <enji@seclab.tuwien.ac.at>
  */
 public class CompositeTransferFunction extends AbstractTransferFunction {
     // a list of TransferFunctions to be applied in sequence
     private List<AbstractTransferFunction> tfs;
 
+    // the transfer functions apart from the identity ones, if all of them work
+    // in place; null otherwise
+    private List<AbstractTransferFunction> inPlaceTfs;
+
     public CompositeTransferFunction() {
         this.tfs = new LinkedList<>();
+        this.inPlaceTfs = new ArrayList<>();
     }
 
     public void add(AbstractTransferFunction tf) {
         this.tfs.add(tf);
+        if (this.inPlaceTfs == null || tf == TransferFunctionId.INSTANCE) {
+            return;
+        }
+        if (tf.isInPlace()) {
+            this.inPlaceTfs.add(tf);
+        } else {
+            this.inPlaceTfs = null;
+        }
     }
 
     // returns an iterator over the contained transfer functions
@@ -25,9 +45,30 @@ public class CompositeTransferFunction extends AbstractTransferFunction {
     }
 
     public AbstractLatticeElement transfer(AbstractLatticeElement in) {
+        if (this.inPlaceTfs != null) {
+            if (this.inPlaceTfs.isEmpty()) {
+                return in;
+            }
+            AbstractLatticeElement out = in.cloneMe();
+            for (AbstractTransferFunction tf : this.inPlaceTfs) {
+                tf.transferInPlace(out);
+            }
+            return out;
+        }
+
         for (AbstractTransferFunction tf : this.tfs) {
             in = tf.transfer(in);
         }
         return in;
     }
-}
\ No newline at end of file
+
+    public boolean isInPlace() {
+        return this.inPlaceTfs != null;
+    }
+
+    public void transferInPlace(AbstractLatticeElement element) {
+        for (AbstractTransferFunction tf : this.inPlaceTfs) {
+            tf.transferInPlace(element);
+        }
+    }
+}
@@ -1,9 +1,6 @@
 package at.ac.tuwien.infosys.www.pixy.analysis;
 
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
+import java.lang.ref.WeakReference;
 
 /**
  * A generic repository of recyclable objects.
@@ -28,14 +25,38 @@ import java.util.Map;
  * and that these methods perform recycling by means of the repository
  * - do not override its default equals and hashCode (would destroy the advantages mentioned above)
  *
+ * Implementation: the repository is split into a fixed number of stripes (selected by the structure
+ * hash code), each of which is an open addressing hash table with its own lock; this way, several
+ * threads can recycle objects at the same time (see MyOptions.detectionThreads).
+ * A weak repository only holds weak references to its objects, so that objects that are not used
+ * anywhere else can be garbage collected (which is harmless: nobody can compare them with "==" any
+ * longer).
+ *
  * @author Nenad Jovanovic <enji@seclab.tuwien.ac.at>
  */
 public class GenericRepository<E extends Recyclable> {
-    // structure hash code (Integer) -> List of Recyclable's
-    private Map<Integer, List<E>> repos;
+    // number of stripes (a power of two, at least 2)
+    private static final int STRIPES = 16;
+
+    // the stripe of an object is selected by the top bits of its (spread) hash code
+    private static final int STRIPE_SHIFT = 32 - Integer.numberOfTrailingZeros(STRIPES);
+
+    private final Stripe<E>[] stripes;
+
+    // does this repository hold its objects weakly?
+    private final boolean weak;
 
     public GenericRepository() {
-        this.repos = new HashMap<>();
+        this(false);
+    }
+
+    @SuppressWarnings("unchecked")
+    public GenericRepository(boolean weak) {
+        this.weak = weak;
+        this.stripes = (Stripe<E>[]) new Stripe<?>[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe<>(weak);
+        }
     }
 
     // if the given element equals one from the repository: the
@@ -47,26 +68,183 @@ public class GenericRepository<E extends Recyclable> {
             return recycleMe;
         }
 
-        Integer structureHashCode = recycleMe.structureHashCode();
-        List<E> candidates = this.repos.get(structureHashCode);
-        if (candidates == null) {
-            // no candidates list: add recycleMe to the repos and return it
-            List<E> recycleMeList = new LinkedList<>();
-            recycleMeList.add(recycleMe);
-            this.repos.put(structureHashCode, recycleMeList);
+        int hash = spread(recycleMe.structureHashCode());
+        return this.stripes[hash >>> STRIPE_SHIFT].recycle(recycleMe, hash);
+    }
+
+    // removes all objects from the repository, and resets the statistics
+    public void clear() {
+        for (Stripe<E> stripe : this.stripes) {
+            stripe.clear();
+        }
+    }
+
+//  statistics *********************************************************************
+
+    // number of objects in the repository
+    public int size() {
+        int size = 0;
+        for (Stripe<E> stripe : this.stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    // number of recycle calls that returned an existing object
+    public long getHits() {
+        long hits = 0;
+        for (Stripe<E> stripe : this.stripes) {
+            hits += stripe.getHits();
+        }
+        return hits;
+    }
+
+    // number of recycle calls that entered a new object
+    public long getMisses() {
+        long misses = 0;
+        for (Stripe<E> stripe : this.stripes) {
+            misses += stripe.getMisses();
+        }
+        return misses;
+    }
+
+    public String getStatistics() {
+        return "size: " + this.size() + ", hits: " + this.getHits() + ", misses: " + this.getMisses()
+            + (this.weak ? " (weak)" : "");
+    }
+
+//  ********************************************************************************
+
+    private static int spread(int hashCode) {
+        int h = hashCode * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // an open addressing hash table (linear probing)
+    private static final class Stripe<E extends Recyclable> {
+        private final boolean weak;
+
+        // the objects (or weak references to them) and their hashes;
+        // null marks an empty slot
+        private Object[] entries;
+        private int[] hashes;
+
+        // number of non-empty slots (including cleared weak references)
+        private int used;
+
+        private long hits;
+        private long misses;
+
+        Stripe(boolean weak) {
+            this.weak = weak;
+            this.entries = new Object[16];
+            this.hashes = new int[16];
+            this.used = 0;
+        }
+
+        synchronized E recycle(E recycleMe, int hash) {
+            int mask = this.entries.length - 1;
+            int slot = hash & mask;
+
+            // first slot with a cleared reference (can be reused)
+            int free = -1;
+
+            Object entry;
+            while ((entry = this.entries[slot]) != null) {
+                E candidate = this.get(entry);
+                if (candidate == null) {
+                    if (free < 0) {
+                        free = slot;
+                    }
+                } else if (this.hashes[slot] == hash && candidate.structureEquals(recycleMe)) {
+                    // recycling!
+                    this.hits++;
+                    return candidate;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            // no candidate matches: add recycleMe
+            this.misses++;
+            if (free >= 0) {
+                slot = free;
+            } else {
+                this.used++;
+            }
+            this.entries[slot] = this.weak ? new WeakReference<>(recycleMe) : recycleMe;
+            this.hashes[slot] = hash;
+
+            if (this.used * 3 > this.entries.length * 2) {
+                this.rehash();
+            }
             return recycleMe;
         }
 
-        // search the candidates list
-        for (E candidate : candidates) {
-            if (candidate.structureEquals(recycleMe)) {
-                // recycling!
-                return candidate;
+        synchronized void clear() {
+            this.entries = new Object[16];
+            this.hashes = new int[16];
+            this.used = 0;
+            this.hits = 0;
+            this.misses = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private E get(Object entry) {
+            if (this.weak) {
+                return ((WeakReference<E>) entry).get();
+            } else {
+                return (E) entry;
             }
         }
 
-        // no candidate matches: add recycleMe to this list and return it
-        candidates.add(recycleMe);
-        return recycleMe;
+        // drops cleared references, and grows the table if necessary
+        private void rehash() {
+            int live = this.size();
+            int capacity = 16;
+            while (live * 3 > capacity) {
+                capacity *= 2;
+            }
+
+            Object[] oldEntries = this.entries;
+            int[] oldHashes = this.hashes;
+            this.entries = new Object[capacity];
+            this.hashes = new int[capacity];
+            this.used = 0;
+
+            int mask = capacity - 1;
+            for (int i = 0; i < oldEntries.length; i++) {
+                if (oldEntries[i] == null || this.get(oldEntries[i]) == null) {
+                    continue;
+                }
+                int slot = oldHashes[i] & mask;
+                while (this.entries[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                this.entries[slot] = oldEntries[i];
+                this.hashes[slot] = oldHashes[i];
+                this.used++;
+            }
+        }
+
+        synchronized int size() {
+            if (!this.weak) {
+                return this.used;
+            }
+            int size = 0;
+            for (Object entry : this.entries) {
+                if (entry != null && this.get(entry) != null) {
+                    size++;
+                }
+            }
+            return size;
+        }
+
+        synchronized long getHits() {
+            return this.hits;
+        }
+
+        synchronized long getMisses() {
+            return this.misses;
+        }
     }
-}
\ No newline at end of file
+}
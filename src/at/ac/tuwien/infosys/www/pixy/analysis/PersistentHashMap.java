@@ -0,0 +1,694 @@
+package at.ac.tuwien.infosys.www.pixy.analysis;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map that is backed by a persistent hash array mapped trie.
+ *
+ * Copying such a map (with the copy constructor) takes constant time, since the copy
+ * shares its trie with the original. A put or remove creates new nodes only along the
+ * path from the root to the affected entry (i.e., it costs O(log n)), and leaves the
+ * rest of the trie shared.
+ *
+ * The trie is kept in a canonical form (a child node always holds at least two entries),
+ * so two maps with the same entries have the same shape. This allows equals() and
+ * forEachDifference() to skip the subtrees that two maps share by reference.
+ *
+ * Null keys and null values are not supported. Just like HashMap, this class is not
+ * synchronized; since the nodes are never modified, however, concurrent reads are safe.
+ */
+public class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+    // number of hash bits consumed by each level of the trie
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    // largest shift that still consumes hash bits; below that level,
+    // keys with equal hashes are kept in collision nodes
+    private static final int MAX_SHIFT = 30;
+
+    // maximum depth of the trie (7 levels of bitmap nodes, 1 level of collision nodes)
+    private static final int MAX_DEPTH = 8;
+
+    private static final Object[] NO_DATA = new Object[0];
+    private static final Node[] NO_NODES = new Node[0];
+    private static final BitmapNode EMPTY = new BitmapNode(0, 0, NO_DATA, NO_NODES);
+
+    private Node root;
+    private int size;
+
+    // sum of the entry hash codes (as required by Map.hashCode()),
+    // updated with each modification
+    private int hashCode;
+
+//  ********************************************************************************
+//  CONSTRUCTORS *******************************************************************
+//  ********************************************************************************
+
+    public PersistentHashMap() {
+        this.root = EMPTY;
+        this.size = 0;
+        this.hashCode = 0;
+    }
+
+    // copies the given map; takes constant time if the given map is
+    // a PersistentHashMap as well
+    public PersistentHashMap(Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentHashMap) {
+            PersistentHashMap<?, ?> persistentMap = (PersistentHashMap<?, ?>) map;
+            this.root = persistentMap.root;
+            this.size = persistentMap.size;
+            this.hashCode = persistentMap.hashCode;
+        } else {
+            this.root = EMPTY;
+            this.size = 0;
+            this.hashCode = 0;
+            this.putAll(map);
+        }
+    }
+
+//  ********************************************************************************
+//  MAP ****************************************************************************
+//  ********************************************************************************
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        return (V) this.root.find(key, hash(key), 0);
+    }
+
+    public boolean containsKey(Object key) {
+        return this.get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+
+        Change change = new Change();
+        Node newRoot = this.root.put(key, value, hash(key), 0, change);
+        if (newRoot != this.root) {
+            this.root = newRoot;
+            if (change.oldValue == null) {
+                this.size++;
+            } else {
+                this.hashCode -= key.hashCode() ^ change.oldValue.hashCode();
+            }
+            this.hashCode += key.hashCode() ^ value.hashCode();
+        }
+        return (V) change.oldValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        if (key == null) {
+            return null;
+        }
+
+        Change change = new Change();
+        Node newRoot = this.root.remove(key, hash(key), 0, change);
+        if (newRoot != this.root) {
+            this.root = newRoot;
+            this.size--;
+            this.hashCode -= key.hashCode() ^ change.oldValue.hashCode();
+        }
+        return (V) change.oldValue;
+    }
+
+    public void clear() {
+        this.root = EMPTY;
+        this.size = 0;
+        this.hashCode = 0;
+    }
+
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            public int size() {
+                return PersistentHashMap.this.size;
+            }
+
+            public boolean contains(Object o) {
+                if (!(o instanceof Map.Entry)) {
+                    return false;
+                }
+                Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+                Object value = PersistentHashMap.this.get(entry.getKey());
+                return value != null && value.equals(entry.getValue());
+            }
+
+            public void clear() {
+                PersistentHashMap.this.clear();
+            }
+        };
+    }
+
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof PersistentHashMap) {
+            PersistentHashMap<?, ?> comp = (PersistentHashMap<?, ?>) o;
+            return this.size == comp.size
+                && this.hashCode == comp.hashCode
+                && equalNodes(this.root, comp.root);
+        }
+        return super.equals(o);
+    }
+
+    public int hashCode() {
+        return this.hashCode;
+    }
+
+//  forEachDifference ***************************************************************
+
+    // receives the keys that are mapped differently by two maps
+    public interface DifferenceVisitor<K, V> {
+        // thisValue / otherValue are null if the respective map has
+        // no mapping for this key
+        void visit(K key, V thisValue, V otherValue);
+    }
+
+    // calls the visitor for each key that has different (i.e., non-equal) values in
+    // this map and the other map; subtrees that are shared by both maps are skipped;
+    // the visitor may modify this map, since only the current state is visited
+    public void forEachDifference(PersistentHashMap<K, V> other, DifferenceVisitor<K, V> visitor) {
+        new Differ<>(this.root, other.root, visitor).diff(this.root, other.root, 0);
+    }
+
+//  ********************************************************************************
+//  HELPERS ************************************************************************
+//  ********************************************************************************
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    // the position of the given hash at the level with the given shift
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    // the index of the given bit in an array that is compressed by the given bitmap
+    private static int index(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    // creates a node for two entries with different keys
+    private static Node createNode(Object key1, Object value1, int hash1,
+                                   Object key2, Object value2, int hash2, int shift) {
+
+        if (shift > MAX_SHIFT) {
+            return new CollisionNode(new Object[]{key1, value1, key2, value2});
+        }
+
+        int position1 = (hash1 >>> shift) & MASK;
+        int position2 = (hash2 >>> shift) & MASK;
+        if (position1 == position2) {
+            Node child = createNode(key1, value1, hash1, key2, value2, hash2, shift + BITS);
+            return new BitmapNode(0, 1 << position1, NO_DATA, new Node[]{child});
+        }
+
+        Object[] data;
+        if (position1 < position2) {
+            data = new Object[]{key1, value1, key2, value2};
+        } else {
+            data = new Object[]{key2, value2, key1, value1};
+        }
+        return new BitmapNode((1 << position1) | (1 << position2), 0, data, NO_NODES);
+    }
+
+    private static Object[] insertEntry(Object[] data, int i, Object key, Object value) {
+        Object[] newData = new Object[data.length + 2];
+        System.arraycopy(data, 0, newData, 0, 2 * i);
+        newData[2 * i] = key;
+        newData[2 * i + 1] = value;
+        System.arraycopy(data, 2 * i, newData, 2 * i + 2, data.length - 2 * i);
+        return newData;
+    }
+
+    private static Object[] removeEntry(Object[] data, int i) {
+        if (data.length == 2) {
+            return NO_DATA;
+        }
+        Object[] newData = new Object[data.length - 2];
+        System.arraycopy(data, 0, newData, 0, 2 * i);
+        System.arraycopy(data, 2 * i + 2, newData, 2 * i, newData.length - 2 * i);
+        return newData;
+    }
+
+    private static Node[] insertNode(Node[] nodes, int j, Node node) {
+        Node[] newNodes = new Node[nodes.length + 1];
+        System.arraycopy(nodes, 0, newNodes, 0, j);
+        newNodes[j] = node;
+        System.arraycopy(nodes, j, newNodes, j + 1, nodes.length - j);
+        return newNodes;
+    }
+
+    private static Node[] removeNode(Node[] nodes, int j) {
+        if (nodes.length == 1) {
+            return NO_NODES;
+        }
+        Node[] newNodes = new Node[nodes.length - 1];
+        System.arraycopy(nodes, 0, newNodes, 0, j);
+        System.arraycopy(nodes, j + 1, newNodes, j, newNodes.length - j);
+        return newNodes;
+    }
+
+    // structural comparison that skips shared subtrees
+    private static boolean equalNodes(Node node1, Node node2) {
+        if (node1 == node2) {
+            return true;
+        }
+
+        if (node1 instanceof BitmapNode && node2 instanceof BitmapNode) {
+            BitmapNode bitmapNode1 = (BitmapNode) node1;
+            BitmapNode bitmapNode2 = (BitmapNode) node2;
+            if (bitmapNode1.dataMap != bitmapNode2.dataMap || bitmapNode1.nodeMap != bitmapNode2.nodeMap) {
+                return false;
+            }
+            Object[] data1 = bitmapNode1.data;
+            Object[] data2 = bitmapNode2.data;
+            for (int i = 0; i < data1.length; i++) {
+                if (data1[i] != data2[i] && !data1[i].equals(data2[i])) {
+                    return false;
+                }
+            }
+            for (int j = 0; j < bitmapNode1.nodes.length; j++) {
+                if (!equalNodes(bitmapNode1.nodes[j], bitmapNode2.nodes[j])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        if (node1 instanceof CollisionNode && node2 instanceof CollisionNode) {
+            // same entries, but possibly in a different order
+            if (node1.entryCount() != node2.entryCount()) {
+                return false;
+            }
+            for (int i = 0; i < node1.entryCount(); i++) {
+                Object key = node1.keyAt(i);
+                Object value = node2.find(key, 0, MAX_SHIFT + BITS);
+                if (value == null || !value.equals(node1.valueAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+//  ********************************************************************************
+//  NODES **************************************************************************
+//  ********************************************************************************
+
+    // the old value of a put / remove (null if there was none)
+    private static final class Change {
+        Object oldValue;
+    }
+
+    // nodes are immutable; operations that modify the map return new nodes,
+    // or the same node if nothing has changed
+    private abstract static class Node {
+        // returns the value for the given key, or null
+        abstract Object find(Object key, int hash, int shift);
+
+        abstract Node put(Object key, Object value, int hash, int shift, Change change);
+
+        abstract Node remove(Object key, int hash, int shift, Change change);
+
+        // entries stored directly in this node
+        abstract int entryCount();
+
+        abstract Object keyAt(int i);
+
+        abstract Object valueAt(int i);
+
+        // child nodes
+        abstract int nodeCount();
+
+        abstract Node nodeAt(int j);
+    }
+
+    private static final class BitmapNode extends Node {
+        // positions of the entries / child nodes
+        final int dataMap;
+        final int nodeMap;
+
+        // keys and values of the entries (alternating), and child nodes;
+        // both ordered by position
+        final Object[] data;
+        final Node[] nodes;
+
+        BitmapNode(int dataMap, int nodeMap, Object[] data, Node[] nodes) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.data = data;
+            this.nodes = nodes;
+        }
+
+        Object find(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((this.dataMap & bit) != 0) {
+                int i = index(this.dataMap, bit);
+                return key.equals(this.data[2 * i]) ? this.data[2 * i + 1] : null;
+            }
+            if ((this.nodeMap & bit) != 0) {
+                return this.nodes[index(this.nodeMap, bit)].find(key, hash, shift + BITS);
+            }
+            return null;
+        }
+
+        Node put(Object key, Object value, int hash, int shift, Change change) {
+            int bit = bit(hash, shift);
+
+            if ((this.dataMap & bit) != 0) {
+                int i = index(this.dataMap, bit);
+                Object oldKey = this.data[2 * i];
+                Object oldValue = this.data[2 * i + 1];
+                if (key.equals(oldKey)) {
+                    // replace the value
+                    change.oldValue = oldValue;
+                    if (oldValue == value) {
+                        return this;
+                    }
+                    Object[] newData = this.data.clone();
+                    newData[2 * i + 1] = value;
+                    return new BitmapNode(this.dataMap, this.nodeMap, newData, this.nodes);
+                }
+
+                // another key at this position: move both entries into a new child
+                Node child = createNode(oldKey, oldValue, hash(oldKey), key, value, hash, shift + BITS);
+                return new BitmapNode(this.dataMap ^ bit, this.nodeMap | bit,
+                    removeEntry(this.data, i), insertNode(this.nodes, index(this.nodeMap, bit), child));
+            }
+
+            if ((this.nodeMap & bit) != 0) {
+                int j = index(this.nodeMap, bit);
+                Node child = this.nodes[j];
+                Node newChild = child.put(key, value, hash, shift + BITS, change);
+                if (newChild == child) {
+                    return this;
+                }
+                Node[] newNodes = this.nodes.clone();
+                newNodes[j] = newChild;
+                return new BitmapNode(this.dataMap, this.nodeMap, this.data, newNodes);
+            }
+
+            return new BitmapNode(this.dataMap | bit, this.nodeMap,
+                insertEntry(this.data, index(this.dataMap, bit), key, value), this.nodes);
+        }
+
+        Node remove(Object key, int hash, int shift, Change change) {
+            int bit = bit(hash, shift);
+
+            if ((this.dataMap & bit) != 0) {
+                int i = index(this.dataMap, bit);
+                if (!key.equals(this.data[2 * i])) {
+                    return this;
+                }
+                change.oldValue = this.data[2 * i + 1];
+                if (this.dataMap == bit && this.nodeMap == 0) {
+                    return EMPTY;
+                }
+                return new BitmapNode(this.dataMap ^ bit, this.nodeMap, removeEntry(this.data, i), this.nodes);
+            }
+
+            if ((this.nodeMap & bit) != 0) {
+                int j = index(this.nodeMap, bit);
+                Node child = this.nodes[j];
+                Node newChild = child.remove(key, hash, shift + BITS, change);
+                if (newChild == child) {
+                    return this;
+                }
+                if (newChild.nodeCount() == 0 && newChild.entryCount() == 1) {
+                    // keep the trie canonical: pull the remaining entry up into this node
+                    return new BitmapNode(this.dataMap | bit, this.nodeMap ^ bit,
+                        insertEntry(this.data, index(this.dataMap, bit), newChild.keyAt(0), newChild.valueAt(0)),
+                        removeNode(this.nodes, j));
+                }
+                Node[] newNodes = this.nodes.clone();
+                newNodes[j] = newChild;
+                return new BitmapNode(this.dataMap, this.nodeMap, this.data, newNodes);
+            }
+
+            return this;
+        }
+
+        int entryCount() {
+            return this.data.length / 2;
+        }
+
+        Object keyAt(int i) {
+            return this.data[2 * i];
+        }
+
+        Object valueAt(int i) {
+            return this.data[2 * i + 1];
+        }
+
+        int nodeCount() {
+            return this.nodes.length;
+        }
+
+        Node nodeAt(int j) {
+            return this.nodes[j];
+        }
+    }
+
+    // holds entries whose keys have the same hash
+    private static final class CollisionNode extends Node {
+        // keys and values (alternating)
+        final Object[] data;
+
+        CollisionNode(Object[] data) {
+            this.data = data;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < this.data.length; i += 2) {
+                if (key.equals(this.data[i])) {
+                    return i / 2;
+                }
+            }
+            return -1;
+        }
+
+        Object find(Object key, int hash, int shift) {
+            int i = this.indexOf(key);
+            return i < 0 ? null : this.data[2 * i + 1];
+        }
+
+        Node put(Object key, Object value, int hash, int shift, Change change) {
+            int i = this.indexOf(key);
+            if (i < 0) {
+                return new CollisionNode(insertEntry(this.data, this.entryCount(), key, value));
+            }
+            change.oldValue = this.data[2 * i + 1];
+            if (change.oldValue == value) {
+                return this;
+            }
+            Object[] newData = this.data.clone();
+            newData[2 * i + 1] = value;
+            return new CollisionNode(newData);
+        }
+
+        Node remove(Object key, int hash, int shift, Change change) {
+            int i = this.indexOf(key);
+            if (i < 0) {
+                return this;
+            }
+            change.oldValue = this.data[2 * i + 1];
+            return new CollisionNode(removeEntry(this.data, i));
+        }
+
+        int entryCount() {
+            return this.data.length / 2;
+        }
+
+        Object keyAt(int i) {
+            return this.data[2 * i];
+        }
+
+        Object valueAt(int i) {
+            return this.data[2 * i + 1];
+        }
+
+        int nodeCount() {
+            return 0;
+        }
+
+        Node nodeAt(int j) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+//  ********************************************************************************
+//  ITERATION **********************************************************************
+//  ********************************************************************************
+
+    // iterates over the trie as it was when the iterator was created, so the
+    // map may be modified during the iteration (not only through remove())
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        // path of nodes from the root to the current node, and
+        // for each of them, the index of the next child to visit
+        private final Node[] path = new Node[MAX_DEPTH];
+        private final int[] nextChild = new int[MAX_DEPTH];
+        private int depth;
+
+        // index of the next entry of the current node
+        private int nextEntry;
+
+        private K lastKey;
+
+        EntryIterator() {
+            this.path[0] = PersistentHashMap.this.root;
+            this.depth = 0;
+        }
+
+        public boolean hasNext() {
+            while (this.nextEntry >= this.path[this.depth].entryCount()) {
+                // current node exhausted: continue with the next child node
+                while (this.nextChild[this.depth] >= this.path[this.depth].nodeCount()) {
+                    if (this.depth == 0) {
+                        return false;
+                    }
+                    this.depth--;
+                }
+                Node child = this.path[this.depth].nodeAt(this.nextChild[this.depth]++);
+                this.depth++;
+                this.path[this.depth] = child;
+                this.nextChild[this.depth] = 0;
+                this.nextEntry = 0;
+            }
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node node = this.path[this.depth];
+            K key = (K) node.keyAt(this.nextEntry);
+            V value = (V) node.valueAt(this.nextEntry);
+            this.nextEntry++;
+            this.lastKey = key;
+            return new AbstractMap.SimpleImmutableEntry<>(key, value);
+        }
+
+        public void remove() {
+            if (this.lastKey == null) {
+                throw new IllegalStateException();
+            }
+            PersistentHashMap.this.remove(this.lastKey);
+            this.lastKey = null;
+        }
+    }
+
+    // walks two tries in parallel for forEachDifference
+    private static final class Differ<K, V> {
+        private final Node root1;
+        private final Node root2;
+        private final DifferenceVisitor<K, V> visitor;
+
+        Differ(Node root1, Node root2, DifferenceVisitor<K, V> visitor) {
+            this.root1 = root1;
+            this.root2 = root2;
+            this.visitor = visitor;
+        }
+
+        void diff(Node node1, Node node2, int shift) {
+            if (node1 == node2) {
+                return;
+            }
+            if (!(node1 instanceof BitmapNode && node2 instanceof BitmapNode)) {
+                this.visitAll(node1, node2);
+                return;
+            }
+
+            BitmapNode bitmapNode1 = (BitmapNode) node1;
+            BitmapNode bitmapNode2 = (BitmapNode) node2;
+            int positions = bitmapNode1.dataMap | bitmapNode1.nodeMap | bitmapNode2.dataMap | bitmapNode2.nodeMap;
+            while (positions != 0) {
+                int bit = Integer.lowestOneBit(positions);
+                positions ^= bit;
+
+                if ((bitmapNode1.nodeMap & bit) != 0 && (bitmapNode2.nodeMap & bit) != 0) {
+                    this.diff(
+                        bitmapNode1.nodes[index(bitmapNode1.nodeMap, bit)],
+                        bitmapNode2.nodes[index(bitmapNode2.nodeMap, bit)],
+                        shift + BITS);
+                } else {
+                    this.visitAt(bitmapNode1, bit, true);
+                    this.visitAt(bitmapNode2, bit, false);
+                }
+            }
+        }
+
+        // visits the differences for the entries below the given nodes
+        private void visitAll(Node node1, Node node2) {
+            this.visitEntries(node1, true);
+            this.visitEntries(node2, false);
+        }
+
+        // visits the differences for the entries at the given position of the node
+        private void visitAt(BitmapNode node, int bit, boolean first) {
+            if ((node.dataMap & bit) != 0) {
+                int i = index(node.dataMap, bit);
+                this.visitEntry(node.data[2 * i], node.data[2 * i + 1], first);
+            } else if ((node.nodeMap & bit) != 0) {
+                this.visitEntries(node.nodes[index(node.nodeMap, bit)], first);
+            }
+        }
+
+        private void visitEntries(Node node, boolean first) {
+            for (int i = 0; i < node.entryCount(); i++) {
+                this.visitEntry(node.keyAt(i), node.valueAt(i), first);
+            }
+            for (int j = 0; j < node.nodeCount(); j++) {
+                this.visitEntries(node.nodeAt(j), first);
+            }
+        }
+
+        // entries of the first trie are reported together with the other trie's value
+        // (if that is different); entries of the second trie are only reported if
+        // the first trie has no mapping for them (otherwise, they have been reported already)
+        @SuppressWarnings("unchecked")
+        private void visitEntry(Object key, Object value, boolean first) {
+            if (first) {
+                Object otherValue = this.root2.find(key, hash(key), 0);
+                if (otherValue == null || !otherValue.equals(value)) {
+                    this.visitor.visit((K) key, (V) value, (V) otherValue);
+                }
+            } else {
+                if (this.root1.find(key, hash(key), 0) == null) {
+                    this.visitor.visit((K) key, null, (V) value);
+                }
+            }
+        }
+    }
+}
@@ -31,4 +31,11 @@ public class TransferFunctionId extends AbstractTransferFunction {
     public AbstractLatticeElement transfer(AbstractLatticeElement in, AbstractContext context) {
         return in;
     }
+
+    public boolean isInPlace() {
+        return true;
+    }
+
+    public void transferInPlace(AbstractLatticeElement element) {
+    }
 }
\ No newline at end of file
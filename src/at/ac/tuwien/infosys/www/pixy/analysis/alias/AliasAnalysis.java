@@ -1,5 +1,6 @@
 package at.ac.tuwien.infosys.www.pixy.analysis.alias;
 
+import at.ac.tuwien.infosys.www.pixy.MyOptions;
 import at.ac.tuwien.infosys.www.pixy.analysis.AbstractLatticeElement;
 import at.ac.tuwien.infosys.www.pixy.analysis.AbstractTransferFunction;
 import at.ac.tuwien.infosys.www.pixy.analysis.GenericRepository;
@@ -11,6 +12,7 @@ import at.ac.tuwien.infosys.www.pixy.analysis.alias.transferfunction.Unset;
 import at.ac.tuwien.infosys.www.pixy.analysis.interprocedural.AbstractAnalysisType;
 import at.ac.tuwien.infosys.www.pixy.analysis.interprocedural.AbstractInterproceduralAnalysis;
 import at.ac.tuwien.infosys.www.pixy.analysis.interprocedural.AbstractInterproceduralAnalysisNode;
+import at.ac.tuwien.infosys.www.pixy.analysis.interprocedural.InterproceduralWorklistIndexed;
 import at.ac.tuwien.infosys.www.pixy.analysis.interprocedural.InterproceduralWorklistPoor;
 import at.ac.tuwien.infosys.www.pixy.conversion.*;
 import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.*;
@@ -34,7 +36,9 @@ public class AliasAnalysis extends AbstractInterproceduralAnalysis {
     public AliasAnalysis(TacConverter tac, AbstractAnalysisType analysisType) {
         this.repos = new GenericRepository<>();
         this.initGeneral(tac.getAllFunctions(), tac.getMainFunction(),
-            analysisType, new InterproceduralWorklistPoor());
+            analysisType, MyOptions.indexedWorklist
+                ? new InterproceduralWorklistIndexed()
+                : new InterproceduralWorklistPoor());
     }
 
     // dummy constructor
@@ -389,6 +393,10 @@ public class AliasAnalysis extends AbstractInterproceduralAnalysis {
         return this.repos.recycle(recycleMe);
     }
 
+    public GenericRepository<?> getRepository() {
+        return this.repos;
+    }
+
 //  clean **************************************************************************
 
     // performs post-analysis cleanup operations to save memory
@@ -57,4 +57,13 @@ public class AliasLattice extends AbstractLattice {
 
         return resultElement;
     }
+
+    // see AbstractLattice.lubUpdate; since the lattice elements are recycled,
+    // lub already returns the target element itself if nothing changes
+    public AbstractLatticeElement lubUpdate(
+        AbstractLatticeElement incomingElementX,
+        AbstractLatticeElement targetElementX) {
+
+        return this.lub(incomingElementX, targetElementX);
+    }
 }
\ No newline at end of file
@@ -114,7 +114,12 @@ public class DependencyAnalysis extends AbstractInterproceduralAnalysis {
             if (node == untilHere) {
                 break;
             }
-            outValue = (DependencyLatticeElement) tf.transfer(outValue);
+            // outValue is our own copy, so there is no need to copy it again
+            if (tf.isInPlace()) {
+                tf.transferInPlace(outValue);
+            } else {
+                outValue = (DependencyLatticeElement) tf.transfer(outValue);
+            }
         }
 
         return outValue;
@@ -479,6 +484,10 @@ public class DependencyAnalysis extends AbstractInterproceduralAnalysis {
         return this.repos.recycle(recycleMe);
     }
 
+    public GenericRepository<?> getRepository() {
+        return this.repos;
+    }
+
     // checks if the callgraph contains unreachable code (i.e., nodes that have not
     // been associated with analysis information)
     public void checkReachability() {
@@ -559,6 +568,10 @@ public class DependencyAnalysis extends AbstractInterproceduralAnalysis {
     }
 
     private boolean isReachable(AbstractCfgNode cfgNode, int numContexts) {
+        if (!this.isDemanded(cfgNode)) {
+            // no PHI table in demand-driven mode; can't tell
+            return true;
+        }
         Map<AbstractContext, AbstractLatticeElement> phi = this.interproceduralAnalysisInformation.getAnalysisNode(cfgNode).getPhi();
         if (phi.size() == 0) {
             // there is not a single context for this node
@@ -4,6 +4,8 @@ import at.ac.tuwien.infosys.www.pixy.analysis.GenericRepository;
 import at.ac.tuwien.infosys.www.pixy.analysis.Recyclable;
 import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.AbstractCfgNode;
 
+import java.util.Arrays;
+
 /**
  * Corresponds to one dependency label, consisting of
  * <source descriptor (e.g., variable or function name)>, <location (cfg node)>.
@@ -11,15 +13,28 @@ import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.AbstractCfgNode;
  * @author Nenad Jovanovic <enji@seclab.tuwien.ac.at>
  */
 public class DependencyLabel implements Recyclable {
+    // not weak: the labels have to keep their ids (see below)
     public static GenericRepository<DependencyLabel> repos =
         new GenericRepository<>();
 
+    // all labels so far, indexed by their id
+    private static volatile DependencyLabel[] labels = new DependencyLabel[64];
+    private static int labelCount = 0;
+
     // special, parameterized label
     public static final DependencyLabel UNINIT =
         new DependencyLabel(null);
 
+    static {
+        register(UNINIT);
+    }
+
     private AbstractCfgNode cfgNode;
 
+    // dense number of this label (0, 1, 2, ...), used by DependencySet;
+    // assigned when the label enters the repository
+    private int id = -1;
+
 //  ********************************************************************************
 //  CONSTRUCTORS *******************************************************************
 //  ********************************************************************************
@@ -32,12 +47,47 @@ public class DependencyLabel implements Recyclable {
 
 //  ********************************************************************************
 
-    public static DependencyLabel create(AbstractCfgNode cfgNode) {
+    public static synchronized DependencyLabel create(AbstractCfgNode cfgNode) {
         DependencyLabel ret = new DependencyLabel(cfgNode);
         ret = repos.recycle(ret);
+        if (ret.id < 0) {
+            register(ret);
+        }
         return ret;
     }
 
+//  ********************************************************************************
+
+    // assigns the next id to the given label
+    private static void register(DependencyLabel label) {
+        DependencyLabel[] labels = DependencyLabel.labels;
+        if (labelCount == labels.length) {
+            labels = Arrays.copyOf(labels, 2 * labelCount);
+        }
+        label.id = labelCount;
+        labels[labelCount++] = label;
+        DependencyLabel.labels = labels;
+    }
+
+//  ********************************************************************************
+
+    // forgets all labels except UNINIT (and thereby the cfg nodes they refer to);
+    // the ids start again from scratch, so all existing DependencySets become invalid
+    // (see DependencySet.reset)
+    public static synchronized void reset() {
+        repos.clear();
+        labels = new DependencyLabel[64];
+        labelCount = 0;
+        register(UNINIT);
+    }
+
+//  ********************************************************************************
+
+    // returns the label with the given id
+    static DependencyLabel get(int id) {
+        return labels[id];
+    }
+
 //  ********************************************************************************
 //  OTHER **************************************************************************
 //  ********************************************************************************
@@ -48,6 +98,12 @@ public class DependencyLabel implements Recyclable {
         return this.cfgNode;
     }
 
+//  ********************************************************************************
+
+    int getId() {
+        return this.id;
+    }
+
 //  ********************************************************************************
 
     public String toString() {
@@ -66,4 +66,21 @@ class DependencyLattice extends AbstractLattice {
 
         return resultElement;
     }
+
+    // see AbstractLattice.lubUpdate
+    public AbstractLatticeElement lubUpdate(
+        AbstractLatticeElement incomingElementX,
+        AbstractLatticeElement targetElementX) {
+
+        // lub with bottom doesn't change anything
+        if (incomingElementX == this.bottom) {
+            return targetElementX;
+        }
+        if (targetElementX == this.bottom) {
+            return incomingElementX.cloneMe();
+        }
+
+        DependencyLatticeElement resultElement = new DependencyLatticeElement((DependencyLatticeElement) targetElementX);
+        return resultElement.lubChanged(incomingElementX) ? resultElement : targetElementX;
+    }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package at.ac.tuwien.infosys.www.pixy.analysis.dependency;
 
 import at.ac.tuwien.infosys.www.pixy.MyOptions;
 import at.ac.tuwien.infosys.www.pixy.analysis.AbstractLatticeElement;
+import at.ac.tuwien.infosys.www.pixy.analysis.PersistentHashMap;
 import at.ac.tuwien.infosys.www.pixy.conversion.*;
 import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.AbstractCfgNode;
 import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.CallReturn;
@@ -39,18 +40,16 @@ public class DependencyLatticeElement extends AbstractLatticeElement {
     // a lattice element that doesn't modify the information of the
     // default lattice element
     public DependencyLatticeElement() {
-        this.placeToDep = new HashMap<>();
-        this.arrayLabels = new HashMap<>();
+        this.placeToDep = createMap();
+        this.arrayLabels = createMap();
     }
 
 //  DependencyLatticeElement(DependencyLatticeElement) ***********************************
 
     // clones the given element
     public DependencyLatticeElement(DependencyLatticeElement element) {
-        this.placeToDep =
-            new HashMap<>(element.getPlaceToDep());
-        this.arrayLabels =
-            new HashMap<>(element.getArrayLabels());
+        this.placeToDep = copyMap(element.getPlaceToDep());
+        this.arrayLabels = copyMap(element.getArrayLabels());
     }
 
 //  cloneMe ************************************************************************
@@ -76,8 +75,8 @@ public class DependencyLatticeElement extends AbstractLatticeElement {
         // initialize base mapping for variables: UNINIT
         // (note: array elements have no explicit array label: their label is
         // that of their top enclosing array)
-        this.placeToDep = new HashMap<>();
-        this.arrayLabels = new HashMap<>();
+        this.placeToDep = createMap();
+        this.arrayLabels = createMap();
         for (AbstractTacPlace place : places) {
             if ((place instanceof Variable) &&
                 place.getVariable().isArrayElement() &&
@@ -455,9 +454,22 @@ public class DependencyLatticeElement extends AbstractLatticeElement {
 
     // lubs the given lattice element over <<this>> lattice element
     public void lub(AbstractLatticeElement foreignX) {
+        this.lubChanged(foreignX);
+    }
+
+    // lubs the given lattice element over <<this>> lattice element, and returns
+    // whether this element has changed; since the dependency sets are recycled,
+    // a mapping changes iff the lub returns a different set
+    public boolean lubChanged(AbstractLatticeElement foreignX) {
 
         DependencyLatticeElement foreign = (DependencyLatticeElement) foreignX;
 
+        if (this.placeToDep instanceof PersistentHashMap && foreign.placeToDep instanceof PersistentHashMap) {
+            return this.lubPersistent(foreign);
+        }
+
+        boolean changed = false;
+
         // DEPS ***
 
         // lub over my non-default mappings;
@@ -469,7 +481,11 @@ public class DependencyLatticeElement extends AbstractLatticeElement {
             AbstractTacPlace myPlace = myEntry.getKey();
             DependencySet myDep = myEntry.getValue();
             DependencySet foreignDep = foreign.getDep(myPlace);
-            newPlaceToDep.put(myPlace, DependencySet.lub(myDep, foreignDep));
+            DependencySet resultDep = DependencySet.lub(myDep, foreignDep);
+            if (resultDep != myDep) {
+                newPlaceToDep.put(myPlace, resultDep);
+                changed = true;
+            }
         }
         this.placeToDep = newPlaceToDep;
 
@@ -483,7 +499,11 @@ public class DependencyLatticeElement extends AbstractLatticeElement {
             // make sure that we handle my default mappings now
             if (myDep == null) {
                 myDep = getDefaultDep(foreignPlace);
-                this.placeToDep.put(foreignPlace, DependencySet.lub(foreignDep, myDep));
+                DependencySet resultDep = DependencySet.lub(foreignDep, myDep);
+                this.placeToDep.put(foreignPlace, resultDep);
+                if (resultDep != myDep) {
+                    changed = true;
+                }
             }
         }
 
@@ -505,7 +525,11 @@ public class DependencyLatticeElement extends AbstractLatticeElement {
             Variable myVar = myEntry.getKey();
             DependencySet myArrayLabel = myEntry.getValue();
             DependencySet foreignArrayLabel = foreign.getArrayLabel(myVar);
-            newArrayLabels.put(myVar, DependencySet.lub(myArrayLabel, foreignArrayLabel));
+            DependencySet resultArrayLabel = DependencySet.lub(myArrayLabel, foreignArrayLabel);
+            if (resultArrayLabel != myArrayLabel) {
+                newArrayLabels.put(myVar, resultArrayLabel);
+                changed = true;
+            }
         }
         this.arrayLabels = newArrayLabels;
 
@@ -520,7 +544,11 @@ public class DependencyLatticeElement extends AbstractLatticeElement {
             if (myArrayLabel == null) {
                 // fetch default mapping:
                 myArrayLabel = getDefaultArrayLabel(foreignVar);
-                this.arrayLabels.put(foreignVar, DependencySet.lub(myArrayLabel, foreignArrayLabel));
+                DependencySet resultArrayLabel = DependencySet.lub(myArrayLabel, foreignArrayLabel);
+                this.arrayLabels.put(foreignVar, resultArrayLabel);
+                if (resultArrayLabel != myArrayLabel) {
+                    changed = true;
+                }
             }
         }
 
@@ -533,6 +561,57 @@ public class DependencyLatticeElement extends AbstractLatticeElement {
                 iter.remove();
             }
         }
+
+        return changed;
+    }
+
+//  lubPersistent ******************************************************************
+
+    // lub for persistent maps: only has to consider the mappings that differ
+    // between the two elements (since both elements contain only non-default
+    // mappings, and lub is idempotent); shared subtrees are skipped;
+    // returns whether this element has changed
+    private boolean lubPersistent(DependencyLatticeElement foreign) {
+
+        // lambdas can't assign local variables
+        boolean[] changed = {false};
+
+        ((PersistentHashMap<AbstractTacPlace, DependencySet>) this.placeToDep).forEachDifference(
+            (PersistentHashMap<AbstractTacPlace, DependencySet>) foreign.placeToDep,
+            (place, myDep, foreignDep) -> {
+                // same argument order as in the non-persistent case
+                DependencySet defaultDep = getDefaultDep(place);
+                DependencySet resultDep = myDep == null
+                    ? DependencySet.lub(foreignDep, defaultDep)
+                    : DependencySet.lub(myDep, foreignDep == null ? defaultDep : foreignDep);
+                if (resultDep != (myDep == null ? defaultDep : myDep)) {
+                    changed[0] = true;
+                }
+                if (defaultDep.equals(resultDep)) {
+                    this.placeToDep.remove(place);
+                } else {
+                    this.placeToDep.put(place, resultDep);
+                }
+            });
+
+        ((PersistentHashMap<Variable, DependencySet>) this.arrayLabels).forEachDifference(
+            (PersistentHashMap<Variable, DependencySet>) foreign.arrayLabels,
+            (var, myArrayLabel, foreignArrayLabel) -> {
+                DependencySet defaultArrayLabel = this.getDefaultArrayLabel(var);
+                DependencySet resultArrayLabel = myArrayLabel == null
+                    ? DependencySet.lub(defaultArrayLabel, foreignArrayLabel)
+                    : DependencySet.lub(myArrayLabel, foreignArrayLabel == null ? defaultArrayLabel : foreignArrayLabel);
+                if (resultArrayLabel != (myArrayLabel == null ? defaultArrayLabel : myArrayLabel)) {
+                    changed[0] = true;
+                }
+                if (defaultArrayLabel.equals(resultArrayLabel)) {
+                    this.arrayLabels.remove(var);
+                } else {
+                    this.arrayLabels.put(var, resultArrayLabel);
+                }
+            });
+
+        return changed[0];
     }
 
 //  lub (static) *******************************************************************
@@ -3,77 +3,144 @@ package at.ac.tuwien.infosys.www.pixy.analysis.dependency;
 import at.ac.tuwien.infosys.www.pixy.analysis.GenericRepository;
 import at.ac.tuwien.infosys.www.pixy.analysis.Recyclable;
 
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 /**
  * Just a set of Deps.
  *
+ * The labels are stored as a bitset over their ids (see DependencyLabel), and
+ * unions of interned sets are cached (see lub).
+ *
  * @author Nenad Jovanovic <enji@seclab.tuwien.ac.at>
  */
 public class DependencySet implements Recyclable {
-    public static GenericRepository<DependencySet> repos = new GenericRepository<>();
+    // weak: sets that are no longer used by any lattice element can be collected
+    public static GenericRepository<DependencySet> repos = new GenericRepository<>(true);
 
     // no special treatment necessary for the following:
-    static public final DependencySet UNINIT = new DependencySet(DependencyLabel.UNINIT);
+    static public final DependencySet UNINIT = create(DependencyLabel.UNINIT);
 
-    static {
-        repos.recycle(UNINIT);
-    }
+    // size of the lub cache (a power of two)
+    private static final int LUB_CACHE_SIZE = 1 << 14;
 
-    // the contained dependency labels
-    private Set<DependencyLabel> dependencyLabelSet;
+    // direct-mapped cache for lub: (a, b) -> a lub b;
+    // racy but safe, since the entries are immutable
+    private static final LubCacheEntry[] lubCache = new LubCacheEntry[LUB_CACHE_SIZE];
 
-//  ********************************************************************************
-//  CONSTRUCTORS *******************************************************************
-//  ********************************************************************************
+    // the contained dependency labels: bit i of words[j] is set
+    // if the set contains the label with id (64 * (offset + j) + i);
+    // the first and the last word are non-zero
+    private final long[] words;
+    private final int offset;
 
-    private DependencySet(DependencyLabel dependencyLabel) {
-        this.dependencyLabelSet = new HashSet<>();
-        this.dependencyLabelSet.add(dependencyLabel);
-    }
+    private final int hashCode;
 
+//  ********************************************************************************
+//  CONSTRUCTORS *******************************************************************
 //  ********************************************************************************
 
-    private DependencySet(Set<DependencyLabel> dependencyLabelSet) {
-        this.dependencyLabelSet = dependencyLabelSet;
+    private DependencySet(long[] words, int offset) {
+        this.words = words;
+        this.offset = offset;
+        this.hashCode = 31 * offset + Arrays.hashCode(words);
     }
 
 //  ********************************************************************************
 
     public static DependencySet create(Set<DependencyLabel> dependencyLabelSet) {
-        DependencySet x = new DependencySet(dependencyLabelSet);
-        return repos.recycle(x);
+        int min = Integer.MAX_VALUE;
+        int max = -1;
+        for (DependencyLabel dependencyLabel : dependencyLabelSet) {
+            min = Math.min(min, dependencyLabel.getId());
+            max = Math.max(max, dependencyLabel.getId());
+        }
+        if (max < 0) {
+            return repos.recycle(new DependencySet(new long[0], 0));
+        }
+
+        int offset = min >>> 6;
+        long[] words = new long[(max >>> 6) - offset + 1];
+        for (DependencyLabel dependencyLabel : dependencyLabelSet) {
+            int id = dependencyLabel.getId();
+            words[(id >>> 6) - offset] |= 1L << id;
+        }
+        return repos.recycle(new DependencySet(words, offset));
     }
 
 //  ********************************************************************************
 
     public static DependencySet create(DependencyLabel dependencyLabel) {
-        Set<DependencyLabel> taintSet = new HashSet<>();
-        taintSet.add(dependencyLabel);
-        return create(taintSet);
+        int id = dependencyLabel.getId();
+        return repos.recycle(new DependencySet(new long[]{1L << id}, id >>> 6));
     }
 
 //  ********************************************************************************
 //  OTHER **************************************************************************
 //  ********************************************************************************
 
+//  ********************************************************************************
+
+    // forgets all sets except UNINIT; has to be called along with DependencyLabel.reset,
+    // since the sets refer to labels by their ids
+    public static void reset() {
+        repos.clear();
+        repos.recycle(UNINIT);
+        Arrays.fill(lubCache, null);
+    }
+
 //  ********************************************************************************
 
     // compute the least upper bound (here: union) of the two taint sets
     public static DependencySet lub(DependencySet a, DependencySet b) {
+        if (a == b || b.isSubsetOf(a)) {
+            return a;
+        }
+        if (a.isSubsetOf(b)) {
+            return b;
+        }
+
+        int slot = (31 * System.identityHashCode(a) + System.identityHashCode(b)) & (LUB_CACHE_SIZE - 1);
+        LubCacheEntry entry = lubCache[slot];
+        if (entry != null && entry.a == a && entry.b == b) {
+            return entry.result;
+        }
+
         // union!
-        Set<DependencyLabel> resultSet = new HashSet<>();
-        resultSet.addAll(a.dependencyLabelSet);
-        resultSet.addAll(b.dependencyLabelSet);
-        return DependencySet.create(resultSet);
+        int offset = Math.min(a.offset, b.offset);
+        int end = Math.max(a.offset + a.words.length, b.offset + b.words.length);
+        long[] words = new long[end - offset];
+        for (int i = 0; i < a.words.length; i++) {
+            words[a.offset - offset + i] = a.words[i];
+        }
+        for (int i = 0; i < b.words.length; i++) {
+            words[b.offset - offset + i] |= b.words[i];
+        }
+        DependencySet result = repos.recycle(new DependencySet(words, offset));
+
+        lubCache[slot] = new LubCacheEntry(a, b, result);
+        return result;
+    }
+
+//  ********************************************************************************
+
+    private boolean isSubsetOf(DependencySet comp) {
+        for (int i = 0; i < this.words.length; i++) {
+            int j = this.offset + i - comp.offset;
+            long compWord = (j >= 0 && j < comp.words.length) ? comp.words[j] : 0;
+            if ((this.words[i] & ~compWord) != 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
 //  ********************************************************************************
 
     public String toString() {
         StringBuilder buf = new StringBuilder();
-        for (DependencyLabel element : this.dependencyLabelSet) {
+        for (DependencyLabel element : this.getDependencyLabelSet()) {
             buf.append(element.toString());
         }
         return buf.toString();
@@ -81,11 +148,19 @@ public class DependencySet implements Recyclable {
 
 //  ********************************************************************************
 
-    // returns a copy of the contained taint set
+    // returns a copy of the contained taint set, ordered by label id
     // (a copy: such that a caller can't modify my state)
-    // (shallow copy is sufficient, since the elements of the set are immutable, too)
     public Set<DependencyLabel> getDependencyLabelSet() {
-        return new HashSet<>(this.dependencyLabelSet);
+        Set<DependencyLabel> dependencyLabelSet = new LinkedHashSet<>();
+        for (int i = 0; i < this.words.length; i++) {
+            long word = this.words[i];
+            while (word != 0) {
+                int bit = Long.numberOfTrailingZeros(word);
+                dependencyLabelSet.add(DependencyLabel.get(64 * (this.offset + i) + bit));
+                word &= word - 1;
+            }
+        }
+        return dependencyLabelSet;
     }
 
 //  ********************************************************************************
@@ -101,14 +176,26 @@ public class DependencySet implements Recyclable {
         DependencySet comp = (DependencySet) compX;
 
         // the enclosed sets have to be equal
-        return this.dependencyLabelSet.equals(comp.dependencyLabelSet);
+        return this.offset == comp.offset && Arrays.equals(this.words, comp.words);
     }
 
 //  ********************************************************************************
 
     public int structureHashCode() {
-        int hashCode = 17;
-        hashCode = 37 * hashCode + this.dependencyLabelSet.hashCode();
-        return hashCode;
+        return this.hashCode;
+    }
+
+//  ********************************************************************************
+
+    private static final class LubCacheEntry {
+        final DependencySet a;
+        final DependencySet b;
+        final DependencySet result;
+
+        LubCacheEntry(DependencySet a, DependencySet b, DependencySet result) {
+            this.a = a;
+            this.b = b;
+            this.result = result;
+        }
     }
-}
\ No newline at end of file
+}
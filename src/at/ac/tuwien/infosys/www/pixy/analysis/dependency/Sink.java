@@ -31,7 +31,7 @@ public class Sink implements Comparable<Sink> {
         this.function = function;
     }
 
-    AbstractCfgNode getNode() {
+    public AbstractCfgNode getNode() {
         return this.cfgNode;
     }
 
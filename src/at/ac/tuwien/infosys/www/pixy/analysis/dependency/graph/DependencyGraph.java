@@ -14,7 +14,7 @@ import at.ac.tuwien.infosys.www.pixy.analysis.interprocedural.ReverseTarget;
 import at.ac.tuwien.infosys.www.pixy.conversion.*;
 import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.*;
 import at.ac.tuwien.infosys.www.pixy.sanitation.AbstractSanitationAnalysis;
-import at.ac.tuwien.infosys.www.pixy.sanitation.FSAAutomaton;
+import at.ac.tuwien.infosys.www.pixy.sanitation.SanitationAutomaton;
 
 import java.io.*;
 import java.util.*;
@@ -943,9 +943,8 @@ public class DependencyGraph {
             if (dependencySet == null) {
                 dependencySet = element.getDep(place);
             } else {
-                // EFF: this might be a memory leak, since all intermediate
-                // results are automatically stored in the repository; maybe use
-                // weak references to fix this
+                // the intermediate results are stored in the repository, but
+                // only weakly (so they don't leak)
                 dependencySet = DependencySet.lub(dependencySet, element.getDep(place));
             }
         }
@@ -965,9 +964,8 @@ public class DependencyGraph {
                 // EFF: it should also be possible to say "retMe = element"
                 retMe = new DependencyLatticeElement(element);
             } else {
-                // EFF: this might be a memory leak, since all intermediate
-                // results are automatically stored in the repository; maybe use
-                // weak references to fix this
+                // the intermediate results are stored in the repository, but
+                // only weakly (so they don't leak)
                 retMe = (DependencyLatticeElement) this.dependencyAnalysis.getLattice().lub(element, retMe);
             }
         }
@@ -1686,7 +1684,7 @@ public class DependencyGraph {
     // reduces this dependency graph to the ineffective sanitization stuff;
     // returns the number of ineffective border sanitations
     public int reduceToIneffectiveSanitation(
-        Map<AbstractNode, FSAAutomaton> deco, AbstractSanitationAnalysis sanitationAnalysis
+        Map<AbstractNode, SanitationAutomaton> deco, AbstractSanitationAnalysis sanitationAnalysis
     ) {
         // get the "custom sanitization border"
         List<AbstractNode> border = new LinkedList<>();
@@ -43,13 +43,20 @@ public class AssignUnary extends AbstractTransferFunction {
 // *********************************************************************************
 
     public AbstractLatticeElement transfer(AbstractLatticeElement inX) {
+        DependencyLatticeElement out = new DependencyLatticeElement((DependencyLatticeElement) inX);
+        this.transferInPlace(out);
+        return out;
+    }
+
+    public boolean isInPlace() {
+        return true;
+    }
 
-        DependencyLatticeElement in = (DependencyLatticeElement) inX;
-        DependencyLatticeElement out = new DependencyLatticeElement(in);
+    public void transferInPlace(AbstractLatticeElement element) {
+
+        DependencyLatticeElement out = (DependencyLatticeElement) element;
 
         // let the lattice element handle the details
         out.assign(left, mustAliases, mayAliases, cfgNode);
-
-        return out;
     }
 }
\ No newline at end of file
@@ -28,9 +28,18 @@ public class CallBuiltinFunction extends AbstractTransferFunction {
 // *********************************************************************************
 
     public AbstractLatticeElement transfer(AbstractLatticeElement inX) {
+        DependencyLatticeElement out = new DependencyLatticeElement((DependencyLatticeElement) inX);
+        this.transferInPlace(out);
+        return out;
+    }
+
+    public boolean isInPlace() {
+        return true;
+    }
 
-        DependencyLatticeElement in = (DependencyLatticeElement) inX;
-        DependencyLatticeElement out = new DependencyLatticeElement(in);
+    public void transferInPlace(AbstractLatticeElement element) {
+
+        DependencyLatticeElement out = (DependencyLatticeElement) element;
 
         // create an appropariate taint value (holding the function's name);
         // the array label is identic to the taint value
@@ -41,7 +50,5 @@ public class CallBuiltinFunction extends AbstractTransferFunction {
 
         // assign this taint/label to the node's temporary
         out.handleReturnValueBuiltin(this.cfgNode.getTempVar(), retDependencySet, retArrayLabel);
-
-        return out;
     }
 }
\ No newline at end of file
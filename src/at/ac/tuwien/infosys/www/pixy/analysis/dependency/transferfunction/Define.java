@@ -42,9 +42,18 @@ public class Define extends AbstractTransferFunction {
 // *********************************************************************************
 
     public AbstractLatticeElement transfer(AbstractLatticeElement inX) {
+        DependencyLatticeElement out = new DependencyLatticeElement((DependencyLatticeElement) inX);
+        this.transferInPlace(out);
+        return out;
+    }
+
+    public boolean isInPlace() {
+        return true;
+    }
 
-        DependencyLatticeElement in = (DependencyLatticeElement) inX;
-        DependencyLatticeElement out = new DependencyLatticeElement(in);
+    public void transferInPlace(AbstractLatticeElement element) {
+
+        DependencyLatticeElement out = (DependencyLatticeElement) element;
 
         // retrieve the literal of the constant to be set
         Literal constantLit;
@@ -63,7 +72,7 @@ public class Define extends AbstractTransferFunction {
         // case is rather seldom, we just issue a warning;
         if (constantLit == Literal.TOP) {
             // warning was already issued by literals analysis
-            return out;
+            return;
         }
 
         // determine the (boolean) literal of the case flag
@@ -127,7 +136,5 @@ public class Define extends AbstractTransferFunction {
                 System.out.println("- defined: " + this.cfgNode.getLoc());
             }
         }
-
-        return out;
     }
 }
\ No newline at end of file
@@ -36,10 +36,19 @@ public class Isset extends AbstractTransferFunction {
 // *********************************************************************************
 
     public AbstractLatticeElement transfer(AbstractLatticeElement inX) {
+        DependencyLatticeElement out = new DependencyLatticeElement((DependencyLatticeElement) inX);
+        this.transferInPlace(out);
+        return out;
+    }
+
+    public boolean isInPlace() {
+        return true;
+    }
+
+    public void transferInPlace(AbstractLatticeElement element) {
 
         // System.out.println("transfer method: " + setMe + " = " + setTo);
-        DependencyLatticeElement in = (DependencyLatticeElement) inX;
-        DependencyLatticeElement out = new DependencyLatticeElement(in);
+        DependencyLatticeElement out = (DependencyLatticeElement) element;
 
         if (!setMe.isTemp()) {
             throw new RuntimeException("SNH");
@@ -51,7 +60,5 @@ public class Isset extends AbstractTransferFunction {
         mustAliases.add(setMe);
         Set<Variable> mayAliases = Collections.emptySet();
         out.assign(setMe, mustAliases, mayAliases, cfgNode);
-
-        return out;
     }
 }
\ No newline at end of file
@@ -56,4 +56,13 @@ public class InclusionDominatorLattice extends AbstractLattice {
 
         return resultElement;
     }
+
+    // see AbstractLattice.lubUpdate; since the lattice elements are recycled,
+    // lub already returns the target element itself if nothing changes
+    public AbstractLatticeElement lubUpdate(
+        AbstractLatticeElement incomingElementX,
+        AbstractLatticeElement targetElementX) {
+
+        return this.lub(incomingElementX, targetElementX);
+    }
 }
\ No newline at end of file
@@ -55,6 +55,20 @@ public class InclusionDominatorLatticeElement extends AbstractLatticeElement {
     }
 
     public void lub(InclusionDominatorLatticeElement element) {
+        this.lubChanged(element);
+    }
+
+    // like lub, and returns whether this element has changed
+    public boolean lubChanged(AbstractLatticeElement element) {
+        if (!(element instanceof InclusionDominatorLatticeElement)) {
+            throw new RuntimeException("SNH");
+        }
+        return this.lubChanged((InclusionDominatorLatticeElement) element);
+    }
+
+    // the result is the longest common prefix, so this element
+    // has changed iff the prefix is shorter than the old list
+    public boolean lubChanged(InclusionDominatorLatticeElement element) {
         // longest matching prefix
         Iterator<AbstractCfgNode> foreignIter = element.getDominators().iterator();
         Iterator<AbstractCfgNode> myIter = this.dominators.iterator();
@@ -69,7 +83,9 @@ public class InclusionDominatorLatticeElement extends AbstractLatticeElement {
                 goOn = false;
             }
         }
+        boolean changed = newList.size() != this.dominators.size();
         this.dominators = newList;
+        return changed;
     }
 
     // apends the given CfgNode to the list of dominators
@@ -1,11 +1,13 @@
 package at.ac.tuwien.infosys.www.pixy.analysis.interprocedural;
 
 import at.ac.tuwien.infosys.www.pixy.Dumper;
+import at.ac.tuwien.infosys.www.pixy.Metrics;
 import at.ac.tuwien.infosys.www.pixy.MyOptions;
 import at.ac.tuwien.infosys.www.pixy.analysis.AbstractAnalysis;
 import at.ac.tuwien.infosys.www.pixy.analysis.AbstractAnalysisNode;
 import at.ac.tuwien.infosys.www.pixy.analysis.AbstractLatticeElement;
 import at.ac.tuwien.infosys.www.pixy.analysis.AbstractTransferFunction;
+import at.ac.tuwien.infosys.www.pixy.analysis.GenericRepository;
 import at.ac.tuwien.infosys.www.pixy.analysis.interprocedural.callstring.CallStringAnalysis;
 import at.ac.tuwien.infosys.www.pixy.conversion.CfgEdge;
 import at.ac.tuwien.infosys.www.pixy.conversion.ControlFlowGraph;
@@ -13,7 +15,7 @@ import at.ac.tuwien.infosys.www.pixy.conversion.TacFormalParameter;
 import at.ac.tuwien.infosys.www.pixy.conversion.TacFunction;
 import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.*;
 
-import java.util.List;
+import java.util.*;
 
 /**
  * Vase class for interprocedural analyses (Sharir and Pnueli). Can be used for the functional and the call-string
@@ -53,6 +55,14 @@ public abstract class AbstractInterproceduralAnalysis extends AbstractAnalysis {
     // worklist consisting of pairs (ControlFlowGraph node, lattice element)
     InterproceduralWorklist workList;
 
+    // counters for Metrics, for the current run of analyze()
+    private long transferCalls;
+    private long lubCalls;
+
+    // demand-driven analysis: only the nodes in this slice are analyzed (see setDemand);
+    // null if all nodes are analyzed
+    private BackwardSlice slice;
+
 // *********************************************************************************
 // CONSTRUCTORS ********************************************************************
 // *********************************************************************************
@@ -190,12 +200,55 @@ public abstract class AbstractInterproceduralAnalysis extends AbstractAnalysis {
         return this.analysisType.useSummaries();
     }
 
+//  setDemand **********************************************************************
+
+    // restricts the analysis to the nodes whose information can flow into the
+    // information at the given nodes; only the information at these nodes (and at
+    // the definitions they depend on) is computed completely; returns false
+    // (and leaves the analysis exhaustive) if the given nodes are not part of
+    // the interprocedural CFG
+    public boolean setDemand(Collection<AbstractCfgNode> demandedNodes) {
+        this.slice = null;
+        List<AbstractCfgNode> targets = new ArrayList<>();
+        for (AbstractCfgNode cfgNode : demandedNodes) {
+            if (cfgNode.getDefaultParamEntry() != null) {
+                // inside a default CFG: only evaluated by the CallPreparation transfer functions
+                return false;
+            }
+            targets.add(cfgNode.getSpecial());
+        }
+
+        // call-string contexts of limited length can mix up the calls of a function
+        boolean matchCalls = !(this.analysisType instanceof CallStringAnalysis);
+        this.slice = new BackwardSlice(this.functions, targets, matchCalls);
+        return true;
+    }
+
+    // is the given node analyzed? (see setDemand)
+    public boolean isDemanded(AbstractCfgNode cfgNode) {
+        return this.slice == null || this.slice.contains(cfgNode);
+    }
+
+    // number of analyzed nodes in demand-driven mode, -1 otherwise
+    public int getDemandSize() {
+        return this.slice == null ? -1 : this.slice.size();
+    }
+
+//  getRepository ******************************************************************
+
+    // the repository of recycled lattice elements (for Metrics); null if there is none
+    public GenericRepository<?> getRepository() {
+        return null;
+    }
+
 //  analyze ************************************************************************
 
     // this method applies the worklist algorithm
     public void analyze() {
 
         int steps = 0;
+        this.transferCalls = 0;
+        this.lubCalls = 0;
 
         // for each element in the worklist...
         // (each worklist element is a pair of CFG node & context lattice element)
@@ -203,6 +256,10 @@ public abstract class AbstractInterproceduralAnalysis extends AbstractAnalysis {
 
             steps++;
             if (steps % 10000 == 0) System.out.println("Steps so far: " + steps);
+            if ((steps & 1023) == 0 && Metrics.isProgressDue()) {
+                System.err.println("Progress: " + this.getClass().getSimpleName() + ", " + steps + " steps, "
+                    + Metrics.getElapsedSeconds() + " seconds");
+            }
 
             // remove the element from the worklist
             InterproceduralWorklistElement element = this.workList.removeNext();
@@ -351,6 +408,7 @@ public abstract class AbstractInterproceduralAnalysis extends AbstractAnalysis {
                     If ifNode = (If) node;
 
                     AbstractLatticeElement outValue = this.interproceduralAnalysisInformation.getAnalysisNode(node).transfer(inValue);
+                    this.transferCalls++;
                     CfgEdge[] outEdges = node.getOutEdges();
 
                     // try to evaluate the "if" condition
@@ -378,6 +436,7 @@ public abstract class AbstractInterproceduralAnalysis extends AbstractAnalysis {
                     // apply transfer function to incoming value
                     AbstractInterproceduralAnalysisNode aNode = this.interproceduralAnalysisInformation.getAnalysisNode(node);
                     AbstractLatticeElement outValue = aNode.transfer(inValue, context);
+                    this.transferCalls++;
 
                     // for each outgoing edge...
                     CfgEdge[] outEdges = node.getOutEdges();
@@ -397,6 +456,7 @@ public abstract class AbstractInterproceduralAnalysis extends AbstractAnalysis {
                     // apply transfer function to incoming value
                     AbstractLatticeElement outValue;
                     outValue = this.interproceduralAnalysisInformation.getAnalysisNode(node).transfer(inValue);
+                    this.transferCalls++;
 
                     // for each outgoing edge...
                     CfgEdge[] outEdges = node.getOutEdges();
@@ -421,14 +481,32 @@ public abstract class AbstractInterproceduralAnalysis extends AbstractAnalysis {
         if (!MyOptions.optionB && MyOptions.optionV) {
             System.out.println("Steps total: " + steps);
         }
+        if (MyOptions.metrics) {
+            Metrics.addAnalysis(this.getClass().getSimpleName(), steps, this.transferCalls, this.lubCalls,
+                this.countPhiEntries());
+        }
         // worklist algorithm finished!
     }
 
+    // number of (node, context) entries in the PHI tables
+    private long countPhiEntries() {
+        long entries = 0;
+        for (AbstractAnalysisNode analysisNode : this.interproceduralAnalysisInformation.getMap().values()) {
+            entries += ((AbstractInterproceduralAnalysisNode) analysisNode).getPhi().size();
+        }
+        return entries;
+    }
+
 // propagate ***********************************************************************
 
     // helper method for analyze();
     // propagates a value under the given context to the target node
     void propagate(AbstractContext context, AbstractLatticeElement value, AbstractCfgNode target) {
+        if (this.slice != null && !this.slice.contains(target)) {
+            // demand-driven analysis: nobody needs the information here
+            return;
+        }
+
         // analysis information for the target node
         AbstractInterproceduralAnalysisNode analysisNode = this.interproceduralAnalysisInformation.getAnalysisNode(target);
 
@@ -447,15 +525,16 @@ public abstract class AbstractInterproceduralAnalysis extends AbstractAnalysis {
         // speedup: if incoming value and target value are exactly the same
         // object, then the result certainly can't change
         if (value == oldPhiValue) {
-            System.out.println("exact match!");
             return;
         }
 
-        // the new PHI value is computed as usual (with lub)
-        AbstractLatticeElement newPhiValue = this.lattice.lub(value, oldPhiValue);
+        // the new PHI value is computed as usual (with lub);
+        // lubUpdate returns the old value itself if nothing changes
+        AbstractLatticeElement newPhiValue = this.lattice.lubUpdate(value, oldPhiValue);
+        this.lubCalls++;
 
         // if the PHI value changed...
-        if (!oldPhiValue.equals(newPhiValue)) {
+        if (newPhiValue != oldPhiValue) {
             // update analysis information
             analysisNode.setPhiValue(context, newPhiValue);
 
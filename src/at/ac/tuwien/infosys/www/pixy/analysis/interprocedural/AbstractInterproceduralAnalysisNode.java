@@ -3,22 +3,32 @@ package at.ac.tuwien.infosys.www.pixy.analysis.interprocedural;
 import at.ac.tuwien.infosys.www.pixy.analysis.AbstractAnalysisNode;
 import at.ac.tuwien.infosys.www.pixy.analysis.AbstractLatticeElement;
 import at.ac.tuwien.infosys.www.pixy.analysis.AbstractTransferFunction;
+import at.ac.tuwien.infosys.www.pixy.analysis.interprocedural.callstring.CallStringContext;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 /**
  * An AnalysisNode holds analysis-specific information for a certain CFGNode.
  *
+ * The PHI table is a map from contexts to lattice elements. For call-string analyses, the contexts are
+ * the dense positions of the call strings of the enclosing function (see ConnectorComputation), so the
+ * table is stored as an array indexed by position instead (see the constructor with numContexts).
+ *
  * @author Nenad Jovanovic <enji@seclab.tuwien.ac.at>
  */
 public abstract class AbstractInterproceduralAnalysisNode extends AbstractAnalysisNode {
     // context map for interprocedural analysis
     // (Context -> input AbstractLatticeElement at current CFG node)
+    // null if the table is stored in phiArray
     Map<AbstractContext, AbstractLatticeElement> phi;
 
+    // call-string analyses: CallStringContext position -> input AbstractLatticeElement;
+    // null for functional analyses
+    AbstractLatticeElement[] phiArray;
+
+    // number of non-null entries in phiArray
+    private int phiArraySize;
+
     // value resulting from lazy table folding; must only be modified
     // via setFoldedValue, since we want it to be recycled for some analyses!
     AbstractLatticeElement foldedValue;
@@ -33,21 +43,38 @@ public abstract class AbstractInterproceduralAnalysisNode extends AbstractAnalys
         this.foldedValue = null;
     }
 
+    // for call-string analyses: the PHI table is stored as an array, with room
+    // for the given number of contexts (grows if necessary)
+    protected AbstractInterproceduralAnalysisNode(AbstractTransferFunction tf, int numContexts) {
+        super(tf);
+        this.phi = null;
+        this.phiArray = new AbstractLatticeElement[numContexts];
+        this.phiArraySize = 0;
+        this.foldedValue = null;
+    }
+
 // *********************************************************************************
 // GET *****************************************************************************
 // *********************************************************************************
 
     public Map<AbstractContext, AbstractLatticeElement> getPhi() {
+        if (this.phiArray != null) {
+            return new PhiArrayMap();
+        }
         return this.phi;
     }
 
     public Set<AbstractContext> getContexts() {
-        return this.phi.keySet();
+        return this.getPhi().keySet();
     }
 
     // returns the lattice element currently stored in the PHI map under the
     // given context; can be null
     public AbstractLatticeElement getPhiValue(AbstractContext context) {
+        if (this.phiArray != null) {
+            int position = ((CallStringContext) context).getPosition();
+            return position < this.phiArray.length ? this.phiArray[position] : null;
+        }
         return this.phi.get(context);
     }
 
@@ -56,6 +83,26 @@ public abstract class AbstractInterproceduralAnalysisNode extends AbstractAnalys
         if (this.hasFoldedValue()) {
             return this.foldedValue;
         }
+        return this.fold();
+    }
+
+    // returns the least upper bound of all values in the phi map, as a new element;
+    // null if the map is empty
+    private AbstractLatticeElement fold() {
+        if (this.phiArray != null) {
+            AbstractLatticeElement foldedValue = null;
+            for (AbstractLatticeElement value : this.phiArray) {
+                if (value == null) {
+                    continue;
+                }
+                if (foldedValue == null) {
+                    foldedValue = value.cloneMe();
+                } else {
+                    foldedValue.lub(value);
+                }
+            }
+            return foldedValue;
+        }
 
         Iterator<? extends AbstractLatticeElement> iter = this.phi.values().iterator();
         if (!iter.hasNext()) {
@@ -75,7 +122,7 @@ public abstract class AbstractInterproceduralAnalysisNode extends AbstractAnalys
     }
 
     public boolean hasFoldedValue() {
-        return (this.foldedValue != null || this.phi == null);
+        return (this.foldedValue != null || (this.phi == null && this.phiArray == null));
     }
 
     public void setFoldedValue(AbstractLatticeElement foldedValue) {
@@ -85,6 +132,7 @@ public abstract class AbstractInterproceduralAnalysisNode extends AbstractAnalys
     // only do this after having set the folded value
     public void clearPhiMap() {
         this.phi = null;
+        this.phiArray = null;
     }
 
     // don't call this function without having checked whether
@@ -107,20 +155,7 @@ public abstract class AbstractInterproceduralAnalysisNode extends AbstractAnalys
             return this.foldedValue;
         }
 
-        Iterator<? extends AbstractLatticeElement> iter = this.phi.values().iterator();
-        if (!iter.hasNext()) {
-            return null;
-        }
-
-        // initialize the folded value as a clone of the first value
-        // in the phi map
-        this.foldedValue = iter.next().cloneMe();
-
-        // lub the rest of the values over the start value
-        while (iter.hasNext()) {
-            this.foldedValue.lub(iter.next());
-        }
-
+        this.foldedValue = this.fold();
         return this.foldedValue;
     }
 
@@ -130,6 +165,17 @@ public abstract class AbstractInterproceduralAnalysisNode extends AbstractAnalys
 
     // sets the PHI value for the given context
     protected void setPhiValue(AbstractContext context, AbstractLatticeElement value) {
+        if (this.phiArray != null) {
+            int position = ((CallStringContext) context).getPosition();
+            if (position >= this.phiArray.length) {
+                this.phiArray = Arrays.copyOf(this.phiArray, Math.max(position + 1, 2 * this.phiArray.length));
+            }
+            if (this.phiArray[position] == null) {
+                this.phiArraySize++;
+            }
+            this.phiArray[position] = value;
+            return;
+        }
         this.phi.put(context, value);
     }
 
@@ -140,4 +186,65 @@ public abstract class AbstractInterproceduralAnalysisNode extends AbstractAnalys
     AbstractLatticeElement transfer(AbstractLatticeElement value, AbstractContext context) {
         return tf.transfer(value, context);
     }
+
+// *********************************************************************************
+
+    // read-only view of phiArray, for the users of getPhi()
+    private final class PhiArrayMap extends AbstractMap<AbstractContext, AbstractLatticeElement> {
+        public int size() {
+            return phiArraySize;
+        }
+
+        public boolean isEmpty() {
+            return phiArraySize == 0;
+        }
+
+        public AbstractLatticeElement get(Object key) {
+            return key instanceof CallStringContext ? getPhiValue((CallStringContext) key) : null;
+        }
+
+        public boolean containsKey(Object key) {
+            return this.get(key) != null;
+        }
+
+        public Set<Entry<AbstractContext, AbstractLatticeElement>> entrySet() {
+            return new AbstractSet<Entry<AbstractContext, AbstractLatticeElement>>() {
+                public int size() {
+                    return phiArraySize;
+                }
+
+                public Iterator<Entry<AbstractContext, AbstractLatticeElement>> iterator() {
+                    return new Iterator<Entry<AbstractContext, AbstractLatticeElement>>() {
+                        private final AbstractLatticeElement[] values = phiArray;
+                        private int next = this.advance(0);
+
+                        private int advance(int position) {
+                            while (position < this.values.length && this.values[position] == null) {
+                                position++;
+                            }
+                            return position;
+                        }
+
+                        public boolean hasNext() {
+                            return this.next < this.values.length;
+                        }
+
+                        public Entry<AbstractContext, AbstractLatticeElement> next() {
+                            if (!this.hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int position = this.next;
+                            this.next = this.advance(position + 1);
+                            return new SimpleImmutableEntry<AbstractContext, AbstractLatticeElement>(
+                                new CallStringContext(position), this.values[position]);
+                        }
+
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+            };
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+package at.ac.tuwien.infosys.www.pixy.analysis.interprocedural;
+
+import at.ac.tuwien.infosys.www.pixy.conversion.TacFunction;
+import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.AbstractCfgNode;
+import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.Call;
+import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.CallReturn;
+
+import java.util.*;
+
+/**
+ * The nodes of the interprocedural CFG from which one of the given target nodes can be reached, i.e., the nodes whose
+ * analysis information can flow into the information at the targets (see AbstractInterproceduralAnalysis.setDemand).
+ *
+ * The slice is computed backwards from the targets, in two phases: the first phase ascends from the entry of a
+ * function to all its calls, and descends from call return nodes into the exit of the callee; the second phase
+ * starts at these exits and only descends, since the callee has been entered by one particular call. The part of
+ * a function that is visited by the second phase (its backward summary) does not depend on the call, and is only
+ * computed once.
+ *
+ * If calls are not matched (i.e., if the contexts of the analysis can mix up the calls of a function, as for call
+ * strings of limited length), the first phase also ascends from functions that have been entered by descending.
+ *
+ * @author Nenad Jovanovic <enji@seclab.tuwien.ac.at>
+ */
+public class BackwardSlice {
+    // nodes visited by the first phase
+    private final Set<AbstractCfgNode> ascending;
+
+    // nodes visited by the second phase only
+    private final Set<AbstractCfgNode> descending;
+
+    // entry node -> function
+    private final Map<AbstractCfgNode, TacFunction> entries;
+
+//  ********************************************************************************
+
+    public BackwardSlice(List<TacFunction> functions, Collection<AbstractCfgNode> targets, boolean matchCalls) {
+        this.ascending = new HashSet<>();
+        this.descending = new HashSet<>();
+        this.entries = new HashMap<>();
+        for (TacFunction function : functions) {
+            this.entries.put(function.getControlFlowGraph().getHead(), function);
+        }
+
+        // exits of functions entered by the first phase
+        List<AbstractCfgNode> calleeExits = new LinkedList<>();
+        this.visit(targets, this.ascending, true, matchCalls ? calleeExits : null);
+        this.visit(calleeExits, this.descending, false, null);
+    }
+
+//  ********************************************************************************
+
+    // is information at the given node required for the targets?
+    public boolean contains(AbstractCfgNode cfgNode) {
+        return this.ascending.contains(cfgNode) || this.descending.contains(cfgNode);
+    }
+
+    public int size() {
+        return this.ascending.size() + this.descending.size();
+    }
+
+//  ********************************************************************************
+
+    // visits all nodes backwards from the given start nodes, adding them to "visited";
+    // ascend: continue from function entries to the calls of the function;
+    // calleeExits: if not null, the exits of called functions are collected here instead of visiting them
+    private void visit(Collection<AbstractCfgNode> start, Set<AbstractCfgNode> visited, boolean ascend,
+                       List<AbstractCfgNode> calleeExits) {
+
+        LinkedList<AbstractCfgNode> workList = new LinkedList<>();
+        for (AbstractCfgNode cfgNode : start) {
+            if (!this.ascending.contains(cfgNode) && visited.add(cfgNode)) {
+                workList.add(cfgNode);
+            }
+        }
+
+        while (!workList.isEmpty()) {
+            AbstractCfgNode cfgNode = workList.removeFirst();
+
+            List<AbstractCfgNode> predecessors = cfgNode.getPredecessors();
+            if (cfgNode instanceof CallReturn) {
+                TacFunction callee = ((CallReturn) cfgNode).getCallNode().getCallee();
+                if (callee != null) {
+                    AbstractCfgNode exitNode = callee.getControlFlowGraph().getTail();
+                    if (calleeExits == null) {
+                        predecessors.add(exitNode);
+                    } else {
+                        calleeExits.add(exitNode);
+                    }
+                }
+            } else if (ascend) {
+                TacFunction function = this.entries.get(cfgNode);
+                if (function != null) {
+                    for (Call callNode : function.getCalledFrom()) {
+                        predecessors.add(callNode);
+                    }
+                }
+            }
+
+            for (AbstractCfgNode pred : predecessors) {
+                if (!this.ascending.contains(pred) && visited.add(pred)) {
+                    workList.add(pred);
+                }
+            }
+        }
+    }
+}
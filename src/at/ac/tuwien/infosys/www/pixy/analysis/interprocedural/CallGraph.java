@@ -21,6 +21,27 @@ public class CallGraph {
         this.nodes.put(mainFunction, new CallGraphNode(mainFunction));
     }
 
+    // builds the call graph of the functions that are reachable from the given main function
+    public static CallGraph create(TacFunction mainFunction) {
+        CallGraph callGraph = new CallGraph(mainFunction);
+
+        LinkedList<Call> processUs = new LinkedList<>(mainFunction.getContainedCalls());
+        Set<TacFunction> visited = new HashSet<>();
+        visited.add(mainFunction);
+        while (!processUs.isEmpty()) {
+            Call callNode = processUs.removeFirst();
+            TacFunction callee = callNode.getCallee();
+            if (callee != null) {
+                callGraph.add(callNode.getEnclosingFunction(), callee, callNode);
+                if (visited.add(callee)) {
+                    processUs.addAll(callee.getContainedCalls());
+                }
+            }
+        }
+
+        return callGraph;
+    }
+
     public void add(TacFunction caller, TacFunction callee, Call callNode) {
 
         // add caller node (if necessary)
@@ -42,6 +42,9 @@ public class ConnectorComputation {
     // associates every function with a list of contained calls
     Map<TacFunction, List<Call>> containedCalls;
 
+    // interned call strings (see intern)
+    private Map<CallString, CallString> callStrings;
+
     private CallGraph callGraph;
 
     private TacFunction mainFunction;
@@ -50,6 +53,14 @@ public class ConnectorComputation {
     int kSize;
 
     public ConnectorComputation(List<TacFunction> functions, TacFunction mainFunction, int kSize) {
+        this(functions, mainFunction, kSize, null);
+    }
+
+    // "callGraph": the call graph of the given functions if it is already available
+    // (see ProgramModel), null otherwise
+    public ConnectorComputation(List<TacFunction> functions, TacFunction mainFunction, int kSize,
+                                CallGraph callGraph) {
+        this.callGraph = callGraph;
         this.kSize = kSize;
         this.mainFunction = mainFunction;
 
@@ -60,6 +71,7 @@ public class ConnectorComputation {
         List<Call> callNodes = new LinkedList<>();
         this.function2ECS = new HashMap<>();
         this.containedCalls = new HashMap<>();
+        this.callStrings = new HashMap<>();
 
         for (TacFunction function : functions) {
             this.function2ECS.put(function, new EncodedCallStrings());
@@ -71,7 +83,7 @@ public class ConnectorComputation {
         }
 
         // initialize EncodedCallStrings for main function with empty call string
-        CallString emptyCallString = new CallString();
+        CallString emptyCallString = this.intern(new CallString());
         this.function2ECS.put(mainFunction, new EncodedCallStrings(emptyCallString));
 
         // initialize worklist
@@ -145,7 +157,7 @@ public class ConnectorComputation {
                     // callee is still unknown
                     continue;
                 }
-                CallString gamma_2 = gamma.append(callNode, this.kSize);
+                CallString gamma_2 = this.append(gamma, callNode);
                 EncodedCallStrings encodedCallStrings_q = this.function2ECS.get(q);
                 int pos_2 = encodedCallStrings_q.getPosition(gamma_2);
                 if (pos_2 == -1) {
@@ -164,7 +176,34 @@ public class ConnectorComputation {
         }
 
         // generate the call graph
-        this.makeCallGraph();
+        if (this.callGraph == null) {
+            this.makeCallGraph();
+        }
+    }
+
+    // returns the interned call string for (callString . callNode), cut to kSize;
+    // "callString" has to be interned
+    private CallString append(CallString callString, Call callNode) {
+        CallString appended = callString.getAppended(callNode);
+        if (appended == null) {
+            appended = this.intern(callString.append(callNode, this.kSize));
+            callString.setAppended(callNode, appended);
+        }
+        return appended;
+    }
+
+    private CallString intern(CallString callString) {
+        CallString interned = this.callStrings.get(callString);
+        if (interned == null) {
+            this.callStrings.put(callString, callString);
+            interned = callString;
+        }
+        return interned;
+    }
+
+    // number of distinct call strings computed so far
+    public int getNumCallStrings() {
+        return this.callStrings.size();
     }
 
     public CallStringContext getTargetContext(Call callNode, int sourcePosition) {
@@ -233,8 +272,10 @@ public class ConnectorComputation {
     }
 
     // returns the number of contexts for the given function
+    // (0 for functions that are not reachable from the main function)
     public int getNumContexts(TacFunction f) {
-        return this.function2ECS.get(f).size();
+        EncodedCallStrings encodedCallStrings = this.function2ECS.get(f);
+        return encodedCallStrings == null ? 0 : encodedCallStrings.size();
     }
 
     public void stats(boolean verbose) {
@@ -1,5 +1,6 @@
 package at.ac.tuwien.infosys.www.pixy.analysis.interprocedural;
 
+import at.ac.tuwien.infosys.www.pixy.Metrics;
 import at.ac.tuwien.infosys.www.pixy.analysis.AbstractAnalysisInformation;
 import at.ac.tuwien.infosys.www.pixy.analysis.AbstractAnalysisNode;
 import at.ac.tuwien.infosys.www.pixy.analysis.AbstractLatticeElement;
@@ -24,6 +25,7 @@ public class InterproceduralAnalysisInformation extends AbstractAnalysisInformat
             analysisNode.setFoldedValue(foldedValue);
             analysisNode.clearPhiMap();
         }
+        Metrics.addRepository(analysis.getClass().getSimpleName(), analysis.getRepository());
     }
 
     // note that not all cfg nodes have an associated analysis node:
@@ -0,0 +1,271 @@
+package at.ac.tuwien.infosys.www.pixy.analysis.interprocedural;
+
+import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.AbstractCfgNode;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+
+/**
+ * A faster replacement for InterproceduralWorklistBetter and InterproceduralWorklistPoor.
+ *
+ * Each (cfg node, context) pair that is ever added gets a dense index, together with a worklist element
+ * and a priority that are computed only once. The worklist itself only stores these indices:
+ * - a bitset tells which indices are currently in the list, so adding a pair twice has no effect
+ * - indices with a priority are kept in an int heap (smallest priority first)
+ * - indices without a priority are kept in an int queue that is emptied first (FIFO)
+ *
+ * With an InterproceduralWorklistOrder, the priority is the interprocedural reverse post-order
+ * (as in InterproceduralWorklistBetter). Without one, the priority is the reverse post-order of the
+ * cfg node, and nodes without such an order have no priority (as in InterproceduralWorklistPoor).
+ * With an InterproceduralWorklistSccOrder (for functional analyses), the priority is the position
+ * of the cfg node in the bottom-up order of call graph SCCs.
+ * In contrast to the first two, pairs with the same priority do not replace each other.
+ */
+public final class InterproceduralWorklistIndexed implements InterproceduralWorklist {
+    private static final int NO_PRIORITY = -1;
+
+    // can be null
+    private InterproceduralWorklistOrder order;
+    private InterproceduralWorklistSccOrder sccOrder;
+
+    // index -> element / priority
+    private InterproceduralWorklistElement[] elements;
+    private int[] priorities;
+    private int size;
+
+    // open addressing hash table for (cfg node, context) -> index;
+    // contains index + 1, 0 marks an empty slot
+    private int[] table;
+
+    // indices of the elements that are currently in the worklist
+    private BitSet contained;
+
+    // binary min-heap of indices (ordered by priority, then by index)
+    private int[] heap;
+    private int heapSize;
+
+    // ring buffer of indices without priority
+    private int[] queue;
+    private int queueHead;
+    private int queueSize;
+
+// *********************************************************************************
+// CONSTRUCTORS ********************************************************************
+// *********************************************************************************
+
+    // orders elements like InterproceduralWorklistPoor
+    public InterproceduralWorklistIndexed() {
+        this(null, null);
+    }
+
+    // orders elements like InterproceduralWorklistBetter
+    public InterproceduralWorklistIndexed(InterproceduralWorklistOrder order) {
+        this(order, null);
+    }
+
+    // orders elements by the SCCs of the call graph, callees first
+    public InterproceduralWorklistIndexed(InterproceduralWorklistSccOrder sccOrder) {
+        this(null, sccOrder);
+    }
+
+    private InterproceduralWorklistIndexed(InterproceduralWorklistOrder order, InterproceduralWorklistSccOrder sccOrder) {
+        this.order = order;
+        this.sccOrder = sccOrder;
+        this.elements = new InterproceduralWorklistElement[16];
+        this.priorities = new int[16];
+        this.size = 0;
+        this.table = new int[32];
+        this.contained = new BitSet();
+        this.heap = new int[16];
+        this.heapSize = 0;
+        this.queue = new int[16];
+        this.queueHead = 0;
+        this.queueSize = 0;
+    }
+
+// *********************************************************************************
+// OTHER ***************************************************************************
+// *********************************************************************************
+
+    public void add(AbstractCfgNode cfgNode, AbstractContext context) {
+        // null contexts are not allowed
+        if (context == null) {
+            throw new RuntimeException("SNH");
+        }
+
+        int index = this.getIndex(cfgNode, context);
+        if (this.contained.get(index)) {
+            return;
+        }
+        this.contained.set(index);
+
+        if (this.priorities[index] == NO_PRIORITY) {
+            this.enqueue(index);
+        } else {
+            this.heapAdd(index);
+        }
+    }
+
+    public InterproceduralWorklistElement removeNext() {
+        int index;
+        if (this.queueSize > 0) {
+            index = this.dequeue();
+        } else if (this.heapSize > 0) {
+            index = this.heapRemoveFirst();
+        } else {
+            throw new NoSuchElementException();
+        }
+        this.contained.clear(index);
+        return this.elements[index];
+    }
+
+    public boolean hasNext() {
+        return this.queueSize > 0 || this.heapSize > 0;
+    }
+
+//  index **************************************************************************
+
+    // returns the index of the given pair; assigns a new one if the pair is
+    // added for the first time
+    private int getIndex(AbstractCfgNode cfgNode, AbstractContext context) {
+        int mask = this.table.length - 1;
+        int slot = hash(cfgNode, context) & mask;
+        while (true) {
+            int entry = this.table[slot];
+            if (entry == 0) {
+                break;
+            }
+            InterproceduralWorklistElement element = this.elements[entry - 1];
+            if (element.getCfgNode().equals(cfgNode) && element.getContext().equals(context)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // new pair
+        InterproceduralWorklistElement element = new InterproceduralWorklistElement(cfgNode, context);
+        int priority;
+        if (this.sccOrder != null) {
+            priority = this.sccOrder.getPosition(cfgNode);
+        } else if (this.order == null) {
+            priority = cfgNode.getReversePostOrder();
+        } else {
+            Integer rpo = this.order.getReversePostOrder(element);
+            if (rpo == null) {
+                throw new RuntimeException("SNH");
+            }
+            priority = rpo;
+        }
+
+        int index = this.size;
+        if (index == this.elements.length) {
+            this.elements = Arrays.copyOf(this.elements, index * 2);
+            this.priorities = Arrays.copyOf(this.priorities, index * 2);
+        }
+        this.elements[index] = element;
+        this.priorities[index] = priority < 0 ? NO_PRIORITY : priority;
+        this.size++;
+
+        this.table[slot] = index + 1;
+        if (this.size * 2 > this.table.length) {
+            this.rehash();
+        }
+
+        return index;
+    }
+
+    // same as InterproceduralWorklistElement.hashCode(), but without creating an element
+    private static int hash(AbstractCfgNode cfgNode, AbstractContext context) {
+        int hashCode = 17;
+        hashCode = 37 * hashCode + cfgNode.hashCode();
+        hashCode = 37 * hashCode + context.hashCode();
+        return hashCode ^ (hashCode >>> 16);
+    }
+
+    private void rehash() {
+        this.table = new int[this.table.length * 2];
+        int mask = this.table.length - 1;
+        for (int index = 0; index < this.size; index++) {
+            InterproceduralWorklistElement element = this.elements[index];
+            int slot = hash(element.getCfgNode(), element.getContext()) & mask;
+            while (this.table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            this.table[slot] = index + 1;
+        }
+    }
+
+//  heap ***************************************************************************
+
+    private boolean before(int index1, int index2) {
+        int priority1 = this.priorities[index1];
+        int priority2 = this.priorities[index2];
+        return priority1 < priority2 || (priority1 == priority2 && index1 < index2);
+    }
+
+    private void heapAdd(int index) {
+        if (this.heapSize == this.heap.length) {
+            this.heap = Arrays.copyOf(this.heap, this.heapSize * 2);
+        }
+
+        // sift up
+        int position = this.heapSize++;
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!this.before(index, this.heap[parent])) {
+                break;
+            }
+            this.heap[position] = this.heap[parent];
+            position = parent;
+        }
+        this.heap[position] = index;
+    }
+
+    private int heapRemoveFirst() {
+        int first = this.heap[0];
+        int last = this.heap[--this.heapSize];
+
+        // sift down
+        int position = 0;
+        int half = this.heapSize >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            if (child + 1 < this.heapSize && this.before(this.heap[child + 1], this.heap[child])) {
+                child++;
+            }
+            if (!this.before(this.heap[child], last)) {
+                break;
+            }
+            this.heap[position] = this.heap[child];
+            position = child;
+        }
+        if (this.heapSize > 0) {
+            this.heap[position] = last;
+        }
+
+        return first;
+    }
+
+//  queue **************************************************************************
+
+    private void enqueue(int index) {
+        if (this.queueSize == this.queue.length) {
+            int[] newQueue = new int[this.queue.length * 2];
+            for (int i = 0; i < this.queueSize; i++) {
+                newQueue[i] = this.queue[(this.queueHead + i) % this.queue.length];
+            }
+            this.queue = newQueue;
+            this.queueHead = 0;
+        }
+        this.queue[(this.queueHead + this.queueSize) % this.queue.length] = index;
+        this.queueSize++;
+    }
+
+    private int dequeue() {
+        int index = this.queue[this.queueHead];
+        this.queueHead = (this.queueHead + 1) % this.queue.length;
+        this.queueSize--;
+        return index;
+    }
+}
@@ -0,0 +1,98 @@
+package at.ac.tuwien.infosys.www.pixy.analysis.interprocedural;
+
+import at.ac.tuwien.infosys.www.pixy.conversion.TacFunction;
+import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.AbstractCfgNode;
+
+import java.util.*;
+
+/**
+ * Computes an order for functional analyses that solves the strongly connected components (SCCs) of the call graph
+ * bottom-up.
+ *
+ * The nodes of a callee come before the nodes of its callers, unless both are in the same SCC (i.e., they are
+ * mutually recursive). This way, when a call enters a function under a new context, the worklist first works on the
+ * function (and on everything it calls) until its summary for this context has stabilized, and only then returns to
+ * the caller. Inside a function, nodes are ordered by reverse post-order.
+ *
+ * The SCCs are computed with Kosaraju's algorithm, based on CallGraph.getPostOrder.
+ *
+ * @author Nenad Jovanovic <enji@seclab.tuwien.ac.at>
+ */
+public class InterproceduralWorklistSccOrder {
+    // cfg node -> position in the order
+    private Map<AbstractCfgNode, Integer> order;
+
+    private int numSccs;
+
+//  ********************************************************************************
+
+    public InterproceduralWorklistSccOrder(CallGraph callGraph) {
+        this.order = new HashMap<>();
+
+        // the SCCs in topological order (callers first)
+        List<List<TacFunction>> sccs = this.getSccs(callGraph);
+        this.numSccs = sccs.size();
+
+        // bottom-up
+        int i = 0;
+        for (ListIterator<List<TacFunction>> sccIter = sccs.listIterator(sccs.size()); sccIter.hasPrevious(); ) {
+            for (TacFunction function : sccIter.previous()) {
+                LinkedList<AbstractCfgNode> postorder = function.getControlFlowGraph().dfPostOrder();
+                for (Iterator<AbstractCfgNode> iter = postorder.descendingIterator(); iter.hasNext(); ) {
+                    this.order.put(iter.next(), i++);
+                }
+            }
+        }
+    }
+
+//  ********************************************************************************
+
+    // Kosaraju: visits the functions in the order of decreasing post-order, following
+    // the call graph edges backwards; each of these traversals yields one SCC
+    private List<List<TacFunction>> getSccs(CallGraph callGraph) {
+        final Map<TacFunction, Integer> postOrder = callGraph.getPostOrder();
+        List<TacFunction> functions = new ArrayList<>(postOrder.keySet());
+        Collections.sort(functions, new Comparator<TacFunction>() {
+            public int compare(TacFunction f1, TacFunction f2) {
+                return postOrder.get(f2) - postOrder.get(f1);
+            }
+        });
+
+        List<List<TacFunction>> sccs = new ArrayList<>();
+        Set<TacFunction> assigned = new HashSet<>();
+        for (TacFunction function : functions) {
+            if (!assigned.add(function)) {
+                continue;
+            }
+
+            List<TacFunction> scc = new ArrayList<>();
+            LinkedList<TacFunction> stack = new LinkedList<>();
+            stack.add(function);
+            while (!stack.isEmpty()) {
+                TacFunction current = stack.removeLast();
+                scc.add(current);
+                for (CallGraphNode caller : callGraph.getCallers(current)) {
+                    if (assigned.add(caller.getFunction())) {
+                        stack.add(caller.getFunction());
+                    }
+                }
+            }
+            sccs.add(scc);
+        }
+
+        return sccs;
+    }
+
+//  ********************************************************************************
+
+    // returns the position of the given node in the order, or -1 if the node is not
+    // part of a function in the call graph
+    public int getPosition(AbstractCfgNode cfgNode) {
+        Integer position = this.order.get(cfgNode);
+        return position == null ? -1 : position;
+    }
+
+    public int getNumSccs() {
+        return this.numSccs;
+    }
+}
@@ -0,0 +1,131 @@
+package at.ac.tuwien.infosys.www.pixy.analysis.interprocedural;
+
+import at.ac.tuwien.infosys.www.pixy.Metrics;
+import at.ac.tuwien.infosys.www.pixy.MyOptions;
+import at.ac.tuwien.infosys.www.pixy.conversion.TacConverter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The whole-program structures that several analysis phases need: the call graph, the connector computations (one
+ * per call-string length), and the interprocedural worklist orders. They are computed on demand and reused as long
+ * as the CFGs of the program do not change.
+ *
+ * The TacConverter counts its modifications (see TacConverter.getCallVersion and getCfgVersion). The call graph and
+ * the connector computations only depend on the functions and the calls between them, so they survive modifications
+ * such as the creation of basic blocks; the worklist orders are computed again after any modification.
+ *
+ * @author Nenad Jovanovic <enji@seclab.tuwien.ac.at>
+ */
+public class ProgramModel {
+    private TacConverter tac;
+
+    // the versions of the TacConverter for which the memoized structures are valid
+    private int callVersion;
+    private int cfgVersion;
+
+    private CallGraph callGraph;
+
+    // call-string length -> connector computation / worklist order
+    private Map<Integer, ConnectorComputation> connectorComputations;
+    private Map<Integer, InterproceduralWorklistOrder> orders;
+
+    private int hits;
+    private int misses;
+
+//  ********************************************************************************
+
+    public ProgramModel(TacConverter tac) {
+        this.tac = tac;
+        this.callVersion = tac.getCallVersion();
+        this.cfgVersion = tac.getCfgVersion();
+        this.connectorComputations = new HashMap<>();
+        this.orders = new HashMap<>();
+        this.hits = 0;
+        this.misses = 0;
+    }
+
+//  ********************************************************************************
+
+    public CallGraph getCallGraph() {
+        this.validate();
+        if (this.callGraph == null) {
+            this.misses++;
+            this.callGraph = CallGraph.create(this.tac.getMainFunction());
+        } else {
+            this.hits++;
+        }
+        return this.callGraph;
+    }
+
+    // returns the computed connectors for call strings of the given length
+    public ConnectorComputation getConnectorComputation(int kSize) {
+        this.validate();
+        ConnectorComputation connectorComputation = this.connectorComputations.get(kSize);
+        if (connectorComputation != null) {
+            this.hits++;
+            return connectorComputation;
+        }
+
+        CallGraph callGraph = this.getCallGraph();
+        this.misses++;
+        Metrics.Phase phase = Metrics.begin("connectorComputation");
+        connectorComputation = new ConnectorComputation(
+            this.tac.getAllFunctions(), this.tac.getMainFunction(), kSize, callGraph);
+        connectorComputation.compute();
+        phase.end();
+
+        this.connectorComputations.put(kSize, connectorComputation);
+        return connectorComputation;
+    }
+
+    // returns the interprocedural reverse post-order for call strings of the given length
+    public InterproceduralWorklistOrder getWorklistOrder(int kSize) {
+        this.validate();
+        InterproceduralWorklistOrder order = this.orders.get(kSize);
+        if (order != null) {
+            this.hits++;
+            return order;
+        }
+
+        ConnectorComputation connectorComputation = this.getConnectorComputation(kSize);
+        this.misses++;
+        Metrics.Phase phase = Metrics.begin("worklistOrder");
+        order = new InterproceduralWorklistOrder(this.tac, connectorComputation);
+        phase.end();
+
+        this.orders.put(kSize, order);
+        return order;
+    }
+
+    // returns a new worklist for a call-string analysis with the given call-string
+    // length (an indexed one if MyOptions.indexedWorklist is set)
+    public InterproceduralWorklist createWorklist(int kSize) {
+        InterproceduralWorklistOrder order = this.getWorklistOrder(kSize);
+        return MyOptions.indexedWorklist
+            ? new InterproceduralWorklistIndexed(order)
+            : new InterproceduralWorklistBetter(order);
+    }
+
+//  ********************************************************************************
+
+    // forgets everything that depends on parts of the program that have changed
+    private void validate() {
+        if (this.tac.getCallVersion() != this.callVersion) {
+            this.callVersion = this.tac.getCallVersion();
+            this.callGraph = null;
+            this.connectorComputations.clear();
+        }
+        if (this.tac.getCfgVersion() != this.cfgVersion) {
+            this.cfgVersion = this.tac.getCfgVersion();
+            this.orders.clear();
+        }
+    }
+
+//  ********************************************************************************
+
+    public String getStatistics() {
+        return "reused: " + this.hits + ", computed: " + this.misses;
+    }
+}
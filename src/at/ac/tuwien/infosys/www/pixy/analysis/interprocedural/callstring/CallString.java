@@ -2,45 +2,83 @@ package at.ac.tuwien.infosys.www.pixy.analysis.interprocedural.callstring;
 
 import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.Call;
 
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
+ * An immutable sequence of Call's, with a precomputed hash code.
+ *
+ * ConnectorComputation interns call strings, so that every call string exists only once, and
+ * memoizes the results of append for them (see getAppended).
+ *
  * @author Nenad Jovanovic <enji@seclab.tuwien.ac.at>
  */
 public class CallString {
-    // a list of Call's; never longer than the k-size of the analysis
-    private LinkedList<Call> callNodeList;
+    // never longer than the k-size of the analysis
+    private final Call[] calls;
+
+    private final int hashCode;
+
+    // Call -> interned result of append; only used for interned call strings
+    // (and thus for a fixed k-size)
+    private Map<Call, CallString> appended;
 
     // creates the empty call string
     public CallString() {
-        this.callNodeList = new LinkedList<>();
+        this(new Call[0]);
     }
 
     // shall only be used by CallString.append
-    private CallString(LinkedList<Call> callNodeList) {
-        this.callNodeList = callNodeList;
+    private CallString(Call[] calls) {
+        this.calls = calls;
+        this.hashCode = Arrays.hashCode(calls);
     }
 
     public CallString append(Call callNode, int kSize) {
-        LinkedList<Call> newList = new LinkedList<>(this.callNodeList);
-        newList.add(callNode);
-        if (newList.size() > kSize) {
-            newList.remove(0);
+        // the rightmost (kSize - 1) calls of this call string, followed by the given call
+        int keep = Math.min(this.calls.length, kSize - 1);
+        Call[] newCalls;
+        if (keep < 0) {
+            newCalls = new Call[0];
+        } else {
+            newCalls = new Call[keep + 1];
+            System.arraycopy(this.calls, this.calls.length - keep, newCalls, 0, keep);
+            newCalls[keep] = callNode;
         }
-        return new CallString(newList);
+        return new CallString(newCalls);
+    }
+
+    // returns the remembered result of appending the given call node, or null
+    public CallString getAppended(Call callNode) {
+        return this.appended == null ? null : this.appended.get(callNode);
+    }
+
+    // remembers the (interned) result of appending the given call node
+    public void setAppended(Call callNode, CallString result) {
+        if (this.appended == null) {
+            this.appended = new HashMap<>();
+        }
+        this.appended.put(callNode, result);
     }
 
     // returns the last (rightmost) call node
     public Call getLast() {
-        return this.callNodeList.getLast();
+        return this.calls[this.calls.length - 1];
+    }
+
+    public List<Call> getCallNodeList() {
+        return Collections.unmodifiableList(Arrays.asList(this.calls));
     }
 
-    public LinkedList<Call> getCallNodeList() {
-        return this.callNodeList;
+    public int length() {
+        return this.calls.length;
     }
 
     public int hashCode() {
-        return this.callNodeList.hashCode();
+        return this.hashCode;
     }
 
     public boolean equals(Object obj) {
@@ -54,12 +92,12 @@ public class CallString {
         }
         CallString comp = (CallString) obj;
 
-        return this.callNodeList.equals(comp.getCallNodeList());
+        return this.hashCode == comp.hashCode && Arrays.equals(this.calls, comp.calls);
     }
 
     public String dump() {
         StringBuilder b = new StringBuilder();
-        for (Call callNode : this.callNodeList) {
+        for (Call callNode : this.calls) {
             b.append(callNode.getFileName());
             b.append(":");
             b.append(callNode.getOriginalLineNumber());
@@ -67,4 +105,4 @@ public class CallString {
         }
         return b.toString();
     }
-}
\ No newline at end of file
+}
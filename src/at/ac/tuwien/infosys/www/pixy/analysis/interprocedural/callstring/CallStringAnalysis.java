@@ -66,7 +66,7 @@ public class CallStringAnalysis extends AbstractAnalysisType {
     }
 
     public AbstractInterproceduralAnalysisNode makeAnalysisNode(AbstractCfgNode cfgNode, AbstractTransferFunction tf) {
-        return new CallStringAnalysisNode(cfgNode, tf);
+        return new CallStringAnalysisNode(cfgNode, tf, this.connectorComp.getNumContexts(cfgNode.getEnclosingFunction()));
     }
 
     public AbstractContext initContext(AbstractInterproceduralAnalysis analysis) {
@@ -8,7 +8,8 @@ import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.AbstractCfgNode;
  * @author Nenad Jovanovic <enji@seclab.tuwien.ac.at>
  */
 public class CallStringAnalysisNode extends AbstractInterproceduralAnalysisNode {
-    public CallStringAnalysisNode(AbstractCfgNode node, AbstractTransferFunction tf) {
-        super(tf);
+    // numContexts: number of contexts of the enclosing function
+    public CallStringAnalysisNode(AbstractCfgNode node, AbstractTransferFunction tf, int numContexts) {
+        super(tf, numContexts);
     }
 }
\ No newline at end of file
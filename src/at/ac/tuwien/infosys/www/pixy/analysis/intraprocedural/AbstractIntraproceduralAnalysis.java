@@ -177,11 +177,12 @@ public abstract class AbstractIntraproceduralAnalysis extends AbstractAnalysis {
             return;
         }
 
-        // the new invalue is computed as usual (with lub)
-        AbstractLatticeElement newInValue = this.lattice.lub(value, oldInValue);
+        // the new invalue is computed as usual (with lub);
+        // lubUpdate returns the old value itself if nothing changes
+        AbstractLatticeElement newInValue = this.lattice.lubUpdate(value, oldInValue);
 
         // if the invalue changed...
-        if (!oldInValue.equals(newInValue)) {
+        if (newInValue != oldInValue) {
 
             // update analysis information
             analysisNode.setInValue(newInValue);
@@ -367,6 +367,10 @@ public class LiteralAnalysis extends AbstractInterproceduralAnalysis {
         return this.repos.recycle(recycleMe);
     }
 
+    public GenericRepository<?> getRepository() {
+        return this.repos;
+    }
+
 //  clean **************************************************************************
 
     // performs post-analysis cleanup operations to save memory
@@ -61,4 +61,21 @@ public class LiteralLattice extends AbstractLattice {
 
         return resultElement;
     }
+
+    // see AbstractLattice.lubUpdate
+    public AbstractLatticeElement lubUpdate(
+        AbstractLatticeElement incomingElementX,
+        AbstractLatticeElement targetElementX) {
+
+        // lub with bottom doesn't change anything
+        if (incomingElementX == this.bottom) {
+            return targetElementX;
+        }
+        if (targetElementX == this.bottom) {
+            return incomingElementX.cloneMe();
+        }
+
+        LiteralLatticeElement resultElement = new LiteralLatticeElement((LiteralLatticeElement) targetElementX);
+        return resultElement.lubChanged(incomingElementX) ? resultElement : targetElementX;
+    }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package at.ac.tuwien.infosys.www.pixy.analysis.literal;
 
 import at.ac.tuwien.infosys.www.pixy.MyOptions;
 import at.ac.tuwien.infosys.www.pixy.analysis.AbstractLatticeElement;
+import at.ac.tuwien.infosys.www.pixy.analysis.PersistentHashMap;
 import at.ac.tuwien.infosys.www.pixy.conversion.*;
 import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.AbstractCfgNode;
 
@@ -31,12 +32,12 @@ public class LiteralLatticeElement extends AbstractLatticeElement {
     // creates a lattice element that adds no information to the
     // default lattice element
     public LiteralLatticeElement() {
-        this.placeToLit = new HashMap<>();
+        this.placeToLit = createMap();
     }
 
     // clones the given element
     public LiteralLatticeElement(LiteralLatticeElement cloneMe) {
-        this.placeToLit = new HashMap<>(cloneMe.getPlaceToLit());
+        this.placeToLit = copyMap(cloneMe.getPlaceToLit());
     }
 
     public AbstractLatticeElement cloneMe() {
@@ -62,7 +63,7 @@ public class LiteralLatticeElement extends AbstractLatticeElement {
         SymbolTable superSymbolTable) {
 
         // initialize conservative base mapping for variables & constants: TOP
-        this.placeToLit = new HashMap<>();
+        this.placeToLit = createMap();
         for (AbstractTacPlace place : places) {
             this.placeToLit.put(place, Literal.TOP);
         }
@@ -300,9 +301,21 @@ public class LiteralLatticeElement extends AbstractLatticeElement {
 
     // lubs the given lattice element over <<this>> lattice element
     public void lub(AbstractLatticeElement foreignX) {
+        this.lubChanged(foreignX);
+    }
+
+    // lubs the given lattice element over <<this>> lattice element, and returns
+    // whether this element has changed
+    public boolean lubChanged(AbstractLatticeElement foreignX) {
 
         LiteralLatticeElement foreign = (LiteralLatticeElement) foreignX;
 
+        if (this.placeToLit instanceof PersistentHashMap && foreign.placeToLit instanceof PersistentHashMap) {
+            return this.lubPersistent(foreign);
+        }
+
+        boolean changed = false;
+
         // lub over my non-default mappings
         for (Map.Entry<AbstractTacPlace, Literal> tacPlaceLiteralEntry : this.placeToLit.entrySet()) {
             AbstractTacPlace myPlace = tacPlaceLiteralEntry.getKey();
@@ -311,6 +324,9 @@ public class LiteralLatticeElement extends AbstractLatticeElement {
             Literal foreignLiteral = foreign.getLiteral(myPlace);
             if (!foreignLiteral.equals(myLiteral)) {
                 this.placeToLit.put(myPlace, Literal.TOP);
+                if (!Literal.TOP.equals(myLiteral)) {
+                    changed = true;
+                }
             }
         }
 
@@ -326,6 +342,9 @@ public class LiteralLatticeElement extends AbstractLatticeElement {
                 myLiteral = getDefaultLiteral(foreignPlace);
                 if (!foreignLiteral.equals(myLiteral)) {
                     this.placeToLit.put(foreignPlace, Literal.TOP);
+                    if (!Literal.TOP.equals(myLiteral)) {
+                        changed = true;
+                    }
                 } else {
                     this.placeToLit.put(foreignPlace, foreignLiteral);
                 }
@@ -341,6 +360,37 @@ public class LiteralLatticeElement extends AbstractLatticeElement {
                 iter.remove();
             }
         }
+
+        return changed;
+    }
+
+//  lubPersistent ******************************************************************
+
+    // lub for persistent maps: only has to consider the mappings that differ
+    // between the two elements; shared subtrees are skipped;
+    // returns whether this element has changed
+    private boolean lubPersistent(LiteralLatticeElement foreign) {
+
+        // lambdas can't assign local variables
+        boolean[] changed = {false};
+
+        ((PersistentHashMap<AbstractTacPlace, Literal>) this.placeToLit).forEachDifference(
+            (PersistentHashMap<AbstractTacPlace, Literal>) foreign.placeToLit,
+            (place, myLiteral, foreignLiteral) -> {
+                Literal defaultLiteral = getDefaultLiteral(place);
+                Literal oldLiteral = myLiteral == null ? defaultLiteral : myLiteral;
+                Literal resultLiteral = lub(oldLiteral, foreignLiteral == null ? defaultLiteral : foreignLiteral);
+                if (!oldLiteral.equals(resultLiteral)) {
+                    changed[0] = true;
+                }
+                if (defaultLiteral.equals(resultLiteral)) {
+                    this.placeToLit.remove(place);
+                } else {
+                    this.placeToLit.put(place, resultLiteral);
+                }
+            });
+
+        return changed[0];
     }
 
 //  lub (static) *******************************************************************
@@ -378,7 +428,7 @@ public class LiteralLatticeElement extends AbstractLatticeElement {
     public void assignSimple(Variable left, AbstractTacPlace right, Set<Variable> mustAliases, Set<Variable> mayAliases) {
 
         // initialize state copy (required by strongOverlap)
-        this.origPlaceToLit = new HashMap<>(this.placeToLit);
+        this.origPlaceToLit = copyMap(this.placeToLit);
 
         // case distinguisher for the left variable
         int leftCase;
@@ -809,7 +859,7 @@ public class LiteralLatticeElement extends AbstractLatticeElement {
 //  strongOverlap ******************************************************************
 
     // before calling this function, don't forget to
-    // initialize origPlaceToLit: new HashMap(this.placeToLit)
+    // initialize origPlaceToLit: copyMap(this.placeToLit)
     private void strongOverlap(Variable target, AbstractTacPlace source) {
 
         Literal sourceLit = this.getOrigLiteral(source);
@@ -847,7 +897,7 @@ public class LiteralLatticeElement extends AbstractLatticeElement {
 //  weakOverlap ********************************************************************
 
     // before calling this function, don't forget to
-    // initialize origPlaceToLit: new HashMap(this.placeToLit)
+    // initialize origPlaceToLit: copyMap(this.placeToLit)
     private void weakOverlap(Variable target, AbstractTacPlace source) {
 
         Literal sourceLit = this.getOrigLiteral(source);
@@ -911,7 +961,7 @@ public class LiteralLatticeElement extends AbstractLatticeElement {
     public void setFormal(TacFormalParameter formalParam, AbstractTacPlace place) {
 
         // initialize state copy (required by strongOverlap)
-        this.origPlaceToLit = new HashMap<>(this.placeToLit);
+        this.origPlaceToLit = copyMap(this.placeToLit);
 
         Variable formalVar = formalParam.getVariable();
         this.strongOverlap(formalVar, place);
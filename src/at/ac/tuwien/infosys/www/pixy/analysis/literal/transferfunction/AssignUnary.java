@@ -40,13 +40,20 @@ public class AssignUnary extends AbstractTransferFunction {
 // *********************************************************************************
 
     public AbstractLatticeElement transfer(AbstractLatticeElement inX) {
+        LiteralLatticeElement out = new LiteralLatticeElement((LiteralLatticeElement) inX);
+        this.transferInPlace(out);
+        return out;
+    }
+
+    public boolean isInPlace() {
+        return true;
+    }
 
-        LiteralLatticeElement in = (LiteralLatticeElement) inX;
-        LiteralLatticeElement out = new LiteralLatticeElement(in);
+    public void transferInPlace(AbstractLatticeElement element) {
+
+        LiteralLatticeElement out = (LiteralLatticeElement) element;
 
         // let the lattice element handle the details
         out.assignUnary(left, right, op, mustAliases, mayAliases);
-
-        return out;
     }
 }
\ No newline at end of file
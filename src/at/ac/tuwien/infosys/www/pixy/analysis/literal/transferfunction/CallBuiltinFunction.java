@@ -30,9 +30,18 @@ public class CallBuiltinFunction extends AbstractTransferFunction {
 // *********************************************************************************
 
     public AbstractLatticeElement transfer(AbstractLatticeElement inX) {
+        LiteralLatticeElement out = new LiteralLatticeElement((LiteralLatticeElement) inX);
+        this.transferInPlace(out);
+        return out;
+    }
+
+    public boolean isInPlace() {
+        return true;
+    }
 
-        LiteralLatticeElement in = (LiteralLatticeElement) inX;
-        LiteralLatticeElement out = new LiteralLatticeElement(in);
+    public void transferInPlace(AbstractLatticeElement element) {
+
+        LiteralLatticeElement out = (LiteralLatticeElement) element;
 
         // SIMULATION OF BUILTIN FUNCTIONS
         // ...by letting the php binary do the work
@@ -46,12 +55,12 @@ public class CallBuiltinFunction extends AbstractTransferFunction {
         } else {
             switch (functionName) {
                 case "realpath": {
-                    Literal resultLit = this.simulate(in, functionName);
+                    Literal resultLit = this.simulate(out, functionName);
                     out.handleReturnValue(this.cfgNode.getTempVar(), resultLit);
                     break;
                 }
                 case "dirname": {
-                    Literal resultLit = this.simulate(in, functionName);
+                    Literal resultLit = this.simulate(out, functionName);
                     out.handleReturnValue(this.cfgNode.getTempVar(), resultLit);
                     break;
                 }
@@ -61,8 +70,6 @@ public class CallBuiltinFunction extends AbstractTransferFunction {
                     break;
             }
         }
-
-        return out;
     }
 
     private Literal simulate(LiteralLatticeElement in, String functionName) {
@@ -39,14 +39,23 @@ public class Define extends AbstractTransferFunction {
 // *********************************************************************************
 
     public AbstractLatticeElement transfer(AbstractLatticeElement inX) {
+        LiteralLatticeElement out = new LiteralLatticeElement((LiteralLatticeElement) inX);
+        this.transferInPlace(out);
+        return out;
+    }
+
+    public boolean isInPlace() {
+        return true;
+    }
 
-        LiteralLatticeElement in = (LiteralLatticeElement) inX;
-        LiteralLatticeElement out = new LiteralLatticeElement(in);
+    public void transferInPlace(AbstractLatticeElement element) {
+
+        LiteralLatticeElement out = (LiteralLatticeElement) element;
 
         // retrieve the literal of the constant to be set
         // (for example: define($foo, 'bla') with $foo == ABC,
         // => constantLit == ABC
-        Literal constantLit = in.getLiteral(this.setMe);
+        Literal constantLit = out.getLiteral(this.setMe);
 
         // if we can't resolve the constant that is to be set, we can't do
         // anything; example: define($foo, 'bla', true) with unknown $foo;
@@ -56,14 +65,14 @@ public class Define extends AbstractTransferFunction {
         if (constantLit == Literal.TOP) {
             System.out.println("Warning: can't resolve constant to be defined");
             System.out.println("- " + cfgNode.getFileName() + ":" + cfgNode.getOriginalLineNumber());
-            return out;
+            return;
         }
 
         // retrieve the literal that the constant shall be set to
-        Literal valueLit = in.getLiteral(this.setTo);
+        Literal valueLit = out.getLiteral(this.setTo);
 
         // determine the (boolean) literal of the case flag
-        Literal caseLit = in.getLiteral(this.caseInsensitive).getBoolValueLiteral();
+        Literal caseLit = out.getLiteral(this.caseInsensitive).getBoolValueLiteral();
 
         if (caseLit == Literal.TRUE) {
             // define insensitive constant
@@ -127,7 +136,5 @@ public class Define extends AbstractTransferFunction {
         } else {
             throw new RuntimeException("SNH");
         }
-
-        return out;
     }
 }
\ No newline at end of file
@@ -34,10 +34,19 @@ public class Isset extends AbstractTransferFunction {
 // *********************************************************************************
 
     public AbstractLatticeElement transfer(AbstractLatticeElement inX) {
+        LiteralLatticeElement out = new LiteralLatticeElement((LiteralLatticeElement) inX);
+        this.transferInPlace(out);
+        return out;
+    }
+
+    public boolean isInPlace() {
+        return true;
+    }
+
+    public void transferInPlace(AbstractLatticeElement element) {
 
         // System.out.println("transfer method: " + setMe + " = " + setTo);
-        LiteralLatticeElement in = (LiteralLatticeElement) inX;
-        LiteralLatticeElement out = new LiteralLatticeElement(in);
+        LiteralLatticeElement out = (LiteralLatticeElement) element;
 
         if (!setMe.isTemp()) {
             throw new RuntimeException("SNH");
@@ -49,7 +58,5 @@ public class Isset extends AbstractTransferFunction {
         mustAliases.add(setMe);
         Set<Variable> mayAliases = Collections.emptySet();
         out.assignSimple(setMe, Literal.TOP, mustAliases, mayAliases);
-
-        return out;
     }
 }
\ No newline at end of file
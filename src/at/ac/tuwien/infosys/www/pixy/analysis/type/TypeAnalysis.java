@@ -86,6 +86,10 @@ public class TypeAnalysis extends AbstractInterproceduralAnalysis {
         return this.repos.recycle(recycleMe);
     }
 
+    public GenericRepository<?> getRepository() {
+        return this.repos;
+    }
+
 //  ********************************************************************************
 //  TRANSFER FUNCTION GENERATORS ***************************************************
 //  ********************************************************************************
@@ -55,4 +55,21 @@ public class TypeLattice extends AbstractLattice {
 
         return resultElement;
     }
+
+    // see AbstractLattice.lubUpdate
+    public AbstractLatticeElement lubUpdate(
+        AbstractLatticeElement incomingElementX,
+        AbstractLatticeElement targetElementX) {
+
+        // lub with bottom doesn't change anything
+        if (incomingElementX == this.bottom) {
+            return targetElementX;
+        }
+        if (targetElementX == this.bottom) {
+            return incomingElementX.cloneMe();
+        }
+
+        TypeLatticeElement resultElement = new TypeLatticeElement((TypeLatticeElement) targetElementX);
+        return resultElement.lubChanged(incomingElementX) ? resultElement : targetElementX;
+    }
 }
\ No newline at end of file
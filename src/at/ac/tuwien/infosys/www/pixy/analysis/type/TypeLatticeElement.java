@@ -27,6 +27,12 @@ public class TypeLatticeElement extends AbstractLatticeElement {
 
     // lubs the given lattice element over <<this>> lattice element
     public void lub(AbstractLatticeElement foreignX) {
+        this.lubChanged(foreignX);
+    }
+
+    // like lub, and returns whether this element has changed
+    public boolean lubChanged(AbstractLatticeElement foreignX) {
+        boolean changed = false;
         // for all foreign mappings...
         for (Map.Entry<Variable, Set<Type>> entry : ((TypeLatticeElement) foreignX).var2Type.entrySet()) {
             Variable foreignVar = entry.getKey();
@@ -34,14 +40,22 @@ public class TypeLatticeElement extends AbstractLatticeElement {
             Set<Type> myTypes = this.var2Type.get(foreignVar);
             if (this.var2Type.containsKey(foreignVar)) {
                 // if we already have a mapping for this variable:
-                // union over the types
-                myTypes.addAll(foreignTypes);
+                // union over the types; copy-on-write, since the type sets are
+                // shared with the elements that this one was cloned from
+                if (!myTypes.containsAll(foreignTypes)) {
+                    Set<Type> newTypes = new HashSet<>(myTypes);
+                    newTypes.addAll(foreignTypes);
+                    this.var2Type.put(foreignVar, newTypes);
+                    changed = true;
+                }
             } else {
                 // if we don't have a mapping for this variable yet:
                 // add this mapping
                 this.var2Type.put(foreignVar, foreignTypes);
+                changed = true;
             }
         }
+        return changed;
     }
 
     public void setTypeString(Variable var, String className) {
@@ -55,10 +55,24 @@ import java.util.*;
  * @author Anders M&oslash;ller &lt;<a href="mailto:amoeller@brics.dk">amoeller@brics.dk</a>&gt;
  */
 public class Automaton
-    implements Serializable, Cloneable {
+    implements Serializable, Cloneable, TaintAutomaton<Automaton> {
 
     static final long serialVersionUID = 10001;
 
+    public static final TaintAutomatonFactory<Automaton> FACTORY = new TaintAutomatonFactory<Automaton>() {
+        public Automaton makeString(String s) {
+            return Automaton.makeString(s);
+        }
+
+        public Automaton makeAnyString(Transition.Taint taint) {
+            return Automaton.makeAnyString(taint);
+        }
+
+        public Automaton fromAutomaton(Automaton a) {
+            return a;
+        }
+    };
+
     /**
      * Minimize using Huffman's O(n<sup>2</sup>) algorithm.
      * This is the standard text-book algorithm.
@@ -139,8 +153,76 @@ public class Automaton
     // (with respect to "apostrophe areas"); if there are indirectly tainted
     // transitions with a [closed] source state, it means that we have a
     // problem => returns true; else: false
+    //
+    // since [closed] is the top of the lattice, the info of a [closed] state
+    // does not change any more; its transitions are therefore checked as soon
+    // as it becomes [closed], and the analysis stops at the first dangerous one
     public boolean hasDangerousIndirectTaint() {
 
+        // "data flow analysis information"
+        Map<State, Integer> dfi = new HashMap<>();
+        int open = 0;
+        int closed = 1;
+        dfi.put(this.initial, closed);
+        if (this.hasIndirectlyTaintedTransition(this.initial)) {
+            return true;
+        }
+
+        // initialize worklist with start state
+        LinkedList<State> worklist = new LinkedList<>();
+        worklist.add(this.initial);
+
+        while (worklist.size() > 0) {
+            State source = worklist.removeFirst();
+            int sourceInfo = dfi.get(source);
+
+            for (Transition t : source.transitions) {
+                // if the current transition is labeled with a quote,
+                // "flip" the info that is to be propagated
+                int propagate = sourceInfo;
+                if (isUnescapedQuote(t)) {
+                    propagate = (sourceInfo == open) ? closed : open;
+                }
+
+                // propagate to target state
+                State target = t.getDest();
+                Integer targetInfo = dfi.get(target);
+                if (targetInfo == null || this.lub(propagate, targetInfo) != targetInfo) {
+                    // the target node has not been visited yet, or its info changes
+                    int newInfo = (targetInfo == null) ? propagate : closed;
+                    dfi.put(target, newInfo);
+                    if (newInfo == closed && this.hasIndirectlyTaintedTransition(target)) {
+                        // detected indirect vulnerability!
+                        return true;
+                    }
+                    worklist.add(target);
+                }
+            }
+        }
+
+        return false;
+    }
+
+    // helper for hasDangerousIndirectTaint(): indirectly tainted characters are escaped
+    // (see Transducers.addslashes), so their quotes do not end quoted areas
+    private static boolean isUnescapedQuote(Transition t) {
+        return (t.min == '"' || t.min == '\'') && t.taint != Transition.Taint.Indirectly;
+    }
+
+    // helper for hasDangerousIndirectTaint()
+    private boolean hasIndirectlyTaintedTransition(State state) {
+        for (Transition t : state.transitions) {
+            if (t.taint == Transition.Taint.Indirectly) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // the same as hasDangerousIndirectTaint(), but computes the information for
+    // all states before looking at the transitions (for cross-checking)
+    public boolean hasDangerousIndirectTaintEager() {
+
         // "data flow analysis information"
         Map<State, Integer> dfi = new HashMap<>();
         int open = 0;
@@ -165,7 +247,7 @@ public class Automaton
                 }
                 // if the current transition is labeled with one of these,
                 // "flip" the info that is to be propagated
-                if (t.min == '"' || t.min == '\'') {
+                if (isUnescapedQuote(t)) {
                     if (sourceInfo == open) {
                         propagate = closed;
                     } else if (sourceInfo == closed) {
@@ -585,6 +667,17 @@ public class Automaton
      * (a state is "dead" if no accept state is reachable from it).
      */
     public void removeDeadTransitions() {
+        if (isSingleton())
+            return;
+        removeDeadStates();
+        reduce();
+    }
+
+    /**
+     * Removes transitions to dead states, without calling {@link #reduce()}
+     * (which does not keep the taint of the transitions).
+     */
+    void removeDeadStates() {
         if (isSingleton())
             return;
         Set<State> states = getStates();
@@ -596,7 +689,6 @@ public class Automaton
                 if (live.contains(t.to))
                     s.transitions.add(t);
         }
-        reduce();
     }
 
     /**
@@ -672,6 +764,24 @@ public class Automaton
         return a;
     }
 
+    /**
+     * Returns new (deterministic) automaton that accepts a single char
+     * whose value is in the given set (indexed by the char values).
+     */
+    public static Automaton makeCharSet(BitSet chars) {
+        Automaton a = new Automaton();
+        State s = new State();
+        s.accept = true;
+        int min = chars.nextSetBit(0);
+        while (min >= 0 && min <= Character.MAX_VALUE) {
+            int max = Math.min(chars.nextClearBit(min) - 1, Character.MAX_VALUE);
+            a.initial.transitions.add(new Transition((char) min, (char) max, s));
+            min = chars.nextSetBit(max + 1);
+        }
+        a.deterministic = true;
+        return a;
+    }
+
     /**
      * Constructs sub-automaton corresponding to decimal numbers of
      * length x.substring(n).length().
@@ -867,6 +977,44 @@ public class Automaton
         return a;
     }
 
+    /**
+     * Returns new automaton that accepts the prefixes of the strings that are
+     * accepted by this automaton.
+     * <p/>
+     * Complexity: linear in number of states.
+     */
+    public Automaton prefixes() {
+        Automaton a = cloneExpanded();
+        a.removeDeadStates();
+        if (a.isEmpty())
+            return makeEmpty();
+        // all remaining states are live
+        for (State p : a.getStates())
+            p.accept = true;
+        a.checkMinimizeAlways();
+        return a;
+    }
+
+    /**
+     * Returns new automaton that accepts the suffixes of the strings that are
+     * accepted by this automaton.
+     * <p/>
+     * Complexity: linear in number of states.
+     */
+    public Automaton suffixes() {
+        Automaton a = cloneExpanded();
+        a.removeDeadStates();
+        if (a.isEmpty())
+            return makeEmpty();
+        State s = new State();
+        for (State p : a.getStates())
+            s.addEpsilon(p);
+        a.initial = s;
+        a.deterministic = false;
+        a.checkMinimizeAlways();
+        return a;
+    }
+
     /**
      * Returns new (deterministic) automaton that accepts the complement of the
      * language of this automaton.
@@ -1657,10 +1805,101 @@ public class Automaton
 
     /**
      * Returns true if the language of this automaton is a subset of the
-     * language of the given automaton. Implemented using
-     * <code>this.intersection(a.complement()).isEmpty()</code>.
+     * language of the given automaton. Explores the pairs of a state of this
+     * automaton and a set of states of the given automaton (the subset
+     * construction of the given automaton, on the fly), and stops at the first
+     * pair that accepts a string that the given automaton does not accept.
+     * Pairs whose state set includes the set of another pair with the same
+     * state are not explored, since they cannot lead to other counterexamples
+     * (antichains, see De Wulf et al., CAV 2006).
+     * <p/>
+     * Unlike {@link #subsetOfEager(Automaton)}, neither automaton is
+     * modified, and no automaton is built.
      */
     public boolean subsetOf(Automaton a) {
+        if (a == this)
+            return true;
+        if (isSingleton() && a.isSingleton())
+            return singleton.equals(a.singleton);
+
+        State initial1 = getInitialStateCopy();
+        Set<State> initial2 = Collections.singleton(a.getInitialStateCopy());
+        if (initial1.accept && !initial2.iterator().next().accept)
+            return false;
+
+        // state of this automaton -> minimal state sets of the given automaton
+        Map<State, List<Set<State>>> antichain = new HashMap<>();
+        antichain.put(initial1, new LinkedList<Set<State>>());
+        antichain.get(initial1).add(initial2);
+        LinkedList<State> worklist1 = new LinkedList<>();
+        LinkedList<Set<State>> worklist2 = new LinkedList<>();
+        worklist1.add(initial1);
+        worklist2.add(initial2);
+
+        while (worklist1.size() > 0) {
+            State p = worklist1.removeFirst();
+            Set<State> set = worklist2.removeFirst();
+            for (Transition t : p.transitions) {
+                // the successor sets only change at the borders of the transitions of the set
+                SortedSet<Integer> points = new TreeSet<>();
+                points.add((int) t.min);
+                for (State q : set) {
+                    for (Transition u : q.transitions) {
+                        if (u.min > t.min && u.min <= t.max)
+                            points.add((int) u.min);
+                        if (u.max >= t.min && u.max < t.max)
+                            points.add(u.max + 1);
+                    }
+                }
+                for (int c : points) {
+                    Set<State> successors = new HashSet<>();
+                    boolean accept = false;
+                    for (State q : set) {
+                        for (Transition u : q.transitions) {
+                            if (u.min <= c && c <= u.max) {
+                                successors.add(u.to);
+                                accept |= u.to.accept;
+                            }
+                        }
+                    }
+                    if (t.to.accept && !accept)
+                        return false;
+                    if (addToAntichain(antichain, t.to, successors)) {
+                        worklist1.add(t.to);
+                        worklist2.add(successors);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    // adds the given state set to the antichain of the given state, unless it includes
+    // one of the sets that are already there; returns true if it was added
+    private static boolean addToAntichain(Map<State, List<Set<State>>> antichain, State state, Set<State> set) {
+        List<Set<State>> sets = antichain.get(state);
+        if (sets == null) {
+            sets = new LinkedList<>();
+            antichain.put(state, sets);
+        }
+        for (Iterator<Set<State>> iter = sets.iterator(); iter.hasNext(); ) {
+            Set<State> other = iter.next();
+            if (set.containsAll(other))
+                return false;
+            if (other.containsAll(set))
+                iter.remove();
+        }
+        sets.add(set);
+        return true;
+    }
+
+    /**
+     * Returns true if the language of this automaton is a subset of the
+     * language of the given automaton. Implemented using
+     * <code>this.intersection(a.complement()).isEmpty()</code>, for
+     * cross-checking {@link #subsetOf(Automaton)}.
+     */
+    public boolean subsetOfEager(Automaton a) {
         if (a == this)
             return true;
         if (isSingleton()) {
@@ -1671,6 +1910,67 @@ public class Automaton
         return intersection(a.complement()).isEmpty();
     }
 
+    /**
+     * Returns true if this and the given automaton accept a common string,
+     * i.e., if <code>!this.intersection(a).isEmpty()</code>. Explores the
+     * product of the two automata on the fly, and stops at the first pair of
+     * accept states. Neither automaton is modified.
+     */
+    public boolean intersects(Automaton a) {
+        return intersects(a, false);
+    }
+
+    /**
+     * Returns true if this and the given automaton accept a common string
+     * other than the empty string (see {@link #intersects(Automaton)}).
+     */
+    public boolean intersectsNonEmpty(Automaton a) {
+        return intersects(a, true);
+    }
+
+    private boolean intersects(Automaton a, boolean nonEmpty) {
+        State initial1 = getInitialStateCopy();
+        State initial2 = a.getInitialStateCopy();
+        if (!nonEmpty && initial1.accept && initial2.accept)
+            return true;
+
+        // the initial pair is only visited once it is reached with a non-empty string
+        Set<StatePair> visited = new HashSet<>();
+        LinkedList<StatePair> worklist = new LinkedList<>();
+        StatePair start = new StatePair(initial1, initial2);
+        while (start != null) {
+            for (Transition t1 : start.s1.transitions) {
+                for (Transition t2 : start.s2.transitions) {
+                    if (t1.min <= t2.max && t2.min <= t1.max) {
+                        if (t1.to.accept && t2.to.accept)
+                            return true;
+                        StatePair successor = new StatePair(t1.to, t2.to);
+                        if (visited.add(successor))
+                            worklist.add(successor);
+                    }
+                }
+            }
+            start = worklist.poll();
+        }
+        return false;
+    }
+
+    // returns the initial state; for singletons, a new path of states
+    // that accepts the singleton (leaving this automaton unchanged)
+    private State getInitialStateCopy() {
+        if (!isSingleton())
+            return initial;
+        State first = new State();
+        State p = first;
+        for (int i = 0; i < singleton.length(); i++) {
+            State q = new State();
+            p.transitions.add(new Transition(singleton.charAt(i), q));
+            p = q;
+        }
+        p.accept = true;
+        return first;
+    }
+
     /**
      * Returns true if the language of this automaton is equal to the language
      * of the given automaton. Implemented using <code>hashCode</code> and
@@ -1875,6 +2175,10 @@ public class Automaton
         return a;
     }
 
+    public Automaton toAutomaton() {
+        return this;
+    }
+
     /**
      * Returns a clone of this automaton.
      */
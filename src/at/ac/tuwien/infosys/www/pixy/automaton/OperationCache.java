@@ -0,0 +1,106 @@
+package at.ac.tuwien.infosys.www.pixy.automaton;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache for the results of automaton operations, keyed by the operation and the identity of the
+ * operands. This only pays off for hash-consed automata (see PackedAutomaton.repos and JavaAutomaton.repos),
+ * where equal automata are the same object. If the cache is full, the least recently used entry is dropped.
+ *
+ * The operands and results must be immutable. Several threads can use the cache at the same time.
+ *
+ * @param <R> the type of the results
+ */
+public final class OperationCache<R> {
+    private final int capacity;
+    private final LinkedHashMap<Key, R> entries;
+
+    private long hits;
+    private long misses;
+
+    public OperationCache(final int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Key, R>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Key, R> eldest) {
+                return this.size() > capacity;
+            }
+        };
+    }
+
+//  ********************************************************************************
+
+    // returns the cached result of the given operation, or null if there is none;
+    // the operation is compared with equals (and can therefore contain further
+    // arguments, such as strings), the operands with ==
+    public synchronized R get(Object operation, Object operand1, Object operand2) {
+        R result = this.entries.get(new Key(operation, operand1, operand2));
+        if (result == null) {
+            this.misses++;
+        } else {
+            this.hits++;
+        }
+        return result;
+    }
+
+    public synchronized void put(Object operation, Object operand1, Object operand2, R result) {
+        this.entries.put(new Key(operation, operand1, operand2), result);
+    }
+
+    public synchronized void clear() {
+        this.entries.clear();
+        this.hits = 0;
+        this.misses = 0;
+    }
+
+//  statistics *********************************************************************
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    // number of get calls that found a result
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    // number of get calls that did not find a result
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    public synchronized String getStatistics() {
+        return "size: " + this.entries.size() + " (max " + this.capacity + "), hits: " + this.hits
+            + ", misses: " + this.misses;
+    }
+
+//  ********************************************************************************
+
+    private static final class Key {
+        private final Object operation;
+        private final Object operand1;
+        private final Object operand2;
+        private final int hash;
+
+        Key(Object operation, Object operand1, Object operand2) {
+            this.operation = operation;
+            this.operand1 = operand1;
+            this.operand2 = operand2;
+            this.hash = 31 * (31 * operation.hashCode() + System.identityHashCode(operand1))
+                + System.identityHashCode(operand2);
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) obj;
+            return this.operand1 == key.operand1 && this.operand2 == key.operand2
+                && this.operation.equals(key.operation);
+        }
+
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
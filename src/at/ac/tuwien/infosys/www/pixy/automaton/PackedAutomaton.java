@@ -0,0 +1,1009 @@
+package at.ac.tuwien.infosys.www.pixy.automaton;
+
+import at.ac.tuwien.infosys.www.pixy.analysis.GenericRepository;
+import at.ac.tuwien.infosys.www.pixy.analysis.Recyclable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable taint automaton that stores its states and transitions in arrays instead of State and Transition
+ * objects (see Automaton).
+ *
+ * The states are numbered from 0 to getNumberOfStates() - 1. The transitions of state s are at the indices first[s]
+ * to first[s + 1] - 1 of the parallel arrays min, max, to and taint, sorted by (min, max, taint); transitions with
+ * the same label stay in the order in which they were added. As in Automaton, all states are reachable from the
+ * initial state, and concatenate and union build nondeterministic automata for the same languages as their
+ * counterparts there, so that the taint checks give the same results (see SQLTestCasePacked). The automata are
+ * not always structurally the same, though: since equal operands are the same object (see below), a union of
+ * an automaton with itself only has one copy of it, so toDotUnique can give a different output.
+ *
+ * Unlike the ones of Automaton, determinize and minimize keep the taint of the transitions.
+ *
+ * The automata are hash-consed (see GenericRepository): the states are numbered breadth-first from the initial
+ * state, following the transitions in their order, so that automata with the same structure have the same arrays,
+ * and only one of them is kept. Since the operations only depend on the structure, their results are cached for
+ * the identity of the operands (see OperationCache); this way, the automata for fragments that many queries have
+ * in common are only built once.
+ *
+ * @author Nenad Jovanovic <enji@seclab.tuwien.ac.at>
+ */
+public final class PackedAutomaton implements TaintAutomaton<PackedAutomaton>, Recyclable {
+    // weak: automata that are no longer used can be collected
+    public static final GenericRepository<PackedAutomaton> repos = new GenericRepository<>(true);
+
+    public static final OperationCache<PackedAutomaton> operations = new OperationCache<>(1024);
+
+    public static final TaintAutomatonFactory<PackedAutomaton> FACTORY = new TaintAutomatonFactory<PackedAutomaton>() {
+        public PackedAutomaton makeString(String s) {
+            return PackedAutomaton.makeString(s);
+        }
+
+        public PackedAutomaton makeAnyString(Transition.Taint taint) {
+            return PackedAutomaton.makeAnyString(taint);
+        }
+
+        public PackedAutomaton fromAutomaton(Automaton a) {
+            return PackedAutomaton.fromAutomaton(a);
+        }
+    };
+
+    private static final Transition.Taint[] TAINTS = Transition.Taint.values();
+    private static final byte UNTAINTED = (byte) Transition.Taint.Untainted.ordinal();
+    private static final byte INDIRECTLY = (byte) Transition.Taint.Indirectly.ordinal();
+    private static final byte DIRECTLY = (byte) Transition.Taint.Directly.ordinal();
+
+    private final int initial;
+    private final boolean[] accept;
+
+    // state -> index of its first transition; first[getNumberOfStates()] is the number of transitions
+    private final int[] first;
+
+    private final char[] min;
+    private final char[] max;
+    private final int[] to;
+    // Transition.Taint ordinals
+    private final byte[] taint;
+
+    // the accepted string if this automaton was made from a single string (see Automaton.singleton);
+    // null otherwise
+    private final String singleton;
+
+    // if true, this automaton is definitely deterministic
+    private final boolean deterministic;
+
+    private final int hashCode;
+
+//  ********************************************************************************
+
+    private PackedAutomaton(
+        int initial, boolean[] accept, int[] first, char[] min, char[] max, int[] to, byte[] taint,
+        String singleton, boolean deterministic
+    ) {
+        this.initial = initial;
+        this.accept = accept;
+        this.first = first;
+        this.min = min;
+        this.max = max;
+        this.to = to;
+        this.taint = taint;
+        this.singleton = singleton;
+        this.deterministic = deterministic;
+
+        int hash = 31 * initial + Arrays.hashCode(accept);
+        hash = 31 * hash + Arrays.hashCode(first);
+        hash = 31 * hash + Arrays.hashCode(min);
+        hash = 31 * hash + Arrays.hashCode(max);
+        hash = 31 * hash + Arrays.hashCode(to);
+        hash = 31 * hash + Arrays.hashCode(taint);
+        hash = 31 * hash + (singleton == null ? 0 : singleton.hashCode());
+        this.hashCode = 2 * hash + (deterministic ? 1 : 0);
+    }
+
+//  ********************************************************************************
+
+    // forgets all automata and cached results
+    public static void reset() {
+        repos.clear();
+        operations.clear();
+    }
+
+    public boolean structureEquals(Object compX) {
+        if (compX == this) {
+            return true;
+        }
+        if (!(compX instanceof PackedAutomaton)) {
+            return false;
+        }
+        PackedAutomaton comp = (PackedAutomaton) compX;
+        return this.hashCode == comp.hashCode
+            && this.initial == comp.initial
+            && this.deterministic == comp.deterministic
+            && (this.singleton == null ? comp.singleton == null : this.singleton.equals(comp.singleton))
+            && Arrays.equals(this.accept, comp.accept)
+            && Arrays.equals(this.first, comp.first)
+            && Arrays.equals(this.min, comp.min)
+            && Arrays.equals(this.max, comp.max)
+            && Arrays.equals(this.to, comp.to)
+            && Arrays.equals(this.taint, comp.taint);
+    }
+
+    public int structureHashCode() {
+        return this.hashCode;
+    }
+
+//  ********************************************************************************
+
+    // returns a new automaton that accepts the empty language
+    public static PackedAutomaton makeEmpty() {
+        Builder b = new Builder(1, 0);
+        b.addState(false);
+        return b.build(0, null, true);
+    }
+
+    // returns a new automaton that accepts the given (untainted) string
+    public static PackedAutomaton makeString(String s) {
+        Builder b = new Builder(s.length() + 1, s.length());
+        for (int i = 0; i < s.length(); i++) {
+            b.addState(false);
+            b.addTransition(s.charAt(i), s.charAt(i), i + 1, UNTAINTED);
+        }
+        b.addState(true);
+        return b.build(0, s, true);
+    }
+
+    // returns a new automaton that accepts all strings, with the given taint
+    public static PackedAutomaton makeAnyString(Transition.Taint taint) {
+        Builder b = new Builder(1, 1);
+        b.addState(true);
+        b.addTransition(Character.MIN_VALUE, Character.MAX_VALUE, 0, (byte) taint.ordinal());
+        return b.build(0, null, true);
+    }
+
+    // converts the given automaton, keeping its structure
+    public static PackedAutomaton fromAutomaton(Automaton a) {
+        if (a.isSingleton()) {
+            return makeString(a.singleton);
+        }
+
+        Set<State> states = a.getStates();
+        Map<State, Integer> ids = new HashMap<>();
+        for (State s : states) {
+            ids.put(s, ids.size());
+        }
+
+        Builder b = new Builder(states.size(), a.getNumberOfTransitions());
+        for (State s : states) {
+            b.addState(s.accept);
+            for (Transition t : s.transitions) {
+                b.addTransition(t.min, t.max, ids.get(t.to), (byte) t.taint.ordinal());
+            }
+        }
+        return b.build(ids.get(a.initial), null, a.deterministic);
+    }
+
+    // converts this automaton into a new Automaton with the same structure
+    public Automaton toAutomaton() {
+        if (this.singleton != null) {
+            return Automaton.makeString(this.singleton);
+        }
+
+        State[] states = new State[this.getNumberOfStates()];
+        for (int s = 0; s < states.length; s++) {
+            states[s] = new State();
+            states[s].accept = this.accept[s];
+        }
+        for (int s = 0; s < states.length; s++) {
+            for (int t = this.first[s]; t < this.first[s + 1]; t++) {
+                states[s].transitions.add(new Transition(this.min[t], this.max[t], states[this.to[t]], TAINTS[this.taint[t]]));
+            }
+        }
+
+        Automaton a = new Automaton();
+        a.initial = states[this.initial];
+        a.deterministic = this.deterministic;
+        return a;
+    }
+
+//  ********************************************************************************
+
+    // returns a new automaton that accepts the concatenation of the languages of this and the given automaton
+    // (the accept states of this automaton get the transitions of the initial state of the given one)
+    public PackedAutomaton concatenate(PackedAutomaton a) {
+        if (this.singleton != null && a.singleton != null) {
+            return makeString(this.singleton + a.singleton);
+        }
+        PackedAutomaton cached = operations.get("concatenate", this, a);
+        if (cached != null) {
+            return cached;
+        }
+
+        int offset = this.getNumberOfStates();
+        Builder b = new Builder(offset + a.getNumberOfStates(), this.getNumberOfTransitions() + a.getNumberOfTransitions());
+        for (int s = 0; s < offset; s++) {
+            if (this.accept[s]) {
+                b.addState(a.accept[a.initial]);
+                b.copyTransitions(this, s, 0);
+                b.copyTransitions(a, a.initial, offset);
+            } else {
+                b.addState(false);
+                b.copyTransitions(this, s, 0);
+            }
+        }
+        for (int s = 0; s < a.getNumberOfStates(); s++) {
+            b.addState(a.accept[s]);
+            b.copyTransitions(a, s, offset);
+        }
+        PackedAutomaton result = b.build(this.initial, null, false);
+        operations.put("concatenate", this, a, result);
+        return result;
+    }
+
+    // returns a new automaton that accepts the union of the languages of this and the given automaton
+    // (a new initial state gets the transitions of the initial states of both)
+    public PackedAutomaton union(PackedAutomaton a) {
+        if (a == this || (this.singleton != null && this.singleton.equals(a.singleton))) {
+            return this;
+        }
+        PackedAutomaton cached = operations.get("union", this, a);
+        if (cached != null) {
+            return cached;
+        }
+
+        int offsetA = 1;
+        int offsetThis = offsetA + a.getNumberOfStates();
+        Builder b = new Builder(
+            offsetThis + this.getNumberOfStates(),
+            2 * (this.getNumberOfTransitions() + a.getNumberOfTransitions()));
+        b.addState(a.accept[a.initial] || this.accept[this.initial]);
+        b.copyTransitions(a, a.initial, offsetA);
+        b.copyTransitions(this, this.initial, offsetThis);
+        for (int s = 0; s < a.getNumberOfStates(); s++) {
+            b.addState(a.accept[s]);
+            b.copyTransitions(a, s, offsetA);
+        }
+        for (int s = 0; s < this.getNumberOfStates(); s++) {
+            b.addState(this.accept[s]);
+            b.copyTransitions(this, s, offsetThis);
+        }
+        PackedAutomaton result = b.build(0, null, false);
+        operations.put("union", this, a, result);
+        return result;
+    }
+
+    // returns an equivalent deterministic automaton (subset construction); a transition of the
+    // result gets the greatest taint of the transitions that it stands for
+    public PackedAutomaton determinize() {
+        if (this.deterministic) {
+            return this;
+        }
+        PackedAutomaton cached = operations.get("determinize", this, null);
+        if (cached != null) {
+            return cached;
+        }
+
+        char[] points = this.getStartPoints();
+        List<int[]> targets = new ArrayList<>(points.length);
+        for (int p = 0; p < points.length; p++) {
+            targets.add(new int[4]);
+        }
+        int[] targetCounts = new int[points.length];
+        byte[] targetTaints = new byte[points.length];
+
+        // state sets are discovered and processed in the same order, so the
+        // index of a set in this list is its state in the result
+        List<StateSet> sets = new ArrayList<>();
+        Map<StateSet, Integer> ids = new HashMap<>();
+        StateSet initialSet = new StateSet(new int[]{this.initial});
+        sets.add(initialSet);
+        ids.put(initialSet, 0);
+
+        Builder b = new Builder(this.getNumberOfStates(), this.getNumberOfTransitions());
+        for (int current = 0; current < sets.size(); current++) {
+            int[] members = sets.get(current).states;
+
+            boolean isAccept = false;
+            Arrays.fill(targetCounts, 0);
+            Arrays.fill(targetTaints, UNTAINTED);
+            for (int q : members) {
+                isAccept |= this.accept[q];
+                for (int t = this.first[q]; t < this.first[q + 1]; t++) {
+                    for (int p = Arrays.binarySearch(points, this.min[t]); p < points.length && points[p] <= this.max[t]; p++) {
+                        int[] pTargets = targets.get(p);
+                        if (targetCounts[p] == pTargets.length) {
+                            pTargets = Arrays.copyOf(pTargets, 2 * pTargets.length);
+                            targets.set(p, pTargets);
+                        }
+                        pTargets[targetCounts[p]++] = this.to[t];
+                        if (this.taint[t] > targetTaints[p]) {
+                            targetTaints[p] = this.taint[t];
+                        }
+                    }
+                }
+            }
+
+            b.addState(isAccept);
+            for (int p = 0; p < points.length; p++) {
+                if (targetCounts[p] == 0) {
+                    continue;
+                }
+                StateSet set = new StateSet(targets.get(p), targetCounts[p]);
+                Integer id = ids.get(set);
+                if (id == null) {
+                    id = sets.size();
+                    sets.add(set);
+                    ids.put(set, id);
+                }
+                char pMax = p + 1 < points.length ? (char) (points[p + 1] - 1) : Character.MAX_VALUE;
+                b.addTransition(points[p], pMax, id, targetTaints[p]);
+            }
+        }
+
+        PackedAutomaton result = b.build(0, null, true).removeDeadTransitions();
+        operations.put("determinize", this, null, result);
+        return result;
+    }
+
+    // returns the minimal deterministic automaton for this automaton (Hopcroft's algorithm); the
+    // alphabet consists of pairs of a character interval and a taint, so that only states with
+    // the same taint on the same characters are merged
+    public PackedAutomaton minimize() {
+        PackedAutomaton cached = operations.get("minimize", this, null);
+        if (cached != null) {
+            return cached;
+        }
+        PackedAutomaton result = this.minimizeHopcroft();
+        operations.put("minimize", this, null, result);
+        return result;
+    }
+
+    private PackedAutomaton minimizeHopcroft() {
+        PackedAutomaton d = this.determinize();
+
+        // totalize: state n is a sink for the missing transitions
+        char[] points = d.getStartPoints();
+        int numPoints = points.length;
+        int n = d.getNumberOfStates();
+        int sink = n;
+        int numStates = n + 1;
+        int[] delta = new int[numStates * numPoints];
+        byte[] deltaTaint = new byte[numStates * numPoints];
+        Arrays.fill(delta, sink);
+        for (int s = 0; s < n; s++) {
+            for (int t = d.first[s]; t < d.first[s + 1]; t++) {
+                for (int p = Arrays.binarySearch(points, d.min[t]); p < numPoints && points[p] <= d.max[t]; p++) {
+                    delta[s * numPoints + p] = d.to[t];
+                    deltaTaint[s * numPoints + p] = d.taint[t];
+                }
+            }
+        }
+
+        // symbol c = point * 3 + taint; reverse transitions (symbol, target) -> sources
+        int numSymbols = numPoints * TAINTS.length;
+        int[] reverseFirst = new int[numSymbols * numStates + 1];
+        int[] reverseSources = new int[numSymbols * numStates];
+        for (int pass = 0; pass < 2; pass++) {
+            int[] fill = pass == 0 ? null : Arrays.copyOf(reverseFirst, reverseFirst.length);
+            for (int s = 0; s < numStates; s++) {
+                for (int c = 0; c < numSymbols; c++) {
+                    int slot = c * numStates + symbolTarget(delta, deltaTaint, numPoints, sink, s, c);
+                    if (pass == 0) {
+                        reverseFirst[slot + 1]++;
+                    } else {
+                        reverseSources[fill[slot]++] = s;
+                    }
+                }
+            }
+            if (pass == 0) {
+                for (int i = 1; i < reverseFirst.length; i++) {
+                    reverseFirst[i] += reverseFirst[i - 1];
+                }
+            }
+        }
+
+        // the partition: the states of block b are elements[blockStart[b]] to elements[blockEnd[b] - 1];
+        // the first marked[b] of them are marked
+        int[] block = new int[numStates];
+        int[] elements = new int[numStates];
+        int[] position = new int[numStates];
+        int[] blockStart = new int[numStates];
+        int[] blockEnd = new int[numStates];
+        int[] marked = new int[numStates];
+        int numBlocks = 0;
+        int index = 0;
+        for (int acceptBlock = 1; acceptBlock >= 0; acceptBlock--) {
+            int start = index;
+            for (int s = 0; s < numStates; s++) {
+                if ((s != sink && d.accept[s]) == (acceptBlock == 1)) {
+                    block[s] = numBlocks;
+                    position[s] = index;
+                    elements[index++] = s;
+                }
+            }
+            if (index > start) {
+                blockStart[numBlocks] = start;
+                blockEnd[numBlocks] = index;
+                numBlocks++;
+            }
+        }
+
+        // pending splitters (block, symbol)
+        boolean[] pending = new boolean[numStates * numSymbols];
+        int[] worklist = new int[16];
+        int worklistSize = 0;
+        if (numBlocks == 2) {
+            int smaller = blockEnd[0] - blockStart[0] <= blockEnd[1] - blockStart[1] ? 0 : 1;
+            for (int c = 0; c < numSymbols; c++) {
+                pending[smaller * numSymbols + c] = true;
+                worklist = push(worklist, worklistSize++, smaller * numSymbols + c);
+            }
+        }
+
+        int[] splitter = new int[numStates];
+        int[] touched = new int[numStates];
+        while (worklistSize > 0) {
+            int item = worklist[--worklistSize];
+            pending[item] = false;
+            int splitterBlock = item / numSymbols;
+            int c = item % numSymbols;
+
+            // mark the states with a c-transition into the splitter (a copy, since
+            // marking reorders the elements of the blocks)
+            int splitterSize = blockEnd[splitterBlock] - blockStart[splitterBlock];
+            System.arraycopy(elements, blockStart[splitterBlock], splitter, 0, splitterSize);
+            int numTouched = 0;
+            for (int i = 0; i < splitterSize; i++) {
+                int slot = c * numStates + splitter[i];
+                for (int r = reverseFirst[slot]; r < reverseFirst[slot + 1]; r++) {
+                    int s = reverseSources[r];
+                    int b = block[s];
+                    int firstUnmarked = blockStart[b] + marked[b];
+                    if (position[s] >= firstUnmarked) {
+                        int other = elements[firstUnmarked];
+                        elements[position[s]] = other;
+                        position[other] = position[s];
+                        elements[firstUnmarked] = s;
+                        position[s] = firstUnmarked;
+                        if (marked[b]++ == 0) {
+                            touched[numTouched++] = b;
+                        }
+                    }
+                }
+            }
+
+            // split the blocks that are only partly marked
+            for (int i = 0; i < numTouched; i++) {
+                int b = touched[i];
+                int splitSize = marked[b];
+                marked[b] = 0;
+                if (splitSize == blockEnd[b] - blockStart[b]) {
+                    continue;
+                }
+                int newBlock = numBlocks++;
+                blockStart[newBlock] = blockStart[b];
+                blockEnd[newBlock] = blockStart[b] + splitSize;
+                blockStart[b] = blockEnd[newBlock];
+                for (int e = blockStart[newBlock]; e < blockEnd[newBlock]; e++) {
+                    block[elements[e]] = newBlock;
+                }
+                boolean newIsSmaller = splitSize <= blockEnd[b] - blockStart[b];
+                for (int symbol = 0; symbol < numSymbols; symbol++) {
+                    int add;
+                    if (pending[b * numSymbols + symbol] || newIsSmaller) {
+                        add = newBlock * numSymbols + symbol;
+                    } else {
+                        add = b * numSymbols + symbol;
+                    }
+                    if (!pending[add]) {
+                        pending[add] = true;
+                        worklist = push(worklist, worklistSize++, add);
+                    }
+                }
+            }
+        }
+
+        // one state per block, except for the block of the sink (which contains the dead states)
+        int sinkBlock = block[sink];
+        if (block[d.initial] == sinkBlock) {
+            return makeEmpty();
+        }
+        int[] blockIds = new int[numBlocks];
+        int numIds = 0;
+        for (int b = 0; b < numBlocks; b++) {
+            blockIds[b] = b == sinkBlock ? -1 : numIds++;
+        }
+        Builder builder = new Builder(numIds, d.getNumberOfTransitions());
+        for (int b = 0; b < numBlocks; b++) {
+            if (b == sinkBlock) {
+                continue;
+            }
+            int representative = elements[blockStart[b]];
+            builder.addState(d.accept[representative]);
+            for (int t = d.first[representative]; t < d.first[representative + 1]; t++) {
+                int target = blockIds[block[d.to[t]]];
+                if (target >= 0) {
+                    builder.addTransition(d.min[t], d.max[t], target, d.taint[t]);
+                }
+            }
+        }
+        return builder.build(blockIds[block[d.initial]], null, true).reduce();
+    }
+
+    // helper for minimize(): the target of state s for symbol c
+    private static int symbolTarget(int[] delta, byte[] deltaTaint, int numPoints, int sink, int s, int c) {
+        if (s == sink) {
+            return sink;
+        }
+        int index = s * numPoints + c / TAINTS.length;
+        return deltaTaint[index] == c % TAINTS.length ? delta[index] : sink;
+    }
+
+    // helper for minimize()
+    private static int[] push(int[] stack, int size, int value) {
+        if (size == stack.length) {
+            stack = Arrays.copyOf(stack, 2 * size);
+        }
+        stack[size] = value;
+        return stack;
+    }
+
+    // removes the transitions to states from which no accept state is reachable, and reduces
+    private PackedAutomaton removeDeadTransitions() {
+        int n = this.getNumberOfStates();
+        int[] reverseFirst = new int[n + 1];
+        for (int t = 0; t < this.to.length; t++) {
+            reverseFirst[this.to[t] + 1]++;
+        }
+        for (int s = 0; s < n; s++) {
+            reverseFirst[s + 1] += reverseFirst[s];
+        }
+        int[] fill = Arrays.copyOf(reverseFirst, n);
+        int[] reverseSources = new int[this.to.length];
+        for (int s = 0; s < n; s++) {
+            for (int t = this.first[s]; t < this.first[s + 1]; t++) {
+                reverseSources[fill[this.to[t]]++] = s;
+            }
+        }
+
+        boolean[] live = new boolean[n];
+        int[] worklist = new int[n];
+        int worklistSize = 0;
+        for (int s = 0; s < n; s++) {
+            if (this.accept[s]) {
+                live[s] = true;
+                worklist[worklistSize++] = s;
+            }
+        }
+        while (worklistSize > 0) {
+            int s = worklist[--worklistSize];
+            for (int r = reverseFirst[s]; r < reverseFirst[s + 1]; r++) {
+                if (!live[reverseSources[r]]) {
+                    live[reverseSources[r]] = true;
+                    worklist[worklistSize++] = reverseSources[r];
+                }
+            }
+        }
+
+        Builder b = new Builder(n, this.to.length);
+        for (int s = 0; s < n; s++) {
+            b.addState(this.accept[s]);
+            for (int t = this.first[s]; t < this.first[s + 1]; t++) {
+                if (live[this.to[t]]) {
+                    b.addTransition(this.min[t], this.max[t], this.to[t], this.taint[t]);
+                }
+            }
+        }
+        return b.build(this.initial, this.singleton, this.deterministic).reduce();
+    }
+
+    // combines adjacent and overlapping transitions with the same target and taint (see Automaton.reduce)
+    private PackedAutomaton reduce() {
+        Builder b = new Builder(this.getNumberOfStates(), this.to.length);
+        for (int s = 0; s < this.getNumberOfStates(); s++) {
+            b.addState(this.accept[s]);
+            // the transitions with the same target and taint, by (target, taint, min)
+            Integer[] order = new Integer[this.first[s + 1] - this.first[s]];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = this.first[s] + i;
+            }
+            Arrays.sort(order, new Comparator<Integer>() {
+                public int compare(Integer t1, Integer t2) {
+                    if (to[t1] != to[t2]) {
+                        return Integer.compare(to[t1], to[t2]);
+                    }
+                    if (taint[t1] != taint[t2]) {
+                        return Integer.compare(taint[t1], taint[t2]);
+                    }
+                    return Character.compare(min[t1], min[t2]);
+                }
+            });
+            int i = 0;
+            while (i < order.length) {
+                int t = order[i];
+                int rangeMax = this.max[t];
+                int j = i + 1;
+                while (j < order.length && this.to[order[j]] == this.to[t] && this.taint[order[j]] == this.taint[t]
+                    && this.min[order[j]] <= rangeMax + 1) {
+                    rangeMax = Math.max(rangeMax, this.max[order[j]]);
+                    j++;
+                }
+                b.addTransition(this.min[t], (char) rangeMax, this.to[t], this.taint[t]);
+                i = j;
+            }
+        }
+        return b.build(this.initial, this.singleton, this.deterministic);
+    }
+
+    // returns the sorted start points of the character intervals (see Automaton.getStartPoints)
+    private char[] getStartPoints() {
+        Set<Character> points = new HashSet<>();
+        points.add(Character.MIN_VALUE);
+        for (int t = 0; t < this.to.length; t++) {
+            points.add(this.min[t]);
+            if (this.max[t] < Character.MAX_VALUE) {
+                points.add((char) (this.max[t] + 1));
+            }
+        }
+        char[] ret = new char[points.size()];
+        int i = 0;
+        for (Character point : points) {
+            ret[i++] = point;
+        }
+        Arrays.sort(ret);
+        return ret;
+    }
+
+//  ********************************************************************************
+
+    public boolean hasTaintedTransitions() {
+        for (byte t : this.taint) {
+            if (t != UNTAINTED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean hasDirectlyTaintedTransitions() {
+        for (byte t : this.taint) {
+            if (t == DIRECTLY) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean hasIndirectlyTaintedTransitions() {
+        for (byte t : this.taint) {
+            if (t == INDIRECTLY) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // same analysis as Automaton.hasDangerousIndirectTaint: propagates [open, closed] (with respect to
+    // quotes that are not indirectly tainted) through the states, and returns true if an indirectly tainted
+    // transition leaves a state that can be closed; since closed is the top value, a state is checked when
+    // it becomes closed
+    public boolean hasDangerousIndirectTaint() {
+        int n = this.getNumberOfStates();
+        final byte unknown = 0;
+        final byte open = 1;
+        final byte closed = 2;
+        byte[] info = new byte[n];
+        int[] worklist = new int[n];
+        boolean[] inWorklist = new boolean[n];
+        int worklistSize = 0;
+
+        info[this.initial] = closed;
+        if (this.leavesIndirectly(this.initial)) {
+            return true;
+        }
+        worklist[worklistSize++] = this.initial;
+        inWorklist[this.initial] = true;
+        while (worklistSize > 0) {
+            int source = worklist[--worklistSize];
+            inWorklist[source] = false;
+            for (int t = this.first[source]; t < this.first[source + 1]; t++) {
+                byte propagate = info[source];
+                if ((this.min[t] == '"' || this.min[t] == '\'') && this.taint[t] != INDIRECTLY) {
+                    propagate = propagate == open ? closed : open;
+                }
+                int target = this.to[t];
+                if (propagate > info[target]) {
+                    // unknown -> open, unknown -> closed, or open -> closed
+                    info[target] = propagate;
+                    if (propagate == closed && this.leavesIndirectly(target)) {
+                        return true;
+                    }
+                    if (!inWorklist[target]) {
+                        worklist[worklistSize++] = target;
+                        inWorklist[target] = true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // helper for hasDangerousIndirectTaint()
+    private boolean leavesIndirectly(int s) {
+        for (int t = this.first[s]; t < this.first[s + 1]; t++) {
+            if (this.taint[t] == INDIRECTLY) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+//  ********************************************************************************
+
+    public int getNumberOfStates() {
+        return this.accept.length;
+    }
+
+    public int getNumberOfTransitions() {
+        return this.to.length;
+    }
+
+    public boolean isDeterministic() {
+        return this.deterministic;
+    }
+
+    // returns true if the given string is accepted
+    public boolean run(String s) {
+        boolean[] current = new boolean[this.getNumberOfStates()];
+        current[this.initial] = true;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            boolean[] next = new boolean[current.length];
+            boolean any = false;
+            for (int q = 0; q < current.length; q++) {
+                if (!current[q]) {
+                    continue;
+                }
+                for (int t = this.first[q]; t < this.first[q + 1] && this.min[t] <= c; t++) {
+                    if (c <= this.max[t]) {
+                        next[this.to[t]] = true;
+                        any = true;
+                    }
+                }
+            }
+            if (!any) {
+                return false;
+            }
+            current = next;
+        }
+        for (int q = 0; q < current.length; q++) {
+            if (current[q] && this.accept[q]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // same output as Automaton.toDotUnique: the states are numbered breadth-first, following
+    // the transitions in the order (min, max, taint)
+    public String toDotUnique() {
+        int n = this.getNumberOfStates();
+        int[] numbers = new int[n];
+        int[] byNumber = new int[n];
+        Arrays.fill(numbers, -1);
+        numbers[this.initial] = 0;
+        byNumber[0] = this.initial;
+        int numbered = 1;
+        for (int i = 0; i < numbered; i++) {
+            int s = byNumber[i];
+            for (int t = this.first[s]; t < this.first[s + 1]; t++) {
+                if (numbers[this.to[t]] < 0) {
+                    numbers[this.to[t]] = numbered;
+                    byNumber[numbered++] = this.to[t];
+                }
+            }
+        }
+
+        StringBuilder b = new StringBuilder("digraph Automaton {\n");
+        b.append("  rankdir = LR;\n");
+        for (int i = 0; i < numbered; i++) {
+            int s = byNumber[i];
+            b.append("  ").append(i);
+            if (this.accept[s]) {
+                b.append(" [shape=doublecircle,label=\"\"];\n");
+            } else {
+                b.append(" [shape=circle,label=\"\"];\n");
+            }
+            if (s == this.initial) {
+                b.append("  initial [shape=plaintext,label=\"\"];\n");
+                b.append("  initial -> ").append(i).append("\n");
+            }
+            for (int t = this.first[s]; t < this.first[s + 1]; t++) {
+                b.append("  ").append(i);
+                b.append(" -> ").append(numbers[this.to[t]]).append(" [label=\"");
+                if (this.min[t] == Character.MIN_VALUE && this.max[t] == Character.MAX_VALUE) {
+                    b.append("@");
+                } else {
+                    Transition.appendCharString(this.min[t], b);
+                    if (this.min[t] != this.max[t]) {
+                        b.append("-");
+                        Transition.appendCharString(this.max[t], b);
+                    }
+                }
+                String color = "";
+                if (this.taint[t] == DIRECTLY) {
+                    color = ",color=red";
+                } else if (this.taint[t] == INDIRECTLY) {
+                    color = ",color=green2";
+                }
+                b.append("\"").append(color).append("]\n");
+            }
+        }
+        return b.append("}\n").toString();
+    }
+
+//  ********************************************************************************
+
+    /**
+     * Collects states and transitions for a new automaton. The states have to be added in the order of their
+     * numbers, each one directly followed by its transitions.
+     */
+    private static final class Builder {
+        private boolean[] accept;
+        private int[] first;
+        private char[] min;
+        private char[] max;
+        private int[] to;
+        private byte[] taint;
+        private int numStates;
+        private int numTransitions;
+
+        Builder(int expectedStates, int expectedTransitions) {
+            expectedStates = Math.max(expectedStates, 1);
+            expectedTransitions = Math.max(expectedTransitions, 1);
+            this.accept = new boolean[expectedStates];
+            this.first = new int[expectedStates + 1];
+            this.min = new char[expectedTransitions];
+            this.max = new char[expectedTransitions];
+            this.to = new int[expectedTransitions];
+            this.taint = new byte[expectedTransitions];
+        }
+
+        void addState(boolean isAccept) {
+            if (this.numStates == this.accept.length) {
+                this.accept = Arrays.copyOf(this.accept, 2 * this.numStates);
+                this.first = Arrays.copyOf(this.first, 2 * this.numStates + 1);
+            }
+            this.accept[this.numStates] = isAccept;
+            this.first[this.numStates] = this.numTransitions;
+            this.numStates++;
+        }
+
+        // adds a transition to the last added state
+        void addTransition(char tMin, char tMax, int tTo, byte tTaint) {
+            if (this.numTransitions == this.to.length) {
+                int size = 2 * this.numTransitions;
+                this.min = Arrays.copyOf(this.min, size);
+                this.max = Arrays.copyOf(this.max, size);
+                this.to = Arrays.copyOf(this.to, size);
+                this.taint = Arrays.copyOf(this.taint, size);
+            }
+            // keep the transitions of the state sorted (insertion sort; stable)
+            int i = this.numTransitions;
+            int stateFirst = this.first[this.numStates - 1];
+            while (i > stateFirst && compare(this.min[i - 1], this.max[i - 1], this.taint[i - 1], tMin, tMax, tTaint) > 0) {
+                this.min[i] = this.min[i - 1];
+                this.max[i] = this.max[i - 1];
+                this.to[i] = this.to[i - 1];
+                this.taint[i] = this.taint[i - 1];
+                i--;
+            }
+            this.min[i] = tMin;
+            this.max[i] = tMax;
+            this.to[i] = tTo;
+            this.taint[i] = tTaint;
+            this.numTransitions++;
+        }
+
+        // adds the transitions of state s of the given automaton, with the targets shifted by offset
+        void copyTransitions(PackedAutomaton a, int s, int offset) {
+            for (int t = a.first[s]; t < a.first[s + 1]; t++) {
+                this.addTransition(a.min[t], a.max[t], a.to[t] + offset, a.taint[t]);
+            }
+        }
+
+        private static int compare(char min1, char max1, byte taint1, char min2, char max2, byte taint2) {
+            if (min1 != min2) {
+                return min1 - min2;
+            }
+            if (max1 != max2) {
+                return max1 - max2;
+            }
+            return taint1 - taint2;
+        }
+
+        // returns the (hash-consed) automaton; the reachable states are numbered breadth-first
+        // from the initial state, the other ones are dropped
+        PackedAutomaton build(int initial, String singleton, boolean deterministic) {
+            this.first[this.numStates] = this.numTransitions;
+
+            // new number -> old number, and vice versa
+            int[] order = new int[this.numStates];
+            int[] ids = new int[this.numStates];
+            Arrays.fill(ids, -1);
+            ids[initial] = 0;
+            order[0] = initial;
+            int numReachable = 1;
+            int numReachableTransitions = 0;
+            for (int i = 0; i < numReachable; i++) {
+                int s = order[i];
+                numReachableTransitions += this.first[s + 1] - this.first[s];
+                for (int t = this.first[s]; t < this.first[s + 1]; t++) {
+                    if (ids[this.to[t]] < 0) {
+                        ids[this.to[t]] = numReachable;
+                        order[numReachable++] = this.to[t];
+                    }
+                }
+            }
+
+            boolean[] newAccept = new boolean[numReachable];
+            int[] newFirst = new int[numReachable + 1];
+            char[] newMin = new char[numReachableTransitions];
+            char[] newMax = new char[numReachableTransitions];
+            int[] newTo = new int[numReachableTransitions];
+            byte[] newTaint = new byte[numReachableTransitions];
+            int t2 = 0;
+            for (int i = 0; i < numReachable; i++) {
+                int s = order[i];
+                newAccept[i] = this.accept[s];
+                newFirst[i] = t2;
+                for (int t = this.first[s]; t < this.first[s + 1]; t++) {
+                    newMin[t2] = this.min[t];
+                    newMax[t2] = this.max[t];
+                    newTo[t2] = ids[this.to[t]];
+                    newTaint[t2] = this.taint[t];
+                    t2++;
+                }
+            }
+            newFirst[numReachable] = t2;
+            return repos.recycle(new PackedAutomaton(
+                0, newAccept, newFirst, newMin, newMax, newTo, newTaint, singleton, deterministic));
+        }
+    }
+
+    // a sorted set of states, as key for the subset construction
+    private static final class StateSet {
+        private final int[] states;
+        private final int hash;
+
+        StateSet(int[] states) {
+            this(states, states.length);
+        }
+
+        StateSet(int[] elements, int length) {
+            int[] sorted = Arrays.copyOf(elements, length);
+            Arrays.sort(sorted);
+            int size = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[size++] = sorted[i];
+                }
+            }
+            this.states = Arrays.copyOf(sorted, size);
+            this.hash = Arrays.hashCode(this.states);
+        }
+
+        public boolean equals(Object obj) {
+            return obj instanceof StateSet && Arrays.equals(this.states, ((StateSet) obj).states);
+        }
+
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
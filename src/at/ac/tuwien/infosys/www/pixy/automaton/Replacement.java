@@ -0,0 +1,374 @@
+package at.ac.tuwien.infosys.www.pixy.automaton;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replacement transductions (str_replace, preg_replace) on automata.
+ *
+ * Each operation takes an automaton for the subject strings and returns an automaton for the strings
+ * that result from replacing all (leftmost, non-overlapping) matches in these subject strings. This is done
+ * by running a matcher for the search pattern along the subject automaton (a product construction),
+ * and emitting the replacement automaton for every match.
+ */
+public class Replacement {
+    // replaces all occurrences of the given search string, like PHP's str_replace()
+    public static Automaton replaceString(Automaton subject, String search, Automaton replace) {
+        if (search.isEmpty()) {
+            // str_replace leaves the subject unchanged in this case
+            return subject.clone();
+        }
+        return new Replacement(subject, replace).runString(search);
+    }
+
+    // replaces all matches of the given pattern, like PHP's preg_replace();
+    // only supports patterns that match single characters of a character class, optionally
+    // followed by "+"; returns null for all other patterns
+    public static Automaton replaceCharClass(Automaton subject, Automaton pattern, Automaton replace) {
+        Automaton p = pattern.cloneExpanded();
+        p.minimize();
+        p.expandSingleton();
+
+        // the pattern must consist of a non-accepting initial state whose transitions all lead to
+        // the same accepting state; this state either has no transitions (single character),
+        // or the same transitions as the initial state (one or more characters)
+        State initial = p.initial;
+        if (initial.accept || initial.transitions.isEmpty()) {
+            return null;
+        }
+        State target = null;
+        List<char[]> charClass = new ArrayList<>();
+        for (Transition t : initial.getSortedTransitionArray(false)) {
+            if (target == null) {
+                target = t.to;
+            } else if (target != t.to) {
+                return null;
+            }
+            charClass.add(new char[]{t.min, t.max});
+        }
+        if (target == initial || !target.accept) {
+            return null;
+        }
+        boolean repeated;
+        if (target.transitions.isEmpty()) {
+            repeated = false;
+        } else {
+            for (Transition t : target.transitions) {
+                if (t.to != target) {
+                    return null;
+                }
+            }
+            if (!sameIntervals(initial, target)) {
+                return null;
+            }
+            repeated = true;
+        }
+
+        return new Replacement(subject, replace).runCharClass(charClass, repeated);
+    }
+
+//  ********************************************************************************
+
+    // the subject (expanded)
+    private final Automaton subject;
+
+    // the replacement (expanded)
+    private final Automaton replace;
+
+    // the resulting automaton
+    private final Automaton result;
+
+    // (subject state, matcher state) -> result state
+    private final Map<State, Map<Integer, State>> states;
+
+    // worklist with subject states and matcher states
+    private final LinkedList<State> worklistSubject;
+    private final LinkedList<Integer> worklistMatcher;
+
+    // epsilon transitions in the result
+    private final Set<StatePair> epsilons;
+
+    // one copy of the replacement per target state in the result
+    private final Map<State, State> replaceCopies;
+
+    private Replacement(Automaton subject, Automaton replace) {
+        this.subject = subject.cloneExpanded();
+        this.replace = replace.cloneExpanded();
+        this.result = new Automaton();
+        this.states = new HashMap<>();
+        this.worklistSubject = new LinkedList<>();
+        this.worklistMatcher = new LinkedList<>();
+        this.epsilons = new HashSet<>();
+        this.replaceCopies = new HashMap<>();
+    }
+
+//  ********************************************************************************
+
+    private Automaton runString(String search) {
+        int m = search.length();
+
+        // the characters that occur in the search string
+        char[] searchChars = distinctChars(search);
+
+        // KMP failure function: border[i] is the length of the longest proper
+        // border of search[0..i]
+        int[] border = new int[m];
+        for (int i = 1, k = 0; i < m; i++) {
+            while (k > 0 && search.charAt(i) != search.charAt(k)) {
+                k = border[k - 1];
+            }
+            if (search.charAt(i) == search.charAt(k)) {
+                k++;
+            }
+            border[i] = k;
+        }
+
+        // matcher state: the last k characters that have been read match search[0..k), and have
+        // not been emitted yet; the state also records the taint of each of these characters
+        // (as a string of taint ordinals of length k), and is numbered by matcherIds
+        List<String> matcherTaints = new ArrayList<>();
+        Map<String, Integer> matcherIds = new HashMap<>();
+        this.result.initial = this.getState(this.subject.initial, matcherId("", matcherTaints, matcherIds));
+        while (!this.worklistSubject.isEmpty()) {
+            State q = this.worklistSubject.removeFirst();
+            int matcher = this.worklistMatcher.removeFirst();
+            String taints = matcherTaints.get(matcher);
+            int k = taints.length();
+            State from = this.getState(q, matcher);
+            String pending = search.substring(0, k);
+
+            if (q.accept) {
+                // end of the subject: emit the pending characters
+                State end = this.emit(from, pending, taints);
+                end.accept = true;
+            }
+
+            for (Transition t : q.transitions) {
+                String readTaints = taints + (char) ('0' + t.taint.ordinal());
+
+                // characters from the search string
+                for (char c : searchChars) {
+                    if (c < t.min || c > t.max) {
+                        continue;
+                    }
+                    int next = step(search, border, k, c);
+                    if (next == m) {
+                        // match: emit the replacement
+                        int id = matcherId("", matcherTaints, matcherIds);
+                        this.emitReplacement(from, this.getState(t.to, id));
+                    } else {
+                        String emitted = (pending + c).substring(0, k + 1 - next);
+                        String emittedTaints = readTaints.substring(0, k + 1 - next);
+                        int id = matcherId(readTaints.substring(k + 1 - next), matcherTaints, matcherIds);
+                        State to = this.getState(t.to, id);
+                        if (emitted.isEmpty()) {
+                            this.epsilons.add(new StatePair(from, to));
+                        } else {
+                            int last = emitted.length() - 1;
+                            State lastState = this.emit(from, emitted.substring(0, last), emittedTaints);
+                            Transducers.add(lastState, new Transition(emitted.charAt(last), to, taintAt(emittedTaints, last)));
+                        }
+                    }
+                }
+
+                // all other characters: the matcher is reset
+                List<char[]> others = subtract(t.min, t.max, searchChars);
+                if (!others.isEmpty()) {
+                    State last = this.emit(from, pending, taints);
+                    State to = this.getState(t.to, matcherId("", matcherTaints, matcherIds));
+                    for (char[] interval : others) {
+                        Transducers.add(last, new Transition(interval[0], interval[1], to, t.taint));
+                    }
+                }
+            }
+        }
+
+        return this.finish();
+    }
+
+//  ********************************************************************************
+
+    private Automaton runCharClass(List<char[]> charClass, boolean repeated) {
+        // matcher state 1: inside a run of matched characters (only used if repeated)
+        this.result.initial = this.getState(this.subject.initial, 0);
+        while (!this.worklistSubject.isEmpty()) {
+            State q = this.worklistSubject.removeFirst();
+            int inRun = this.worklistMatcher.removeFirst();
+            State from = this.getState(q, inRun);
+
+            if (q.accept) {
+                from.accept = true;
+            }
+
+            for (Transition t : q.transitions) {
+                List<char[]> matched = new LinkedList<>();
+                for (char[] interval : charClass) {
+                    char min = interval[0] > t.min ? interval[0] : t.min;
+                    char max = interval[1] < t.max ? interval[1] : t.max;
+                    if (min <= max) {
+                        matched.add(new char[]{min, max});
+                    }
+                }
+
+                if (!matched.isEmpty()) {
+                    State to = this.getState(t.to, repeated ? 1 : 0);
+                    if (inRun == 1) {
+                        // continuing a run: already replaced
+                        this.epsilons.add(new StatePair(from, to));
+                    } else {
+                        this.emitReplacement(from, to);
+                    }
+                }
+
+                State to = this.getState(t.to, 0);
+                for (char[] interval : subtract(t.min, t.max, matched)) {
+                    from.transitions.add(new Transition(interval[0], interval[1], to, t.taint));
+                }
+            }
+        }
+
+        return this.finish();
+    }
+
+//  ********************************************************************************
+
+    // returns the result state for the given pair, and schedules it if it is new
+    private State getState(State q, int matcher) {
+        Map<Integer, State> row = this.states.get(q);
+        if (row == null) {
+            row = new HashMap<>();
+            this.states.put(q, row);
+        }
+        State state = row.get(matcher);
+        if (state == null) {
+            state = new State();
+            row.put(matcher, state);
+            this.worklistSubject.add(q);
+            this.worklistMatcher.add(matcher);
+        }
+        return state;
+    }
+
+    // emits the given string, starting at the given state, with the given taints
+    // (one taint ordinal per character); returns the last state
+    private State emit(State from, String s, String taints) {
+        State current = from;
+        for (int i = 0; i < s.length(); i++) {
+            State next = new State();
+            current.transitions.add(new Transition(s.charAt(i), next, taintAt(taints, i)));
+            current = next;
+        }
+        return current;
+    }
+
+    private static Transition.Taint taintAt(String taints, int i) {
+        return Transition.Taint.values()[taints.charAt(i) - '0'];
+    }
+
+    // returns the number of the matcher state with the given pending taints
+    private static int matcherId(String taints, List<String> matcherTaints, Map<String, Integer> matcherIds) {
+        Integer id = matcherIds.get(taints);
+        if (id == null) {
+            id = matcherTaints.size();
+            matcherTaints.add(taints);
+            matcherIds.put(taints, id);
+        }
+        return id;
+    }
+
+    // emits the replacement between the given states
+    private void emitReplacement(State from, State to) {
+        State copy = this.replaceCopies.get(to);
+        if (copy == null) {
+            Automaton r = this.replace.clone();
+            copy = r.initial;
+            for (State accept : r.getAcceptStates()) {
+                accept.accept = false;
+                this.epsilons.add(new StatePair(accept, to));
+            }
+            this.replaceCopies.put(to, copy);
+        }
+        this.epsilons.add(new StatePair(from, copy));
+    }
+
+    private Automaton finish() {
+        this.result.deterministic = false;
+        this.result.addEpsilons(this.epsilons);
+        return Transducers.minimize(this.result);
+    }
+
+//  ********************************************************************************
+
+    // KMP step: the new matcher state after reading c in matcher state k
+    private static int step(String search, int[] border, int k, char c) {
+        while (true) {
+            if (search.charAt(k) == c) {
+                return k + 1;
+            }
+            if (k == 0) {
+                return 0;
+            }
+            k = border[k - 1];
+        }
+    }
+
+    private static char[] distinctChars(String s) {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < s.length(); i++) {
+            if (b.indexOf(s.substring(i, i + 1)) < 0) {
+                b.append(s.charAt(i));
+            }
+        }
+        return b.toString().toCharArray();
+    }
+
+    // returns the intervals of [min, max] that do not contain any of the given characters
+    private static List<char[]> subtract(char min, char max, char[] chars) {
+        List<char[]> intervals = new ArrayList<>();
+        for (char c : chars) {
+            intervals.add(new char[]{c, c});
+        }
+        return subtract(min, max, intervals);
+    }
+
+    // returns the intervals of [min, max] that are not covered by any of the given intervals
+    static List<char[]> subtract(char min, char max, List<char[]> intervals) {
+        List<char[]> remaining = new LinkedList<>();
+        remaining.add(new char[]{min, max});
+        for (char[] cut : intervals) {
+            List<char[]> next = new LinkedList<>();
+            for (char[] interval : remaining) {
+                if (cut[1] < interval[0] || cut[0] > interval[1]) {
+                    next.add(interval);
+                    continue;
+                }
+                if (cut[0] > interval[0]) {
+                    next.add(new char[]{interval[0], (char) (cut[0] - 1)});
+                }
+                if (cut[1] < interval[1]) {
+                    next.add(new char[]{(char) (cut[1] + 1), interval[1]});
+                }
+            }
+            remaining = next;
+        }
+        return remaining;
+    }
+
+    // do the two states have the same outgoing intervals?
+    private static boolean sameIntervals(State s1, State s2) {
+        Set<String> intervals1 = new HashSet<>();
+        for (Transition t : s1.transitions) {
+            intervals1.add((int) t.min + "-" + (int) t.max);
+        }
+        Set<String> intervals2 = new HashSet<>();
+        for (Transition t : s2.transitions) {
+            intervals2.add((int) t.min + "-" + (int) t.max);
+        }
+        return intervals1.equals(intervals2);
+    }
+}
@@ -34,6 +34,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <tt>Automaton</tt> state.
@@ -49,14 +50,14 @@ public class State implements Serializable, Comparable<State> {
     int number;
 
     int id;
-    static int next_id;
+    static final AtomicInteger next_id = new AtomicInteger();
 
     /**
      * Constructs new state. Initially, the new state is a reject state.
      */
     public State() {
         resetTransitions();
-        id = next_id++;
+        id = next_id.getAndIncrement();
     }
 
     /**
@@ -120,8 +121,7 @@ public class State implements Serializable, Comparable<State> {
      */
     Transition[] getSortedTransitionArray(boolean to_first) {
         Transition[] e = transitions.toArray(new Transition[0]);
-        //[FIXME]
-        //Arrays.sort(e, new TransitionComparator(to_first));
+        Arrays.sort(e, new TransitionComparator(to_first));
         return e;
     }
 
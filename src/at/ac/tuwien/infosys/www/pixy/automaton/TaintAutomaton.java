@@ -0,0 +1,29 @@
+package at.ac.tuwien.infosys.www.pixy.automaton;
+
+/**
+ * The operations of the SQL analysis on taint automata (see SqlAnalysis.toTaintAutomaton).
+ *
+ * Implemented by Automaton and by PackedAutomaton; the operations only accept automata of the same kind. New
+ * automata are created with the corresponding TaintAutomatonFactory.
+ *
+ * @param <A> the implementing class
+ */
+public interface TaintAutomaton<A extends TaintAutomaton<A>> {
+    A concatenate(A a);
+
+    A union(A a);
+
+    boolean hasTaintedTransitions();
+
+    boolean hasDirectlyTaintedTransitions();
+
+    boolean hasIndirectlyTaintedTransitions();
+
+    boolean hasDangerousIndirectTaint();
+
+    String toDotUnique();
+
+    // converts this automaton into an Automaton (e.g., for the transducers);
+    // the result must not be modified
+    Automaton toAutomaton();
+}
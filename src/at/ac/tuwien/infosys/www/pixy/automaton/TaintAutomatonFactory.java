@@ -0,0 +1,17 @@
+package at.ac.tuwien.infosys.www.pixy.automaton;
+
+/**
+ * Creates the basic taint automata of one kind (see TaintAutomaton).
+ *
+ * @param <A> the kind of automata
+ */
+public interface TaintAutomatonFactory<A extends TaintAutomaton<A>> {
+    // automaton that accepts the given string (untainted)
+    A makeString(String s);
+
+    // automaton that accepts all strings, with the given taint
+    A makeAnyString(Transition.Taint taint);
+
+    // converts the given automaton (which must not be modified afterwards)
+    A fromAutomaton(Automaton a);
+}
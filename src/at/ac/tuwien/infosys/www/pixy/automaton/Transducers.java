@@ -0,0 +1,372 @@
+package at.ac.tuwien.infosys.www.pixy.automaton;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Transductions of PHP's string functions on automata (for str_replace and preg_replace, see Replacement).
+ *
+ * Each operation takes an automaton for the subject strings and returns an automaton for the results, computed
+ * in-process with a product construction. The taint of the subject characters is carried over to the
+ * characters that they produce. The character mappings (addslashes, htmlspecialchars, strtolower,
+ * strtoupper) are built once; they are stateless and can be used by several threads.
+ */
+public class Transducers {
+    // the characters that trim() removes by default
+    public static final String WHITESPACE = " \t\n\r\0\u000B";
+
+    // escapes \ ' " and NUL with a backslash
+    private static final CharMapping ADDSLASHES = new CharMapping(true, true)
+        .map('\0', "\\0").map('"', "\\\"").map('\'', "\\'").map('\\', "\\\\");
+
+    // ENT_COMPAT, the default of PHP before 8.1 (single quotes are kept, and stay directly tainted)
+    private static final CharMapping HTMLSPECIALCHARS = new CharMapping(true, false)
+        .map('"', "&quot;").map('&', "&amp;").map('<', "&lt;").map('>', "&gt;");
+
+    private static final CharMapping STRTOLOWER = new CharMapping(false, false).shift('A', 'Z', 'a' - 'A');
+
+    private static final CharMapping STRTOUPPER = new CharMapping(false, false).shift('a', 'z', 'A' - 'a');
+
+    // substr() bounds (skipped plus taken characters) up to which the result is exact;
+    // for larger bounds, the result is over-approximated with prefixes / suffixes
+    private static final int MAX_COUNT = 128;
+
+//  ********************************************************************************
+
+    // directly tainted characters become indirectly tainted (like the weak sanitization
+    // in SqlAnalysis); the escaped characters are indirectly tainted in any case, so that
+    // escaped quotes do not end quoted areas (see Automaton.hasDangerousIndirectTaint)
+    public static Automaton addslashes(Automaton subject) {
+        return ADDSLASHES.run(subject);
+    }
+
+    // directly tainted characters become indirectly tainted (like the weak sanitization in SqlAnalysis),
+    // except for the single quotes, which are not escaped
+    public static Automaton htmlspecialchars(Automaton subject) {
+        return HTMLSPECIALCHARS.run(subject);
+    }
+
+    // ASCII only, as in PHP 8
+    public static Automaton strtolower(Automaton subject) {
+        return STRTOLOWER.run(subject);
+    }
+
+    public static Automaton strtoupper(Automaton subject) {
+        return STRTOUPPER.run(subject);
+    }
+
+    // removes the given characters at the start (left) and / or at the end (right), like PHP's
+    // trim(), ltrim() and rtrim() (character ranges with ".." are not supported); the result is exact
+    public static Automaton trim(Automaton subject, String chars, boolean left, boolean right) {
+        Automaton a = subject.cloneExpanded();
+        char[] trimmed = chars.toCharArray();
+        List<char[]> trimmedIntervals = new ArrayList<>();
+        for (char c : trimmed) {
+            trimmedIntervals.add(new char[]{c, c});
+        }
+
+        // the states from which an accept state can be reached with trimmed characters
+        // (i.e., the states where the rest of the subject can be removed by rtrim)
+        Set<State> states = a.getStates();
+        Set<State> trailing = a.getAcceptStates();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (State s : states) {
+                if (trailing.contains(s)) {
+                    continue;
+                }
+                for (Transition t : s.transitions) {
+                    if (trailing.contains(t.to) && contains(t, trimmed)) {
+                        trailing.add(s);
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        // layer 0: nothing has been emitted yet (only if left);
+        // layer 1: the last emitted character is not trimmed;
+        // layer 2: the last emitted character is trimmed (only if right)
+        Product product = new Product(3);
+        Automaton result = new Automaton();
+        result.initial = product.getState(a.initial, left ? 0 : 1);
+        while (product.hasNext()) {
+            State q = product.nextSubject();
+            int layer = product.nextLayer();
+            State from = product.getState(q, layer);
+            if (layer != 2) {
+                from.accept = right ? trailing.contains(q) : q.accept;
+            }
+            for (Transition t : q.transitions) {
+                if (contains(t, trimmed)) {
+                    if (layer == 0) {
+                        product.epsilons.add(new StatePair(from, product.getState(t.to, 0)));
+                    } else {
+                        State to = product.getState(t.to, right ? 2 : 1);
+                        for (char c : trimmed) {
+                            if (t.min <= c && c <= t.max) {
+                                add(from, new Transition(c, to, t.taint));
+                            }
+                        }
+                    }
+                }
+                for (char[] interval : Replacement.subtract(t.min, t.max, trimmedIntervals)) {
+                    add(from, new Transition(interval[0], interval[1], product.getState(t.to, 1), t.taint));
+                }
+            }
+        }
+        return product.finish(result);
+    }
+
+    // returns the result of substr() without a length
+    public static Automaton substr(Automaton subject, int start) {
+        Automaton a = subject.cloneExpanded();
+        a.removeDeadStates();
+        if (start < 0) {
+            // the last -start characters (or the whole subject)
+            return a.suffixes();
+        }
+        return count(a, start, -1);
+    }
+
+    // returns the result of substr() with the given length; exact for a non-negative
+    // start and length, and an over-approximation otherwise
+    public static Automaton substr(Automaton subject, int start, int length) {
+        Automaton a = subject.cloneExpanded();
+        a.removeDeadStates();
+        if (start < 0) {
+            a = a.suffixes();
+            start = 0;
+        }
+        if (length < 0) {
+            // without the last -length characters
+            return count(a, start, -1).prefixes();
+        }
+        return count(a, start, length);
+    }
+
+//  ********************************************************************************
+
+    // skips the first "skip" characters of the given automaton (without dead states), and takes
+    // at most "take" of the following characters (all of them if negative); strings that are too
+    // short for the skip result in the empty string
+    private static Automaton count(Automaton a, int skip, int take) {
+        if (take < 0 ? skip > MAX_COUNT : skip + take > MAX_COUNT) {
+            Automaton approximation = skip > 0 ? a.suffixes() : a;
+            return take < 0 ? approximation : approximation.prefixes();
+        }
+
+        // layer i < skip: i characters have been skipped;
+        // layer skip + j: j characters have been taken
+        int last = take < 0 ? skip : skip + take;
+        Product product = new Product(last + 1);
+        Automaton result = new Automaton();
+        result.initial = product.getState(a.initial, 0);
+        while (product.hasNext()) {
+            State q = product.nextSubject();
+            int layer = product.nextLayer();
+            State from = product.getState(q, layer);
+            // all states are live: the taken characters can be completed to a subject
+            from.accept = q.accept || (take >= 0 && layer == last);
+            if (layer < skip) {
+                for (Transition t : q.transitions) {
+                    product.epsilons.add(new StatePair(from, product.getState(t.to, layer + 1)));
+                }
+            } else if (take < 0 || layer < last) {
+                int next = take < 0 ? layer : layer + 1;
+                for (Transition t : q.transitions) {
+                    add(from, new Transition(t.min, t.max, product.getState(t.to, next), t.taint));
+                }
+            }
+        }
+        return product.finish(result);
+    }
+
+    // returns the minimal automaton for the given one; unlike Automaton.minimize,
+    // PackedAutomaton.minimize keeps the taint of the transitions
+    static Automaton minimize(Automaton a) {
+        return PackedAutomaton.fromAutomaton(a).minimize().toAutomaton();
+    }
+
+    // does the transition's interval contain one of the given characters?
+    private static boolean contains(Transition t, char[] chars) {
+        for (char c : chars) {
+            if (t.min <= c && c <= t.max) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // adds the given transition; Transition.equals ignores the taint, so an equal
+    // transition that is already there gets the stronger of the two taints
+    static void add(State s, Transition t) {
+        if (s.transitions.add(t)) {
+            return;
+        }
+        for (Transition existing : s.transitions) {
+            if (existing.equals(t) && existing.taint.compareTo(t.taint) < 0) {
+                existing.taint = t.taint;
+            }
+        }
+    }
+
+//  ********************************************************************************
+
+    // the states of a product construction: pairs of a subject state and a layer
+    private static class Product {
+        private final int layers;
+        private final Map<State, State[]> states;
+        private final LinkedList<State> worklistSubject;
+        private final LinkedList<Integer> worklistLayer;
+        private final Set<StatePair> epsilons;
+
+        Product(int layers) {
+            this.layers = layers;
+            this.states = new HashMap<>();
+            this.worklistSubject = new LinkedList<>();
+            this.worklistLayer = new LinkedList<>();
+            this.epsilons = new HashSet<>();
+        }
+
+        // returns the result state for the given pair, and schedules it if it is new
+        State getState(State q, int layer) {
+            State[] row = this.states.get(q);
+            if (row == null) {
+                row = new State[this.layers];
+                this.states.put(q, row);
+            }
+            if (row[layer] == null) {
+                row[layer] = new State();
+                this.worklistSubject.add(q);
+                this.worklistLayer.add(layer);
+            }
+            return row[layer];
+        }
+
+        boolean hasNext() {
+            return !this.worklistSubject.isEmpty();
+        }
+
+        // nextSubject() and nextLayer() return the two parts of the next scheduled pair
+        State nextSubject() {
+            return this.worklistSubject.removeFirst();
+        }
+
+        int nextLayer() {
+            return this.worklistLayer.removeFirst();
+        }
+
+        Automaton finish(Automaton result) {
+            result.deterministic = false;
+            result.addEpsilons(this.epsilons);
+            return minimize(result);
+        }
+    }
+
+//  ********************************************************************************
+
+    // a transducer that maps single characters to strings, or character ranges to shifted
+    // character ranges, and copies all other characters
+    private static class CharMapping {
+        // quotes end quoted areas unless they are indirectly tainted (see Automaton.isUnescapedQuote)
+        private static final List<char[]> QUOTES = Arrays.asList(new char[]{'"', '"'}, new char[]{'\'', '\''});
+
+        // directly tainted characters become indirectly tainted, except for the
+        // quotes that are copied (they are not escaped)
+        private final boolean sanitizes;
+
+        // the strings that replace single characters are indirectly tainted
+        private final boolean escapes;
+
+        // the mapped intervals, with the shift or the replacing string (for single characters)
+        private final List<char[]> intervals;
+        private final List<Integer> shifts;
+        private final List<String> outputs;
+
+        CharMapping(boolean sanitizes, boolean escapes) {
+            this.sanitizes = sanitizes;
+            this.escapes = escapes;
+            this.intervals = new ArrayList<>();
+            this.shifts = new ArrayList<>();
+            this.outputs = new ArrayList<>();
+        }
+
+        CharMapping map(char c, String output) {
+            this.intervals.add(new char[]{c, c});
+            this.shifts.add(0);
+            this.outputs.add(output);
+            return this;
+        }
+
+        CharMapping shift(char min, char max, int shift) {
+            this.intervals.add(new char[]{min, max});
+            this.shifts.add(shift);
+            this.outputs.add(null);
+            return this;
+        }
+
+        Automaton run(Automaton subject) {
+            Automaton a = subject.cloneExpanded();
+            for (State s : a.getStates()) {
+                Set<Transition> transitions = s.transitions;
+                s.resetTransitions();
+                for (Transition t : transitions) {
+                    Transition.Taint taint = t.taint;
+                    if (this.sanitizes && taint == Transition.Taint.Directly) {
+                        taint = Transition.Taint.Indirectly;
+                    }
+                    for (int i = 0; i < this.intervals.size(); i++) {
+                        char min = this.intervals.get(i)[0] > t.min ? this.intervals.get(i)[0] : t.min;
+                        char max = this.intervals.get(i)[1] < t.max ? this.intervals.get(i)[1] : t.max;
+                        if (min > max) {
+                            continue;
+                        }
+                        String output = this.outputs.get(i);
+                        if (output == null) {
+                            int shift = this.shifts.get(i);
+                            add(s, new Transition((char) (min + shift), (char) (max + shift), t.to, taint));
+                        } else {
+                            this.emit(s, output, t.to, this.escapes ? Transition.Taint.Indirectly : taint);
+                        }
+                    }
+                    for (char[] interval : Replacement.subtract(t.min, t.max, this.intervals)) {
+                        if (taint == t.taint) {
+                            add(s, new Transition(interval[0], interval[1], t.to, taint));
+                            continue;
+                        }
+                        for (char[] other : Replacement.subtract(interval[0], interval[1], QUOTES)) {
+                            add(s, new Transition(other[0], other[1], t.to, taint));
+                        }
+                        for (char[] quote : QUOTES) {
+                            if (interval[0] <= quote[0] && quote[0] <= interval[1]) {
+                                add(s, new Transition(quote[0], t.to, t.taint));
+                            }
+                        }
+                    }
+                }
+            }
+            a.deterministic = false;
+            return minimize(a);
+        }
+
+        // emits the given string between the given states
+        private void emit(State from, String s, State to, Transition.Taint taint) {
+            State current = from;
+            for (int i = 0; i < s.length() - 1; i++) {
+                State next = new State();
+                current.transitions.add(new Transition(s.charAt(i), next, taint));
+                current = next;
+            }
+            add(current, new Transition(s.charAt(s.length() - 1), to, taint));
+        }
+    }
+}
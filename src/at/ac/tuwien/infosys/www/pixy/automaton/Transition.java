@@ -30,7 +30,6 @@
 package at.ac.tuwien.infosys.www.pixy.automaton;
 
 import java.io.Serializable;
-import java.util.Comparator;
 
 /**
  * <tt>Automaton</tt> transition.
@@ -223,53 +222,3 @@ public class Transition implements Serializable, Cloneable {
         return min == Character.MIN_VALUE && max == Character.MAX_VALUE;
     }
 }
-
-/**
- * @author Anders M&oslash;ller &lt;<a href="mailto:amoeller@brics.dk">amoeller@brics.dk</a>&gt;
- */
-class TransitionComparator implements Comparator<Transition> {
-    boolean to_first;
-
-    TransitionComparator(boolean to_first) {
-        this.to_first = to_first;
-    }
-
-    /**
-     * Compares by (min, reverse max, to) or (to, min, reverse max).
-     */
-    public int compare(Transition t1, Transition t2) {
-        if (to_first) {
-            if (t1.to != t2.to) {
-                if (t1.to == null)
-                    return -1;
-                else if (t2.to == null)
-                    return 1;
-                else if (t1.to.number < t2.to.number)
-                    return -1;
-                else if (t1.to.number > t2.to.number)
-                    return 1;
-            }
-        }
-        if (t1.min < t2.min)
-            return -1;
-        if (t1.min > t2.min)
-            return 1;
-        if (t1.max > t2.max)
-            return -1;
-        if (t1.max < t2.max)
-            return 1;
-        if (!to_first) {
-            if (t1.to != t2.to) {
-                if (t1.to == null)
-                    return -1;
-                else if (t2.to == null)
-                    return 1;
-                else if (t1.to.number < t2.to.number)
-                    return -1;
-                else if (t1.to.number > t2.to.number)
-                    return 1;
-            }
-        }
-        return 0;
-    }
-}
\ No newline at end of file
@@ -38,4 +38,5 @@ public class InternalStrings {
     public static final String INCLUDE_PATH = "includePath";
     public static final String PHP_BIN = "phpBin";
     public static final String FSA_HOME = "fsaHome";
+    public static final String SOLVER = "solver";
 }
\ No newline at end of file
@@ -0,0 +1,232 @@
+package at.ac.tuwien.infosys.www.pixy.conversion;
+
+import at.ac.tuwien.infosys.www.phpparser.ParseNode;
+import at.ac.tuwien.infosys.www.phpparser.ParseTree;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * On-disk cache for parse trees, shared by all runs that use the same cache directory.
+ *
+ * An entry is keyed by a hash over the canonical file name and the contents of the file; this way, entries
+ * for files that have changed are never used again (and can simply be deleted along with the rest of the
+ * directory). The trees are stored in preorder, with a string table for node names and lexemes.
+ */
+public class ParseTreeCache {
+    // increment when changing the format (or when the parser changes)
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x50545243;
+
+    private final File directory;
+
+    private int hits;
+    private int misses;
+
+    public ParseTreeCache(File directory) {
+        this.directory = directory;
+        this.hits = 0;
+        this.misses = 0;
+    }
+
+//  ********************************************************************************
+
+    // returns the cached parse tree for the given file contents, or null if there is none
+    public ParseTree get(String canonicalFileName, byte[] contents) {
+        File entry = this.getEntry(canonicalFileName, contents);
+        ParseTree parseTree = null;
+        if (entry.isFile()) {
+            try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new GZIPInputStream(new FileInputStream(entry))))) {
+                parseTree = read(in);
+            } catch (IOException e) {
+                // corrupt entry: parse again (and overwrite it)
+                parseTree = null;
+            }
+        }
+
+        synchronized (this) {
+            if (parseTree == null) {
+                this.misses++;
+            } else {
+                this.hits++;
+            }
+        }
+        return parseTree;
+    }
+
+    // stores the parse tree for the given file contents
+    public void put(String canonicalFileName, byte[] contents, ParseTree parseTree) {
+        File entry = this.getEntry(canonicalFileName, contents);
+        try {
+            // write to a temporary file first, such that concurrent runs never see half-written entries
+            this.directory.mkdirs();
+            File temp = File.createTempFile(entry.getName(), ".tmp", this.directory);
+            try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(temp))))) {
+                write(out, parseTree);
+            }
+            if (!temp.renameTo(entry)) {
+                temp.delete();
+            }
+        } catch (IOException e) {
+            // the cache is only an optimization
+            System.err.println("Warning: could not write parse tree cache entry for " + canonicalFileName);
+        }
+    }
+
+    public synchronized int getHits() {
+        return this.hits;
+    }
+
+    public synchronized int getMisses() {
+        return this.misses;
+    }
+
+    public String getStatistics() {
+        return "hits: " + this.getHits() + ", misses: " + this.getMisses();
+    }
+
+//  ********************************************************************************
+
+    private File getEntry(String canonicalFileName, byte[] contents) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        digest.update((FORMAT_VERSION + ":" + canonicalFileName).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(contents);
+
+        StringBuilder name = new StringBuilder();
+        for (byte b : digest.digest()) {
+            name.append(String.format("%02x", b));
+        }
+        name.append(".tree");
+        return new File(this.directory, name.toString());
+    }
+
+//  ********************************************************************************
+
+    private static void write(DataOutputStream out, ParseTree parseTree) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+
+        Map<String, Integer> strings = new HashMap<>();
+
+        // preorder, without recursion (parse trees can be very deep)
+        Deque<ParseNode> stack = new ArrayDeque<>();
+        stack.push(parseTree.getRoot());
+        while (!stack.isEmpty()) {
+            ParseNode node = stack.pop();
+            out.writeBoolean(node.isToken());
+            out.writeInt(node.getSymbol());
+            writeString(out, node.getName(), strings);
+            writeString(out, node.getFileName(), strings);
+            if (node.isToken()) {
+                writeString(out, node.getLexeme(), strings);
+                out.writeInt(node.getLineno());
+            } else {
+                List<ParseNode> children = node.getChildren();
+                out.writeInt(children.size());
+                for (ListIterator<ParseNode> iter = children.listIterator(children.size()); iter.hasPrevious(); ) {
+                    stack.push(iter.previous());
+                }
+            }
+        }
+    }
+
+    // writes the index of the given string, followed by the string itself
+    // if it occurs for the first time; -1 for null
+    private static void writeString(DataOutputStream out, String s, Map<String, Integer> strings) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        Integer index = strings.get(s);
+        if (index != null) {
+            out.writeInt(index);
+            return;
+        }
+        index = strings.size();
+        strings.put(s, index);
+        out.writeInt(index);
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static ParseTree read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            throw new IOException("invalid parse tree cache entry");
+        }
+
+        List<String> strings = new ArrayList<>();
+
+        // the nodes that still expect children, and the number of these children
+        Deque<ParseNode> parents = new ArrayDeque<>();
+        Deque<Integer> remaining = new ArrayDeque<>();
+
+        ParseNode root = null;
+        do {
+            boolean isToken = in.readBoolean();
+            int symbol = in.readInt();
+            String name = readString(in, strings);
+            String fileName = readString(in, strings);
+            ParseNode node;
+            int numChildren = 0;
+            if (isToken) {
+                String lexeme = readString(in, strings);
+                int lineNumber = in.readInt();
+                node = new ParseNode(symbol, name, fileName, lexeme, lineNumber);
+            } else {
+                node = new ParseNode(symbol, name, fileName);
+                numChildren = in.readInt();
+            }
+
+            if (root == null) {
+                root = node;
+            } else {
+                parents.peek().addChild(node);
+                remaining.push(remaining.pop() - 1);
+            }
+            if (numChildren > 0) {
+                parents.push(node);
+                remaining.push(numChildren);
+            }
+
+            // done with all nodes that have received all their children
+            while (!remaining.isEmpty() && remaining.peek() == 0) {
+                parents.pop();
+                remaining.pop();
+            }
+        } while (!parents.isEmpty());
+
+        return new ParseTree(root);
+    }
+
+    private static String readString(DataInputStream in, List<String> strings) throws IOException {
+        int index = in.readInt();
+        if (index == -1) {
+            return null;
+        }
+        if (index < strings.size()) {
+            return strings.get(index);
+        }
+        if (index != strings.size()) {
+            throw new IOException("invalid parse tree cache entry");
+        }
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        String s = new String(bytes, StandardCharsets.UTF_8);
+        strings.add(s);
+        return s;
+    }
+}
@@ -4,6 +4,7 @@ import at.ac.tuwien.infosys.www.phpparser.ParseNode;
 import at.ac.tuwien.infosys.www.phpparser.ParseTree;
 import at.ac.tuwien.infosys.www.phpparser.PhpLexer;
 import at.ac.tuwien.infosys.www.phpparser.PhpParser;
+import at.ac.tuwien.infosys.www.pixy.Metrics;
 import at.ac.tuwien.infosys.www.pixy.MyOptions;
 import at.ac.tuwien.infosys.www.pixy.Utils;
 import at.ac.tuwien.infosys.www.pixy.analysis.alias.AliasAnalysis;
@@ -16,7 +17,11 @@ import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.Include;
 import at.ac.tuwien.infosys.www.pixy.conversion.includes.IncludeGraph;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * @author Nenad Jovanovic <enji@seclab.tuwien.ac.at>
@@ -60,6 +65,16 @@ public class ProgramConverter {
     // type analysis (for resolving ambiguous method calls)
     private TypeAnalysis typeAnalysis;
 
+    // parse trees from earlier runs; null if disabled
+    private ParseTreeCache parseTreeCache;
+
+    // parses included files in the background (see prefetch); null if
+    // MyOptions.parseThreads is 1
+    private ExecutorService parsePool;
+
+    // include node -> parse tree of the file that it includes, being parsed by the parsePool
+    private Map<Include, Future<ParseTree>> prefetched = new HashMap<>();
+
 //  ********************************************************************************
 //  CONSTRUCTOR ********************************************************************
 //  ********************************************************************************
@@ -75,6 +90,10 @@ public class ProgramConverter {
 
         this.allFiles.add(MyOptions.entryFile);
 
+        if (MyOptions.parseTreeCacheDirectory != null) {
+            this.parseTreeCache = new ParseTreeCache(MyOptions.parseTreeCacheDirectory);
+        }
+
         initializeSuperglobalsSymbolTable();
     }
 
@@ -122,8 +141,32 @@ public class ProgramConverter {
 //  convert ************************************************************************
 
     public void convert() {
+        if (MyOptions.parseThreads > 1) {
+            this.parsePool = Executors.newFixedThreadPool(MyOptions.parseThreads, new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "include parser");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        Metrics.Phase phase = Metrics.begin("conversion");
+        try {
+            this.convertWithIncludes();
+        } finally {
+            phase.end();
+            if (this.parsePool != null) {
+                this.parsePool.shutdownNow();
+                this.parsePool = null;
+            }
+            this.prefetched.clear();
+        }
+    }
+
+    private void convertWithIncludes() {
         convertEntryFile();
 
+        Metrics.Phase includePhase = Metrics.begin("includeResolution");
         List<Include> processUs = baseTac.getIncludeNodes();
         boolean goOn = true;  // start a new iteration?
 
@@ -171,6 +214,9 @@ public class ProgramConverter {
                 // contained in included files
                 weComeAfterwards = new LinkedList<>();
 
+                // start parsing the files of this round in the background
+                this.prefetch(processUs);
+
                 // process all literal include nodes in "processUs"
                 for (Include includeNode : processUs) {
                     if (this.skipUs.contains(includeNode)) {
@@ -227,10 +273,9 @@ public class ProgramConverter {
             this.baseTac.backpatch();
 
             int kSize = 1;
-            ConnectorComputation connectorComp = new ConnectorComputation(
-                baseTac.getAllFunctions(), baseTac.getMainFunction(), kSize);
-            connectorComp.compute();
-            InterproceduralWorklist workList = new InterproceduralWorklistBetter(new InterproceduralWorklistOrder(baseTac, connectorComp));
+            ProgramModel programModel = this.baseTac.getProgramModel();
+            ConnectorComputation connectorComp = programModel.getConnectorComputation(kSize);
+            InterproceduralWorklist workList = programModel.createWorklist(kSize);
             connectorComp.stats(false);
 
             AliasAnalysis aliasAnalysis = new DummyAliasAnalysis();
@@ -309,6 +354,8 @@ public class ProgramConverter {
             processUs.addAll(notFoundDynamicIncludes.keySet()); // _,,_
         }
 
+        includePhase.end();
+
         // don't generate warnings for unreachables
         this.removeUnreachables(topIncludes, notFoundDynamicIncludes);
 
@@ -336,14 +383,15 @@ public class ProgramConverter {
             System.out.println();
             System.out.println("*** performing type analysis ***");
             System.out.println();
+            Metrics.Phase typePhase = Metrics.begin("typeAnalysis");
 
-            ConnectorComputation connectorComp = new ConnectorComputation(
-                baseTac.getAllFunctions(), baseTac.getMainFunction(), 0);
-            connectorComp.compute();
-            InterproceduralWorklist workList = new InterproceduralWorklistBetter(new InterproceduralWorklistOrder(baseTac, connectorComp));
+            ProgramModel programModel = this.baseTac.getProgramModel();
+            ConnectorComputation connectorComp = programModel.getConnectorComputation(0);
+            InterproceduralWorklist workList = programModel.createWorklist(0);
             this.typeAnalysis = new TypeAnalysis(
                 this.baseTac, new CallStringAnalysis(connectorComp), workList);
             typeAnalysis.analyze();
+            typePhase.end();
 
             // final, verbose backpatching
             this.baseTac.backpatch(true, true, typeAnalysis, connectorComp.getCallGraph());
@@ -454,16 +502,31 @@ public class ProgramConverter {
     }
 
     public ParseTree parse(String fileName) {
+        return this.parse(fileName, null);
+    }
+
+    // "prefetched": the parse tree of this file from the parsePool, or null;
+    // if it has failed, the file is parsed again (for the error message)
+    private ParseTree parse(String fileName, Future<ParseTree> prefetched) {
         String canonicalFileName = createUniqueFileName(fileName);
 
         ParseTree parseTree = null;
+        if (prefetched != null) {
+            try {
+                parseTree = prefetched.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while parsing " + canonicalFileName, e);
+            } catch (ExecutionException e) {
+                parseTree = null;
+            }
+        }
+
         try {
-            PhpLexer lexer = new PhpLexer(new FileReader(canonicalFileName));
-            lexer.setFileName(canonicalFileName);
-            PhpParser parser = new PhpParser(lexer);
-            ParseNode rootNode = (ParseNode) parser.parse().value;
-            parseTree = new ParseTree(rootNode);
-        } catch (FileNotFoundException e) {
+            if (parseTree == null) {
+                parseTree = this.readParseTree(canonicalFileName);
+            }
+        } catch (FileNotFoundException | NoSuchFileException e) {
             Utils.bail("File not found: " + canonicalFileName);
         } catch (Exception e) {
             if (!MyOptions.optionW) {
@@ -480,6 +543,40 @@ public class ProgramConverter {
         return parseTree;
     }
 
+    // parses the given file, or takes its parse tree from the cache; may be
+    // called by several threads at the same time
+    private ParseTree readParseTree(String canonicalFileName) throws Exception {
+        Metrics.Phase phase = Metrics.begin("parse");
+        try {
+            if (this.parseTreeCache == null) {
+                return this.parse(new FileReader(canonicalFileName), canonicalFileName);
+            }
+
+            // the cache is keyed by the file contents
+            byte[] contents = Files.readAllBytes(Paths.get(canonicalFileName));
+            ParseTree parseTree = this.parseTreeCache.get(canonicalFileName, contents);
+            if (parseTree == null) {
+                parseTree = this.parse(new InputStreamReader(new ByteArrayInputStream(contents)), canonicalFileName);
+                this.parseTreeCache.put(canonicalFileName, contents, parseTree);
+            }
+            return parseTree;
+        } finally {
+            phase.end();
+        }
+    }
+
+    private ParseTree parse(Reader reader, String canonicalFileName) throws Exception {
+        PhpLexer lexer = new PhpLexer(reader);
+        lexer.setFileName(canonicalFileName);
+        PhpParser parser = new PhpParser(lexer);
+        ParseNode rootNode = (ParseNode) parser.parse().value;
+        return new ParseTree(rootNode);
+    }
+
+    public ParseTreeCache getParseTreeCache() {
+        return this.parseTreeCache;
+    }
+
     private String createUniqueFileName(String fileName) {
         try {
             fileName = (new File(fileName)).getCanonicalPath();
@@ -549,6 +646,39 @@ public class ProgramConverter {
         return null;
     }
 
+//  prefetch ***********************************************************************
+
+    // submits the files included by the given literal include nodes to the parsePool;
+    // their parse trees are picked up by include(), which still converts and includes
+    // them one after the other (TacConverter extends the shared superglobals symbol
+    // table, and the order of inclusion decides about cyclic includes);
+    // note that the parser is not entirely free of shared state: ParseNode takes
+    // its ids from an unsynchronized static counter, so the ids of parse trees
+    // are not unique if there are several parse threads; nothing in Pixy relies
+    // on them (Dumper numbers the nodes of parse trees itself)
+    private void prefetch(List<Include> includeNodes) {
+        if (this.parsePool == null) {
+            return;
+        }
+        for (Include includeNode : includeNodes) {
+            if (!includeNode.isLiteral() || this.skipUs.contains(includeNode)
+                || this.prefetched.containsKey(includeNode)) {
+                continue;
+            }
+            File includedFile = this.makeFile(includeNode.getIncludeMe().toString(), includeNode.getFile());
+            if (includedFile == null || this.includeGraph.reaches(includedFile, includeNode.getFile())) {
+                // not found or cyclic: nothing to parse
+                continue;
+            }
+            final String includedFilePath = this.createUniqueFileName(includedFile.getPath());
+            this.prefetched.put(includeNode, this.parsePool.submit(new Callable<ParseTree>() {
+                public ParseTree call() throws Exception {
+                    return readParseTree(includedFilePath);
+                }
+            }));
+        }
+    }
+
 //  include ************************************************************************
 
     // function: the one that contains the given include node;
@@ -581,7 +711,7 @@ public class ProgramConverter {
             if (!MyOptions.optionB) {
                 System.out.print(".");
             }
-            ParseTree parseTree = this.parse(includedFilePath);
+            ParseTree parseTree = this.parse(includedFilePath, this.prefetched.remove(includeNode));
             TacConverter tac = new TacConverter(
                 parseTree, this.specialNodes, this.numberOfConvertedFiles++, includedFile, this);
             tac.convert();
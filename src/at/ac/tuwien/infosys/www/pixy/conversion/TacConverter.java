@@ -6,6 +6,7 @@ import at.ac.tuwien.infosys.www.phpparser.PhpSymbols;
 import at.ac.tuwien.infosys.www.pixy.MyOptions;
 import at.ac.tuwien.infosys.www.pixy.Utils;
 import at.ac.tuwien.infosys.www.pixy.analysis.interprocedural.CallGraph;
+import at.ac.tuwien.infosys.www.pixy.analysis.interprocedural.ProgramModel;
 import at.ac.tuwien.infosys.www.pixy.analysis.type.Type;
 import at.ac.tuwien.infosys.www.pixy.analysis.type.TypeAnalysis;
 import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.*;
@@ -130,6 +131,15 @@ public class TacConverter {
      */
     private List<Include> includeNodes = new LinkedList<>();
 
+    // modification counters (see ProgramModel): callVersion changes whenever the
+    // functions, the call nodes or their callees change, cfgVersion whenever any
+    // part of the CFGs changes
+    private int callVersion = 0;
+    private int cfgVersion = 0;
+
+    // created on demand
+    private ProgramModel programModel;
+
     public TacConverter(
         ParseTree phpParseTree, boolean specialNodeMarkersShouldBeConsidered, int id, File file, ProgramConverter programConverter
     ) {
@@ -228,6 +238,8 @@ public class TacConverter {
     // are created (because it would be useless); don't change this behavior, or
     // you will get into trouble in other places
     public void createBasicBlocks() {
+        this.cfgModified();
+
         // which cfg nodes did we already visit?
         Set<AbstractCfgNode> visited = new HashSet<>();
 
@@ -350,6 +362,8 @@ public class TacConverter {
     // includes the given converter at the specified include node;
     // includingFunction: the one that contains the include node
     public void include(TacConverter includedTac, Include includeNode, TacFunction includingFunction) {
+        this.callsModified();
+
         // INLINE MAIN CFG *************************************
 
         // functions inside the included file
@@ -714,6 +728,31 @@ public class TacConverter {
         return this.mainFunction;
     }
 
+    // call graph, connectors etc. for the current state of the CFGs
+    public ProgramModel getProgramModel() {
+        if (this.programModel == null) {
+            this.programModel = new ProgramModel(this);
+        }
+        return this.programModel;
+    }
+
+    public int getCallVersion() {
+        return this.callVersion;
+    }
+
+    public int getCfgVersion() {
+        return this.cfgVersion;
+    }
+
+    private void callsModified() {
+        this.callVersion++;
+        this.cfgVersion++;
+    }
+
+    private void cfgModified() {
+        this.cfgVersion++;
+    }
+
     // returns null if the given hotspot doesn't exist
     public Hotspot getHotspot(int hotspotId) {
         return this.hotspots.get(hotspotId);
@@ -877,6 +916,8 @@ public class TacConverter {
     // all cases (not flow-sensitive), but it provides good results in practice;
     // this should only be used if a full-fledged alias analysis is not desired
     void replaceGlobals() {
+        this.cfgModified();
+
         // for each user-defined function...
         for (TacFunction userFunction : this.userFunctions.values()) {
 
@@ -1450,6 +1491,8 @@ public class TacConverter {
 
     // generate shadow variables for every function in this.userFunctions
     public void generateShadows() {
+        this.cfgModified();
+
         for (TacFunction userFunction : this.userFunctions.values()) {
             if (userFunction.isMain()) {
                 continue;   // skip the main function
@@ -2054,6 +2097,9 @@ public class TacConverter {
                     }
                 }
 
+                if (callNode.getCallee() != callee) {
+                    this.callsModified();
+                }
                 callNode.setCallee(callee);
                 retNode.setRetVar(callee.getRetVar());
             }
@@ -2144,6 +2190,9 @@ public class TacConverter {
                     }
                 }
 
+                if (callNode.getCallee() != callee) {
+                    this.callsModified();
+                }
                 callNode.setCallee(callee);
                 retNode.setRetVar(callee.getRetVar());
             }
@@ -2151,6 +2200,8 @@ public class TacConverter {
     }
 
     private void replaceUnknownCall(CallPreparation prepNode, String functionName, boolean isMethod) {
+        this.callsModified();
+
         CallReturn callRet = prepNode.getCallRetNode();
 
         // the replacement node
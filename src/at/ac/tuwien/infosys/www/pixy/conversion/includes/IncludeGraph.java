@@ -3,6 +3,7 @@ package at.ac.tuwien.infosys.www.pixy.conversion.includes;
 import java.io.File;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
 
@@ -113,6 +114,38 @@ public class IncludeGraph {
         }
     }
 
+//  reaches ************************************************************************
+
+    // tests whether there is a path from the first file to the second one;
+    // if there is, an edge in the opposite direction will never be added
+    // (edges that have been added are never removed)
+    public boolean reaches(File fromFile, File toFile) {
+        IncludeNode from = new IncludeNode(fromFile);
+        IncludeNode to = new IncludeNode(toFile);
+        if (from.equals(to)) {
+            return true;
+        }
+        if (!this.nodes.contains(from) || !this.nodes.contains(to)) {
+            return false;
+        }
+
+        Set<IncludeNode> visited = new HashSet<>();
+        LinkedList<IncludeNode> workList = new LinkedList<>();
+        visited.add(from);
+        workList.add(from);
+        while (!workList.isEmpty()) {
+            for (IncludeNode successor : this.adjSets.get(workList.removeFirst())) {
+                if (successor.equals(to)) {
+                    return true;
+                }
+                if (visited.add(successor)) {
+                    workList.add(successor);
+                }
+            }
+        }
+        return false;
+    }
+
 //  edgeExists *********************************************************************
 
     // tests whether the indicated edge already exists in this graph
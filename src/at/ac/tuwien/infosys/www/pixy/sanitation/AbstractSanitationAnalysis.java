@@ -26,16 +26,35 @@ public abstract class AbstractSanitationAnalysis extends AbstractVulnerabilityAn
      */
     private boolean trimUntainted = !MyOptions.optionR;
 
+    /** creates and transduces the automata (FSA Utilities or in-process) */
+    protected SanitationBackend backend;
+
     /** automaton representing the undesired stuff */
-    protected FSAAutomaton undesiredAutomaton;
+    protected SanitationAutomaton undesiredAutomaton;
 
     /** "xss", "sql", ... */
     protected String name;
 
-    protected AbstractSanitationAnalysis(String name, DependencyAnalysis dependencyAnalysis, FSAAutomaton undesired) {
+    protected AbstractSanitationAnalysis(String name, DependencyAnalysis dependencyAnalysis) {
         super(dependencyAnalysis);
         this.name = name;
-        this.undesiredAutomaton = undesired;
+        this.backend = getBackend();
+    }
+
+    /**
+     * Returns the backend selected by MyOptions.fsaSanitation.
+     *
+     * @return the sanitation backend
+     */
+    protected static SanitationBackend getBackend() {
+        if (MyOptions.fsaSanitation) {
+            if (MyOptions.fsaHome == null) {
+                Utils.bail("Sanitization analysis with FSA Utilities requires a valid fsaHome.\n" +
+                    "Please set a valid path in the config file.");
+            }
+            return FSABackend.INSTANCE;
+        }
+        return JavaBackend.INSTANCE;
     }
 
     /**
@@ -107,16 +126,16 @@ public abstract class AbstractSanitationAnalysis extends AbstractVulnerabilityAn
 
             DependencyGraph workGraph = new DependencyGraph(dependencyGraph);
 
-            Map<AbstractNode, FSAAutomaton> deco = new HashMap<>();
-            FSAAutomaton auto = this.toAutomatonSanit(workGraph, dependencyGraph, deco);
+            Map<AbstractNode, SanitationAutomaton> deco = new HashMap<>();
+            SanitationAutomaton auto = this.toAutomatonSanit(workGraph, dependencyGraph, deco);
 
             // intersect this automaton with the undesired stuff;
             // if the intersection is empty, it means that we are safe!
-            FSAAutomaton intersection = auto.intersect(this.undesiredAutomaton);
-            if (!intersection.isEmpty()) {
+            if (auto.intersects(this.undesiredAutomaton)) {
 
                 // dump the intersection automaton:
                 // represents counterexamples!
+                SanitationAutomaton intersection = auto.intersect(this.undesiredAutomaton);
                 this.dumpDotAuto(intersection, name + "sanitation" + graphcount + "intersect", MyOptions.graphPath);
 
                 // create a graph that is further minimized to the sanitization routines
@@ -213,14 +232,14 @@ public abstract class AbstractSanitationAnalysis extends AbstractVulnerabilityAn
      *
      * @return
      */
-    protected FSAAutomaton toAutomatonSanit(
-        DependencyGraph dependencyGraph, DependencyGraph origDependencyGraph, Map<AbstractNode, FSAAutomaton> deco
+    protected SanitationAutomaton toAutomatonSanit(
+        DependencyGraph dependencyGraph, DependencyGraph origDependencyGraph, Map<AbstractNode, SanitationAutomaton> deco
     ) {
         dependencyGraph.eliminateCycles();
         AbstractNode root = dependencyGraph.getRootNode();
         Set<AbstractNode> visited = new HashSet<>();
         this.decorateSanit(root, deco, visited, dependencyGraph, origDependencyGraph, true);
-        FSAAutomaton rootDeco = deco.get(root).clone();
+        SanitationAutomaton rootDeco = deco.get(root).clone();
 
         return rootDeco;
     }
@@ -236,7 +255,7 @@ public abstract class AbstractSanitationAnalysis extends AbstractVulnerabilityAn
      * @param trimAllowed
      */
     private void decorateSanit(
-        AbstractNode node, Map<AbstractNode, FSAAutomaton> deco, Set<AbstractNode> visited,
+        AbstractNode node, Map<AbstractNode, SanitationAutomaton> deco, Set<AbstractNode> visited,
         DependencyGraph dependencyGraph, DependencyGraph origDependencyGraph, boolean trimAllowed
     ) {
         visited.add(node);
@@ -262,7 +281,7 @@ public abstract class AbstractSanitationAnalysis extends AbstractVulnerabilityAn
         }
 
         // now that all successors are decorated, we can decorate this node
-        FSAAutomaton auto = null;
+        SanitationAutomaton auto = null;
         if (node instanceof NormalNode) {
             NormalNode normalNode = (NormalNode) node;
             if (successors == null || successors.isEmpty()) {
@@ -270,9 +289,9 @@ public abstract class AbstractSanitationAnalysis extends AbstractVulnerabilityAn
                 AbstractTacPlace place = normalNode.getPlace();
                 if (place.isLiteral()) {
                     if (trimUntainted && trimAllowed) {
-                        auto = FSAAutomaton.makeString("");
+                        auto = this.backend.makeString("");
                     } else {
-                        auto = FSAAutomaton.makeString(place.toString());
+                        auto = this.backend.makeString(place.toString());
                     }
                 } else {
                     // this case should not happen any longer (now that
@@ -289,7 +308,7 @@ public abstract class AbstractSanitationAnalysis extends AbstractVulnerabilityAn
                         // a simple loop, can be ignored
                         continue;
                     }
-                    FSAAutomaton succAuto = deco.get(succ);
+                    SanitationAutomaton succAuto = deco.get(succ);
                     if (succAuto == null) {
                         throw new RuntimeException("SNH");
                     }
@@ -323,24 +342,24 @@ public abstract class AbstractSanitationAnalysis extends AbstractVulnerabilityAn
              *
              */
             if (trimUntainted && trimAllowed) {
-                auto = FSAAutomaton.makeString("");
+                auto = this.backend.makeString("");
 
                 for (AbstractNode succ : successors) {
                     if (succ == node) {
                         // a simple loop, should be part of the SCC
                         throw new RuntimeException("SNH");
                     }
-                    FSAAutomaton succAuto = deco.get(succ);
+                    SanitationAutomaton succAuto = deco.get(succ);
                     if (succAuto == null) {
                         throw new RuntimeException("SNH");
                     }
                     if (succAuto.isEmpty()) {
-                        auto = FSAAutomaton.makeAnyString();
+                        auto = this.backend.makeAnyString();
                         break;
                     }
                 }
             } else {
-                auto = FSAAutomaton.makeAnyString();
+                auto = this.backend.makeAnyString();
             }
         } else if (node instanceof UninitializedNode) {
             // retrieve predecessor
@@ -355,13 +374,13 @@ public abstract class AbstractSanitationAnalysis extends AbstractVulnerabilityAn
                 switch (this.getInitialTaintForPlace(preNormal.getPlace())) {
                     case ALWAYS:
                     case IF_REGISTER_GLOBALS:
-                        auto = FSAAutomaton.makeAnyString();
+                        auto = this.backend.makeAnyString();
                         break;
                     case NEVER:
                         if (trimUntainted && trimAllowed) {
-                            auto = FSAAutomaton.makeString("");
+                            auto = this.backend.makeString("");
                         } else {
-                            auto = FSAAutomaton.makeAnyString();
+                            auto = this.backend.makeAnyString();
                         }
                         break;
                     default:
@@ -383,24 +402,24 @@ public abstract class AbstractSanitationAnalysis extends AbstractVulnerabilityAn
                         switch (this.getInitialTaintForPlace(origPreNormal.getPlace())) {
                             case ALWAYS:
                             case IF_REGISTER_GLOBALS:
-                                auto = FSAAutomaton.makeAnyString();
+                                auto = this.backend.makeAnyString();
                                 break;
                             case NEVER:
                                 if (trimUntainted && trimAllowed) {
-                                    auto = FSAAutomaton.makeString("");
+                                    auto = this.backend.makeString("");
                                 } else {
-                                    auto = FSAAutomaton.makeAnyString();
+                                    auto = this.backend.makeAnyString();
                                 }
                                 break;
                             default:
                                 throw new RuntimeException("SNH");
                         }
                     } else {
-                        auto = FSAAutomaton.makeAnyString();
+                        auto = this.backend.makeAnyString();
                     }
                 } else {
                     // conservative decision for this SCC
-                    auto = FSAAutomaton.makeAnyString();
+                    auto = this.backend.makeAnyString();
                 }
             } else {
                 throw new RuntimeException("SNH: " + pre.getClass());
@@ -426,8 +445,8 @@ public abstract class AbstractSanitationAnalysis extends AbstractVulnerabilityAn
      *
      * @return
      */
-    private FSAAutomaton makeAutoForOp(
-        BuiltinFunctionNode node, Map<AbstractNode, FSAAutomaton> deco, DependencyGraph dependencyGraph,
+    private SanitationAutomaton makeAutoForOp(
+        BuiltinFunctionNode node, Map<AbstractNode, SanitationAutomaton> deco, DependencyGraph dependencyGraph,
         boolean trimAllowed
     ) {
         List<AbstractNode> successors = dependencyGraph.getSuccessors(node);
@@ -435,7 +454,7 @@ public abstract class AbstractSanitationAnalysis extends AbstractVulnerabilityAn
             successors = new LinkedList<>();
         }
 
-        FSAAutomaton automaton = null;
+        SanitationAutomaton automaton = null;
 
         String opName = node.getName();
 
@@ -449,12 +468,12 @@ public abstract class AbstractSanitationAnalysis extends AbstractVulnerabilityAn
                 CallUnknownFunction cfgNode = (CallUnknownFunction) cfgNodeX;
                 if (cfgNode.isMethod()) {
                     if (trimUntainted && trimAllowed) {
-                        automaton = FSAAutomaton.makeString("");
+                        automaton = this.backend.makeString("");
                     } else {
-                        automaton = FSAAutomaton.makeAnyString();
+                        automaton = this.backend.makeAnyString();
                     }
                 } else {
-                    automaton = FSAAutomaton.makeAnyString();
+                    automaton = this.backend.makeAnyString();
                 }
             } else {
                 throw new RuntimeException("SNH");
@@ -462,7 +481,7 @@ public abstract class AbstractSanitationAnalysis extends AbstractVulnerabilityAn
         } else if (opName.equals(".")) {
             // CONCAT
             for (AbstractNode succ : successors) {
-                FSAAutomaton succAuto = deco.get(succ);
+                SanitationAutomaton succAuto = deco.get(succ);
                 if (automaton == null) {
                     automaton = succAuto;
                 } else {
@@ -475,57 +494,57 @@ public abstract class AbstractSanitationAnalysis extends AbstractVulnerabilityAn
             if (successors.size() < 3) {
                 throw new RuntimeException("SNH");
             }
-            FSAAutomaton searchAuto = deco.get(successors.get(0));
-            FSAAutomaton replaceAuto = deco.get(successors.get(1));
-            FSAAutomaton subjectAuto = deco.get(successors.get(2));
+            SanitationAutomaton searchAuto = deco.get(successors.get(0));
+            SanitationAutomaton replaceAuto = deco.get(successors.get(1));
+            SanitationAutomaton subjectAuto = deco.get(successors.get(2));
 
             // if the replacement is evil, be conservative
             if (trimUntainted && !replaceAuto.isEmpty()) {
-                return FSAAutomaton.makeAnyString();
+                return this.backend.makeAnyString();
             }
 
-            FSAAutomaton transduced = FSAUtils.reg_replace(searchAuto, replaceAuto,
+            SanitationAutomaton transduced = this.backend.reg_replace(searchAuto, replaceAuto,
                 subjectAuto, true, node.getCfgNode());
             return transduced;
         } else if (opName.equals("ereg_replace")) {
             if (successors.size() < 3) {
                 throw new RuntimeException("SNH");
             }
-            FSAAutomaton searchAuto = deco.get(successors.get(0));
-            FSAAutomaton replaceAuto = deco.get(successors.get(1));
-            FSAAutomaton subjectAuto = deco.get(successors.get(2));
+            SanitationAutomaton searchAuto = deco.get(successors.get(0));
+            SanitationAutomaton replaceAuto = deco.get(successors.get(1));
+            SanitationAutomaton subjectAuto = deco.get(successors.get(2));
 
             // if the replacement is evil, be conservative
             if (trimUntainted && !replaceAuto.isEmpty()) {
-                return FSAAutomaton.makeAnyString();
+                return this.backend.makeAnyString();
             }
 
-            FSAAutomaton transduced = FSAUtils.reg_replace(searchAuto, replaceAuto,
+            SanitationAutomaton transduced = this.backend.reg_replace(searchAuto, replaceAuto,
                 subjectAuto, false, node.getCfgNode());
             return transduced;
         } else if (opName.equals("str_replace")) {
             if (successors.size() < 3) {
                 throw new RuntimeException("SNH");
             }
-            FSAAutomaton searchAuto = deco.get(successors.get(0));
-            FSAAutomaton replaceAuto = deco.get(successors.get(1));
-            FSAAutomaton subjectAuto = deco.get(successors.get(2));
+            SanitationAutomaton searchAuto = deco.get(successors.get(0));
+            SanitationAutomaton replaceAuto = deco.get(successors.get(1));
+            SanitationAutomaton subjectAuto = deco.get(successors.get(2));
 
             // if the replacement is evil, be conservative
             if (trimUntainted && !replaceAuto.isEmpty()) {
-                return FSAAutomaton.makeAnyString();
+                return this.backend.makeAnyString();
             }
 
-            FSAAutomaton transduced = FSAUtils.str_replace(
+            SanitationAutomaton transduced = this.backend.str_replace(
                 searchAuto, replaceAuto, subjectAuto, node.getCfgNode());
             return transduced;
         } else if (opName.equals("addslashes")) {
             if (successors.size() != 1) {
                 throw new RuntimeException("SNH");
             }
-            FSAAutomaton paramAuto = deco.get(successors.get(0));
+            SanitationAutomaton paramAuto = deco.get(successors.get(0));
 
-            FSAAutomaton transduced = FSAUtils.addslashes(
+            SanitationAutomaton transduced = this.backend.addslashes(
                 paramAuto, node.getCfgNode());
             return transduced;
 
@@ -534,18 +553,18 @@ public abstract class AbstractSanitationAnalysis extends AbstractVulnerabilityAn
             // in cases where the output is not enclosed by quotes in an SQL query
         } else if (isWeakSanitation(opName, multiList)) {
             if (trimUntainted && trimAllowed) {
-                automaton = FSAAutomaton.makeString("");
+                automaton = this.backend.makeString("");
             } else {
-                automaton = FSAAutomaton.makeAnyString();
+                automaton = this.backend.makeAnyString();
             }
 
             // STRONG SANITIZATION FUNCTIONS *******************************
             // e.g., ops that return numeric values
         } else if (isStrongSanitation(opName)) {
             if (trimUntainted && trimAllowed) {
-                automaton = FSAAutomaton.makeString("");
+                automaton = this.backend.makeString("");
             } else {
-                automaton = FSAAutomaton.makeAnyString();
+                automaton = this.backend.makeAnyString();
             }
 
             // EVIL FUNCTIONS ***************************************
@@ -564,7 +583,7 @@ public abstract class AbstractSanitationAnalysis extends AbstractVulnerabilityAn
 
             // conservative decision for operations that have not been
             // modeled yet: .*
-            automaton = FSAAutomaton.makeAnyString();
+            automaton = this.backend.makeAnyString();
         }
 
         return automaton;
@@ -583,11 +602,11 @@ public abstract class AbstractSanitationAnalysis extends AbstractVulnerabilityAn
      *
      * @return
      */
-    private FSAAutomaton multiDependencyAutoSanit(
-        List<AbstractNode> successors, Map<AbstractNode, FSAAutomaton> deco, List<Integer> indices, boolean inverse
+    private SanitationAutomaton multiDependencyAutoSanit(
+        List<AbstractNode> successors, Map<AbstractNode, SanitationAutomaton> deco, List<Integer> indices, boolean inverse
     ) {
         if (!trimUntainted) {
-            return FSAAutomaton.makeAnyString();
+            return this.backend.makeAnyString();
         }
 
         Set<Integer> indexSet = new HashSet<>(indices);
@@ -607,19 +626,19 @@ public abstract class AbstractSanitationAnalysis extends AbstractVulnerabilityAn
                 }
             }
 
-            FSAAutomaton succAuto = deco.get(succ);
+            SanitationAutomaton succAuto = deco.get(succ);
             if (succAuto == null) {
                 throw new RuntimeException("SNH");
             }
             if (!succAuto.isEmpty()) {
-                return FSAAutomaton.makeAnyString();
+                return this.backend.makeAnyString();
             }
         }
 
-        return FSAAutomaton.makeString("");
+        return this.backend.makeString("");
     }
 
-    protected void dumpDotAuto(FSAAutomaton auto, String graphName, String path) {
+    protected void dumpDotAuto(SanitationAutomaton auto, String graphName, String path) {
         String baseFileName = path + "/" + graphName;
 
         (new File(path)).mkdir();
@@ -666,16 +685,15 @@ public abstract class AbstractSanitationAnalysis extends AbstractVulnerabilityAn
         }
     }
 
-    public boolean isIneffective(AbstractNode customSanit, Map<AbstractNode, FSAAutomaton> deco) {
-        FSAAutomaton auto = deco.get(customSanit);
+    public boolean isIneffective(AbstractNode customSanit, Map<AbstractNode, SanitationAutomaton> deco) {
+        SanitationAutomaton auto = deco.get(customSanit);
         if (auto == null) {
             // no decoration for this node: be conservative
             return true;
         }
 
         // intersect!
-        FSAAutomaton intersection = auto.intersect(this.undesiredAutomaton);
-        return !intersection.isEmpty();
+        return auto.intersects(this.undesiredAutomaton);
     }
 
     /**
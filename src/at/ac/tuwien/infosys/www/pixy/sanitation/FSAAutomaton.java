@@ -8,7 +8,7 @@ import java.util.*;
 /**
  * @author Nenad Jovanovic <enji@seclab.tuwien.ac.at>
  */
-public class FSAAutomaton {
+public class FSAAutomaton implements SanitationAutomaton {
     // the internal FSA-Utils representation (type "normal")
     private String str;
 
@@ -83,9 +83,9 @@ public class FSAAutomaton {
         return retMe;
     }
 
-    public FSAAutomaton concatenate(FSAAutomaton auto) {
+    public FSAAutomaton concatenate(SanitationAutomaton auto) {
         String arg1File = this.toFile("temp1.auto");
-        String arg2File = auto.toFile("temp2.auto");
+        String arg2File = ((FSAAutomaton) auto).toFile("temp2.auto");
         String c = MyOptions.fsaHome + "/" +
             "fsa -r concat(file('" + arg1File + "'),file('" + arg2File + "'))";
         String autoString = Utils.exec(c);
@@ -94,9 +94,9 @@ public class FSAAutomaton {
         return retMe;
     }
 
-    public FSAAutomaton union(FSAAutomaton auto) {
+    public FSAAutomaton union(SanitationAutomaton auto) {
         String arg1File = this.toFile("temp1.auto");
-        String arg2File = auto.toFile("temp2.auto");
+        String arg2File = ((FSAAutomaton) auto).toFile("temp2.auto");
         String c = MyOptions.fsaHome + "/" +
             "fsa -r union(file('" + arg1File + "'),file('" + arg2File + "'))";
         String autoString = Utils.exec(c);
@@ -105,9 +105,9 @@ public class FSAAutomaton {
         return retMe;
     }
 
-    public FSAAutomaton intersect(FSAAutomaton auto) {
+    public FSAAutomaton intersect(SanitationAutomaton auto) {
         String arg1File = this.toFile("temp1.auto");
-        String arg2File = auto.toFile("temp2.auto");
+        String arg2File = ((FSAAutomaton) auto).toFile("temp2.auto");
         String c = MyOptions.fsaHome + "/" +
             "fsa -r intersect(file('" + arg1File + "'),file('" + arg2File + "'))";
         String autoString = Utils.exec(c);
@@ -116,6 +116,11 @@ public class FSAAutomaton {
         return retMe;
     }
 
+    // FSA Utilities can only build the intersection
+    public boolean intersects(SanitationAutomaton auto) {
+        return !this.intersect(auto).isEmpty();
+    }
+
     // write this automaton to a file with the given name,
     // and returns the absolute file name
     String toFile(String name) {
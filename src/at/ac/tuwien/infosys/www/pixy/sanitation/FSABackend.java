@@ -0,0 +1,49 @@
+package at.ac.tuwien.infosys.www.pixy.sanitation;
+
+import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.AbstractCfgNode;
+
+/**
+ * Sanitation backend that uses FSA Utilities (see FSAAutomaton and FSAUtils).
+ */
+public class FSABackend implements SanitationBackend {
+    public static final FSABackend INSTANCE = new FSABackend();
+
+    private FSABackend() {
+    }
+
+    public SanitationAutomaton makeString(String s) {
+        return FSAAutomaton.makeString(s);
+    }
+
+    public SanitationAutomaton makeAnyString() {
+        return FSAAutomaton.makeAnyString();
+    }
+
+    public SanitationAutomaton getUndesiredSQLTest() {
+        return FSAAutomaton.getUndesiredSQLTest();
+    }
+
+    public SanitationAutomaton getUndesiredXSSTest() {
+        return FSAAutomaton.getUndesiredXSSTest();
+    }
+
+    public SanitationAutomaton reg_replace(
+        SanitationAutomaton phpPatternAuto, SanitationAutomaton replaceAuto, SanitationAutomaton subjectAuto,
+        boolean preg, AbstractCfgNode cfgNode
+    ) {
+        return FSAUtils.reg_replace((FSAAutomaton) phpPatternAuto, (FSAAutomaton) replaceAuto,
+            (FSAAutomaton) subjectAuto, preg, cfgNode);
+    }
+
+    public SanitationAutomaton str_replace(
+        SanitationAutomaton searchAuto, SanitationAutomaton replaceAuto, SanitationAutomaton subjectAuto,
+        AbstractCfgNode cfgNode
+    ) {
+        return FSAUtils.str_replace((FSAAutomaton) searchAuto, (FSAAutomaton) replaceAuto,
+            (FSAAutomaton) subjectAuto, cfgNode);
+    }
+
+    public SanitationAutomaton addslashes(SanitationAutomaton subjectAuto, AbstractCfgNode cfgNode) {
+        return FSAUtils.addslashes((FSAAutomaton) subjectAuto, cfgNode);
+    }
+}
@@ -0,0 +1,115 @@
+package at.ac.tuwien.infosys.www.pixy.sanitation;
+
+import at.ac.tuwien.infosys.www.pixy.analysis.GenericRepository;
+import at.ac.tuwien.infosys.www.pixy.analysis.Recyclable;
+import at.ac.tuwien.infosys.www.pixy.automaton.Automaton;
+import at.ac.tuwien.infosys.www.pixy.automaton.OperationCache;
+import at.ac.tuwien.infosys.www.pixy.automaton.PackedAutomaton;
+
+/**
+ * Sanitation automaton that is built on the automaton package (no external tools, see JavaBackend).
+ *
+ * JavaAutomatons are immutable and hash-consed: since the wrapped automata are minimal, automata for the same
+ * language have the same (canonical) PackedAutomaton, and only one of them is kept. The results of the operations
+ * are cached for the identity of the operands.
+ */
+public class JavaAutomaton implements SanitationAutomaton, Recyclable {
+    // weak: automata that are no longer used can be collected
+    public static final GenericRepository<JavaAutomaton> repos = new GenericRepository<>(true);
+
+    public static final OperationCache<JavaAutomaton> operations = new OperationCache<>(1024);
+
+    // always minimal (and hence deterministic); this way, it is not changed
+    // by the side-effects of the operations in the automaton package
+    private final Automaton automaton;
+
+    // hash-consed copy of the automaton, used as key
+    private final PackedAutomaton canonical;
+
+    private JavaAutomaton(Automaton automaton) {
+        this.automaton = automaton;
+        this.canonical = PackedAutomaton.fromAutomaton(automaton);
+    }
+
+    // wraps the given automaton (which must not be modified afterwards)
+    static JavaAutomaton wrap(Automaton automaton) {
+        automaton.minimize();
+        return repos.recycle(new JavaAutomaton(automaton));
+    }
+
+    // forgets all automata and cached results
+    public static void reset() {
+        repos.clear();
+        operations.clear();
+    }
+
+    public boolean structureEquals(Object compX) {
+        return compX instanceof JavaAutomaton && ((JavaAutomaton) compX).canonical == this.canonical;
+    }
+
+    public int structureHashCode() {
+        return this.canonical.structureHashCode();
+    }
+
+    Automaton getAutomaton() {
+        return this.automaton;
+    }
+
+    // immutable, so there is no need to copy it
+    public JavaAutomaton clone() {
+        return this;
+    }
+
+    public JavaAutomaton concatenate(SanitationAutomaton auto) {
+        JavaAutomaton result = operations.get("concatenate", this, auto);
+        if (result == null) {
+            result = wrap(this.automaton.concatenate(((JavaAutomaton) auto).automaton));
+            operations.put("concatenate", this, auto, result);
+        }
+        return result;
+    }
+
+    public JavaAutomaton union(SanitationAutomaton auto) {
+        JavaAutomaton result = operations.get("union", this, auto);
+        if (result == null) {
+            result = wrap(this.automaton.union(((JavaAutomaton) auto).automaton));
+            operations.put("union", this, auto, result);
+        }
+        return result;
+    }
+
+    public JavaAutomaton intersect(SanitationAutomaton auto) {
+        JavaAutomaton result = operations.get("intersect", this, auto);
+        if (result == null) {
+            result = wrap(this.automaton.intersection(((JavaAutomaton) auto).automaton));
+            operations.put("intersect", this, auto, result);
+        }
+        return result;
+    }
+
+    // same as FSAAutomaton.isEmpty(): true for the empty language, and for
+    // the language that only contains the empty string
+    public boolean isEmpty() {
+        return this.automaton.isEmpty() || this.automaton.isEmptyString();
+    }
+
+    // explores the product on the fly (see Automaton.intersectsNonEmpty)
+    public boolean intersects(SanitationAutomaton auto) {
+        return this.automaton.intersectsNonEmpty(((JavaAutomaton) auto).automaton);
+    }
+
+    public String toDot() {
+        return this.automaton.toDot();
+    }
+
+    // returns the string if this automaton accepts exactly one string; null otherwise
+    String getFiniteString() {
+        // a minimal automaton for a single string is a path
+        String prefix = this.automaton.getCommonPrefix();
+        if (this.automaton.run(prefix) && this.automaton.isFinite() &&
+            (this.automaton.isSingleton() || this.automaton.getNumberOfStates() == prefix.length() + 1)) {
+            return prefix;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,149 @@
+package at.ac.tuwien.infosys.www.pixy.sanitation;
+
+import at.ac.tuwien.infosys.www.pixy.automaton.Automaton;
+import at.ac.tuwien.infosys.www.pixy.automaton.Replacement;
+import at.ac.tuwien.infosys.www.pixy.automaton.Transition;
+import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.AbstractCfgNode;
+
+/**
+ * Sanitation backend that works in-process (without FSA Utilities and temporary files).
+ *
+ * The automata are JavaAutomatons, and the transductions are performed with Replacement instead of
+ * the Mohri-Sproat replace operator of FSA Utilities. Regexes are compiled with Regex2Automaton (see
+ * PhpRegex.replaceAll); only regexes that match a single string or the characters of a character class
+ * (optionally anchored) are transduced, all other regexes result in .* (just like unsupported regexes in
+ * FSAUtils).
+ *
+ * The results of the transductions are cached in JavaAutomaton.operations, for the pattern and the (hash-consed)
+ * automata.
+ */
+public class JavaBackend implements SanitationBackend {
+    public static final JavaBackend INSTANCE = new JavaBackend();
+
+    private JavaBackend() {
+    }
+
+    public JavaAutomaton makeString(String s) {
+        return JavaAutomaton.wrap(Automaton.makeString(s));
+    }
+
+    public JavaAutomaton makeAnyString() {
+        return JavaAutomaton.wrap(anyString());
+    }
+
+    // MISSING HERE: double quotes and other evil stuff (see PHP's addslashes())
+    public JavaAutomaton getUndesiredSQLTest() {
+        // every string that contains an unescaped single quote at the beginning:
+        // zero or even number of backslashes, followed by a quote, and an arbitrary suffix
+        Automaton backslash = Automaton.makeChar('\\');
+        Automaton noPrefix = backslash.concatenate(backslash).repeat()
+            .concatenate(Automaton.makeChar('\''))
+            .concatenate(anyString());
+
+        // the same as before, but with an arbitrary prefix, followed
+        // by something other than a backslash
+        Automaton noBackslash = Automaton.makeCharRange(Character.MIN_VALUE, (char) ('\\' - 1))
+            .union(Automaton.makeCharRange((char) ('\\' + 1), Character.MAX_VALUE));
+        Automaton withPrefix = anyString().concatenate(noBackslash).concatenate(noPrefix);
+
+        return JavaAutomaton.wrap(noPrefix.union(withPrefix));
+    }
+
+    public JavaAutomaton getUndesiredXSSTest() {
+        // every string that contains a pointy bracket
+        return JavaAutomaton.wrap(anyString().concatenate(Automaton.makeChar('<')).concatenate(anyString()));
+    }
+
+    public JavaAutomaton reg_replace(
+        SanitationAutomaton phpPatternAuto, SanitationAutomaton replaceAuto, SanitationAutomaton subjectAuto,
+        boolean preg, AbstractCfgNode cfgNode
+    ) {
+        // get a finite string from the pattern
+        String finitePattern = ((JavaAutomaton) phpPatternAuto).getFiniteString();
+        if (finitePattern == null) {
+            // the pattern is not a finite string, not supported
+            return this.makeAnyString();
+        }
+        if (finitePattern.isEmpty()) {
+            // the pattern is empty for some reason;
+            // e.g., happens if the $pattern argument to preg_replace is an array
+            // => be conservative
+            return this.makeAnyString();
+        }
+
+        String operation = (preg ? "preg_replace:" : "ereg_replace:") + finitePattern;
+        JavaAutomaton cached = JavaAutomaton.operations.get(operation, replaceAuto, subjectAuto);
+        if (cached != null) {
+            return cached;
+        }
+
+        // compile the PHP pattern (cached)
+        PhpRegex pattern;
+        try {
+            pattern = Regex2Automaton.compile(finitePattern, preg);
+        } catch (UnsupportedRegexException e) {
+            // if the regex is not supported yet: just return .*
+            System.err.println("unsupported regex:");
+            System.err.println("- " + cfgNode.getLoc());
+            return this.makeAnyString();
+        } catch (Exception e) {
+            // if anything else goes wrong:
+            // - also return .*
+            // - but generate a different warning
+            System.err.println("Exception during regex conversion");
+            System.err.println("- " + cfgNode.getLoc());
+            System.err.println(e.getMessage());
+            return this.makeAnyString();
+        }
+
+        Automaton transduced = pattern.replaceAll(
+            ((JavaAutomaton) subjectAuto).getAutomaton(), ((JavaAutomaton) replaceAuto).getAutomaton());
+        if (transduced == null) {
+            System.err.println("unsupported regex:");
+            System.err.println("- " + cfgNode.getLoc());
+            return this.makeAnyString();
+        }
+        JavaAutomaton result = JavaAutomaton.wrap(transduced);
+        JavaAutomaton.operations.put(operation, replaceAuto, subjectAuto, result);
+        return result;
+    }
+
+    public JavaAutomaton str_replace(
+        SanitationAutomaton searchAuto, SanitationAutomaton replaceAuto, SanitationAutomaton subjectAuto,
+        AbstractCfgNode cfgNode
+    ) {
+        // if the search automaton does not encode a finite string, we can't
+        // say anything about the result
+        String search = ((JavaAutomaton) searchAuto).getFiniteString();
+        if (search == null) {
+            System.out.println("Warning: search automaton is not finite!");
+            System.out.println("- " + cfgNode.getLoc());
+            return this.makeAnyString();
+        }
+
+        String operation = "str_replace:" + search;
+        JavaAutomaton result = JavaAutomaton.operations.get(operation, replaceAuto, subjectAuto);
+        if (result == null) {
+            result = JavaAutomaton.wrap(Replacement.replaceString(((JavaAutomaton) subjectAuto).getAutomaton(),
+                search, ((JavaAutomaton) replaceAuto).getAutomaton()));
+            JavaAutomaton.operations.put(operation, replaceAuto, subjectAuto, result);
+        }
+        return result;
+    }
+
+    public JavaAutomaton addslashes(SanitationAutomaton subjectAuto, AbstractCfgNode cfgNode) {
+        // the easy way: addslashes is the same as applying str_replace
+        // several times
+        SanitationAutomaton transduced = subjectAuto;
+        // \ -> \\
+        transduced = this.str_replace(this.makeString("\\"), this.makeString("\\\\"), transduced, cfgNode);
+        // ' -> \'
+        transduced = this.str_replace(this.makeString("'"), this.makeString("\\'"), transduced, cfgNode);
+        // " -> \"
+        return this.str_replace(this.makeString("\""), this.makeString("\\\""), transduced, cfgNode);
+    }
+
+    private static Automaton anyString() {
+        return Automaton.makeAnyString(Transition.Taint.Untainted);
+    }
+}
@@ -0,0 +1,142 @@
+package at.ac.tuwien.infosys.www.pixy.sanitation;
+
+import at.ac.tuwien.infosys.www.pixy.automaton.Automaton;
+import at.ac.tuwien.infosys.www.pixy.automaton.Replacement;
+import at.ac.tuwien.infosys.www.pixy.automaton.Transition;
+
+import java.util.Set;
+
+/**
+ * A PHP regex, compiled by Regex2Automaton.
+ *
+ * The top-level alternatives are kept apart by their anchors: unanchored ones, ones that start with "^", ones
+ * that end with "$", and ones with both anchors. Each group is represented by the automaton for the substrings
+ * that it matches. Instances are immutable and shared (see Regex2Automaton.compile).
+ */
+public final class PhpRegex {
+    private static final int UNANCHORED = 0;
+    private static final int START = 1;
+    private static final int END = 2;
+    private static final int BOTH = 3;
+
+    // matched substrings, indexed by the anchors (null if there are no such alternatives);
+    // never modified, the operations of the automaton package only get copies
+    private final Automaton[] alternatives;
+
+    // true if "$" also matches before a newline at the end (preg without the "D" modifier)
+    private final boolean newlineBeforeEnd;
+
+    PhpRegex(Automaton[] alternatives, boolean newlineBeforeEnd) {
+        this.alternatives = alternatives;
+        this.newlineBeforeEnd = newlineBeforeEnd;
+        for (Automaton alternative : alternatives) {
+            if (alternative != null) {
+                alternative.minimize();
+            }
+        }
+    }
+
+//  ********************************************************************************
+
+    // true if some top-level alternative has an anchor
+    public boolean isAnchored() {
+        return this.alternatives[START] != null || this.alternatives[END] != null || this.alternatives[BOTH] != null;
+    }
+
+    // returns the substrings that this regex matches (ignoring the anchors)
+    public Automaton getMatches() {
+        Automaton matches = Automaton.makeEmpty();
+        for (Automaton alternative : this.alternatives) {
+            if (alternative != null) {
+                matches = matches.union(alternative);
+            }
+        }
+        matches.minimize();
+        return matches;
+    }
+
+    // returns the subjects in which this regex finds a match (as for preg_match)
+    public Automaton getMatchingSubjects() {
+        Automaton any = Automaton.makeAnyString(Transition.Taint.Untainted);
+        Automaton subjects = Automaton.makeEmpty();
+        if (this.alternatives[UNANCHORED] != null) {
+            subjects = subjects.union(any.concatenate(this.alternatives[UNANCHORED]).concatenate(any));
+        }
+        if (this.alternatives[START] != null) {
+            subjects = subjects.union(this.alternatives[START].concatenate(any));
+        }
+        if (this.alternatives[END] != null) {
+            subjects = subjects.union(any.concatenate(this.atEnd(this.alternatives[END])));
+        }
+        if (this.alternatives[BOTH] != null) {
+            subjects = subjects.union(this.atEnd(this.alternatives[BOTH]));
+        }
+        subjects.minimize();
+        return subjects;
+    }
+
+    // returns an automaton for the results of replacing all matches of this regex in the
+    // given subjects by the given replacement (as preg_replace / ereg_replace); the result
+    // is exact for unanchored regexes, and an over-approximation for anchored ones;
+    // returns null if this regex is not supported by the transduction
+    public Automaton replaceAll(Automaton subject, Automaton replace) {
+        Automaton result = this.replaceUnanchored(subject, replace);
+        if (result == null || !this.isAnchored()) {
+            return result;
+        }
+
+        // if an anchored alternative matches, the replacement takes the place of a prefix and/or a
+        // suffix of the subject, and the unanchored alternatives are replaced in the rest;
+        // the subjects without such a match are covered by the result so far
+        if (this.alternatives[START] != null) {
+            Automaton suffixes = this.replaceUnanchored(subject.suffixes(), replace);
+            result = result.union(replace.concatenate(suffixes));
+            if (this.alternatives[END] != null) {
+                Automaton middles = this.replaceUnanchored(subject.suffixes().prefixes(), replace);
+                result = result.union(replace.concatenate(this.atEnd(middles.concatenate(replace))));
+            }
+        }
+        if (this.alternatives[END] != null) {
+            Automaton prefixes = this.replaceUnanchored(subject.prefixes(), replace);
+            result = result.union(this.atEnd(prefixes.concatenate(replace)));
+        }
+        if (this.alternatives[BOTH] != null) {
+            result = result.union(this.atEnd(replace));
+        }
+        return result;
+    }
+
+    // replaces the matches of the unanchored alternatives; for a regex without
+    // such alternatives, returns the subject (which must then not be modified)
+    private Automaton replaceUnanchored(Automaton subject, Automaton replace) {
+        Automaton pattern = this.alternatives[UNANCHORED];
+        if (pattern == null) {
+            return subject;
+        }
+        // only regexes that match a single string or the characters of a
+        // character class are supported by Replacement
+        String literal = getFiniteString(pattern);
+        if (literal != null) {
+            return Replacement.replaceString(subject, literal, replace);
+        }
+        return Replacement.replaceCharClass(subject, pattern, replace);
+    }
+
+    // adds the newline that can follow a match of "$"
+    private Automaton atEnd(Automaton automaton) {
+        if (!this.newlineBeforeEnd) {
+            return automaton;
+        }
+        return automaton.concatenate(Automaton.makeEmptyString().union(Automaton.makeChar('\n')));
+    }
+
+    // returns the string if the given (minimal) automaton accepts exactly one
+    // non-empty string; null otherwise
+    private static String getFiniteString(Automaton automaton) {
+        if (!automaton.isFinite() || automaton.run("")) {
+            return null;
+        }
+        Set<String> strings = automaton.getFiniteStrings();
+        return strings.size() == 1 ? strings.iterator().next() : null;
+    }
+}
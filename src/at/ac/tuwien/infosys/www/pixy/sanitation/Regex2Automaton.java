@@ -0,0 +1,581 @@
+package at.ac.tuwien.infosys.www.pixy.sanitation;
+
+import at.ac.tuwien.infosys.www.pixy.automaton.Automaton;
+import at.ac.tuwien.infosys.www.pixy.automaton.OperationCache;
+
+import java.util.BitSet;
+
+/**
+ * Compiles PHP regexes (preg and ereg) into automata (the counterpart of Regex2Prolog for the JavaBackend).
+ *
+ * Supports alternatives, groups (also non-capturing and named ones), the quantifiers "*", "+", "?" and
+ * "{n}", "{n,}", "{n,m}", character classes (with ranges, negation, POSIX classes such as [:alpha:], and the
+ * escapes \d, \w, \s and their negations), ".", escaped characters (\n, \t, \x41, ...), the anchors "^" and
+ * "$" at the beginning and end of the top-level alternatives, and the modifiers i, s, u, D and S. Everything
+ * else (back references, lookarounds, lazy and possessive quantifiers, ...) results in an
+ * UnsupportedRegexException.
+ *
+ * The compiled regexes are cached (see compile), since the same sanitization patterns tend to appear
+ * over and over again.
+ */
+public class Regex2Automaton {
+    // "preg:" or "ereg:" + PHP regex -> compiled regex (UNSUPPORTED if it is not supported)
+    public static final OperationCache<PhpRegex> patterns = new OperationCache<>(256);
+
+    private static final PhpRegex UNSUPPORTED = new PhpRegex(new Automaton[4], false);
+
+    // the largest supported bound of a repetition
+    private static final int MAX_REPETITIONS = 1000;
+
+    // the regex without delimiters and modifiers
+    private final String regex;
+
+    // true if this regex is perl-compatible, false if it is posix (ereg)
+    private final boolean preg;
+
+    // modifiers
+    private boolean caseInsensitive;
+    private boolean dotAll;
+    private boolean dollarEndOnly;
+
+    // current position in the regex
+    private int pos;
+
+    // set when a top-level alternative ends with "$"
+    private boolean anchoredEnd;
+
+    private Regex2Automaton(String regex, boolean preg) {
+        this.regex = regex;
+        this.preg = preg;
+        this.pos = 0;
+    }
+
+    // compiles a PHP regex (for preg: with delimiters and modifiers);
+    // throws UnsupportedRegexException for unsupported regexes, and a
+    // RuntimeException for faulty ones
+    public static PhpRegex compile(String phpRegex, boolean preg) {
+        String key = (preg ? "preg:" : "ereg:") + phpRegex;
+        PhpRegex compiled = patterns.get(key, null, null);
+        if (compiled == null) {
+            try {
+                compiled = compileUncached(phpRegex, preg);
+            } catch (UnsupportedRegexException e) {
+                compiled = UNSUPPORTED;
+            }
+            patterns.put(key, null, null, compiled);
+        }
+        if (compiled == UNSUPPORTED) {
+            throw new UnsupportedRegexException();
+        }
+        return compiled;
+    }
+
+    private static PhpRegex compileUncached(String phpRegex, boolean preg) {
+        // we don't like empty regexes
+        if (phpRegex.isEmpty()) {
+            throw new RuntimeException("Empty regex");
+        }
+
+        if (!preg) {
+            return new Regex2Automaton(phpRegex, false).parse();
+        }
+
+        // peel off the delimiters; brackets are closed by their counterpart
+        char open = phpRegex.charAt(0);
+        if (Character.isLetterOrDigit(open) || Character.isWhitespace(open) || open == '\\') {
+            throw new UnsupportedRegexException();
+        }
+        int bracket = "([{<".indexOf(open);
+        char close = bracket < 0 ? open : ")]}>".charAt(bracket);
+        int end = phpRegex.lastIndexOf(close);
+        if (end <= 0) {
+            throw new UnsupportedRegexException();
+        }
+
+        Regex2Automaton compiler = new Regex2Automaton(phpRegex.substring(1, end), true);
+        for (char modifier : phpRegex.substring(end + 1).toCharArray()) {
+            switch (modifier) {
+                case 'i':
+                    compiler.caseInsensitive = true;
+                    break;
+                case 's':
+                    compiler.dotAll = true;
+                    break;
+                case 'D':
+                    compiler.dollarEndOnly = true;
+                    break;
+                case 'u':
+                case 'S':
+                case '\n':
+                    // no influence on the language
+                    break;
+                default:
+                    // e.g., m (multi-line anchors), x (extended syntax), U (ungreedy), e (eval)
+                    throw new UnsupportedRegexException();
+            }
+        }
+        return compiler.parse();
+    }
+
+//  ********************************************************************************
+
+    // parses the top-level alternatives, and sorts them by their anchors
+    private PhpRegex parse() {
+        // [unanchored, "^", "$", "^" and "$"]
+        Automaton[] alternatives = new Automaton[4];
+        while (true) {
+            boolean anchoredStart = this.lookingAt('^');
+            if (anchoredStart) {
+                this.pos++;
+            }
+            this.anchoredEnd = false;
+            Automaton alternative = this.parseSequence(false);
+            int index = (anchoredStart ? 1 : 0) + (this.anchoredEnd ? 2 : 0);
+            alternatives[index] = alternatives[index] == null ? alternative : alternatives[index].union(alternative);
+
+            if (this.pos == this.regex.length()) {
+                break;
+            }
+            char sym = this.regex.charAt(this.pos++);
+            if (sym == ')') {
+                throw new RuntimeException("faulty regex: unmatched )");
+            }
+            // otherwise, it is a "|"
+        }
+        return new PhpRegex(alternatives, this.preg && !this.dollarEndOnly);
+    }
+
+    // parses the alternatives of a group, up to (and including) the closing bracket
+    private Automaton parseGroup() {
+        Automaton group = this.parseSequence(true);
+        while (this.lookingAt('|')) {
+            this.pos++;
+            group = group.union(this.parseSequence(true));
+        }
+        if (!this.lookingAt(')')) {
+            throw new RuntimeException("faulty regex: missing )");
+        }
+        this.pos++;
+        return group;
+    }
+
+    // parses a sequence, up to the next "|" or ")" (or the end)
+    private Automaton parseSequence(boolean nested) {
+        Automaton sequence = Automaton.makeEmptyString();
+
+        // the last atom (not yet appended to the sequence, since it might be followed by a quantifier)
+        Automaton last = null;
+
+        while (this.pos < this.regex.length()) {
+            char sym = this.regex.charAt(this.pos);
+            if (sym == '|' || sym == ')') {
+                break;
+            }
+            this.pos++;
+
+            if (sym == '*') {
+                last = this.quantified(last).repeat();
+                this.checkGreedy();
+            } else if (sym == '+') {
+                last = this.quantified(last);
+                last = last.concatenate(last.repeat());
+                this.checkGreedy();
+            } else if (sym == '?') {
+                last = this.quantified(last).union(Automaton.makeEmptyString());
+                this.checkGreedy();
+            } else if (sym == '{' && this.isBoundedRepetition()) {
+                last = this.parseBoundedRepetition(this.quantified(last));
+                this.checkGreedy();
+            } else if (sym == '(') {
+                // start of subpattern
+                sequence = append(sequence, last);
+                this.parseGroupPrefix();
+                last = this.parseGroup();
+            } else if (sym == '[') {
+                // start of character class
+                sequence = append(sequence, last);
+                last = this.makeCharSet(this.parseCharClass());
+            } else if (sym == '.') {
+                // any character (perl: except newline, unless "s" is given)
+                sequence = append(sequence, last);
+                BitSet any = new BitSet();
+                any.set(Character.MIN_VALUE, Character.MAX_VALUE + 1);
+                if (this.preg && !this.dotAll) {
+                    any.clear('\n');
+                }
+                last = Automaton.makeCharSet(any);
+            } else if (sym == '\\') {
+                // an escape
+                sequence = append(sequence, last);
+                last = this.makeCharSet(this.escape());
+            } else if (sym == '$') {
+                // "end of subject", only supported at the end of a top-level alternative
+                if (nested || !(this.pos == this.regex.length() || this.lookingAt('|'))) {
+                    throw new UnsupportedRegexException();
+                }
+                this.anchoredEnd = true;
+            } else if (sym == '^') {
+                // "start of subject" in the middle of a regex
+                throw new UnsupportedRegexException();
+            } else {
+                // not a meta-character
+                sequence = append(sequence, last);
+                BitSet single = new BitSet();
+                single.set(sym);
+                last = this.makeCharSet(single);
+            }
+        }
+
+        return append(sequence, last);
+    }
+
+    // handles the "?..." after an opening bracket
+    private void parseGroupPrefix() {
+        if (!this.preg || !this.lookingAt('?')) {
+            return;
+        }
+        this.pos++;
+        if (this.lookingAt(':')) {
+            // non-capturing group
+            this.pos++;
+            return;
+        }
+        // named group: (?<name>...), (?'name'...), (?P<name>...)
+        if (this.lookingAt('P')) {
+            this.pos++;
+        }
+        char open = this.pos < this.regex.length() ? this.regex.charAt(this.pos) : 0;
+        if (open == '<' || open == '\'') {
+            int end = this.regex.indexOf(open == '<' ? '>' : '\'', this.pos + 1);
+            if (end > this.pos + 1 && Character.isLetter(this.regex.charAt(this.pos + 1))) {
+                this.pos = end + 1;
+                return;
+            }
+        }
+        // lookarounds, inline modifiers, comments, ...
+        throw new UnsupportedRegexException();
+    }
+
+//  ********************************************************************************
+
+    // is the "{" that has just been read the start of a repetition?
+    // (for preg, other curly brackets are literals)
+    private boolean isBoundedRepetition() {
+        int end = this.regex.indexOf('}', this.pos);
+        if (end >= 0 && this.regex.substring(this.pos, end).matches("[0-9]+(,[0-9]*)?")) {
+            return true;
+        }
+        if (!this.preg) {
+            throw new RuntimeException("faulty regex: invalid repetition");
+        }
+        return false;
+    }
+
+    // parses {n}, {n,} or {n,m} (after the opening bracket)
+    private Automaton parseBoundedRepetition(Automaton atom) {
+        int end = this.regex.indexOf('}', this.pos);
+        String[] bounds = this.regex.substring(this.pos, end).split(",", -1);
+        this.pos = end + 1;
+        int min = parseBound(bounds[0]);
+        int max = bounds.length == 1 ? min : (bounds[1].isEmpty() ? -1 : parseBound(bounds[1]));
+        if (max >= 0 && max < min) {
+            throw new RuntimeException("faulty regex: invalid repetition");
+        }
+
+        Automaton repeated = Automaton.makeEmptyString();
+        for (int i = 0; i < min; i++) {
+            repeated = repeated.concatenate(atom);
+        }
+        if (max < 0) {
+            return repeated.concatenate(atom.repeat());
+        }
+        Automaton optional = atom.union(Automaton.makeEmptyString());
+        for (int i = min; i < max; i++) {
+            repeated = repeated.concatenate(optional);
+        }
+        return repeated;
+    }
+
+    private static int parseBound(String bound) {
+        if (bound.length() > 4 || Integer.parseInt(bound) > MAX_REPETITIONS) {
+            throw new UnsupportedRegexException();
+        }
+        return Integer.parseInt(bound);
+    }
+
+    // lazy and possessive quantifiers match different substrings
+    private void checkGreedy() {
+        if (this.preg && (this.lookingAt('?') || this.lookingAt('+'))) {
+            throw new UnsupportedRegexException();
+        }
+    }
+
+//  ********************************************************************************
+
+    // parses a character class: [...]
+    private BitSet parseCharClass() {
+        // check whether the first symbol in the character class is a ^;
+        // in this case, we have a negated character class
+        boolean negated = false;
+        if (this.lookingAt('^')) {
+            negated = true;
+            this.pos++;
+        }
+
+        BitSet charClass = new BitSet();
+        boolean first = true;
+        while (true) {
+            if (this.pos == this.regex.length()) {
+                throw new RuntimeException("faulty regex: missing ]");
+            }
+
+            char sym = this.regex.charAt(this.pos++);
+            if (sym == ']' && !first) {
+                // end of character class (a leading ] is a literal)
+                break;
+            }
+            first = false;
+
+            BitSet start;
+            if (sym == '[' && this.lookingAt(':')) {
+                charClass.or(this.parsePosixClass());
+                continue;
+            } else if (sym == '\\' && this.preg) {
+                start = this.escape();
+            } else {
+                start = new BitSet();
+                start.set(sym);
+            }
+
+            // character range lying ahead (but only if the minus is not the
+            // last character in this character class)
+            if (start.cardinality() == 1 && this.pos + 1 < this.regex.length() && this.lookingAt('-') &&
+                this.regex.charAt(this.pos + 1) != ']') {
+                this.pos++;
+                char endSym = this.regex.charAt(this.pos++);
+                BitSet end;
+                if (endSym == '\\' && this.preg) {
+                    end = this.escape();
+                } else {
+                    end = new BitSet();
+                    end.set(endSym);
+                }
+                if (end.cardinality() != 1 || start.nextSetBit(0) > end.nextSetBit(0)) {
+                    throw new RuntimeException("faulty regex: invalid range");
+                }
+                charClass.set(start.nextSetBit(0), end.nextSetBit(0) + 1);
+            } else {
+                charClass.or(start);
+            }
+        }
+
+        if (negated) {
+            charClass = this.caseFold(charClass);
+            charClass.flip(Character.MIN_VALUE, Character.MAX_VALUE + 1);
+        }
+        return charClass;
+    }
+
+    // parses a POSIX class such as [:alpha:] (after the opening bracket)
+    private BitSet parsePosixClass() {
+        int end = this.regex.indexOf(":]", this.pos + 1);
+        if (end < 0) {
+            throw new RuntimeException("faulty regex: missing :]");
+        }
+        String name = this.regex.substring(this.pos + 1, end);
+        this.pos = end + 2;
+
+        BitSet chars = new BitSet();
+        for (char c = 0; c < 128; c++) {
+            boolean member;
+            switch (name) {
+                case "alpha":
+                    member = Character.isLetter(c);
+                    break;
+                case "digit":
+                    member = Character.isDigit(c);
+                    break;
+                case "alnum":
+                    member = Character.isLetterOrDigit(c);
+                    break;
+                case "upper":
+                    member = Character.isUpperCase(c);
+                    break;
+                case "lower":
+                    member = Character.isLowerCase(c);
+                    break;
+                case "space":
+                    member = " \t\n\r\f\u000b".indexOf(c) >= 0;
+                    break;
+                case "blank":
+                    member = c == ' ' || c == '\t';
+                    break;
+                case "punct":
+                    member = c > ' ' && c < 127 && !Character.isLetterOrDigit(c);
+                    break;
+                case "xdigit":
+                    member = Character.digit(c, 16) >= 0;
+                    break;
+                case "cntrl":
+                    member = c < ' ' || c == 127;
+                    break;
+                case "print":
+                    member = c >= ' ' && c < 127;
+                    break;
+                case "graph":
+                    member = c > ' ' && c < 127;
+                    break;
+                case "word":
+                    member = Character.isLetterOrDigit(c) || c == '_';
+                    break;
+                default:
+                    throw new RuntimeException("faulty regex: unknown class " + name);
+            }
+            if (member) {
+                chars.set(c);
+            }
+        }
+        return chars;
+    }
+
+//  ********************************************************************************
+
+    // handles backslash escaping (expects the position to be right after the
+    // backslash); returns the set of characters that the escape stands for
+    private BitSet escape() {
+        if (this.pos == this.regex.length()) {
+            throw new RuntimeException("faulty regex: trailing backslash");
+        }
+        char escaped = this.regex.charAt(this.pos++);
+        BitSet chars = new BitSet();
+        if (!this.preg || !Character.isLetterOrDigit(escaped)) {
+            if (Character.isLetterOrDigit(escaped)) {
+                // posix regexes don't know these escapes
+                throw new UnsupportedRegexException();
+            }
+            // a simple escape of a metacharacter
+            chars.set(escaped);
+            return chars;
+        }
+
+        switch (escaped) {
+            case 'd':
+            case 'D':
+                chars.set('0', '9' + 1);
+                break;
+            case 'w':
+            case 'W':
+                chars.set('0', '9' + 1);
+                chars.set('A', 'Z' + 1);
+                chars.set('a', 'z' + 1);
+                chars.set('_');
+                break;
+            case 's':
+            case 'S':
+                for (char c : " \t\n\r\f\u000b".toCharArray()) {
+                    chars.set(c);
+                }
+                break;
+            case 't':
+                chars.set('\t');
+                return chars;
+            case 'n':
+                chars.set('\n');
+                return chars;
+            case 'r':
+                chars.set('\r');
+                return chars;
+            case 'f':
+                chars.set('\f');
+                return chars;
+            case 'v':
+                chars.set('\u000b');
+                return chars;
+            case 'e':
+                chars.set('\u001b');
+                return chars;
+            case 'a':
+                chars.set('\u0007');
+                return chars;
+            case '0':
+                chars.set(0);
+                return chars;
+            case 'x':
+                chars.set(this.parseHex());
+                return chars;
+            default:
+                // back references, \b, \A, \p{...}, ...
+                throw new UnsupportedRegexException();
+        }
+        if (Character.isUpperCase(escaped)) {
+            chars.flip(Character.MIN_VALUE, Character.MAX_VALUE + 1);
+        }
+        return chars;
+    }
+
+    // parses the hexadecimal code after \x: up to two digits, or {...}
+    private int parseHex() {
+        int start = this.pos;
+        int end;
+        if (this.lookingAt('{')) {
+            end = this.regex.indexOf('}', start);
+            if (end < 0) {
+                throw new RuntimeException("faulty regex: missing }");
+            }
+            start++;
+            this.pos = end + 1;
+        } else {
+            end = start;
+            while (end < this.regex.length() && end < start + 2 && Character.digit(this.regex.charAt(end), 16) >= 0) {
+                end++;
+            }
+            this.pos = end;
+        }
+        if (start == end) {
+            return 0;
+        }
+        int code = Integer.parseInt(this.regex.substring(start, end), 16);
+        if (code > Character.MAX_VALUE) {
+            throw new UnsupportedRegexException();
+        }
+        return code;
+    }
+
+//  ********************************************************************************
+
+    // adds the other case of all letters (for the "i" modifier)
+    private BitSet caseFold(BitSet chars) {
+        if (!this.caseInsensitive) {
+            return chars;
+        }
+        BitSet folded = (BitSet) chars.clone();
+        for (int c = chars.nextSetBit(0); c >= 0 && c <= Character.MAX_VALUE; c = chars.nextSetBit(c + 1)) {
+            folded.set(Character.toLowerCase(c));
+            folded.set(Character.toUpperCase(c));
+        }
+        return folded;
+    }
+
+    private Automaton makeCharSet(BitSet chars) {
+        return Automaton.makeCharSet(this.caseFold(chars));
+    }
+
+    private boolean lookingAt(char c) {
+        return this.pos < this.regex.length() && this.regex.charAt(this.pos) == c;
+    }
+
+    // returns the atom that a quantifier refers to
+    private Automaton quantified(Automaton last) {
+        if (last == null) {
+            throw new RuntimeException("faulty regex: quantifier without operand");
+        }
+        return last;
+    }
+
+    private static Automaton append(Automaton sequence, Automaton last) {
+        if (last == null) {
+            return sequence;
+        }
+        return sequence.concatenate(last);
+    }
+}
@@ -1,8 +1,6 @@
 package at.ac.tuwien.infosys.www.pixy.sanitation;
 
-import at.ac.tuwien.infosys.www.pixy.MyOptions;
 import at.ac.tuwien.infosys.www.pixy.SqlAnalysis;
-import at.ac.tuwien.infosys.www.pixy.Utils;
 import at.ac.tuwien.infosys.www.pixy.VulnerabilityInformation;
 import at.ac.tuwien.infosys.www.pixy.analysis.dependency.DependencyAnalysis;
 import at.ac.tuwien.infosys.www.pixy.analysis.dependency.Sink;
@@ -28,12 +26,9 @@ public class SQLSanitationAnalysis extends AbstractSanitationAnalysis {
     }
 
     public SQLSanitationAnalysis(DependencyAnalysis dependencyAnalysis, boolean getIsTainted) {
-        super("sql", dependencyAnalysis, FSAAutomaton.getUndesiredSQLTest());
+        super("sql", dependencyAnalysis);
+        this.undesiredAutomaton = this.backend.getUndesiredSQLTest();
         this.getIsTainted = getIsTainted;
-        if (MyOptions.fsaHome == null) {
-            Utils.bail("SQL Sanitization analysis requires FSA Utilities.\n" +
-                "Please set a valid path in the config file.");
-        }
     }
 
 //  ********************************************************************************
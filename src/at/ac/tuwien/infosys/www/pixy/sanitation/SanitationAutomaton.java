@@ -0,0 +1,24 @@
+package at.ac.tuwien.infosys.www.pixy.sanitation;
+
+/**
+ * An automaton as used by the sanitation analyses.
+ *
+ * The operations only accept automata from the same backend (see SanitationBackend).
+ */
+public interface SanitationAutomaton {
+    SanitationAutomaton clone();
+
+    SanitationAutomaton concatenate(SanitationAutomaton auto);
+
+    SanitationAutomaton union(SanitationAutomaton auto);
+
+    SanitationAutomaton intersect(SanitationAutomaton auto);
+
+    // returns true if this automaton accepts nothing but (at most) the empty string
+    boolean isEmpty();
+
+    // same as !this.intersect(auto).isEmpty(), but does not have to build the intersection
+    boolean intersects(SanitationAutomaton auto);
+
+    String toDot();
+}
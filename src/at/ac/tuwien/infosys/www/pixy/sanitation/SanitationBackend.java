@@ -0,0 +1,35 @@
+package at.ac.tuwien.infosys.www.pixy.sanitation;
+
+import at.ac.tuwien.infosys.www.pixy.conversion.cfgnodes.AbstractCfgNode;
+
+/**
+ * Creates and transduces the automata for the sanitation analyses.
+ *
+ * There are two implementations: FSABackend uses the external FSA Utilities, JavaBackend works
+ * in-process (see MyOptions.fsaSanitation).
+ */
+public interface SanitationBackend {
+    // creates an automaton that accepts exactly the given string
+    SanitationAutomaton makeString(String s);
+
+    // makes a "dot star" automaton
+    SanitationAutomaton makeAnyString();
+
+    // returns an automaton for the language of undesired strings for sql analysis (test)
+    SanitationAutomaton getUndesiredSQLTest();
+
+    // returns an automaton for the language of undesired strings for xss analysis (test)
+    SanitationAutomaton getUndesiredXSSTest();
+
+    SanitationAutomaton reg_replace(
+        SanitationAutomaton phpPatternAuto, SanitationAutomaton replaceAuto, SanitationAutomaton subjectAuto,
+        boolean preg, AbstractCfgNode cfgNode
+    );
+
+    SanitationAutomaton str_replace(
+        SanitationAutomaton searchAuto, SanitationAutomaton replaceAuto, SanitationAutomaton subjectAuto,
+        AbstractCfgNode cfgNode
+    );
+
+    SanitationAutomaton addslashes(SanitationAutomaton subjectAuto, AbstractCfgNode cfgNode);
+}
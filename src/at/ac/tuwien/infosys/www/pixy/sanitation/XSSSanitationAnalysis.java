@@ -26,7 +26,8 @@ public class XSSSanitationAnalysis extends AbstractSanitationAnalysis {
 //  ********************************************************************************
 
     public XSSSanitationAnalysis(DependencyAnalysis dependencyAnalysis) {
-        super("xss", dependencyAnalysis, FSAAutomaton.getUndesiredXSSTest());
+        super("xss", dependencyAnalysis);
+        this.undesiredAutomaton = this.backend.getUndesiredXSSTest();
     }
 
 //  ********************************************************************************
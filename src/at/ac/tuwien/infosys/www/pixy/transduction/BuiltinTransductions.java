@@ -0,0 +1,214 @@
+package at.ac.tuwien.infosys.www.pixy.transduction;
+
+import at.ac.tuwien.infosys.www.pixy.automaton.Automaton;
+import at.ac.tuwien.infosys.www.pixy.automaton.OperationCache;
+import at.ac.tuwien.infosys.www.pixy.automaton.PackedAutomaton;
+import at.ac.tuwien.infosys.www.pixy.automaton.Replacement;
+import at.ac.tuwien.infosys.www.pixy.automaton.TaintAutomaton;
+import at.ac.tuwien.infosys.www.pixy.automaton.TaintAutomatonFactory;
+import at.ac.tuwien.infosys.www.pixy.automaton.Transducers;
+import at.ac.tuwien.infosys.www.pixy.sanitation.PhpRegex;
+import at.ac.tuwien.infosys.www.pixy.sanitation.Regex2Automaton;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * In-process transductions for the string functions of PHP that are modeled precisely by the SQL analysis (see
+ * SqlAnalysis.makeAutoForOp): str_replace, preg_replace, ereg_replace, addslashes, htmlspecialchars, strtolower,
+ * strtoupper, trim, ltrim, rtrim and substr. Apart from the subject (and the replacement), the arguments have to be
+ * literals.
+ *
+ * The results for hash-consed subjects (PackedAutomaton) are cached, keyed by the function, its literal arguments
+ * and the identity of the subject.
+ */
+public class BuiltinTransductions {
+    public static final OperationCache<PackedAutomaton> results = new OperationCache<>(1024);
+
+    // returns the automaton for the results of a call to the given builtin function, given the automata
+    // for its arguments; returns null if the call is not supported (e.g., because of an argument that
+    // is not a literal), and the caller has to fall back to a coarser model
+    @SuppressWarnings("unchecked")
+    public static <A extends TaintAutomaton<A>> A transduce(
+        String function, List<A> arguments, TaintAutomatonFactory<A> factory
+    ) {
+        // the subject, the other literal arguments (as part of the operation),
+        // and the replacement (for the replace functions)
+        A subject;
+        String operation;
+        A replace = null;
+        switch (function) {
+            case "addslashes":
+            case "htmlspecialchars":
+            case "strtolower":
+            case "strtoupper":
+                // the flags of htmlspecialchars are not supported
+                if (arguments.size() != 1) {
+                    return null;
+                }
+                subject = arguments.get(0);
+                operation = function;
+                break;
+
+            case "trim":
+            case "ltrim":
+            case "rtrim": {
+                if (arguments.isEmpty() || arguments.size() > 2) {
+                    return null;
+                }
+                String chars = arguments.size() == 2 ? getLiteral(arguments.get(1)) : Transducers.WHITESPACE;
+                if (chars == null || chars.contains("..")) {
+                    return null;
+                }
+                subject = arguments.get(0);
+                operation = function + ":" + chars;
+                break;
+            }
+
+            case "substr": {
+                if (arguments.size() < 2 || arguments.size() > 3) {
+                    return null;
+                }
+                Integer start = getInteger(arguments.get(1));
+                Integer length = arguments.size() == 3 ? getInteger(arguments.get(2)) : null;
+                if (start == null || (arguments.size() == 3 && length == null)) {
+                    return null;
+                }
+                subject = arguments.get(0);
+                operation = function + ":" + start + ":" + length;
+                break;
+            }
+
+            case "str_replace": {
+                // (the fourth argument only returns the number of replacements)
+                if (arguments.size() < 3) {
+                    return null;
+                }
+                String search = getLiteral(arguments.get(0));
+                if (search == null) {
+                    return null;
+                }
+                subject = arguments.get(2);
+                replace = arguments.get(1);
+                operation = function + ":" + search;
+                break;
+            }
+
+            case "preg_replace":
+            case "ereg_replace": {
+                // the limit of preg_replace is not supported
+                if (arguments.size() != 3) {
+                    return null;
+                }
+                String pattern = getLiteral(arguments.get(0));
+                if (pattern == null || pattern.isEmpty()) {
+                    return null;
+                }
+                // the replacement must not contain references
+                Automaton replaceAuto = arguments.get(1).toAutomaton();
+                if (!replaceAuto.isFinite()) {
+                    return null;
+                }
+                for (String replaceString : replaceAuto.getFiniteStrings()) {
+                    if (replaceString.indexOf('$') >= 0 || replaceString.indexOf('\\') >= 0) {
+                        return null;
+                    }
+                }
+                subject = arguments.get(2);
+                replace = arguments.get(1);
+                operation = function + ":" + pattern;
+                break;
+            }
+
+            default:
+                return null;
+        }
+
+        boolean cached = subject instanceof PackedAutomaton;
+        if (cached) {
+            PackedAutomaton result = results.get(operation, subject, replace);
+            if (result != null) {
+                return (A) result;
+            }
+        }
+
+        Automaton transduced = run(function, operation, subject.toAutomaton(), replace);
+        if (transduced == null) {
+            return null;
+        }
+        A result = factory.fromAutomaton(transduced);
+        if (cached) {
+            results.put(operation, subject, replace, (PackedAutomaton) result);
+        }
+        return result;
+    }
+
+    // computes the transduction; the literal arguments are taken from the operation
+    private static Automaton run(String function, String operation, Automaton subject, TaintAutomaton<?> replace) {
+        String literals = operation.substring(function.length());
+        switch (function) {
+            case "addslashes":
+                return Transducers.addslashes(subject);
+            case "htmlspecialchars":
+                return Transducers.htmlspecialchars(subject);
+            case "strtolower":
+                return Transducers.strtolower(subject);
+            case "strtoupper":
+                return Transducers.strtoupper(subject);
+            case "trim":
+                return Transducers.trim(subject, literals.substring(1), true, true);
+            case "ltrim":
+                return Transducers.trim(subject, literals.substring(1), true, false);
+            case "rtrim":
+                return Transducers.trim(subject, literals.substring(1), false, true);
+            case "substr": {
+                String[] bounds = literals.substring(1).split(":");
+                int start = Integer.parseInt(bounds[0]);
+                if (bounds[1].equals("null")) {
+                    return Transducers.substr(subject, start);
+                }
+                return Transducers.substr(subject, start, Integer.parseInt(bounds[1]));
+            }
+            case "str_replace":
+                return Replacement.replaceString(subject, literals.substring(1), replace.toAutomaton());
+            default: {
+                // preg_replace, ereg_replace (see Regex2Automaton and PhpRegex.replaceAll)
+                PhpRegex regex;
+                try {
+                    regex = Regex2Automaton.compile(literals.substring(1), function.equals("preg_replace"));
+                } catch (RuntimeException e) {
+                    // unsupported or faulty
+                    return null;
+                }
+                return regex.replaceAll(subject, replace.toAutomaton());
+            }
+        }
+    }
+
+    // returns the string if the given automaton accepts exactly one string; null otherwise
+    private static String getLiteral(TaintAutomaton<?> automaton) {
+        Automaton a = automaton.toAutomaton();
+        if (!a.isFinite()) {
+            return null;
+        }
+        // getFiniteStrings can miss the empty string
+        Set<String> strings = new HashSet<>(a.getFiniteStrings());
+        if (a.run("")) {
+            strings.add("");
+        }
+        return strings.size() == 1 ? strings.iterator().next() : null;
+    }
+
+    private static Integer getInteger(TaintAutomaton<?> automaton) {
+        String literal = getLiteral(automaton);
+        if (literal == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(literal.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package at.ac.tuwien.infosys.www.pixy.transduction;
 
 import at.ac.tuwien.infosys.www.pixy.MyOptions;
 import at.ac.tuwien.infosys.www.pixy.automaton.Automaton;
+import at.ac.tuwien.infosys.www.pixy.automaton.TaintAutomaton;
 import rationals.State;
 import rationals.Transition;
 import rationals.transductions.TransducerNivat;
@@ -27,11 +28,11 @@ public class MyTransductions {
     }
 
     // applies a str_replace transduction with the given inputs and returns the
-    // resulting automaton;
+    // resulting automaton (the subject can be an Automaton or a PackedAutomaton);
     // WARNING: only works if MyAlphabet.java covers all characters that are in use
-    public Automaton str_replace(String search, String replace, Automaton subject) {
+    public Automaton str_replace(String search, String replace, TaintAutomaton<?> subject) {
 
-        String subjectAutoFSM = subject.toFsmTools();
+        String subjectAutoFSM = subject.toAutomaton().toFsmTools();
         String tempDir = MyOptions.pixyHome + "/transducers/temp/";
         new File(tempDir).mkdir();
 
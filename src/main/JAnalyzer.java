@@ -28,6 +28,25 @@ public class JAnalyzer {
 
 	public static int DEBUG_MODE;
 	public static FunctionLibrary funlib;
+	
+	// the solver processes, started on the first query
+	private static SolverPool solverPool;
+	
+	public static synchronized SolverPool getSolverPool() {
+		
+		if (solverPool == null) {
+			final SolverPool pool = new SolverPool(
+					MyOptions.solverCommand, VCGenerator.PREAMBLE, MyOptions.solverProcesses);
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				public void run() {
+					pool.shutdown();
+				}
+			});
+			solverPool = pool;
+		}
+		return solverPool;
+		
+	}
 
 	public static void main(String[] args) throws Exception {
 
@@ -87,96 +106,25 @@ public class JAnalyzer {
 		*/
 	}
 
-	// return true when the vulnerability is valid
-	public static boolean analyze(String filename, ParseTree parseTree, Set<Integer> sinks) throws Exception {
-		
-		boolean ret = true;
+	/**
+	 * Translates the given parse tree into verification conditions for the given sink lines
+	 */
+	public static SinkRefiner createRefiner(ParseTree parseTree, Set<Integer> sinks) throws Exception {
 		
 		DEBUG_MODE = 0;
 		funlib = new FunctionLibrary();
 		
-	    try {
-	    	String jaDir = "/home/ruoyu/PROJECTS/JAnalyzer";
-	    	
-	    	ParseNode root = parseTree.getRoot();
-	    	//Dumper.dumpDot(parseTree, jaDir, "parseTree");
-	    	utils.ParseTreeUtils.printParseNode(root, "");
-	    	
-	    	AST ast = new AST(parseTree.getRoot());
-	    	
-	    	/*
-	    	Preprocess preprs = new Preprocess(ast);
-	    	preprs.process();
-	    	*/
-	    	
-	    	PhpFile phpFile = new PhpFile(ast, sinks);
-	    	phpFile.printPhpFile();
-	    	
-	    	
-	    	/*
-	    	Preprocess preprs = new Preprocess(doc);
-	    	preprs.process();
-	    	
-	    	
-	    	// output to a file, for debugging purpose only
-			TransformerFactory transformerFactory = TransformerFactory.newInstance();
-			Transformer transformer = transformerFactory.newTransformer();
-			DOMSource source = new DOMSource(doc);
-			StreamResult result = new StreamResult(new File("/home/ruoyu/PROJECTS/JAnalyzer/preprocess.xml"));
-			transformer.transform(source, result);
-	    	
-	    	Element root = doc.getDocumentElement();
-	    	*/
-	    	//System.out.println("Root element :" + root.getNodeName());    
-	    	 	
-	    	// Initialize the PhpFile
-	    	// ASSUMPTION: root always has a direct child "scalar:array" which contains a list of statements
-	    	
-	    	
-	    	/*
-	    	PhpFile phpFile = new PhpFile(parseTree, sinks);
-	    	phpFile.printPhpFile();
-	    	
-	    	VCGenerator generator = new VCGenerator(phpFile, jaDir + "/JAnalyzer.smt2");
-	    	generator.generate();
-	    	Thread.sleep(1000);
-	    	
-	    	
-	    	p = Runtime.getRuntime().exec(new String[]{"bash","-c", "/home/ruoyu/PROJECTS/JAnalyzer/cvc4-2014-04-18-x86_64-linux-opt " + jaDir + "/JAnalyzer.smt2 > " + jaDir + "/result"});
-	    	Thread.sleep(200);
-	    	
-	    	System.out.println("RESULT>>>>>>>>>>>>>>>>>>>>>");
-	    	 BufferedReader br = new BufferedReader(new FileReader(jaDir + "/result"));
-	    	 String line = br.readLine();
-	    	 
-	    	 if (line.charAt(0) == 'u') ret = false;
-	    	 
-	    	 while (line != null) {
-	    	   System.out.println(line);
-	    	   line = br.readLine();
-	    	 }
-	    	 */
-	    	
-	    	/*
-	    	System.out.println("Output:>>>>>>>>>>>>>");
-	    	OutputStream os = p.getOutputStream();
-	    	PrintStream prtOs = new PrintStream(os);
-	    	prtOs.println();
-            
-	    	System.out.println("Error:>>>>>>>>>>>>>");
-	    	InputStream  es = p.getErrorStream();
-	    	PrintStream prtEs = new PrintStream(os);
-	    	prtEs.println();
-			*/
-	    	
-	    } catch (Exception e) {
-	    	
-	    	e.printStackTrace();
-	    	return ret;
-	        
-	    }
-	    
-	    return ret;
+		ParseNode root = parseTree.getRoot();
+		if (DEBUG_MODE > 0) {
+			utils.ParseTreeUtils.printParseNode(root, "");
+		}
+		
+		AST ast = new AST(root);
+		
+		PhpFile phpFile = new PhpFile(ast, sinks);
+		phpFile.printPhpFile();
+		
+		return new SinkRefiner(phpFile);
 	}
 
 }
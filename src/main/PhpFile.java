@@ -241,6 +241,21 @@ public class PhpFile {
 	
 	public String toSmtLib() throws Exception {
 		
+		String retString = toSmtLibProgram();
+		
+		// validate taint behavior
+		for (Stmt stmt: sinkStmts) {
+			retString = retString.concat(toSmtLibSink(stmt));
+		}
+		
+		return retString;
+	}
+	
+	/**
+	 * The declarations and the assertions of the program, without the sinks
+	 */
+	public String toSmtLibProgram() throws Exception {
+		
 		String retString = "";
 		
 		// Declare variables
@@ -314,22 +329,27 @@ public class PhpFile {
 		
 		retString = retString.concat("\n");
 		
-		// validate taint behavior
-		for (Stmt stmt: sinkStmts) {
-			retString = retString.concat("(assert (and ");
-			retString = retString.concat(stmt.getPathCondition().getString(true));
+		return retString;
+	}
+	
+	/**
+	 * The assertion that the given sink is reached with tainted data
+	 */
+	public String toSmtLibSink(Stmt stmt) throws Exception {
+		
+		String retString = "(assert (and ";
+		retString = retString.concat(stmt.getPathCondition().getString(true));
+		
+		for (PhpExpr var : stmt.getUseVars()) {
 			
-			for (PhpExpr var : stmt.getUseVars()) {
-				
-				PhpExpr tc = stmt.getTC(var, false);
-				retString = retString.concat(tc.getString(true));
-				retString = retString.concat(" ");
-				
-			}
+			PhpExpr tc = stmt.getTC(var, false);
+			retString = retString.concat(tc.getString(true));
+			retString = retString.concat(" ");
 			
-			retString = retString.concat(" ))\n");
 		}
 		
+		retString = retString.concat(" ))\n");
+		
 		return retString;
 	}
 	
@@ -0,0 +1,75 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the verification conditions of the sinks of one PhpFile, one sink line at a time.
+ *
+ * The program part of the verification conditions is generated once and shared by all
+ * checks, so that the solvers of the SolverPool only have to assert it once. The checks
+ * can be run by several threads at the same time.
+ */
+public class SinkRefiner {
+
+	private String program;
+
+	// sink line -> queries for the sink statements on this line
+	private Map<Integer, List<String>> queries;
+
+	public SinkRefiner(PhpFile phpFile) throws Exception {
+
+		// everything is generated here, so that the checks only read
+		VCGenerator generator = new VCGenerator(phpFile, "JAnalyzer.smt2");
+		program = generator.getProgram();
+
+		queries = new HashMap<Integer, List<String>>();
+		for (Stmt stmt : phpFile.getSinks()) {
+			List<String> lineQueries = queries.get(stmt.startLine);
+			if (lineQueries == null) {
+				lineQueries = new ArrayList<String>();
+				queries.put(stmt.startLine, lineQueries);
+			}
+			lineQueries.add(generator.getQuery(stmt));
+		}
+
+	}
+
+	/**
+	 * Checks if tainted data can reach the sink on the given line.
+	 *
+	 * SAT if this is possible for one of the sink statements on this line, UNSAT if it is
+	 * impossible for all of them, TIMEOUT if the given time is up before an answer has been
+	 * found, and UNKNOWN otherwise (e.g., if there is no sink statement on this line).
+	 */
+	public SmtSolver.Result check(int sinkLine, long timeoutMillis) throws Exception {
+
+		List<String> lineQueries = queries.get(sinkLine);
+		if (lineQueries == null) {
+			return SmtSolver.Result.UNKNOWN;
+		}
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		SmtSolver.Result ret = SmtSolver.Result.UNSAT;
+		for (String query : lineQueries) {
+			long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			if (remaining <= 0) {
+				return SmtSolver.Result.TIMEOUT;
+			}
+
+			SmtSolver.Result result = JAnalyzer.getSolverPool().check(program, query, remaining);
+			if (result == SmtSolver.Result.SAT) {
+				return result;
+			}
+			if (result != SmtSolver.Result.UNSAT && ret != SmtSolver.Result.TIMEOUT) {
+				ret = result;
+			}
+		}
+		return ret;
+
+	}
+
+}
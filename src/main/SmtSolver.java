@@ -0,0 +1,165 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A long-running SMT solver process that reads SMT-LIB commands from its standard input
+ * and writes the answers to its standard output.
+ *
+ * The program (the prefix) is asserted in the first scope of the assertion stack, and each
+ * query is checked in a scope of its own on top of it, so that the prefix is only sent and
+ * processed once for all queries about the same program.
+ */
+public class SmtSolver {
+
+	public enum Result { SAT, UNSAT, UNKNOWN, TIMEOUT }
+
+	// put into the output queue when the solver has closed its output
+	private static final String EOF = new String("EOF");
+
+	private Process process;
+	private Writer input;
+
+	// the lines written by the solver, filled by a reader thread
+	private BlockingQueue<String> output;
+
+	// the prefix asserted at the bottom of the assertion stack, or null
+	private String prefix;
+
+	private boolean alive;
+
+	/**
+	 * Starts the solver.
+	 *
+	 * @param command the command line of the solver (split at whitespace)
+	 * @param preamble commands that are sent once after starting (e.g., set-logic)
+	 */
+	public SmtSolver(String command, String preamble) throws IOException {
+
+		ProcessBuilder builder = new ProcessBuilder(command.trim().split("\\s+"));
+		builder.redirectErrorStream(true);
+		process = builder.start();
+		alive = true;
+
+		input = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+		output = new LinkedBlockingQueue<String>();
+
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+		Thread readerThread = new Thread(new Runnable() {
+			public void run() {
+				try {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						output.add(line.trim());
+					}
+				} catch (IOException e) {
+					// the process is gone
+				}
+				output.add(EOF);
+			}
+		}, "smt-solver-output");
+		readerThread.setDaemon(true);
+		readerThread.start();
+
+		send(preamble);
+
+	}
+
+	public String getPrefix() {
+
+		return prefix;
+
+	}
+
+	public boolean isAlive() {
+
+		return alive;
+
+	}
+
+	/**
+	 * Replaces the prefix that is currently asserted by the given one.
+	 */
+	public void assertPrefix(String newPrefix) throws IOException {
+
+		StringBuilder commands = new StringBuilder();
+		if (prefix != null) {
+			commands.append("(pop 1)\n");
+		}
+		prefix = null;
+		commands.append("(push 1)\n");
+		commands.append(newPrefix);
+		send(commands.toString());
+		prefix = newPrefix;
+
+	}
+
+	/**
+	 * Checks the satisfiability of the prefix together with the given query;
+	 * the assertions of the query are retracted afterwards.
+	 *
+	 * If the solver does not answer in time, it is stopped and cannot be used any longer.
+	 */
+	public Result check(String query, long timeoutMillis) throws IOException, InterruptedException {
+
+		send("(push 1)\n" + query + "(check-sat)\n(pop 1)\n");
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		while (true) {
+			long remaining = deadline - System.nanoTime();
+			String line = remaining > 0 ? output.poll(remaining, TimeUnit.NANOSECONDS) : null;
+			if (line == null) {
+				stop();
+				return Result.TIMEOUT;
+			}
+			if (line == EOF) {
+				stop();
+				return Result.UNKNOWN;
+			}
+
+			switch (line) {
+				case "sat":
+					return Result.SAT;
+				case "unsat":
+					return Result.UNSAT;
+				case "unknown":
+					return Result.UNKNOWN;
+				default:
+					// e.g., "success" or an error message of the solver
+					if (JAnalyzer.DEBUG_MODE > 0) {
+						System.out.println("solver: " + line);
+					}
+			}
+		}
+
+	}
+
+	public void stop() {
+
+		alive = false;
+		prefix = null;
+		process.destroy();
+
+	}
+
+	private void send(String commands) throws IOException {
+
+		try {
+			input.write(commands);
+			input.flush();
+		} catch (IOException e) {
+			stop();
+			throw e;
+		}
+
+	}
+
+}
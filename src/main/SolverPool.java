@@ -0,0 +1,115 @@
+package main;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of SMT solver processes (see SmtSolver) that are shared by all refinement queries.
+ *
+ * The processes are started when they are needed first, up to the size of the pool. A query is
+ * given to an idle process; if this process already has the query's program asserted, only the
+ * query itself is sent. Processes that time out are replaced by new ones.
+ */
+public class SolverPool {
+
+	private String command;
+	private String preamble;
+	private int size;
+
+	private BlockingQueue<SmtSolver> idle;
+	private List<SmtSolver> started;
+	private boolean closed;
+
+	public SolverPool(String command, String preamble, int size) {
+
+		this.command = command;
+		this.preamble = preamble;
+		this.size = size;
+		idle = new LinkedBlockingQueue<SmtSolver>();
+		started = new ArrayList<SmtSolver>();
+		closed = false;
+
+	}
+
+	/**
+	 * Checks the satisfiability of the given program together with the given query.
+	 */
+	public SmtSolver.Result check(String program, String query, long timeoutMillis)
+			throws IOException, InterruptedException {
+
+		SmtSolver solver = acquire();
+		try {
+			if (!program.equals(solver.getPrefix())) {
+				solver.assertPrefix(program);
+			}
+			return solver.check(query, timeoutMillis);
+		} finally {
+			release(solver);
+		}
+
+	}
+
+	/**
+	 * Stops all solver processes.
+	 */
+	public synchronized void shutdown() {
+
+		closed = true;
+		for (SmtSolver solver : started) {
+			solver.stop();
+		}
+		started.clear();
+		idle.clear();
+
+	}
+
+	public synchronized int getNumStarted() {
+
+		return started.size();
+
+	}
+
+	private SmtSolver acquire() throws IOException, InterruptedException {
+
+		while (true) {
+			synchronized (this) {
+				if (closed) {
+					throw new IOException("solver pool has been shut down");
+				}
+				SmtSolver solver = idle.poll();
+				if (solver != null) {
+					return solver;
+				}
+				if (started.size() < size) {
+					solver = new SmtSolver(command, preamble);
+					started.add(solver);
+					return solver;
+				}
+			}
+
+			// wait for a solver to become idle; check again from time to time,
+			// since a solver that has been stopped makes room for a new one
+			SmtSolver solver = idle.poll(100, TimeUnit.MILLISECONDS);
+			if (solver != null) {
+				return solver;
+			}
+		}
+
+	}
+
+	private synchronized void release(SmtSolver solver) {
+
+		if (solver.isAlive() && !closed) {
+			idle.add(solver);
+		} else {
+			started.remove(solver);
+			solver.stop();
+		}
+
+	}
+
+}
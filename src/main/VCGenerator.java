@@ -6,6 +6,12 @@ import java.io.IOException;
 
 public class VCGenerator {
 	
+	// the head of the smt file (also sent to the solvers in the SolverPool)
+	public static final String PREAMBLE =
+			"(set-logic QF_S)\n" +
+			"(set-option :strings-exp true)\n" +
+			"(set-option :produce-models true)\n";
+	
 	private PhpFile inputFile;
 	private String outputFileName;
 	
@@ -40,13 +46,29 @@ public class VCGenerator {
 		
 	}
 	
+	/**
+	 * The program, i.e., the part of the verification condition that is shared by all sinks
+	 */
+	public String getProgram() throws Exception {
+		
+		return inputFile.toSmtLibProgram();
+		
+	}
+	
+	/**
+	 * The verification condition for the given sink, to be checked together with the program
+	 */
+	public String getQuery(Stmt sink) throws Exception {
+		
+		return inputFile.toSmtLibSink(sink);
+		
+	}
+	
 	public void generate() throws Exception {
 		
 		// head of the smt file
 		BufferedWriter writer = new BufferedWriter(new FileWriter(outputFileName));
-		writer.write("(set-logic QF_S)\n");
-		writer.write("(set-option :strings-exp true)\n");
-		writer.write("(set-option :produce-models true)\n");
+		writer.write(PREAMBLE);
 		
 		// generate program
 		
@@ -0,0 +1,99 @@
+package at.ac.tuwien.infosys.www.pixy;
+
+import at.ac.tuwien.infosys.www.pixy.analysis.interprocedural.ConnectorComputation;
+import at.ac.tuwien.infosys.www.pixy.analysis.interprocedural.callstring.EncodedCallStrings;
+import at.ac.tuwien.infosys.www.pixy.conversion.TacConverter;
+import at.ac.tuwien.infosys.www.pixy.conversion.TacFunction;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Measures how the connector computation scales with the call-string length (k)
+ * and with the size of the call graph.
+ *
+ * The programs are generated: "layers" layers of "width" functions each, where every function
+ * calls "fanout" functions of the next layer, and the main function calls all functions of the
+ * first layer. Besides, every function calls a shared helper function, which is thus reached
+ * by many call strings. Usage:
+ *
+ * java -Dpixy.home=... ConnectorComputationBenchmark [max k] [width...]
+ *
+ * @author Nenad Jovanovic <enji@seclab.tuwien.ac.at>
+ */
+public class ConnectorComputationBenchmark {
+    private static final int LAYERS = 8;
+    private static final int FANOUT = 4;
+
+    public static void main(String[] args) throws IOException {
+        int maxK = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int[] widths = {25, 50, 100, 200};
+        if (args.length > 1) {
+            widths = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                widths[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+
+        MyOptions.graphPath = MyOptions.pixyHome + "/graphs";
+        MyOptions.setAnalyses("xss");
+
+        System.out.println("functions\tcalls\tk\tcallStrings\tcontexts\tmillis");
+        for (int width : widths) {
+            File file = File.createTempFile("connectors", ".php");
+            file.deleteOnExit();
+            Utils.writeToFile(generate(width), file.getPath());
+            TacConverter tac = new Checker(file.getPath()).initialize().getTac();
+
+            int calls = 0;
+            for (TacFunction function : tac.getAllFunctions()) {
+                calls += function.getContainedCalls().size();
+            }
+
+            for (int k = 0; k <= maxK; k++) {
+                // warm up, then measure
+                compute(tac, k);
+                long start = System.nanoTime();
+                ConnectorComputation connectorComputation = compute(tac, k);
+                long millis = (System.nanoTime() - start) / 1000000;
+
+                int contexts = 0;
+                for (EncodedCallStrings encodedCallStrings : connectorComputation.getFunction2ECS().values()) {
+                    contexts += encodedCallStrings.size();
+                }
+                System.out.println(tac.getAllFunctions().size() + "\t" + calls + "\t" + k + "\t"
+                    + connectorComputation.getNumCallStrings() + "\t" + contexts + "\t" + millis);
+            }
+        }
+    }
+
+    private static ConnectorComputation compute(TacConverter tac, int k) {
+        ConnectorComputation connectorComputation =
+            new ConnectorComputation(tac.getAllFunctions(), tac.getMainFunction(), k);
+        connectorComputation.compute();
+        return connectorComputation;
+    }
+
+    private static String generate(int width) {
+        StringBuilder b = new StringBuilder("<?php\n");
+        b.append("function helper($x) {\n  return $x;\n}\n");
+        for (int layer = 0; layer < LAYERS; layer++) {
+            for (int i = 0; i < width; i++) {
+                b.append("function f_").append(layer).append("_").append(i).append("($x) {\n");
+                b.append("  $x = helper($x);\n");
+                if (layer + 1 < LAYERS) {
+                    for (int j = 0; j < FANOUT; j++) {
+                        b.append("  $x = f_").append(layer + 1).append("_").append((i * FANOUT + j) % width)
+                            .append("($x);\n");
+                    }
+                }
+                b.append("  return $x;\n}\n");
+            }
+        }
+        for (int i = 0; i < width; i++) {
+            b.append("echo f_0_").append(i).append("($_GET['x']);\n");
+        }
+        b.append("?>\n");
+        return b.toString();
+    }
+}
@@ -0,0 +1,16 @@
+package at.ac.tuwien.infosys.www.pixy;
+
+/**
+ * Runs the tests of DepGraphTestCase with the demand-driven dependency analysis (option -e, see
+ * MyOptions.demandDriven); the dependency graphs must be the same as with the exhaustive one.
+ */
+public class DepGraphTestCaseDemand extends DepGraphTestCase {
+    protected void setUp() {
+        super.setUp();
+        MyOptions.demandDriven = true;
+    }
+
+    protected void tearDown() {
+        MyOptions.demandDriven = false;
+    }
+}
@@ -0,0 +1,91 @@
+package at.ac.tuwien.infosys.www.pixy;
+
+import at.ac.tuwien.infosys.www.pixy.analysis.dependency.DependencyAnalysis;
+import at.ac.tuwien.infosys.www.pixy.analysis.dependency.Sink;
+import at.ac.tuwien.infosys.www.pixy.analysis.dependency.graph.DependencyGraph;
+import at.ac.tuwien.infosys.www.pixy.automaton.Automaton;
+import at.ac.tuwien.infosys.www.pixy.automaton.TaintAutomaton;
+import at.ac.tuwien.infosys.www.pixy.conversion.TacConverter;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs the SQL analysis on the testfiles of SQLTestCase with packed automata (option -X, see
+ * MyOptions.packedAutomata), and compares the results with those of the normal automata.
+ *
+ * The packed automata are hash-consed (so unions of equal automata are deduplicated), and hence do not have the
+ * same structure as the normal ones; the test therefore compares the languages and the findings, and not the dot
+ * files.
+ */
+public class SQLTestCasePacked extends TestCase {
+    private String path;    // complete path to the testfile directory (with trailing slash)
+
+    protected void setUp() {
+        this.path = MyOptions.pixyHome + "/testfiles/sql/";
+        MyOptions.graphPath = MyOptions.pixyHome + "/graphs";
+    }
+
+    protected void tearDown() {
+        MyOptions.packedAutomata = false;
+    }
+
+    public void testPacked() {
+        String[] testFiles = new File(this.path).list();
+        Arrays.sort(testFiles);
+        int graphCount = 0;
+        for (String testFile : testFiles) {
+            if (testFile.startsWith("test") && testFile.endsWith(".php")) {
+                graphCount += this.compare(testFile);
+            }
+        }
+        assertTrue("Graphs: " + graphCount, graphCount > 0);
+    }
+
+    // compares the automata for the graphs of the given testfile; returns the number of graphs
+    private int compare(String testFile) {
+        Checker checker = new Checker(this.path + testFile);
+        MyOptions.option_A = true;
+        MyOptions.setAnalyses("sql");
+
+        TacConverter tac = checker.initialize().getTac();
+        checker.analyzeTaint(tac, false);
+        DependencyAnalysis dependencyAnalysis = checker.gta.dependencyAnalysis;
+        SqlAnalysis sqlAnalysis = (SqlAnalysis) checker.gta.getAbstractVulnerabilityAnalyses().get(0);
+
+        List<Sink> sinks = sqlAnalysis.collectSinks();
+        Collections.sort(sinks);
+
+        int graphCount = 0;
+        for (Sink sink : sinks) {
+            for (DependencyGraph dependencyGraph : dependencyAnalysis.getDependencyGraphsForSink(sink)) {
+                graphCount++;
+                String message = testFile + ", graph " + graphCount;
+
+                MyOptions.packedAutomata = false;
+                TaintAutomaton<?> normal = sqlAnalysis.toTaintAutomaton(
+                    new DependencyGraph(dependencyGraph), dependencyGraph);
+                MyOptions.packedAutomata = true;
+                TaintAutomaton<?> packed = sqlAnalysis.toTaintAutomaton(
+                    new DependencyGraph(dependencyGraph), dependencyGraph);
+                MyOptions.packedAutomata = false;
+
+                // the findings of SqlAnalysis.detectVulnerabilitiesInDependencyGraph
+                assertEquals(message, normal.hasDirectlyTaintedTransitions(), packed.hasDirectlyTaintedTransitions());
+                assertEquals(message,
+                    normal.hasIndirectlyTaintedTransitions(), packed.hasIndirectlyTaintedTransitions());
+                assertEquals(message, normal.hasDangerousIndirectTaint(), packed.hasDangerousIndirectTaint());
+
+                // the same language
+                Automaton normalAuto = normal.toAutomaton();
+                Automaton packedAuto = packed.toAutomaton();
+                assertTrue(message, normalAuto.subsetOf(packedAuto));
+                assertTrue(message, packedAuto.subsetOf(normalAuto));
+            }
+        }
+        return graphCount;
+    }
+}
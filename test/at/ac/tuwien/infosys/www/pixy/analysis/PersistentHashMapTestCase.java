@@ -0,0 +1,256 @@
+package at.ac.tuwien.infosys.www.pixy.analysis;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Cross-checks PersistentHashMap against java.util.HashMap.
+ */
+public class PersistentHashMapTestCase extends TestCase {
+    // a key with a given hash code; few distinct hash codes result in collision nodes,
+    // hash codes that only differ in their high bits result in deep tries
+    private static class Key {
+        private final int id;
+        private final int hash;
+
+        Key(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).id == this.id;
+        }
+
+        public int hashCode() {
+            return this.hash;
+        }
+
+        public String toString() {
+            return this.id + "#" + this.hash;
+        }
+    }
+
+    // keys 0..n-1; the hash codes are taken from the given number of distinct values
+    private static Key[] makeKeys(Random random, int n, int hashes) {
+        int[] values = new int[hashes];
+        for (int i = 0; i < hashes; i++) {
+            values[i] = random.nextBoolean() ? random.nextInt() : random.nextInt(4) << 28;
+        }
+        Key[] keys = new Key[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = new Key(i, values[random.nextInt(hashes)]);
+        }
+        return keys;
+    }
+
+    private static void assertSameMap(Map<Key, Integer> expected, PersistentHashMap<Key, Integer> actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+        assertEquals(expected.hashCode(), actual.hashCode());
+        assertEquals(expected, actual);
+        assertEquals(actual, expected);
+        // the iterator returns each entry exactly once
+        Map<Key, Integer> iterated = new HashMap<>();
+        for (Map.Entry<Key, Integer> entry : actual.entrySet()) {
+            assertNull(iterated.put(entry.getKey(), entry.getValue()));
+        }
+        assertEquals(expected, iterated);
+    }
+
+    public void testPutRemove() {
+        Random random = new Random(0);
+        for (int hashes : new int[]{1, 3, 50, 1000}) {
+            Key[] keys = makeKeys(random, 200, hashes);
+            Map<Key, Integer> expected = new HashMap<>();
+            PersistentHashMap<Key, Integer> actual = new PersistentHashMap<>();
+            for (int i = 0; i < 3000; i++) {
+                Key key = keys[random.nextInt(keys.length)];
+                if (random.nextInt(3) == 0) {
+                    assertEquals(expected.remove(key), actual.remove(key));
+                } else {
+                    Integer value = random.nextInt(5);
+                    assertEquals(expected.put(key, value), actual.put(key, value));
+                }
+                Key probe = keys[random.nextInt(keys.length)];
+                assertEquals(expected.get(probe), actual.get(probe));
+                assertEquals(expected.containsKey(probe), actual.containsKey(probe));
+                if (i % 100 == 0) {
+                    assertSameMap(expected, actual);
+                }
+            }
+            assertSameMap(expected, actual);
+            for (Key key : keys) {
+                assertEquals(expected.remove(key), actual.remove(key));
+            }
+            assertSameMap(expected, actual);
+        }
+    }
+
+    public void testSnapshots() {
+        Random random = new Random(1);
+        Key[] keys = makeKeys(random, 100, 20);
+        Map<Key, Integer> expected = new HashMap<>();
+        PersistentHashMap<Key, Integer> actual = new PersistentHashMap<>();
+        List<Map<Key, Integer>> expectedSnapshots = new ArrayList<>();
+        List<PersistentHashMap<Key, Integer>> actualSnapshots = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Key key = keys[random.nextInt(keys.length)];
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                actual.remove(key);
+            } else {
+                Integer value = random.nextInt(5);
+                expected.put(key, value);
+                actual.put(key, value);
+            }
+            if (i % 50 == 0) {
+                expectedSnapshots.add(new HashMap<>(expected));
+                actualSnapshots.add(new PersistentHashMap<>(actual));
+            }
+        }
+        // the modifications did not change the copies
+        for (int i = 0; i < expectedSnapshots.size(); i++) {
+            assertSameMap(expectedSnapshots.get(i), actualSnapshots.get(i));
+        }
+        // nor do the modifications of the copies change the original
+        PersistentHashMap<Key, Integer> copy = actualSnapshots.get(actualSnapshots.size() - 1);
+        copy.clear();
+        assertTrue(copy.isEmpty());
+        assertSameMap(expected, actual);
+        // copying from another kind of map
+        assertSameMap(expected, new PersistentHashMap<>(expected));
+    }
+
+    public void testEquals() {
+        Random random = new Random(2);
+        for (int hashes : new int[]{2, 1000}) {
+            Key[] keys = makeKeys(random, 50, hashes);
+            for (int i = 0; i < 200; i++) {
+                // the same entries, inserted in different orders and with detours
+                PersistentHashMap<Key, Integer> map1 = new PersistentHashMap<>();
+                PersistentHashMap<Key, Integer> map2 = new PersistentHashMap<>();
+                Map<Key, Integer> expected = new HashMap<>();
+                for (int j = random.nextInt(30); j > 0; j--) {
+                    Key key = keys[random.nextInt(keys.length)];
+                    Integer value = random.nextInt(3);
+                    map1.put(key, value);
+                    expected.put(key, value);
+                }
+                List<Key> order = new ArrayList<>(expected.keySet());
+                Collections.shuffle(order, random);
+                for (Key key : order) {
+                    Key other = keys[random.nextInt(keys.length)];
+                    boolean detour = !expected.containsKey(other);
+                    if (detour) {
+                        map2.put(other, 7);
+                    }
+                    map2.put(key, expected.get(key));
+                    if (detour) {
+                        map2.remove(other);
+                    }
+                }
+                assertEquals(map1, map2);
+                assertEquals(map1.hashCode(), map2.hashCode());
+
+                // a different value, or a missing entry
+                if (!order.isEmpty()) {
+                    Key key = order.get(0);
+                    map2.put(key, expected.get(key) + 1);
+                    assertFalse(map1.equals(map2));
+                    map2.remove(key);
+                    assertFalse(map1.equals(map2));
+                    assertFalse(map2.equals(map1));
+                }
+            }
+        }
+    }
+
+    public void testForEachDifference() {
+        Random random = new Random(3);
+        for (int hashes : new int[]{2, 1000}) {
+            Key[] keys = makeKeys(random, 60, hashes);
+            for (int i = 0; i < 200; i++) {
+                PersistentHashMap<Key, Integer> map1 = new PersistentHashMap<>();
+                for (int j = random.nextInt(40); j > 0; j--) {
+                    map1.put(keys[random.nextInt(keys.length)], random.nextInt(3));
+                }
+                // the second map shares most of its trie with the first one
+                PersistentHashMap<Key, Integer> map2 = new PersistentHashMap<>(map1);
+                for (int j = random.nextInt(6); j > 0; j--) {
+                    Key key = keys[random.nextInt(keys.length)];
+                    if (random.nextBoolean()) {
+                        map2.remove(key);
+                    } else {
+                        map2.put(key, random.nextInt(3));
+                    }
+                }
+
+                Map<Key, Integer> expected1 = new HashMap<>(map1);
+                Map<Key, Integer> expected2 = new HashMap<>(map2);
+                Set<Key> expectedKeys = new HashSet<>();
+                for (Key key : keys) {
+                    Integer value1 = expected1.get(key);
+                    Integer value2 = expected2.get(key);
+                    if (value1 == null ? value2 != null : !value1.equals(value2)) {
+                        expectedKeys.add(key);
+                    }
+                }
+
+                final Set<Key> visited = new HashSet<>();
+                final Map<Key, Integer> visitedMap1 = expected1;
+                final Map<Key, Integer> visitedMap2 = expected2;
+                map1.forEachDifference(map2, new PersistentHashMap.DifferenceVisitor<Key, Integer>() {
+                    public void visit(Key key, Integer thisValue, Integer otherValue) {
+                        assertTrue(visited.add(key));
+                        assertEquals(visitedMap1.get(key), thisValue);
+                        assertEquals(visitedMap2.get(key), otherValue);
+                    }
+                });
+                assertEquals(expectedKeys, visited);
+                assertEquals(expectedKeys.isEmpty(), map1.equals(map2));
+            }
+        }
+    }
+
+    public void testIteratorRemove() {
+        Random random = new Random(4);
+        Key[] keys = makeKeys(random, 300, 40);
+        Map<Key, Integer> expected = new HashMap<>();
+        PersistentHashMap<Key, Integer> actual = new PersistentHashMap<>();
+        for (Key key : keys) {
+            Integer value = random.nextInt(4);
+            expected.put(key, value);
+            actual.put(key, value);
+        }
+        PersistentHashMap<Key, Integer> snapshot = new PersistentHashMap<>(actual);
+
+        int visited = 0;
+        for (Iterator<Map.Entry<Key, Integer>> i = actual.entrySet().iterator(); i.hasNext(); ) {
+            Map.Entry<Key, Integer> entry = i.next();
+            visited++;
+            if (entry.getValue() % 2 == 0) {
+                i.remove();
+                expected.remove(entry.getKey());
+                try {
+                    i.remove();
+                    fail();
+                } catch (IllegalStateException e) {
+                    // expected
+                }
+            }
+        }
+        assertEquals(keys.length, visited);
+        assertSameMap(expected, actual);
+        assertEquals(keys.length, snapshot.size());
+    }
+}
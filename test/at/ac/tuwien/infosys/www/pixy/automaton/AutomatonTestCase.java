@@ -0,0 +1,72 @@
+package at.ac.tuwien.infosys.www.pixy.automaton;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Cross-checks the lazy checks of Automaton against the eager ones.
+ */
+public class AutomatonTestCase extends TestCase {
+    private static final String[] WORDS = {"", "a", "ab", "'", "\\", "\\'", "b'a"};
+
+    private Automaton build(Random random, int depth) {
+        int choice = depth == 0 ? random.nextInt(3) : random.nextInt(6);
+        switch (choice) {
+            case 0:
+                return Automaton.makeString(WORDS[random.nextInt(WORDS.length)]);
+            case 1:
+                return Automaton.makeAnyString(Transition.Taint.values()[random.nextInt(3)]);
+            case 2:
+                char min = "'\\ab".charAt(random.nextInt(4));
+                return Automaton.makeCharRange(min, (char) (min + random.nextInt(3)));
+            case 3:
+                return this.build(random, depth - 1).concatenate(this.build(random, depth - 1));
+            case 4:
+                return this.build(random, depth - 1).repeat();
+            default:
+                return this.build(random, depth - 1).union(this.build(random, depth - 1));
+        }
+    }
+
+    public void testSubsetOf() {
+        Random random = new Random(0);
+        for (int i = 0; i < 500; i++) {
+            Automaton a = this.build(random, 4);
+            Automaton b = random.nextBoolean() ? this.build(random, 4) : a.union(this.build(random, 3));
+            String before = a.toDotUnique() + b.toDotUnique();
+
+            boolean lazy = a.subsetOf(b);
+            assertEquals(before, a.toDotUnique() + b.toDotUnique());
+            assertEquals(a.clone().subsetOfEager(b.clone()), lazy);
+            assertEquals(b.clone().subsetOfEager(a.clone()), b.subsetOf(a));
+        }
+    }
+
+    public void testIntersects() {
+        Random random = new Random(1);
+        for (int i = 0; i < 500; i++) {
+            Automaton a = this.build(random, 4);
+            Automaton b = this.build(random, 4);
+            String before = a.toDotUnique() + b.toDotUnique();
+
+            boolean intersects = a.intersects(b);
+            boolean intersectsNonEmpty = a.intersectsNonEmpty(b);
+            assertEquals(before, a.toDotUnique() + b.toDotUnique());
+
+            Automaton intersection = a.clone().intersection(b.clone());
+            intersection.minimize();
+            assertEquals(!intersection.isEmpty(), intersects);
+            assertEquals(!intersection.isEmpty() && !intersection.isEmptyString(), intersectsNonEmpty);
+        }
+    }
+
+    public void testDangerousIndirectTaint() {
+        Random random = new Random(2);
+        for (int i = 0; i < 500; i++) {
+            Automaton a = this.build(random, 5);
+            a.expandSingleton();
+            assertEquals(a.hasDangerousIndirectTaintEager(), a.hasDangerousIndirectTaint());
+        }
+    }
+}
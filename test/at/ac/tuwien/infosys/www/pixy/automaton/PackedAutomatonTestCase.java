@@ -0,0 +1,138 @@
+package at.ac.tuwien.infosys.www.pixy.automaton;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Cross-checks PackedAutomaton against Automaton.
+ */
+public class PackedAutomatonTestCase extends TestCase {
+    private static final String[] WORDS = {"", "a", "ab", "'", "SELECT * FROM t WHERE id='", "\"", "b'a"};
+
+    // builds the same random automaton with both implementations
+    private <A extends TaintAutomaton<A>> A build(TaintAutomatonFactory<A> factory, long seed) {
+        Random random = new Random(seed);
+        return this.build(factory, random, 4);
+    }
+
+    private <A extends TaintAutomaton<A>> A build(TaintAutomatonFactory<A> factory, Random random, int depth) {
+        int choice = depth == 0 ? random.nextInt(2) : random.nextInt(4);
+        switch (choice) {
+            case 0:
+                return factory.makeString(WORDS[random.nextInt(WORDS.length)]);
+            case 1:
+                return factory.makeAnyString(Transition.Taint.values()[random.nextInt(3)]);
+            case 2:
+                return this.build(factory, random, depth - 1).concatenate(this.build(factory, random, depth - 1));
+            default:
+                A left = this.build(factory, random, depth - 1);
+                A right = this.build(factory, random, depth - 1);
+                // equal PackedAutomata are the same object, and the union of an automaton with itself is the automaton
+                if (left.toDotUnique().equals(right.toDotUnique())) {
+                    return left;
+                }
+                return left.union(right);
+        }
+    }
+
+    public void testOperations() {
+        for (long seed = 0; seed < 200; seed++) {
+            Automaton automaton = this.build(Automaton.FACTORY, seed);
+            PackedAutomaton packed = this.build(PackedAutomaton.FACTORY, seed);
+
+            assertEquals(automaton.toDotUnique(), packed.toDotUnique());
+            assertEquals(automaton.hasTaintedTransitions(), packed.hasTaintedTransitions());
+            assertEquals(automaton.hasDirectlyTaintedTransitions(), packed.hasDirectlyTaintedTransitions());
+            assertEquals(automaton.hasIndirectlyTaintedTransitions(), packed.hasIndirectlyTaintedTransitions());
+            assertEquals(automaton.hasDangerousIndirectTaint(), packed.hasDangerousIndirectTaint());
+        }
+    }
+
+    public void testConversion() {
+        for (long seed = 0; seed < 50; seed++) {
+            Automaton automaton = this.build(Automaton.FACTORY, seed);
+            PackedAutomaton packed = PackedAutomaton.fromAutomaton(automaton);
+            assertEquals(automaton.toDotUnique(), packed.toDotUnique());
+            assertEquals(automaton.toDotUnique(), packed.toAutomaton().toDotUnique());
+        }
+    }
+
+    public void testDanger() {
+        PackedAutomaton quote = PackedAutomaton.makeString("'");
+        PackedAutomaton sanitized = PackedAutomaton.makeAnyString(Transition.Taint.Indirectly);
+        assertFalse(quote.concatenate(sanitized).concatenate(quote).hasDangerousIndirectTaint());
+        assertTrue(sanitized.hasDangerousIndirectTaint());
+        assertTrue(quote.concatenate(quote).concatenate(sanitized).hasDangerousIndirectTaint());
+    }
+
+    public void testMinimize() {
+        Random random = new Random(0);
+        for (long seed = 0; seed < 100; seed++) {
+            Automaton automaton = this.build(Automaton.FACTORY, seed);
+            PackedAutomaton packed = this.build(PackedAutomaton.FACTORY, seed);
+            // Automaton.run determinizes, which drops the taint
+            boolean untainted = !automaton.hasTaintedTransitions();
+            PackedAutomaton determinized = packed.determinize();
+            PackedAutomaton minimized = packed.minimize();
+            assertTrue(determinized.isDeterministic());
+
+            for (int i = 0; i < 50; i++) {
+                StringBuilder s = new StringBuilder();
+                for (int j = random.nextInt(6); j > 0; j--) {
+                    s.append("ab'* x\"".charAt(random.nextInt(7)));
+                }
+                if (random.nextBoolean()) {
+                    s.insert(0, WORDS[random.nextInt(WORDS.length)]);
+                }
+                boolean expected = automaton.run(s.toString());
+                assertEquals(expected, packed.run(s.toString()));
+                assertEquals(expected, determinized.run(s.toString()));
+                assertEquals(expected, minimized.run(s.toString()));
+            }
+
+            // without taint, the minimal automata are the same
+            if (untainted) {
+                automaton.minimize();
+                assertEquals(automaton.getNumberOfStates(), minimized.getNumberOfStates());
+            }
+            assertTrue(minimized.getNumberOfStates() <= determinized.getNumberOfStates());
+            assertEquals(packed.hasDirectlyTaintedTransitions(), minimized.hasDirectlyTaintedTransitions());
+            assertEquals(minimized.getNumberOfStates(), minimized.minimize().getNumberOfStates());
+        }
+    }
+
+    // minimization only merges states with the same taint on the same characters
+    public void testMinimizeKeepsTaint() {
+        PackedAutomaton a = PackedAutomaton.makeString("a");
+        PackedAutomaton tainted = a.concatenate(PackedAutomaton.makeAnyString(Transition.Taint.Directly));
+        PackedAutomaton untainted = PackedAutomaton.makeString("b").concatenate(
+            PackedAutomaton.makeAnyString(Transition.Taint.Untainted));
+        PackedAutomaton minimized = tainted.union(untainted).minimize();
+        assertEquals(3, minimized.getNumberOfStates());
+        assertTrue(minimized.hasDirectlyTaintedTransitions());
+
+        PackedAutomaton same = tainted.union(PackedAutomaton.makeString("b").concatenate(
+            PackedAutomaton.makeAnyString(Transition.Taint.Directly))).minimize();
+        assertEquals(2, same.getNumberOfStates());
+    }
+
+    public void testHashConsing() {
+        PackedAutomaton.reset();
+        PackedAutomaton a = PackedAutomaton.makeString("a").concatenate(
+            PackedAutomaton.makeAnyString(Transition.Taint.Directly));
+        PackedAutomaton b = PackedAutomaton.makeString("a").concatenate(
+            PackedAutomaton.makeAnyString(Transition.Taint.Directly));
+        assertSame(a, b);
+        assertEquals(1, PackedAutomaton.operations.getHits());
+
+        assertSame(a.union(PackedAutomaton.makeString("b")), b.union(PackedAutomaton.makeString("b")));
+        assertSame(a.minimize(), b.minimize());
+        assertEquals(3, PackedAutomaton.operations.getHits());
+
+        // the transitions are sorted, so the order of the operands does not matter here
+        PackedAutomaton c = PackedAutomaton.makeString("b").union(a);
+        assertSame(c, a.union(PackedAutomaton.makeString("b")));
+        assertSame(c.minimize(), c.minimize().minimize());
+    }
+}
@@ -0,0 +1,240 @@
+package at.ac.tuwien.infosys.www.pixy.automaton;
+
+import junit.framework.TestCase;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Cross-checks the transductions of Transducers against Java implementations of the PHP functions.
+ */
+public class TransducersTestCase extends TestCase {
+    private static final String CHARS = "aZ '\"\\\0 \t\n<&";
+
+    private String randomString(Random random) {
+        StringBuilder s = new StringBuilder();
+        for (int i = random.nextInt(6); i > 0; i--) {
+            s.append(CHARS.charAt(random.nextInt(CHARS.length())));
+        }
+        return s.toString();
+    }
+
+    // a union of a few random strings, and the strings themselves
+    private Automaton randomSubject(Random random, Set<String> strings) {
+        Automaton subject = Automaton.makeEmpty();
+        for (int i = random.nextInt(3) + 1; i > 0; i--) {
+            String s = this.randomString(random);
+            strings.add(s);
+            subject = subject.union(Automaton.makeString(s));
+        }
+        return subject;
+    }
+
+    private interface Function {
+        String apply(String s);
+
+        Automaton apply(Automaton a);
+    }
+
+    // checks that the transduction of random subjects results in exactly the expected strings
+    private void check(Function function) {
+        Random random = new Random(0);
+        for (int i = 0; i < 300; i++) {
+            Set<String> strings = new HashSet<>();
+            Automaton subject = this.randomSubject(random, strings);
+            Set<String> expected = new HashSet<>();
+            for (String s : strings) {
+                expected.add(function.apply(s));
+            }
+            Automaton result = function.apply(subject);
+            Set<String> encountered = new HashSet<>(result.getFiniteStrings());
+            if (result.run("")) {
+                encountered.add("");
+            }
+            assertEquals(strings.toString(), expected, encountered);
+        }
+    }
+
+    private static String phpTrim(String s, String chars, boolean left, boolean right) {
+        int start = 0;
+        int end = s.length();
+        while (left && start < end && chars.indexOf(s.charAt(start)) >= 0) {
+            start++;
+        }
+        while (right && end > start && chars.indexOf(s.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return s.substring(start, end);
+    }
+
+    public void testAddslashes() {
+        this.check(new Function() {
+            public String apply(String s) {
+                return s.replace("\\", "\\\\").replace("'", "\\'").replace("\"", "\\\"").replace("\0", "\\0");
+            }
+
+            public Automaton apply(Automaton a) {
+                return Transducers.addslashes(a);
+            }
+        });
+    }
+
+    public void testHtmlspecialchars() {
+        this.check(new Function() {
+            public String apply(String s) {
+                return s.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;").replace(">", "&gt;");
+            }
+
+            public Automaton apply(Automaton a) {
+                return Transducers.htmlspecialchars(a);
+            }
+        });
+    }
+
+    public void testStrtolower() {
+        this.check(new Function() {
+            public String apply(String s) {
+                return s.toLowerCase();
+            }
+
+            public Automaton apply(Automaton a) {
+                return Transducers.strtolower(a);
+            }
+        });
+    }
+
+    public void testTrim() {
+        for (final boolean left : new boolean[]{true, false}) {
+            for (final boolean right : new boolean[]{true, false}) {
+                this.check(new Function() {
+                    public String apply(String s) {
+                        return phpTrim(s, Transducers.WHITESPACE, left, right);
+                    }
+
+                    public Automaton apply(Automaton a) {
+                        return Transducers.trim(a, Transducers.WHITESPACE, left, right);
+                    }
+                });
+            }
+        }
+        this.check(new Function() {
+            public String apply(String s) {
+                return phpTrim(s, "a'", true, true);
+            }
+
+            public Automaton apply(Automaton a) {
+                return Transducers.trim(a, "a'", true, true);
+            }
+        });
+    }
+
+    public void testSubstr() {
+        for (final int start : new int[]{0, 1, 3}) {
+            this.check(new Function() {
+                public String apply(String s) {
+                    return start < s.length() ? s.substring(start) : "";
+                }
+
+                public Automaton apply(Automaton a) {
+                    return Transducers.substr(a, start);
+                }
+            });
+            for (final int length : new int[]{0, 2}) {
+                this.check(new Function() {
+                    public String apply(String s) {
+                        return start < s.length() ? s.substring(start, Math.min(s.length(), start + length)) : "";
+                    }
+
+                    public Automaton apply(Automaton a) {
+                        return Transducers.substr(a, start, length);
+                    }
+                });
+            }
+        }
+
+        // over-approximations
+        Automaton abc = Automaton.makeString("abc");
+        assertTrue(Transducers.substr(abc, -2).run("bc"));
+        assertTrue(Transducers.substr(abc, 1, -1).run("b"));
+        assertTrue(Transducers.substr(abc, -2, 1).run("b"));
+    }
+
+    // automaton for the given string, with the given taint
+    private static Automaton makeString(String s, Transition.Taint taint) {
+        Automaton a = new Automaton();
+        State current = a.initial;
+        for (int i = 0; i < s.length(); i++) {
+            State next = new State();
+            current.transitions.add(new Transition(s.charAt(i), next, taint));
+            current = next;
+        }
+        current.accept = true;
+        return a;
+    }
+
+    public void testReplacementTaint() {
+        Automaton y = Automaton.makeString("y");
+
+        // partial match of the search string at the end of the subject
+        Automaton tainted = makeString("a", Transition.Taint.Directly);
+        Automaton result = Replacement.replaceString(tainted, "ab", y);
+        assertTrue(result.run("a"));
+        assertTrue(result.hasDirectlyTaintedTransitions());
+
+        // partial match, followed by an untainted character
+        result = Replacement.replaceString(tainted.concatenate(Automaton.makeString("c")), "ab", y);
+        assertTrue(result.run("ac"));
+        assertTrue(result.hasDirectlyTaintedTransitions());
+
+        // partial match that is continued by an untainted character: only the
+        // tainted character is emitted with its taint
+        result = Replacement.replaceString(
+            Automaton.makeString("x").concatenate(makeString("a", Transition.Taint.Indirectly))
+                .concatenate(Automaton.makeString("ac")), "aab", y);
+        assertTrue(result.run("xaac"));
+        assertTrue(result.hasIndirectlyTaintedTransitions());
+        assertFalse(result.hasDirectlyTaintedTransitions());
+
+        // the matched characters are replaced, together with their taint
+        result = Replacement.replaceString(makeString("ab", Transition.Taint.Directly), "ab", y);
+        assertFalse(result.hasTaintedTransitions());
+    }
+
+    public void testTaint() {
+        // tainted input is only indirectly tainted after addslashes
+        Automaton query = Automaton.makeString("a='")
+            .concatenate(Transducers.addslashes(Automaton.makeAnyString(Transition.Taint.Directly)))
+            .concatenate(Automaton.makeString("'"));
+        assertFalse(query.hasDirectlyTaintedTransitions());
+        assertTrue(query.hasIndirectlyTaintedTransitions());
+        // the escaped quotes do not end the quoted area
+        assertFalse(query.hasDangerousIndirectTaint());
+        assertFalse(query.hasDangerousIndirectTaintEager());
+
+        // but the result is dangerous outside of quotes
+        Automaton unquoted = Automaton.makeString("a=").concatenate(
+            Transducers.addslashes(Automaton.makeAnyString(Transition.Taint.Directly)));
+        assertTrue(unquoted.hasDangerousIndirectTaint());
+
+        // htmlspecialchars does not escape single quotes: they stay directly tainted, so
+        // that they are not mistaken for escaped quotes inside the quoted area
+        Automaton html = Automaton.makeString("n='")
+            .concatenate(Transducers.htmlspecialchars(Automaton.makeAnyString(Transition.Taint.Directly)))
+            .concatenate(Automaton.makeString("'"));
+        assertTrue(html.hasDirectlyTaintedTransitions());
+        assertTrue(html.run("n='''"));
+        assertFalse(Transducers.htmlspecialchars(makeString("a\"<", Transition.Taint.Directly))
+            .hasDirectlyTaintedTransitions());
+        assertTrue(Transducers.htmlspecialchars(makeString("a'", Transition.Taint.Directly))
+            .hasDirectlyTaintedTransitions());
+
+        // the other transductions keep the taint
+        Automaton tainted = Automaton.makeString(" X ").concatenate(Automaton.makeAnyString(Transition.Taint.Directly));
+        assertTrue(Transducers.strtolower(tainted).hasDirectlyTaintedTransitions());
+        assertTrue(Transducers.trim(tainted, Transducers.WHITESPACE, true, true).hasDirectlyTaintedTransitions());
+        assertTrue(Transducers.substr(tainted, 2, 5).hasDirectlyTaintedTransitions());
+        assertFalse(Transducers.substr(tainted, 0, 3).hasTaintedTransitions());
+        assertTrue(Replacement.replaceString(tainted, "X", Automaton.makeString("y")).hasDirectlyTaintedTransitions());
+    }
+}
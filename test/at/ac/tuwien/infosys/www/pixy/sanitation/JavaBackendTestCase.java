@@ -0,0 +1,154 @@
+package at.ac.tuwien.infosys.www.pixy.sanitation;
+
+import at.ac.tuwien.infosys.www.pixy.automaton.Automaton;
+import at.ac.tuwien.infosys.www.pixy.automaton.Replacement;
+import at.ac.tuwien.infosys.www.pixy.automaton.State;
+import at.ac.tuwien.infosys.www.pixy.automaton.Transition;
+import junit.framework.TestCase;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Cross-checks the transductions of JavaBackend (and the taint handling of Replacement) against
+ * java.lang.String and java.util.regex.
+ */
+public class JavaBackendTestCase extends TestCase {
+    private static final String CHARS = "aabc<>' \\";
+
+    private final JavaBackend backend = JavaBackend.INSTANCE;
+
+    protected void setUp() {
+        JavaAutomaton.reset();
+    }
+
+    private String randomString(Random random) {
+        StringBuilder s = new StringBuilder();
+        for (int i = random.nextInt(7); i > 0; i--) {
+            s.append(CHARS.charAt(random.nextInt(CHARS.length())));
+        }
+        return s.toString();
+    }
+
+    // a union of a few random strings, and the strings themselves
+    private JavaAutomaton randomSubject(Random random, Set<String> strings) {
+        Automaton subject = Automaton.makeEmpty();
+        for (int i = random.nextInt(3) + 1; i > 0; i--) {
+            String s = this.randomString(random);
+            strings.add(s);
+            subject = subject.union(Automaton.makeString(s));
+        }
+        return JavaAutomaton.wrap(subject);
+    }
+
+    private static Set<String> getStrings(JavaAutomaton automaton) {
+        Automaton a = automaton.getAutomaton();
+        Set<String> strings = new HashSet<>(a.getFiniteStrings());
+        if (a.run("")) {
+            strings.add("");
+        }
+        return strings;
+    }
+
+    public void testStrReplace() {
+        Random random = new Random(0);
+        for (String search : new String[]{"a", "ab", "aab", "aa", "'", "\\"}) {
+            for (String replace : new String[]{"", "R", "\\'"}) {
+                for (int i = 0; i < 100; i++) {
+                    Set<String> strings = new HashSet<>();
+                    JavaAutomaton subject = this.randomSubject(random, strings);
+                    Set<String> expected = new HashSet<>();
+                    for (String s : strings) {
+                        expected.add(s.replace(search, replace));
+                    }
+                    JavaAutomaton result = this.backend.str_replace(
+                        this.backend.makeString(search), this.backend.makeString(replace), subject, null);
+                    assertEquals(search + " in " + strings, expected, getStrings(result));
+                }
+            }
+        }
+    }
+
+    public void testPregReplaceCharClass() {
+        Random random = new Random(1);
+        for (String regex : new String[]{"[<>]", "[^a-c]", "[a<]+", "[^<>]+", "\\s"}) {
+            Pattern pattern = Pattern.compile(regex);
+            for (String replace : new String[]{"", "R"}) {
+                for (int i = 0; i < 100; i++) {
+                    Set<String> strings = new HashSet<>();
+                    JavaAutomaton subject = this.randomSubject(random, strings);
+                    Set<String> expected = new HashSet<>();
+                    for (String s : strings) {
+                        expected.add(pattern.matcher(s).replaceAll(replace));
+                    }
+                    JavaAutomaton result = this.backend.reg_replace(this.backend.makeString("/" + regex + "/"),
+                        this.backend.makeString(replace), subject, true, null);
+                    assertEquals(regex + " in " + strings, expected, getStrings(result));
+                }
+            }
+        }
+    }
+
+    public void testCache() {
+        JavaAutomaton subject = this.backend.makeString("a<b");
+        JavaAutomaton search = this.backend.makeString("<");
+        JavaAutomaton replace = this.backend.makeString("");
+        JavaAutomaton result = this.backend.str_replace(search, replace, subject, null);
+        assertSame(result, this.backend.str_replace(search, replace, subject, null));
+        JavaAutomaton pattern = this.backend.makeString("/[<>]/");
+        JavaAutomaton regResult = this.backend.reg_replace(pattern, replace, subject, true, null);
+        assertSame(regResult, this.backend.reg_replace(pattern, replace, subject, true, null));
+        assertEquals(getStrings(result), getStrings(regResult));
+    }
+
+    // automaton for the given string, with the given taint
+    private static Automaton makeString(String s, Transition.Taint taint) {
+        Automaton a = new Automaton();
+        State current = a.getInitialState();
+        for (int i = 0; i < s.length(); i++) {
+            State next = new State();
+            current.addTransition(new Transition(s.charAt(i), next, taint));
+            current = next;
+        }
+        current.setAccept(true);
+        return a;
+    }
+
+    public void testTaint() {
+        Automaton r = Automaton.makeString("R");
+        Automaton anyTainted = Automaton.makeAnyString(Transition.Taint.Directly);
+        PhpRegex brackets = Regex2Automaton.compile("/[<>]/", true);
+        PhpRegex bracketRuns = Regex2Automaton.compile("/[<>]+/", true);
+
+        // matched characters are replaced together with their taint
+        assertFalse(brackets.replaceAll(makeString("<>", Transition.Taint.Directly), r).hasTaintedTransitions());
+        assertFalse(bracketRuns.replaceAll(makeString("<>", Transition.Taint.Directly), r).hasTaintedTransitions());
+        assertFalse(Replacement.replaceString(makeString("<>", Transition.Taint.Directly), "<>", r)
+            .hasTaintedTransitions());
+
+        // the other characters keep their taint
+        Automaton subject = Automaton.makeString("x<").concatenate(makeString("a", Transition.Taint.Indirectly));
+        Automaton result = brackets.replaceAll(subject, r);
+        assertTrue(result.run("xRa"));
+        assertTrue(result.hasIndirectlyTaintedTransitions());
+        assertFalse(result.hasDirectlyTaintedTransitions());
+        result = Replacement.replaceString(subject, "<", r);
+        assertTrue(result.run("xRa"));
+        assertTrue(result.hasIndirectlyTaintedTransitions());
+
+        result = bracketRuns.replaceAll(anyTainted, Automaton.makeEmptyString());
+        assertTrue(result.hasDirectlyTaintedTransitions());
+        assertFalse(result.run("a<"));
+        assertTrue(result.run("ab"));
+
+        // the taint of the replacement is carried over
+        result = Replacement.replaceString(Automaton.makeString("a<b"), "<", anyTainted);
+        assertTrue(result.hasDirectlyTaintedTransitions());
+        assertTrue(result.run("a<<b"));
+        result = brackets.replaceAll(Automaton.makeString("a<b"), makeString("c", Transition.Taint.Indirectly));
+        assertTrue(result.run("acb"));
+        assertTrue(result.hasIndirectlyTaintedTransitions());
+    }
+}
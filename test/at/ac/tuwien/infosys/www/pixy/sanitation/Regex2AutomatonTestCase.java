@@ -0,0 +1,122 @@
+package at.ac.tuwien.infosys.www.pixy.sanitation;
+
+import at.ac.tuwien.infosys.www.pixy.automaton.Automaton;
+import junit.framework.TestCase;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Cross-checks the regexes compiled by Regex2Automaton against java.util.regex.
+ */
+public class Regex2AutomatonTestCase extends TestCase {
+    // (preg regexes that java.util.regex understands the same way)
+    private static final String[] REGEXES = {
+        "/a/", "/ab|c/", "/a(b|c)*d/", "/[a-c]+/", "/[^a-c\\d]/", "/x{2}/", "/x{1,3}y/", "/(?:ab){2,}/",
+        "/\\w+\\s/", "/[[:digit:]_]/", "/^a+/", "/b$/", "/^ab$/", "/^\\s+|\\s+$/", "/A[B-D]/i", "/a.b/",
+        "/a.b/s", "#'|\"#", "/\\x41\\x{42}/", "/a{,2}/", "/(?<x>a)b/"
+    };
+
+    private static final String CHARS = "abcdxyABCD19_ \n'\"{},";
+
+    private String randomString(Random random) {
+        StringBuilder s = new StringBuilder();
+        for (int i = random.nextInt(6); i > 0; i--) {
+            s.append(CHARS.charAt(random.nextInt(CHARS.length())));
+        }
+        return s.toString();
+    }
+
+    // converts the given preg regex into a java regex
+    private Pattern toPattern(String regex) {
+        int end = regex.lastIndexOf(regex.charAt(0));
+        String modifiers = regex.substring(end + 1);
+        int flags = (modifiers.contains("i") ? Pattern.CASE_INSENSITIVE : 0)
+            | (modifiers.contains("s") ? Pattern.DOTALL : 0);
+        String java = regex.substring(1, end).replace("[[:digit:]", "[\\p{Digit}").replace("{,", "\\{,");
+        if (modifiers.contains("D")) {
+            java = java.replace("$", "\\z");
+        }
+        return Pattern.compile(java, flags);
+    }
+
+    public void testMatches() {
+        Random random = new Random(0);
+        for (String regex : REGEXES) {
+            PhpRegex compiled = Regex2Automaton.compile(regex, true);
+            Pattern pattern = this.toPattern(regex);
+            Automaton subjects = compiled.getMatchingSubjects();
+            Automaton matches = compiled.getMatches();
+            for (int i = 0; i < 300; i++) {
+                String s = this.randomString(random);
+                assertEquals(regex + " on " + s, pattern.matcher(s).find(), subjects.run(s));
+                if (!compiled.isAnchored()) {
+                    assertEquals(regex + " on " + s, pattern.matcher(s).matches(), matches.run(s));
+                }
+            }
+        }
+    }
+
+    public void testReplaceAll() {
+        Random random = new Random(1);
+        for (String regex : new String[]{"/a/", "/[a-c]+/", "/'|\"/", "/^\\s+|\\s+$/", "/^a/", "/b$/D", "/^ab$/"}) {
+            PhpRegex compiled = Regex2Automaton.compile(regex, true);
+            Pattern pattern = this.toPattern(regex);
+            for (int i = 0; i < 100; i++) {
+                String s = this.randomString(random);
+                Automaton result = compiled.replaceAll(Automaton.makeString(s), Automaton.makeString("R"));
+                String expected = pattern.matcher(s).replaceAll("R");
+                if (!compiled.isAnchored()) {
+                    // exact: there are no other results
+                    for (String other : result.getFiniteStrings()) {
+                        assertEquals(regex + " on " + s, expected, other);
+                    }
+                }
+                assertTrue(regex + " on " + s, result.run(expected));
+            }
+        }
+
+        // regexes that match the empty string are not supported by Replacement
+        Automaton b = Automaton.makeString("b");
+        assertNull(Regex2Automaton.compile("/a?/", true).replaceAll(b, Automaton.makeString("R")));
+    }
+
+    public void testUnsupported() {
+        for (String regex : new String[]{"/(a)\\1/", "/a(?=b)/", "/a+?/", "/a/m", "/a^b/", "/(a$)/", "abc"}) {
+            try {
+                Regex2Automaton.compile(regex, true);
+                fail(regex);
+            } catch (UnsupportedRegexException e) {
+                // expected
+            }
+        }
+    }
+
+    public void testCache() {
+        Regex2Automaton.patterns.clear();
+        PhpRegex first = Regex2Automaton.compile("/[a-z]+/", true);
+        assertSame(first, Regex2Automaton.compile("/[a-z]+/", true));
+        assertNotSame(first, Regex2Automaton.compile("[a-z]+", false));
+        assertEquals(1, Regex2Automaton.patterns.getHits());
+
+        // unsupported regexes are cached as well
+        for (int i = 0; i < 2; i++) {
+            try {
+                Regex2Automaton.compile("/(a)\\1/", true);
+                fail();
+            } catch (UnsupportedRegexException e) {
+                // expected
+            }
+        }
+        assertEquals(2, Regex2Automaton.patterns.getHits());
+    }
+
+    public void testPosix() {
+        PhpRegex compiled = Regex2Automaton.compile("[[:alpha:]\\]+", false);
+        Automaton matches = compiled.getMatches();
+        assertTrue(matches.run("ab\\c"));
+        assertFalse(matches.run("a1"));
+        assertFalse(Regex2Automaton.compile("a.b", false).getMatches().run("ab"));
+        assertTrue(Regex2Automaton.compile("a.b", false).getMatches().run("a\nb"));
+    }
+}
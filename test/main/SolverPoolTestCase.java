@@ -0,0 +1,132 @@
+package main;
+
+import junit.framework.TestCase;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Tests the SolverPool against a stub solver process (see StubSolver).
+ */
+public class SolverPoolTestCase extends TestCase {
+
+    private SolverPool pool;
+
+    protected void setUp() {
+        String command = System.getProperty("java.home") + "/bin/java -cp " + System.getProperty("java.class.path")
+            + " " + StubSolver.class.getName();
+        this.pool = new SolverPool(command, VCGenerator.PREAMBLE, 2);
+    }
+
+    protected void tearDown() {
+        this.pool.shutdown();
+    }
+
+    public void testResults() throws Exception {
+        assertEquals(SmtSolver.Result.SAT, this.pool.check("(assert x)\n", "(assert y)\n", 10000));
+        assertEquals(SmtSolver.Result.UNSAT, this.pool.check("(assert x)\n", "(assert false)\n", 10000));
+        assertEquals(SmtSolver.Result.UNKNOWN, this.pool.check("(assert x)\n", "(assert hard)\n", 10000));
+    }
+
+    // the assertions of a query must not leak into the next one, and a new
+    // program must replace the old one
+    public void testScopes() throws Exception {
+        assertEquals(SmtSolver.Result.UNSAT, this.pool.check("(assert x)\n", "(assert false)\n", 10000));
+        assertEquals(SmtSolver.Result.SAT, this.pool.check("(assert x)\n", "(assert y)\n", 10000));
+        assertEquals(SmtSolver.Result.UNSAT, this.pool.check("(assert false)\n", "(assert y)\n", 10000));
+        assertEquals(SmtSolver.Result.SAT, this.pool.check("(assert x)\n", "(assert y)\n", 10000));
+        assertEquals(1, this.pool.getNumStarted());
+    }
+
+    // a solver that does not answer in time is replaced
+    public void testTimeout() throws Exception {
+        long start = System.nanoTime();
+        assertEquals(SmtSolver.Result.TIMEOUT, this.pool.check("(assert x)\n", "(assert loop)\n", 500));
+        assertTrue((System.nanoTime() - start) / 1000000 < 5000);
+        assertEquals(0, this.pool.getNumStarted());
+        assertEquals(SmtSolver.Result.SAT, this.pool.check("(assert x)\n", "(assert y)\n", 10000));
+    }
+
+    public void testParallel() throws Exception {
+        final List<SmtSolver.Result> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            final String query = i % 2 == 0 ? "(assert y)\n" : "(assert false)\n";
+            Thread thread = new Thread() {
+                public void run() {
+                    try {
+                        SmtSolver.Result result = pool.check("(assert x)\n", query, 10000);
+                        synchronized (results) {
+                            results.add(result);
+                        }
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(6, results.size());
+        assertEquals(3, countOf(results, SmtSolver.Result.SAT));
+        assertEquals(3, countOf(results, SmtSolver.Result.UNSAT));
+        assertTrue(this.pool.getNumStarted() <= 2);
+    }
+
+    private static int countOf(List<SmtSolver.Result> results, SmtSolver.Result result) {
+        int count = 0;
+        for (SmtSolver.Result r : results) {
+            if (r == result) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+//  ********************************************************************************
+
+    /**
+     * A stand-in for an SMT solver: keeps a stack of scopes, and answers check-sat with
+     * "unsat" if an assertion in scope is "(assert false)", with "unknown" for "(assert hard)",
+     * never for "(assert loop)", and with "sat" otherwise.
+     */
+    public static class StubSolver {
+        public static void main(String[] args) throws Exception {
+            BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+            LinkedList<List<String>> scopes = new LinkedList<>();
+            scopes.add(new ArrayList<String>());
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.startsWith("(push")) {
+                    scopes.add(new ArrayList<String>());
+                } else if (line.startsWith("(pop")) {
+                    scopes.removeLast();
+                } else if (line.startsWith("(assert")) {
+                    scopes.getLast().add(line);
+                } else if (line.equals("(check-sat)")) {
+                    String answer = "sat";
+                    for (List<String> scope : scopes) {
+                        for (String assertion : scope) {
+                            if (assertion.equals("(assert false)")) {
+                                answer = "unsat";
+                            } else if (assertion.equals("(assert hard)") && answer.equals("sat")) {
+                                answer = "unknown";
+                            } else if (assertion.equals("(assert loop)")) {
+                                Thread.sleep(Long.MAX_VALUE);
+                            }
+                        }
+                    }
+                    System.out.println(answer);
+                    System.out.flush();
+                }
+            }
+        }
+    }
+}
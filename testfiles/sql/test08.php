@@ -1,6 +1,6 @@
 <? //
 
-// unmodeled builtin functions
+// builtin functions that are modeled by transducers (see BuiltinTransductions)
 
 $a = 'x';
 $a = trim($a);